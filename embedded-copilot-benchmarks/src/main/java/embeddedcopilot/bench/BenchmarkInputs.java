@@ -0,0 +1,180 @@
+package embeddedcopilot.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Deterministic inputs for the benchmarks, scaled to a target size.
+ *
+ * Sizes are given as JMH parameters like "1KB", "64KB", "1MB" or "8MB" so every benchmark runs
+ * from tiny inputs to multi-megabyte ones.
+ */
+final class BenchmarkInputs {
+
+    private static final String[] WORDS = {
+        "the", "class", "method", "returns", "value", "field", "update", "check", "file", "line",
+        "parser", "buffer", "index", "result", "change", "test", "call", "error", "list", "map"
+    };
+
+    private BenchmarkInputs() {
+    }
+
+    /**
+     * @param size e.g. "512", "64KB" or "8MB"
+     * @return the size in bytes
+     */
+    static int parseSize(String size) {
+        String s = size.trim().toUpperCase();
+        if (s.endsWith("MB")) {
+            return Integer.parseInt(s.substring(0, s.length() - 2)) * 1024 * 1024;
+        }
+        if (s.endsWith("KB")) {
+            return Integer.parseInt(s.substring(0, s.length() - 2)) * 1024;
+        }
+        return Integer.parseInt(s);
+    }
+
+    /**
+     * @return Java-like source text of roughly the given size, with varied indentation
+     */
+    static String sourceFile(int bytes, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(bytes + 128);
+        int line = 0;
+        while (sb.length() < bytes) {
+            int indent = 4 * (1 + line % 3);
+            sb.append(" ".repeat(indent));
+            if (line % 10 == 0) {
+                sb.append("public void method").append(line).append("() {");
+            } else if (line % 10 == 9) {
+                sb.append('}');
+            } else {
+                sb.append(words(random, 4 + random.nextInt(8))).append(';');
+            }
+            sb.append('\n');
+            line++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the content with about one line in `every` changed, deleted or added
+     */
+    static String edit(String content, int every, long seed) {
+        Random random = new Random(seed);
+        String[] lines = content.split("\n", -1);
+        StringBuilder sb = new StringBuilder(content.length() + content.length() / every);
+        for (int i = 0; i < lines.length; i++) {
+            if (i % every != every / 2) {
+                sb.append(lines[i]);
+            } else {
+                switch (random.nextInt(3)) {
+                    case 0 -> sb.append(lines[i]).append(" // changed");
+                    case 1 -> {
+                        continue; // Deleted
+                    }
+                    default -> sb.append(lines[i]).append('\n').append("        added(").append(i).append(");");
+                }
+            }
+            if (i < lines.length - 1) {
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Messages as Cline prints them in `task view -F json`, one JSON object per line, about `bytes` in total.
+     * Mostly short text/reasoning with periodic tool calls and large command outputs.
+     */
+    static List<String> taskViewMessages(int bytes, long seed) {
+        Random random = new Random(seed);
+        List<String> messages = new ArrayList<>();
+        long ts = 1_700_000_000_000L;
+        int total = 0;
+        int i = 0;
+        while (total < bytes) {
+            JsonObject json = new JsonObject();
+            json.addProperty("ts", ts += 1 + random.nextInt(500));
+            if (i == 0) {
+                say(json, "text", "Please refactor the parser");
+            } else if (i % 25 == 0) {
+                json.addProperty("type", "ask");
+                json.addProperty("ask", "tool");
+                json.addProperty("text", "{\"tool\":\"editedExistingFile\",\"path\":\"src/Parser" + i + ".java\"}");
+            } else if (i % 10 == 0) {
+                say(json, "tool", "{\"tool\":\"readFile\",\"path\":\"src/File" + i + ".java\"}");
+            } else if (i % 10 == 1) {
+                say(json, "command_output", words(random, 50 + random.nextInt(400)).replace(" call ", "\ncall "));
+            } else if (i % 10 == 2) {
+                say(json, "api_req_started", "{\"request\":\"" + i + "\",\"tokensIn\":1200,\"tokensOut\":300}");
+            } else {
+                say(json, i % 2 == 0 ? "text" : "reasoning", words(random, 10 + random.nextInt(60)));
+            }
+            String line = json.toString();
+            messages.add(line);
+            total += line.length() + 1;
+            i++;
+        }
+        return messages;
+    }
+
+    /**
+     * @return the raw `task view -v -F json` output lines for the messages (verbose log lines first)
+     */
+    static List<String> taskViewOutput(List<String> messages) {
+        List<String> lines = new ArrayList<>(messages.size() + 3);
+        lines.add("Using instance: 127.0.0.1:50051");
+        lines.add("Fetching task state...");
+        lines.addAll(messages);
+        return lines;
+    }
+
+    /**
+     * @return Unix `diff` output (normal format) between two texts, as ProjectService parses it
+     */
+    static String unixDiff(String before, String after) throws IOException, InterruptedException {
+        File beforeFile = File.createTempFile("bench_before_", ".txt");
+        File afterFile = File.createTempFile("bench_after_", ".txt");
+        try {
+            Files.writeString(beforeFile.toPath(), before);
+            Files.writeString(afterFile.toPath(), after);
+            Process process = new ProcessBuilder("diff", beforeFile.getAbsolutePath(), afterFile.getAbsolutePath())
+                .redirectErrorStream(true).start();
+            String output;
+            try (InputStream in = process.getInputStream()) {
+                output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            process.waitFor();
+            return output;
+        } finally {
+            beforeFile.delete();
+            afterFile.delete();
+        }
+    }
+
+    private static void say(JsonObject json, String say, String text) {
+        json.addProperty("type", "say");
+        json.addProperty("say", say);
+        json.addProperty("text", text);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder(count * 6);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package embeddedcopilot.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import embeddedcopilot.diff.LineDiff;
+import embeddedcopilot.diff.LineDiff.CombinedLine;
+import embeddedcopilot.diff.LineDiff.DiffOperation;
+import embeddedcopilot.diff.LineIndex;
+
+/**
+ * The diff editor pipeline of ProjectService.showDiffViewFromBackup: computing the diff (including the
+ * `diff` process), parsing its output, merging removed lines into the new content, and the line
+ * offset table used for highlighting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Dembeddedcopilot.log.file=none", "-Dembeddedcopilot.log.level=WARN" })
+public class LineDiffBenchmark {
+
+    @Param({ "1KB", "64KB", "1MB", "8MB" })
+    public String size;
+
+    /** One changed, deleted or added line in this many */
+    @Param({ "20" })
+    public int changeEvery;
+
+    private String before;
+    private String after;
+    private String[] afterLines;
+    private String diffOutput;
+    private List<DiffOperation> operations;
+    private String combinedContent;
+
+    @Setup
+    public void setup() throws Exception {
+        before = BenchmarkInputs.sourceFile(BenchmarkInputs.parseSize(size), 7);
+        after = BenchmarkInputs.edit(before, changeEvery, 7);
+        afterLines = after.split("\n", -1);
+        diffOutput = BenchmarkInputs.unixDiff(before, after);
+        operations = LineDiff.parseDiffOutput(diffOutput);
+        combinedContent = LineDiff.combinedLinesToString(LineDiff.buildCombinedContent(afterLines, operations));
+    }
+
+    @Benchmark
+    public List<DiffOperation> computeDiffOperations() throws Exception {
+        return LineDiff.computeDiffOperations(before, after);
+    }
+
+    @Benchmark
+    public List<DiffOperation> parseDiffOutput() {
+        return LineDiff.parseDiffOutput(diffOutput);
+    }
+
+    @Benchmark
+    public List<CombinedLine> buildCombinedContent() {
+        return LineDiff.buildCombinedContent(afterLines, operations);
+    }
+
+    @Benchmark
+    public LineIndex lineIndex() {
+        return LineIndex.of(combinedContent);
+    }
+}
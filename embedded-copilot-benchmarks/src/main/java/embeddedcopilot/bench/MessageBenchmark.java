@@ -0,0 +1,72 @@
+package embeddedcopilot.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import embeddedcopilot.service.MessageFilter;
+import embeddedcopilot.service.MessageProcessor;
+
+/**
+ * Per-message work done for every polled message: MessageProcessor.process on decoded JSON and the
+ * chat's display filtering (ChatUIManager.filterClineMessage delegates to MessageFilter).
+ * Each operation handles a whole task's messages, as one full `task view` poll does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Dembeddedcopilot.log.file=none", "-Dembeddedcopilot.log.level=WARN" })
+public class MessageBenchmark {
+
+    @Param({ "1KB", "64KB", "1MB", "8MB" })
+    public String size;
+
+    private List<String> jsonLines;
+    private List<JsonObject> decoded;
+
+    @Setup
+    public void setup() {
+        jsonLines = BenchmarkInputs.taskViewMessages(BenchmarkInputs.parseSize(size), 42);
+        decoded = new ArrayList<>(jsonLines.size());
+        for (String line : jsonLines) {
+            decoded.add(JsonParser.parseString(line).getAsJsonObject());
+        }
+    }
+
+    /**
+     * A fresh processor per poll output, so deduplication does not skip the messages
+     */
+    @Benchmark
+    public void process(Blackhole bh) {
+        MessageProcessor processor = new MessageProcessor();
+        processor.startNewPrompt("Please refactor the parser");
+        for (JsonObject json : decoded) {
+            bh.consume(processor.process(json));
+        }
+    }
+
+    @Benchmark
+    public void filter(Blackhole bh) {
+        for (String line : jsonLines) {
+            bh.consume(MessageFilter.filter(line));
+        }
+    }
+}
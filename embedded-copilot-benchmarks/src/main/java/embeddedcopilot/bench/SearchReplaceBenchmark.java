@@ -0,0 +1,96 @@
+package embeddedcopilot.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import embeddedcopilot.diff.PatchEngine;
+import embeddedcopilot.diff.SearchReplaceDiff;
+
+/**
+ * Applying Cline's SEARCH/REPLACE edits. The match mode picks which path constructNewFileContentV1 takes:
+ * EXACT blocks are found with indexOf, LINE_TRIMMED blocks differ only in indentation (exact match fails,
+ * lineTrimmedFallbackMatch succeeds), BLOCK_ANCHOR blocks only match on their first and last lines
+ * (both earlier strategies fail, blockAnchorFallbackMatch succeeds). patchEngine applies the same edit
+ * with PatchEngine, which the plugin uses for previews.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Dembeddedcopilot.log.file=none", "-Dembeddedcopilot.log.level=WARN" })
+public class SearchReplaceBenchmark {
+
+    public enum MatchMode { EXACT, LINE_TRIMMED, BLOCK_ANCHOR }
+
+    private static final int BLOCKS = 4;      // SEARCH/REPLACE blocks per edit, spread over the file
+    private static final int BLOCK_LINES = 5; // Lines per SEARCH block
+
+    @Param({ "1KB", "64KB", "1MB", "8MB" })
+    public String size;
+
+    @Param({ "EXACT", "LINE_TRIMMED", "BLOCK_ANCHOR" })
+    public MatchMode mode;
+
+    private String original;
+    private String diff;
+    private String lastSearch; // Search text of the last block, for the fallback matchers alone
+
+    @Setup
+    public void setup() {
+        original = BenchmarkInputs.sourceFile(BenchmarkInputs.parseSize(size), 3);
+        String[] lines = original.split("\n", -1);
+        int usable = lines.length - 1 - BLOCK_LINES;
+        int blocks = Math.max(1, Math.min(BLOCKS, usable / (BLOCK_LINES + 1) - 1)); // Blocks must not overlap
+        StringBuilder sb = new StringBuilder();
+        for (int b = 0; b < blocks; b++) {
+            int start = (int) ((long) usable * (b + 1) / (blocks + 1));
+            StringBuilder search = new StringBuilder();
+            for (int i = 0; i < BLOCK_LINES; i++) {
+                String line = lines[start + i];
+                if (mode == MatchMode.LINE_TRIMMED) {
+                    line = "\t" + line.trim();
+                } else if (mode == MatchMode.BLOCK_ANCHOR && i > 0 && i < BLOCK_LINES - 1) {
+                    line = line + " // outdated";
+                }
+                search.append(line).append('\n');
+            }
+            lastSearch = search.toString();
+            sb.append("------- SEARCH\n").append(search).append("=======\n");
+            sb.append("        replaced(").append(b).append(");\n");
+            sb.append("+++++++ REPLACE\n");
+        }
+        diff = sb.toString();
+    }
+
+    @Benchmark
+    public String constructNewFileContentV1() {
+        return SearchReplaceDiff.constructNewFileContentV1(diff, original, true);
+    }
+
+    @Benchmark
+    public String patchEngine() {
+        return PatchEngine.apply(diff, original).content;
+    }
+
+    @Benchmark
+    public int[] lineTrimmedFallbackMatch() {
+        return SearchReplaceDiff.lineTrimmedFallbackMatch(original, lastSearch, 0);
+    }
+
+    @Benchmark
+    public int[] blockAnchorFallbackMatch() {
+        return SearchReplaceDiff.blockAnchorFallbackMatch(original, lastSearch, 0);
+    }
+}
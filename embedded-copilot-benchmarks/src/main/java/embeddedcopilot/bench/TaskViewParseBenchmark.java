@@ -0,0 +1,78 @@
+package embeddedcopilot.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.JsonParser;
+
+import embeddedcopilot.service.MessageProcessor;
+import embeddedcopilot.service.TaskViewSplitter;
+
+/**
+ * One poll of TaskPollingService: the `task view` output lines are split into JSON objects, decoded
+ * and run through MessageProcessor, as the poller does while the output streams in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Dembeddedcopilot.log.file=none", "-Dembeddedcopilot.log.level=WARN" })
+public class TaskViewParseBenchmark {
+
+    @Param({ "1KB", "64KB", "1MB", "8MB" })
+    public String size;
+
+    private List<String> output;
+
+    @Setup
+    public void setup() {
+        output = BenchmarkInputs.taskViewOutput(BenchmarkInputs.taskViewMessages(BenchmarkInputs.parseSize(size), 42));
+    }
+
+    /**
+     * Splitting only (buffering lines into objects)
+     */
+    @Benchmark
+    public int split(Blackhole bh) {
+        TaskViewSplitter splitter = new TaskViewSplitter(json -> {
+            bh.consume(json);
+            return false;
+        });
+        for (String line : output) {
+            splitter.accept(line);
+        }
+        splitter.finish();
+        return splitter.getObjects();
+    }
+
+    /**
+     * Splitting, JSON decoding and MessageProcessor - the poller's whole per-poll parsing cost
+     */
+    @Benchmark
+    public int splitAndProcess(Blackhole bh) {
+        MessageProcessor processor = new MessageProcessor();
+        TaskViewSplitter splitter = new TaskViewSplitter(json -> {
+            bh.consume(processor.process(JsonParser.parseString(json).getAsJsonObject()));
+            return false;
+        });
+        for (String line : output) {
+            splitter.accept(line);
+        }
+        splitter.finish();
+        return splitter.getObjects();
+    }
+}
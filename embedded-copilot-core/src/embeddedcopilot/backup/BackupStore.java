@@ -0,0 +1,538 @@
+package embeddedcopilot.backup;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import embeddedcopilot.concurrent.ExecutionScope;
+import embeddedcopilot.concurrent.PluginExecutors;
+import embeddedcopilot.concurrent.WorkCategory;
+import embeddedcopilot.diff.ContentHash;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.metrics.Counter;
+import embeddedcopilot.metrics.Histogram;
+import embeddedcopilot.metrics.Metrics;
+
+/**
+ * Content-addressed store for file backups: every distinct content is stored once, under its SHA-256,
+ * however many backups refer to it.
+ *
+ * Files are streamed into the store, never read into a String, and contents above a size threshold are
+ * gzip-compressed. A Backup pins its object until released. A background sweep deletes unpinned objects
+ * older than the retention age and then, oldest first, unpinned objects over the size cap. It also
+ * removes the uniquely named copies older versions left in the directory.
+ *
+ * Pins only live in this process's memory, so a store directory belongs to one process at a time: the
+ * store holds a lock on it while open. If another process has it (e.g. a second Eclipse instance with the
+ * same default directory), the store uses the first free numbered directory inside it instead, so one
+ * process's sweep never deletes what another has pinned.
+ *
+ * Settings: -Dembeddedcopilot.backup.dir (default java.io.tmpdir/cline_backups_&lt;user&gt;),
+ * -Dembeddedcopilot.backup.maxMb (default 512), -Dembeddedcopilot.backup.maxAgeHours (default 168),
+ * -Dembeddedcopilot.backup.compressKb (default 64).
+ */
+public final class BackupStore implements Closeable {
+
+    private static final Logger LOG = Log.get(BackupStore.class);
+
+    private static final Histogram PUT_TIME = Metrics.timer("backup.put");
+    private static final Counter DEDUPLICATED = Metrics.counter("backup.deduplicated");   // Puts of content already stored
+    private static final Counter WRITTEN = Metrics.counter("backup.written");             // Objects written
+    private static final Counter EVICTED = Metrics.counter("backup.evicted");             // Objects deleted by the sweep
+
+    private static final String COMPRESSED_SUFFIX = ".gz";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String LOCK_FILE = ".lock";
+    private static final int MAX_INSTANCE_DIRECTORIES = 64;     // Numbered directories tried when the requested one is taken
+    private static final long SWEEP_INTERVAL_MS = 10 * 60 * 1000;  // Age-based cleanup at most this often
+    private static final long SWEEP_DELAY_MS = 5000;               // After the store is opened or grows over the cap
+    private static final long TEMP_MAX_AGE_MS = 60 * 60 * 1000;    // Leftovers of interrupted puts
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Lazily created plugin-wide store
+     */
+    private static final class Shared {
+        static final BackupStore STORE = new BackupStore(
+            Paths.get(System.getProperty("embeddedcopilot.backup.dir",
+                Paths.get(System.getProperty("java.io.tmpdir"), "cline_backups_" + System.getProperty("user.name")).toString())),
+            Long.getLong("embeddedcopilot.backup.maxMb", 512) * 1024 * 1024,
+            Long.getLong("embeddedcopilot.backup.maxAgeHours", 168) * 60 * 60 * 1000,
+            Long.getLong("embeddedcopilot.backup.compressKb", 64) * 1024);
+
+        static {
+            Metrics.gauge("backup.store.bytes", STORE::getSizeBytes);
+        }
+    }
+
+    /**
+     * A stored content. Reading never changes it; release() once the backup is no longer needed.
+     * The absent() backup stands for a file that did not exist: it reads as empty and is not stored.
+     */
+    public static final class Backup {
+        public final String hash;
+        public final long size;            // Content size (uncompressed)
+        private final BackupStore store;
+        private final Path object;
+        private final boolean compressed;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Backup(BackupStore store, String hash, long size, Path object, boolean compressed) {
+            this.store = store;
+            this.hash = hash;
+            this.size = size;
+            this.object = object;
+            this.compressed = compressed;
+        }
+
+        /**
+         * @return a stream of the content (decompressed)
+         */
+        public InputStream open() throws IOException {
+            if (object == null) {
+                return InputStream.nullInputStream();
+            }
+            InputStream in = Files.newInputStream(object);
+            return compressed ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+        }
+
+        public byte[] readAllBytes() throws IOException {
+            try (InputStream in = open()) {
+                return in.readAllBytes();
+            }
+        }
+
+        /**
+         * Writes the content to a file, replacing it
+         */
+        public void copyTo(Path target) throws IOException {
+            if (compressed || object == null) {
+                try (InputStream in = open()) {
+                    Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                Files.copy(object, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * @return true for the backup of a file that did not exist (restoring it deletes the file)
+         */
+        public boolean isAbsent() {
+            return object == null;
+        }
+
+        /**
+         * @return another pin on the same content, released separately (call while this one is held)
+         */
+        public Backup pin() {
+            if (store == null) {
+                return this;
+            }
+            if (released.get()) {
+                throw new IllegalStateException("Backup " + hash + " was released");
+            }
+            store.pin(hash);
+            return new Backup(store, hash, size, object, compressed);
+        }
+
+        /**
+         * Unpins the content so retention may delete it (no-op when called again)
+         */
+        public void release() {
+            if (store != null && released.compareAndSet(false, true)) {
+                store.unpin(hash);
+            }
+        }
+    }
+
+    private static final Backup ABSENT = new Backup(null, "absent", 0, null, false);
+
+    private final Path root;
+    private final FileChannel lock; // Held while the store is open, null if the file system can't lock
+    private final Path objects;
+    private final Path temp;
+    private final long maxBytes;
+    private final long maxAgeMs;
+    private final long compressThreshold;
+    private final Map<String, Integer> pins = new HashMap<>(); // Hash -> live Backups; guarded by this
+    private final AtomicLong sizeBytes = new AtomicLong();     // On-disk size, exact after each sweep
+    private final AtomicBoolean sweepScheduled = new AtomicBoolean();
+    private final ExecutionScope scope = PluginExecutors.newScope("BackupRetention", WorkCategory.DISK_IO);
+    private volatile long lastSweep = 0;
+
+    /**
+     * Opens a store in the directory, or in a numbered directory inside it if another process uses it
+     */
+    public BackupStore(Path root, long maxBytes, long maxAgeMs, long compressThreshold) {
+        FileChannel claimed = null;
+        try {
+            for (int instance = 0; claimed == null; instance++) {
+                if (instance > MAX_INSTANCE_DIRECTORIES) {
+                    throw new IOException("All " + MAX_INSTANCE_DIRECTORIES + " instance directories are in use");
+                }
+                Path directory = instance == 0 ? root : root.resolve("instance-" + instance);
+                claimed = tryLock(directory);
+                if (claimed != null) {
+                    root = directory;
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not lock backup store " + root + ", another process may sweep it: " + e.getMessage());
+        }
+        this.root = root;
+        this.lock = claimed;
+        this.objects = root.resolve("objects");
+        this.temp = root.resolve("tmp");
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+        this.compressThreshold = compressThreshold;
+        scheduleSweep();
+    }
+
+    /**
+     * @return the directory's lock channel, or null if another process (or store) holds the lock
+     */
+    private static FileChannel tryLock(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null; // Another store of this process
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (acquired == null) {
+            channel.close();
+            return null;
+        }
+        return channel;
+    }
+
+    /**
+     * Stops the sweeps and unlocks the directory. Backups still held stay readable until their objects
+     * are swept by the directory's next owner.
+     */
+    @Override
+    public void close() {
+        scope.close();
+        if (lock != null) {
+            try {
+                lock.close(); // Releases the lock
+            } catch (IOException e) {
+                LOG.debug(() -> "Could not unlock " + root + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return the backup of a file that did not exist, e.g. one Cline is about to create
+     */
+    public static Backup absent() {
+        return ABSENT;
+    }
+
+    /**
+     * @return the plugin-wide store
+     */
+    public static BackupStore shared() {
+        return Shared.STORE;
+    }
+
+    /**
+     * Stores a file's content. Small files are read once; large ones are hashed first, so content that is
+     * already stored costs a read instead of a write, then streamed through gzip into the store.
+     */
+    public Backup put(Path file) throws IOException {
+        long start = System.nanoTime();
+        try {
+            long size = Files.size(file);
+            if (size <= compressThreshold) {
+                return store(Files.readAllBytes(file));
+            }
+            Backup existing = pinExisting(hash(file), size);
+            if (existing != null) {
+                DEDUPLICATED.increment();
+                return existing;
+            }
+            // Hashed again while copying - the file may have changed since the first pass
+            try (InputStream in = Files.newInputStream(file)) {
+                return storeCompressed(in);
+            }
+        } finally {
+            PUT_TIME.recordSince(start);
+        }
+    }
+
+    /**
+     * Stores the rest of a stream and closes it. Content up to the compression threshold is buffered
+     * and stored like a byte[]; larger content is streamed through gzip into the store.
+     */
+    public Backup put(InputStream in) throws IOException {
+        long start = System.nanoTime();
+        try {
+            byte[] head = in.readNBytes((int) Math.min(compressThreshold + 1, Integer.MAX_VALUE - 8));
+            if (head.length <= compressThreshold) {
+                return store(head);
+            }
+            return storeCompressed(new SequenceInputStream(new ByteArrayInputStream(head), in));
+        } finally {
+            PUT_TIME.recordSince(start);
+        }
+    }
+
+    /**
+     * Streams content through gzip into a temp file, hashing it on the way, then commits it
+     */
+    private Backup storeCompressed(InputStream content) throws IOException {
+        Path tempFile = newTempFile();
+        MessageDigest digest = ContentHash.newDigest();
+        long copied;
+        try (InputStream in = new DigestInputStream(content, digest);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE)) {
+            copied = in.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        return commit(tempFile, ContentHash.hex(digest.digest()), copied, true);
+    }
+
+    /**
+     * Stores content that is already in memory
+     */
+    public Backup put(byte[] content) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return store(content);
+        } finally {
+            PUT_TIME.recordSince(start);
+        }
+    }
+
+    /**
+     * @return a new pin on stored content, or null if it isn't (or no longer) stored
+     */
+    public Backup get(String hash, long size) {
+        return pinExisting(hash, size);
+    }
+
+    private Backup store(byte[] content) throws IOException {
+        String hash = ContentHash.of(content);
+        Backup existing = pinExisting(hash, content.length);
+        if (existing != null) {
+            DEDUPLICATED.increment();
+            return existing;
+        }
+        boolean compress = content.length > compressThreshold;
+        Path tempFile = newTempFile();
+        try (OutputStream out = compress
+                ? new GZIPOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE)
+                : Files.newOutputStream(tempFile)) {
+            out.write(content);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        return commit(tempFile, hash, content.length, compress);
+    }
+
+    /**
+     * Moves a written temp file into place (or drops it if another put stored the content meanwhile)
+     * and pins the object
+     */
+    private Backup commit(Path tempFile, String hash, long size, boolean compressed) throws IOException {
+        Path object = objectPath(hash, compressed);
+        synchronized (this) {
+            if (Files.exists(object)) {
+                Files.delete(tempFile);
+                DEDUPLICATED.increment();
+            } else {
+                Files.createDirectories(object.getParent());
+                long stored = Files.size(tempFile);
+                Files.move(tempFile, object, StandardCopyOption.ATOMIC_MOVE);
+                sizeBytes.addAndGet(stored);
+                WRITTEN.increment();
+                LOG.trace(() -> "Stored " + hash + " (" + size + " bytes, " + stored + " on disk)");
+            }
+            pin(hash);
+        }
+        if (sizeBytes.get() > maxBytes || System.currentTimeMillis() - lastSweep > SWEEP_INTERVAL_MS) {
+            scheduleSweep();
+        }
+        return new Backup(this, hash, size, object, compressed);
+    }
+
+    /**
+     * Pins stored content, marking it recently used for retention
+     */
+    private synchronized Backup pinExisting(String hash, long size) {
+        for (boolean compressed : new boolean[] { false, true }) {
+            Path object = objectPath(hash, compressed);
+            if (Files.exists(object)) {
+                try {
+                    Files.setLastModifiedTime(object, FileTime.fromMillis(System.currentTimeMillis()));
+                } catch (IOException e) {
+                    LOG.debug(() -> "Could not touch " + object + ": " + e.getMessage());
+                }
+                pin(hash);
+                return new Backup(this, hash, size, object, compressed);
+            }
+        }
+        return null;
+    }
+
+    private synchronized void pin(String hash) {
+        pins.merge(hash, 1, Integer::sum);
+    }
+
+    private synchronized void unpin(String hash) {
+        pins.computeIfPresent(hash, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private Path objectPath(String hash, boolean compressed) {
+        return objects.resolve(hash.substring(0, 2)).resolve(compressed ? hash + COMPRESSED_SUFFIX : hash);
+    }
+
+    private Path newTempFile() throws IOException {
+        Files.createDirectories(temp);
+        return Files.createTempFile(temp, "put", TEMP_SUFFIX);
+    }
+
+    /**
+     * @return the hash of a file's content, read in chunks
+     */
+    static String hash(Path file) throws IOException {
+        MessageDigest digest = ContentHash.newDigest();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return ContentHash.hex(digest.digest());
+    }
+
+    private void scheduleSweep() {
+        if (sweepScheduled.compareAndSet(false, true)) {
+            scope.schedule(() -> {
+                sweepScheduled.set(false);
+                sweep();
+            }, SWEEP_DELAY_MS);
+        }
+    }
+
+    /**
+     * Deletes unpinned objects past the retention age, then the least recently used unpinned objects
+     * until the store fits its cap, plus stale temp files and legacy copies
+     */
+    public void sweep() {
+        lastSweep = System.currentTimeMillis();
+        long now = System.currentTimeMillis();
+        try {
+            deleteOlderThan(temp, now - TEMP_MAX_AGE_MS);
+            deleteOlderThan(root, now - maxAgeMs); // Uniquely named copies of older versions
+
+            List<Path> stored = new ArrayList<>();
+            Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+            if (Files.isDirectory(objects)) {
+                try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(objects)) {
+                    for (Path prefix : prefixes) {
+                        try (DirectoryStream<Path> files = Files.newDirectoryStream(prefix)) {
+                            for (Path object : files) {
+                                attributes.put(object, Files.readAttributes(object, BasicFileAttributes.class));
+                                stored.add(object);
+                            }
+                        }
+                    }
+                }
+            }
+            stored.sort(Comparator.comparing(object -> attributes.get(object).lastModifiedTime()));
+
+            long total = 0;
+            for (Path object : stored) {
+                total += attributes.get(object).size();
+            }
+            int evicted = 0;
+            for (Path object : stored) {
+                boolean expired = attributes.get(object).lastModifiedTime().toMillis() < now - maxAgeMs;
+                if (!expired && total <= maxBytes) {
+                    continue;
+                }
+                if (deleteUnpinned(object)) {
+                    total -= attributes.get(object).size();
+                    evicted++;
+                }
+            }
+            sizeBytes.set(total);
+            EVICTED.add(evicted);
+            int evictedCount = evicted;
+            long totalBytes = total;
+            LOG.debug(() -> "Backup sweep: " + evictedCount + " objects deleted, " + totalBytes + " bytes stored");
+        } catch (IOException e) {
+            LOG.warn("Backup sweep failed: " + e.getMessage(), e);
+        }
+    }
+
+    private synchronized boolean deleteUnpinned(Path object) throws IOException {
+        String name = object.getFileName().toString();
+        String hash = name.endsWith(COMPRESSED_SUFFIX) ? name.substring(0, name.length() - COMPRESSED_SUFFIX.length()) : name;
+        return !pins.containsKey(hash) && Files.deleteIfExists(object);
+    }
+
+    /**
+     * Deletes the regular files directly in a directory that were last modified before the cutoff
+     */
+    private static void deleteOlderThan(Path directory, long cutoffMs) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            for (Path file : files) {
+                if (LOCK_FILE.equals(file.getFileName().toString())) {
+                    continue; // Another process could lock a new one while this one holds the old
+                }
+                if (Files.getLastModifiedTime(file).toMillis() < cutoffMs) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    public long getSizeBytes() { return sizeBytes.get(); }
+    public Path getRoot() { return root; }
+}
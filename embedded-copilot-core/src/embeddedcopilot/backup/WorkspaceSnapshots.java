@@ -0,0 +1,375 @@
+package embeddedcopilot.backup;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import embeddedcopilot.backup.BackupStore.Backup;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.metrics.Counter;
+import embeddedcopilot.metrics.Histogram;
+import embeddedcopilot.metrics.Metrics;
+
+/**
+ * Snapshots of a project tree, so a task's file changes can be rolled back whatever made them
+ * (edits, commands, formatters).
+ *
+ * Snapshots are incremental: a file whose size and modification time match the previous snapshot keeps
+ * its hash, so only changed files are read. Their content goes into the BackupStore, which stores each
+ * distinct content once. A file modified shortly before a scan could change again within the same
+ * timestamp, so it is hashed again next time. Rolling back restores the files that differ from the
+ * snapshot and deletes the ones created since.
+ *
+ * Excluded directories (by name) and files above the size limit are neither snapshotted nor touched by a
+ * rollback. Nor is anything else the scan had to skip (unreadable files and directories): a snapshot
+ * records those paths, so a rollback never deletes a file that existed when it was taken. Settings: -Dembeddedcopilot.snapshot.exclude (comma separated, default
+ * .git,.svn,.hg,.metadata,node_modules,target,bin,build), -Dembeddedcopilot.snapshot.maxFileMb (default 20),
+ * -Dembeddedcopilot.snapshot.keep (snapshots kept per task, default 20).
+ */
+public class WorkspaceSnapshots {
+
+    private static final Logger LOG = Log.get(WorkspaceSnapshots.class);
+
+    private static final Histogram TAKE_TIME = Metrics.timer("snapshot.take");
+    private static final Histogram ROLLBACK_TIME = Metrics.timer("snapshot.rollback");
+    private static final Counter HASHED = Metrics.counter("snapshot.hashed"); // Files read because they changed
+
+    private static final long RACY_MS = 2000; // Coarsest common file timestamp resolution (FAT)
+
+    /**
+     * A file as recorded by a snapshot. Shared by consecutive snapshots while the file doesn't change.
+     */
+    static final class Entry {
+        final String hash;
+        final long size;
+        final long modified;
+        final boolean reusable; // false if modified too close to the scan to trust its timestamp
+
+        Entry(String hash, long size, long modified, boolean reusable) {
+            this.hash = hash;
+            this.size = size;
+            this.modified = modified;
+            this.reusable = reusable;
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return reusable && size == attributes.size() && modified == attributes.lastModifiedTime().toMillis();
+        }
+    }
+
+    /**
+     * The state of the tree at one point of the task
+     */
+    public static final class Snapshot {
+        public final int id;
+        public final String label;
+        public final long createdAt;
+        private final Map<String, Entry> files; // By path relative to the root
+        private final Set<String> skipped;      // Files and directories the scan couldn't record; left alone by a rollback
+
+        Snapshot(int id, String label, long createdAt, Map<String, Entry> files, Set<String> skipped) {
+            this.id = id;
+            this.label = label;
+            this.createdAt = createdAt;
+            this.files = files;
+            this.skipped = skipped;
+        }
+
+        /**
+         * @return true if the path, or a directory above it, existed but wasn't recorded
+         */
+        boolean isSkipped(String relative) {
+            for (Path path = Paths.get(relative); path != null; path = path.getParent()) {
+                if (skipped.contains(path.toString())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int getFileCount() {
+            return files.size();
+        }
+
+        public long getBytes() {
+            long bytes = 0;
+            for (Entry entry : files.values()) {
+                bytes += entry.size;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Stored content held by the snapshots; released once no snapshot refers to it
+     */
+    private static final class Pin {
+        Backup backup;
+        int refs;
+    }
+
+    private final BackupStore store;
+    private final Path root;
+    private final Set<String> excludedDirectories;
+    private final long maxFileBytes;
+    private final int keep;
+    private final Deque<Snapshot> snapshots = new ArrayDeque<>(); // Oldest first
+    private final Map<String, Pin> pins = new HashMap<>();       // By hash
+    private int nextId = 1;
+    private boolean closed = false;
+
+    public WorkspaceSnapshots(BackupStore store, Path root, Set<String> excludedDirectories, long maxFileBytes, int keep) {
+        this.store = store;
+        this.root = root;
+        this.excludedDirectories = excludedDirectories;
+        this.maxFileBytes = maxFileBytes;
+        this.keep = Math.max(1, keep);
+    }
+
+    /**
+     * @return snapshots of the project at root, stored in the shared BackupStore, with the configured settings
+     */
+    public static WorkspaceSnapshots forProject(Path root) {
+        String exclude = System.getProperty("embeddedcopilot.snapshot.exclude",
+            ".git,.svn,.hg,.metadata,node_modules,target,bin,build");
+        Set<String> excluded = new HashSet<>();
+        for (String name : Arrays.asList(exclude.split(","))) {
+            if (!name.isBlank()) {
+                excluded.add(name.trim());
+            }
+        }
+        return new WorkspaceSnapshots(BackupStore.shared(), root, excluded,
+            Long.getLong("embeddedcopilot.snapshot.maxFileMb", 20) * 1024 * 1024,
+            Integer.getInteger("embeddedcopilot.snapshot.keep", 20));
+    }
+
+    /**
+     * Records the current state of the tree. Only files changed since the previous snapshot are read.
+     * The oldest snapshot is dropped once more than the configured number are kept.
+     *
+     * @return the snapshot, or null if closed
+     */
+    public Snapshot take(String label) throws IOException {
+        return take(label, Collections.emptyMap());
+    }
+
+    /**
+     * Records the current state of the tree, taking the content of some files from backups instead of
+     * reading them (e.g. the clean version of a file that shows a diff)
+     *
+     * @param contents backups by file path, relative to the root or absolute; the caller keeps its pins
+     * @return the snapshot, or null if closed
+     */
+    public synchronized Snapshot take(String label, Map<String, Backup> contents) throws IOException {
+        if (closed) {
+            return null;
+        }
+        Map<String, Backup> replaced = new HashMap<>();
+        for (Map.Entry<String, Backup> content : contents.entrySet()) {
+            replaced.put(root.relativize(root.resolve(content.getKey()).normalize()).toString(), content.getValue());
+        }
+        long start = System.nanoTime();
+        long scanStart = System.currentTimeMillis();
+        Map<String, Entry> previous = snapshots.isEmpty() ? Collections.emptyMap() : snapshots.peekLast().files;
+        Map<String, Entry> files = new HashMap<>();
+        Set<String> skipped = new HashSet<>();
+        int[] hashed = { 0 };
+        List<Backup> added = new ArrayList<>(); // Released again if the scan fails
+        try {
+            walk((relative, file, attributes) -> {
+                Backup content = replaced.get(relative);
+                if (content != null) {
+                    added.add(content.pin());
+                    // Not reusable: the file on disk doesn't have this content
+                    files.put(relative, new Entry(content.hash, content.size, attributes.lastModifiedTime().toMillis(), false));
+                    return;
+                }
+                Entry entry = previous.get(relative);
+                if (entry == null || !entry.matches(attributes)) {
+                    Backup backup;
+                    try {
+                        backup = store.put(file);
+                    } catch (NoSuchFileException e) {
+                        return; // Deleted while scanning
+                    } catch (IOException e) {
+                        LOG.debug(() -> "Not snapshotting unreadable " + file + ": " + e.getMessage());
+                        skipped.add(relative);
+                        return;
+                    }
+                    added.add(backup);
+                    long modified = attributes.lastModifiedTime().toMillis();
+                    entry = new Entry(backup.hash, backup.size, modified, modified < scanStart - RACY_MS);
+                    hashed[0]++;
+                }
+                files.put(relative, entry);
+            }, skipped);
+        } catch (IOException | RuntimeException e) {
+            for (Backup backup : added) {
+                backup.release();
+            }
+            throw e;
+        }
+
+        // Pin the contents of the new snapshot, keeping one Backup per distinct content
+        for (Entry entry : files.values()) {
+            pins.computeIfAbsent(entry.hash, hash -> new Pin()).refs++;
+        }
+        for (Backup backup : added) {
+            Pin pin = pins.get(backup.hash);
+            if (pin.backup == null) {
+                pin.backup = backup;
+            } else {
+                backup.release(); // Content already held (or read twice)
+            }
+        }
+
+        Snapshot snapshot = new Snapshot(nextId++, label, scanStart, Collections.unmodifiableMap(files), skipped);
+        snapshots.addLast(snapshot);
+        while (snapshots.size() > keep) {
+            drop(snapshots.removeFirst());
+        }
+        HASHED.add(hashed[0]);
+        TAKE_TIME.recordSince(start);
+        LOG.debug(() -> "Snapshot " + snapshot.id + " (" + label + ") of " + root + ": " + files.size() +
+            " files, " + hashed[0] + " read, " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return snapshot;
+    }
+
+    /**
+     * Puts the tree back into the state of a snapshot: files that differ from it are restored, files
+     * created since are deleted - never one the snapshot skipped. Newer snapshots are kept, so a rollback
+     * can itself be undone.
+     *
+     * @return the paths (relative to the root) that were restored or deleted
+     */
+    public synchronized List<String> rollback(Snapshot snapshot) throws IOException {
+        if (closed || !snapshots.contains(snapshot)) {
+            throw new IllegalStateException("Snapshot " + snapshot.id + " is no longer available");
+        }
+        long start = System.nanoTime();
+        List<String> changed = new ArrayList<>();
+        Set<String> present = new HashSet<>();
+        walk((relative, file, attributes) -> {
+            Entry entry = snapshot.files.get(relative);
+            if (entry == null && snapshot.isSkipped(relative)) {
+                return;
+            } else if (entry == null) {
+                Files.deleteIfExists(file);
+                changed.add(relative);
+                return;
+            }
+            present.add(relative);
+            if (!entry.matches(attributes) &&
+                    (entry.size != attributes.size() || !entry.hash.equals(BackupStore.hash(file)))) {
+                restore(relative, entry);
+                changed.add(relative);
+            }
+        }, null);
+        for (Map.Entry<String, Entry> file : snapshot.files.entrySet()) {
+            if (!present.contains(file.getKey())) {
+                restore(file.getKey(), file.getValue());
+                changed.add(file.getKey());
+            }
+        }
+        ROLLBACK_TIME.recordSince(start);
+        LOG.info("Rolled back " + root + " to snapshot " + snapshot.id + " (" + snapshot.label + "): " +
+            changed.size() + " files changed");
+        return changed;
+    }
+
+    /**
+     * @return the kept snapshots, oldest first
+     */
+    public synchronized List<Snapshot> getSnapshots() {
+        return new ArrayList<>(snapshots);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Drops all snapshots, releasing their contents
+     */
+    public synchronized void close() {
+        closed = true;
+        while (!snapshots.isEmpty()) {
+            drop(snapshots.removeFirst());
+        }
+    }
+
+    private void restore(String relative, Entry entry) throws IOException {
+        Pin pin = pins.get(entry.hash);
+        Path target = root.resolve(relative);
+        Files.createDirectories(target.getParent());
+        pin.backup.copyTo(target);
+    }
+
+    private void drop(Snapshot snapshot) {
+        for (Entry entry : snapshot.files.values()) {
+            Pin pin = pins.get(entry.hash);
+            if (--pin.refs == 0) {
+                pins.remove(entry.hash);
+                pin.backup.release();
+            }
+        }
+    }
+
+    private interface FileVisitor {
+        void visit(String relative, Path file, BasicFileAttributes attributes) throws IOException;
+    }
+
+    /**
+     * Visits the regular files below the root, skipping excluded directories and files above the size limit
+     *
+     * @param skipped if not null, receives the relative paths of the files above the size limit and of
+     *                the files and directories that couldn't be visited
+     */
+    private void walk(FileVisitor visitor, Set<String> skipped) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                return !dir.equals(root) && excludedDirectories.contains(dir.getFileName().toString())
+                    ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (!attributes.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (attributes.size() <= maxFileBytes) {
+                    visitor.visit(root.relativize(file).toString(), file, attributes);
+                } else if (skipped != null) {
+                    skipped.add(root.relativize(file).toString());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                LOG.debug(() -> "Skipping unreadable " + file + ": " + e.getMessage());
+                if (skipped != null) {
+                    skipped.add(root.relativize(file).toString());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,195 @@
+package embeddedcopilot.concurrent;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+
+/**
+ * A named group of background tasks. Every task runs on its own virtual thread
+ * (named "&lt;scope&gt;-N") after acquiring a permit from the scope's WorkCategory.
+ *
+ * Scopes are created through PluginExecutors, which keeps track of them for status output
+ * and closes them all when the plugin stops. Closing a scope interrupts its running tasks
+ * and rejects new ones.
+ */
+public final class ExecutionScope implements Executor {
+
+    private static final Logger LOG = Log.get(ExecutionScope.class);
+
+    private final String name;
+    private final WorkCategory category;
+    private final ThreadFactory threadFactory;
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean closed = false;
+
+    ExecutionScope(String name, WorkCategory category) {
+        this.name = name;
+        this.category = category;
+        this.threadFactory = Thread.ofVirtual().name(name + "-", 0).factory();
+    }
+
+    /**
+     * Runs a task on a new virtual thread once a permit for the scope's category is available
+     *
+     * @throws RejectedExecutionException if the scope has been closed
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (closed) {
+            throw new RejectedExecutionException("Execution scope " + name + " is closed");
+        }
+        submitted.incrementAndGet();
+        threadFactory.newThread(() -> runTask(task)).start();
+    }
+
+    private void runTask(Runnable task) {
+        Thread self = Thread.currentThread();
+        running.add(self);
+        boolean acquired = false;
+        try {
+            category.acquire();
+            acquired = true;
+            if (closed) {
+                abort(task);
+                return;
+            }
+            task.run();
+            if (task instanceof FutureTask<?> futureTask && futureTask.future.isCompletedExceptionally()) {
+                failed.incrementAndGet();
+            } else {
+                completed.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            // Scope closed while waiting for a permit
+            abort(task);
+        } catch (Throwable t) {
+            failed.incrementAndGet();
+            LOG.error("Task in " + name + " failed: " + t.getMessage(), t);
+        } finally {
+            if (acquired) {
+                category.release();
+            }
+            running.remove(self);
+        }
+    }
+
+    /**
+     * Completes the future of a task that was dropped because the scope closed
+     */
+    private void abort(Runnable task) {
+        if (task instanceof FutureTask<?> futureTask) {
+            futureTask.future.completeExceptionally(new CancellationException("Execution scope " + name + " closed"));
+        }
+    }
+
+    /**
+     * Runnable that completes a future with the result of a Callable
+     */
+    private static final class FutureTask<T> implements Runnable {
+        final CompletableFuture<T> future;
+        final Callable<T> callable;
+
+        FutureTask(CompletableFuture<T> future, Callable<T> callable) {
+            this.future = future;
+            this.callable = callable;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return; // Cancelled before it started
+            }
+            try {
+                future.complete(callable.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * Runs a task and exposes its result as a future.
+     * A closed scope yields an exceptionally completed future instead of throwing.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        return submit(new CompletableFuture<>(), task);
+    }
+
+    /**
+     * Runs a task and completes the given future with its result.
+     * Lets callers supply their own CompletableFuture subclass (e.g. one whose cancel() has side effects).
+     *
+     * @return the given future
+     */
+    public <T, F extends CompletableFuture<T>> F submit(F future, Callable<T> task) {
+        try {
+            execute(new FutureTask<>(future, task));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Runs a task with no result and exposes its completion as a future
+     */
+    public CompletableFuture<Void> run(Runnable task) {
+        return submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a task in this scope after a delay. The shared plugin timer only does the waiting;
+     * the task itself runs on a virtual thread like any other task of the scope.
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delayMs) {
+        return PluginExecutors.timer().schedule(() -> {
+            try {
+                execute(task);
+            } catch (RejectedExecutionException e) {
+                // Scope closed while the task was waiting
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rejects new tasks, interrupts the running ones and removes the scope from PluginExecutors
+     */
+    public void close() {
+        closed = true;
+        PluginExecutors.unregister(this);
+        for (Thread thread : running) {
+            thread.interrupt();
+        }
+    }
+
+    public String getName() { return name; }
+    public WorkCategory getCategory() { return category; }
+    public boolean isClosed() { return closed; }
+    public int getActiveCount() { return running.size(); }
+    public long getSubmittedCount() { return submitted.get(); }
+    public long getCompletedCount() { return completed.get(); }
+    public long getFailedCount() { return failed.get(); }
+
+    @Override
+    public String toString() {
+        return name + " [" + category + "] active=" + running.size() + " submitted=" + submitted.get() +
+            " completed=" + completed.get() + " failed=" + failed.get() + (closed ? " (closed)" : "");
+    }
+}
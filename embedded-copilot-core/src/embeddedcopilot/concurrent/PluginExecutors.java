@@ -0,0 +1,113 @@
+package embeddedcopilot.concurrent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.metrics.Metrics;
+
+/**
+ * Plugin-wide execution layer for background work.
+ *
+ * All background work runs on virtual threads grouped into named ExecutionScopes, with concurrency
+ * bounded per WorkCategory. The only platform thread is the shared timer, which just hands delayed
+ * tasks over to their scope. shutdown() is called when the bundle stops.
+ */
+public final class PluginExecutors {
+
+    private static final Logger LOG = Log.get(PluginExecutors.class);
+
+    private static final List<ExecutionScope> scopes = new CopyOnWriteArrayList<>();
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "EmbeddedCopilotTimer");
+        t.setDaemon(true);
+        return t;
+    });
+    private static volatile boolean shutdown = false;
+
+    static {
+        for (WorkCategory category : WorkCategory.values()) {
+            String prefix = "executor." + category.name().toLowerCase() + ".";
+            Metrics.gauge(prefix + "inUse", category::getInUse);
+            Metrics.gauge(prefix + "waiting", category::getWaiting);
+        }
+        Metrics.gauge("executor.scopes", scopes::size);
+    }
+
+    private PluginExecutors() {
+    }
+
+    /**
+     * Creates a new named scope. Callers usually keep the scope in a field and reuse it.
+     *
+     * @param name scope name, also used as the virtual thread name prefix
+     * @param category category whose concurrency limit applies to the scope's tasks
+     * @return the new scope (already closed if the plugin is shutting down)
+     */
+    public static ExecutionScope newScope(String name, WorkCategory category) {
+        ExecutionScope scope = new ExecutionScope(name, category);
+        if (shutdown) {
+            scope.close();
+        } else {
+            scopes.add(scope);
+        }
+        return scope;
+    }
+
+    static void unregister(ExecutionScope scope) {
+        scopes.remove(scope);
+    }
+
+    /**
+     * Shared timer for delayed work. Scheduled actions must only hand off work (or be trivially short).
+     */
+    public static ScheduledExecutorService timer() {
+        return timer;
+    }
+
+    /**
+     * @return snapshot of the registered scopes
+     */
+    public static List<ExecutionScope> getScopes() {
+        return List.copyOf(scopes);
+    }
+
+    public static boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Closes every scope (interrupting running tasks) and stops the timer
+     */
+    public static void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        LOG.info("Shutting down background work");
+        LOG.debug(PluginExecutors::formatStatus);
+        timer.shutdownNow();
+        for (ExecutionScope scope : scopes) {
+            scope.close();
+        }
+    }
+
+    /**
+     * @return the load of each category and the registered scopes, one per line
+     */
+    public static String formatStatus() {
+        StringBuilder status = new StringBuilder("Current status:");
+        for (WorkCategory category : WorkCategory.values()) {
+            status.append("\n  ").append(category).append(": in use ").append(category.getInUse())
+                .append(category.getLimit() > 0 ? "/" + category.getLimit() : " (unbounded)")
+                .append(", waiting ").append(category.getWaiting());
+        }
+        for (ExecutionScope scope : scopes) {
+            status.append("\n  ").append(scope);
+        }
+        return status.toString();
+    }
+}
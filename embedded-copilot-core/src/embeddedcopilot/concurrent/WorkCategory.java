@@ -0,0 +1,51 @@
+package embeddedcopilot.concurrent;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Kinds of background work, each with its own concurrency limit.
+ * Virtual threads are cheap, but cline processes, disk and CPU are not -
+ * a category's permits cap how many tasks of that kind run at once across the whole plugin.
+ */
+public enum WorkCategory {
+    CLI(8),                                                              // cline CLI processes
+    DISK_IO(4),                                                          // Backup files, workspace reads/writes
+    DIFF(Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),   // Diff computation (CPU bound)
+    STREAM(0);                                                           // Stream pumps tied to work already counted elsewhere (unbounded)
+
+    private final int limit; // 0 = unbounded
+    private final Semaphore permits;
+
+    WorkCategory(int limit) {
+        this.limit = limit;
+        this.permits = limit > 0 ? new Semaphore(limit, true) : null;
+    }
+
+    void acquire() throws InterruptedException {
+        if (permits != null) {
+            permits.acquire();
+        }
+    }
+
+    void release() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    public int getLimit() { return limit; }
+
+    /**
+     * @return number of tasks of this category currently holding a permit (0 for unbounded categories)
+     */
+    public int getInUse() {
+        return permits != null ? limit - permits.availablePermits() : 0;
+    }
+
+    /**
+     * @return number of tasks waiting for a permit
+     */
+    public int getWaiting() {
+        return permits != null ? permits.getQueueLength() : 0;
+    }
+}
@@ -0,0 +1,71 @@
+package embeddedcopilot.config;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+
+/**
+ * Configuration for task polling behavior.
+ * Minimal, modern version — no legacy completion indicators.
+ */
+public class PollingConfig {
+    private static final Logger LOG = Log.get(PollingConfig.class);
+
+    private static int pollingIntervalMs = 1000;
+    private static int maxNoUpdatePolls = 30;  // 30 seconds of no updates before stopping
+    private static int pollTimeoutMs = 30000;  // Deadline for a single `task view` call
+    private static String recordingDirectory = System.getProperty("embeddedcopilot.poll.recordDir"); // null = don't record
+    private static final Set<String> finalSayTypes = new HashSet<>(Arrays.asList(
+        "text",
+        "completion_result"
+    ));
+
+    public static int getPollingIntervalMs() { return pollingIntervalMs; }
+    public static int getMaxNoUpdatePolls() { return maxNoUpdatePolls; }
+    public static int getPollTimeoutMs() { return pollTimeoutMs; }
+    public static String getRecordingDirectory() { return recordingDirectory; }
+    public static Set<String> getFinalSayTypes() { return finalSayTypes; }
+
+    public static void setPollingIntervalMs(int intervalMs) {
+        if (intervalMs > 0) {
+            pollingIntervalMs = intervalMs;
+            LOG.info("Set polling interval to " + intervalMs + "ms");
+        }
+    }
+
+    public static void setMaxNoUpdatePolls(int maxPolls) {
+        if (maxPolls > 0) {
+            maxNoUpdatePolls = maxPolls;
+            LOG.info("Set max no-update polls to " + maxPolls);
+        }
+    }
+
+    public static void setPollTimeoutMs(int timeoutMs) {
+        if (timeoutMs > 0) {
+            pollTimeoutMs = timeoutMs;
+            LOG.info("Set poll timeout to " + timeoutMs + "ms");
+        }
+    }
+
+    /**
+     * Sets where new task sessions record their `task view` output (see TaskViewRecording).
+     * Null or empty turns recording off; sessions already recording keep their file.
+     */
+    public static void setRecordingDirectory(String directory) {
+        recordingDirectory = directory == null || directory.isEmpty() ? null : directory;
+        LOG.info("Set recording directory to " + recordingDirectory);
+    }
+
+    /** Debug print helper */
+    public static void printConfig() {
+        LOG.info("Current configuration:" +
+            "\n  Polling Interval: " + pollingIntervalMs + "ms" +
+            "\n  Max No-Update Polls: " + maxNoUpdatePolls +
+            "\n  Poll Timeout: " + pollTimeoutMs + "ms" +
+            "\n  Recording Directory: " + recordingDirectory +
+            "\n  Final Say Types: " + finalSayTypes);
+    }
+}
@@ -0,0 +1,62 @@
+package embeddedcopilot.diff;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 content hashes, as lowercase hex. Strong enough to use as a key for content itself.
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    private static final int ENCODE_IN_CHUNKS = 64 * 1024; // Longer texts are not copied into one byte[]
+
+    /**
+     * @return the hash of the text's UTF-8 bytes
+     */
+    public static String of(String text) {
+        if (text.length() < ENCODE_IN_CHUNKS) {
+            return of(text.getBytes(StandardCharsets.UTF_8));
+        }
+        MessageDigest digest = newDigest();
+        try (InputStream in = FileText.encode(text, StandardCharsets.UTF_8)) {
+            byte[] buffer = new byte[ENCODE_IN_CHUNKS];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Encoding in memory doesn't do I/O
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * @return the hash of the bytes
+     */
+    public static String of(byte[] bytes) {
+        return hex(newDigest().digest(bytes));
+    }
+
+    /**
+     * @return a digest for hashing streamed content; finish with hex(digest.digest())
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Every Java platform must have it
+        }
+    }
+
+    public static String hex(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+}
@@ -0,0 +1,141 @@
+package embeddedcopilot.diff;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import embeddedcopilot.diff.LineDiff.CombinedLine;
+import embeddedcopilot.diff.LineDiff.DiffOperation;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.metrics.Counter;
+import embeddedcopilot.metrics.Metrics;
+
+/**
+ * Bounded cache of line diffs, keyed by the content hashes of the before and after versions.
+ *
+ * The same pair is often diffed more than once (a diff view reopened, the same file edited again in one
+ * task), and each LineDiff run writes two temp files and starts `diff`. Entries hold everything the diff
+ * view needs and are evicted least recently used first once their estimated size exceeds the budget.
+ * Budget: -Dembeddedcopilot.diff.cacheMb (default 64, 0 turns caching off).
+ */
+public final class DiffCache {
+
+    private static final Logger LOG = Log.get(DiffCache.class);
+
+    private static final Counter HITS = Metrics.counter("diff.cache.hits");
+    private static final Counter MISSES = Metrics.counter("diff.cache.misses");
+    private static final Counter EVICTIONS = Metrics.counter("diff.cache.evictions");
+
+    private static final DiffCache SHARED = new DiffCache(Long.getLong("embeddedcopilot.diff.cacheMb", 64) * 1024 * 1024);
+
+    static {
+        Metrics.gauge("diff.cache.bytes", SHARED::getSizeBytes);
+        Metrics.gauge("diff.cache.entries", SHARED::getEntryCount);
+    }
+
+    /**
+     * A cached diff. The lists are unmodifiable, so entries can be shared by several views.
+     */
+    public static class Entry {
+        public final List<DiffOperation> operations;
+        public final List<CombinedLine> combined;    // After content with removed lines inserted
+        public final LineIndex combinedIndex;        // The combined content as one text
+        final long sizeBytes;
+
+        Entry(List<DiffOperation> operations, List<CombinedLine> combined, LineIndex combinedIndex) {
+            this.operations = Collections.unmodifiableList(operations);
+            this.combined = Collections.unmodifiableList(combined);
+            this.combinedIndex = combinedIndex;
+            this.sizeBytes = estimateSize(operations, combined, combinedIndex);
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access order
+    private long sizeBytes = 0;
+
+    public DiffCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the plugin-wide cache
+     */
+    public static DiffCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the diff of the two versions, computing (and caching) it with LineDiff if needed.
+     * Concurrent misses for the same pair may both compute; the results are identical.
+     */
+    public Entry diff(LineIndex before, LineIndex after) throws IOException, InterruptedException {
+        String key = ContentHash.of(before.text()) + ":" + ContentHash.of(after.text());
+        Entry entry = get(key);
+        if (entry != null) {
+            HITS.increment();
+            return entry;
+        }
+        MISSES.increment();
+
+        List<DiffOperation> operations = LineDiff.computeDiffOperations(before.text(), after.text());
+        List<CombinedLine> combined = LineDiff.buildCombinedContent(after.lines(), operations);
+        entry = new Entry(operations, combined, LineIndex.of(LineDiff.combinedLinesToString(combined)));
+        put(key, entry);
+        return entry;
+    }
+
+    private synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        if (entry.sizeBytes > maxBytes) {
+            return; // Would evict everything else and still not fit
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            sizeBytes -= previous.sizeBytes;
+        }
+        sizeBytes += entry.sizeBytes;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            sizeBytes -= evicted.sizeBytes;
+            EVICTIONS.increment();
+        }
+        LOG.trace(() -> "Cached diff (" + entry.sizeBytes + " bytes), cache now " + sizeBytes + " bytes");
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    public synchronized long getSizeBytes() { return sizeBytes; }
+    public synchronized long getEntryCount() { return entries.size(); }
+
+    /**
+     * Rough heap footprint: the combined text, the line strings it was built from, the diff's own
+     * line copies, and per-object overhead
+     */
+    private static long estimateSize(List<DiffOperation> operations, List<CombinedLine> combined, LineIndex combinedIndex) {
+        long size = 2L * combinedIndex.length() + 4L * combinedIndex.lineCount(); // Text + line starts
+        size += 2L * combinedIndex.length() + 64L * combined.size();              // Line strings + CombinedLine objects
+        for (DiffOperation op : operations) {
+            size += 64;
+            for (String line : op.removedLines) {
+                size += 2L * line.length() + 48;
+            }
+            for (String line : op.addedLines) {
+                size += 2L * line.length() + 48;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,149 @@
+package embeddedcopilot.diff;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes file text in a given charset (the IFile's, not the platform default) without holding
+ * the content in heap more often than needed.
+ *
+ * Files above -Dembeddedcopilot.file.mapKb (default 1024) are memory-mapped and decoded straight into
+ * the String, so the bytes never get a heap copy. Streams are decoded in chunks into a presized buffer,
+ * and text is encoded in chunks as a stream. Malformed input is replaced, like new String(bytes, charset).
+ */
+public final class FileText {
+
+    private static final long MAP_THRESHOLD = Long.getLong("embeddedcopilot.file.mapKb", 1024) * 1024;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private FileText() {
+    }
+
+    /**
+     * @return the file's content decoded with the charset
+     */
+    public static String read(Path file, Charset charset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MAP_THRESHOLD) {
+                return new String(Files.readAllBytes(file), charset);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to read (" + size + " bytes)");
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(mapped)
+                .toString();
+        }
+    }
+
+    /**
+     * Decodes a stream in chunks (it is not closed)
+     *
+     * @param sizeHint expected size in bytes (0 if unknown), to size the buffer once
+     */
+    public static String read(InputStream in, long sizeHint, Charset charset) throws IOException {
+        Reader reader = new InputStreamReader(in, charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        StringBuilder text = new StringBuilder((int) Math.min(Math.max(sizeHint, 16), Integer.MAX_VALUE - 8));
+        char[] chunk = new char[CHUNK_SIZE];
+        int read;
+        while ((read = reader.read(chunk)) != -1) {
+            text.append(chunk, 0, read);
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return a stream of the text encoded with the charset, produced chunk by chunk
+     */
+    public static InputStream encode(CharSequence text, Charset charset) {
+        return new EncodingInputStream(text, charset);
+    }
+
+    /**
+     * @return the size of the text encoded with the charset (encodes it, without keeping the bytes)
+     */
+    public static long encodedLength(CharSequence text, Charset charset) throws IOException {
+        try (InputStream in = encode(text, charset)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * Encodes the next chunk of text whenever the previous one has been read
+     */
+    private static final class EncodingInputStream extends InputStream {
+        private final CharBuffer chars;
+        private final CharsetEncoder encoder;
+        private final ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+        private boolean encoded = false; // Every char went through the encoder
+        private boolean flushed = false;  // And the encoder's final bytes were produced
+
+        EncodingInputStream(CharSequence text, Charset charset) {
+            this.chars = CharBuffer.wrap(text);
+            this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            bytes.flip(); // Empty until the first fill
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!bytes.hasRemaining() && !fill()) {
+                return -1;
+            }
+            int count = Math.min(length, bytes.remaining());
+            bytes.get(buffer, offset, count);
+            return count;
+        }
+
+        /**
+         * @return false once everything has been encoded and read
+         */
+        private boolean fill() throws IOException {
+            while (!bytes.hasRemaining() && !flushed) {
+                bytes.clear();
+                CoderResult result;
+                if (!encoded) {
+                    result = encoder.encode(chars, bytes, true);
+                    encoded = result.isUnderflow(); // All chars consumed
+                } else {
+                    result = encoder.flush(bytes);
+                    flushed = result.isUnderflow();
+                }
+                if (result.isError()) {
+                    result.throwException();
+                }
+                bytes.flip();
+            }
+            return bytes.hasRemaining();
+        }
+    }
+}
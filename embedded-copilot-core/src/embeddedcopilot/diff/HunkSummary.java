@@ -0,0 +1,161 @@
+package embeddedcopilot.diff;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+
+/**
+ * The hunks of a diff between two large files, without their content.
+ *
+ * Building the combined view of a big file means holding both versions, the diff output and the combined
+ * text in memory several times, and styling every changed line. Above -Dembeddedcopilot.diff.largeFileKb
+ * (default 1024) the diff is run on the files on disk and its output streamed: only the hunk headers are
+ * kept, so memory depends on the number of hunks, not the file size. At most -Dembeddedcopilot.diff.maxHunks
+ * (default 5000) hunks are kept; the rest are only counted.
+ */
+public final class HunkSummary {
+
+    private static final Logger LOG = Log.get(HunkSummary.class);
+
+    public static final long LARGE_FILE_BYTES = Long.getLong("embeddedcopilot.diff.largeFileKb", 1024) * 1024;
+    private static final int MAX_HUNKS = Integer.getInteger("embeddedcopilot.diff.maxHunks", 5000);
+
+    /**
+     * One changed region. Lines are 1-based; a count of 0 means the hunk only adds (before) or only
+     * removes (after) lines, and the start is the line the change follows.
+     */
+    public static final class Hunk {
+        public final int beforeStart;
+        public final int beforeCount;
+        public final int afterStart;
+        public final int afterCount;
+
+        Hunk(int beforeStart, int beforeCount, int afterStart, int afterCount) {
+            this.beforeStart = beforeStart;
+            this.beforeCount = beforeCount;
+            this.afterStart = afterStart;
+            this.afterCount = afterCount;
+        }
+
+        /**
+         * @return the 0-based line of the new file the hunk is shown at
+         */
+        public int firstAfterLine() {
+            return Math.max(0, afterCount > 0 ? afterStart - 1 : afterStart);
+        }
+
+        public String format() {
+            if (afterCount == 0) {
+                return "after line " + afterStart + " (-" + beforeCount + ")";
+            }
+            String lines = afterCount == 1 ? "line " + afterStart : "lines " + afterStart + "-" + (afterStart + afterCount - 1);
+            return lines + " (+" + afterCount + " -" + beforeCount + ")";
+        }
+    }
+
+    public final List<Hunk> hunks; // In file order, at most the configured maximum
+    public final int totalHunks;
+    public final long added;
+    public final long removed;
+
+    private HunkSummary(List<Hunk> hunks, int totalHunks, long added, long removed) {
+        this.hunks = Collections.unmodifiableList(hunks);
+        this.totalHunks = totalHunks;
+        this.added = added;
+        this.removed = removed;
+    }
+
+    /**
+     * @return true if a file of this size should be shown as a hunk summary instead of a combined diff
+     */
+    public static boolean isLarge(long bytes) {
+        return bytes >= LARGE_FILE_BYTES;
+    }
+
+    /**
+     * Diffs two files on disk, reading the diff's output as it is produced
+     */
+    public static HunkSummary compute(Path before, Path after) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        List<Hunk> hunks = new ArrayList<>();
+        int[] total = { 0 };
+        long[] added = { 0 };
+        long[] removed = { 0 };
+        LineDiff.runDiff(before, after, line -> {
+            if (line.isEmpty() || !Character.isDigit(line.charAt(0))) {
+                return; // Content line ("< ", "> ", "---", "\ No newline")
+            }
+            Matcher m = LineDiff.OP_PATTERN.matcher(line);
+            if (!m.matches()) {
+                return;
+            }
+            char operation = m.group(4).charAt(0);
+            int beforeStart = Integer.parseInt(m.group(1));
+            int beforeEnd = m.group(3) != null ? Integer.parseInt(m.group(3)) : beforeStart;
+            int afterStart = Integer.parseInt(m.group(5));
+            int afterEnd = m.group(7) != null ? Integer.parseInt(m.group(7)) : afterStart;
+            int beforeCount = operation == 'a' ? 0 : beforeEnd - beforeStart + 1;
+            int afterCount = operation == 'd' ? 0 : afterEnd - afterStart + 1;
+
+            total[0]++;
+            added[0] += afterCount;
+            removed[0] += beforeCount;
+            if (hunks.size() < MAX_HUNKS) {
+                hunks.add(new Hunk(beforeStart, beforeCount, afterStart, afterCount));
+            }
+        });
+        HunkSummary summary = new HunkSummary(hunks, total[0], added[0], removed[0]);
+        LOG.debug(() -> "Hunk summary of " + after + ": " + summary.format() + " in " +
+            (System.nanoTime() - start) / 1_000_000 + " ms");
+        return summary;
+    }
+
+    /**
+     * @return true if more hunks were found than kept
+     */
+    public boolean isTruncated() {
+        return totalHunks > hunks.size();
+    }
+
+    /**
+     * @return the index of the first kept hunk ending at or after the 0-based line of the new file, or
+     *         hunks.size() if none does
+     */
+    public int firstHunkFrom(int afterLine) {
+        int low = 0;
+        int high = hunks.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Hunk hunk = hunks.get(middle);
+            if (hunk.firstAfterLine() + Math.max(hunk.afterCount, 1) <= afterLine) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return true if the 0-based line of the new file was added or changed by a kept hunk
+     */
+    public boolean isAddedLine(int afterLine) {
+        int index = firstHunkFrom(afterLine);
+        if (index == hunks.size()) {
+            return false;
+        }
+        Hunk hunk = hunks.get(index);
+        return hunk.afterCount > 0 && afterLine >= hunk.afterStart - 1;
+    }
+
+    public String format() {
+        return totalHunks + (totalHunks == 1 ? " hunk" : " hunks") + ", +" + added + " -" + removed + " lines" +
+            (isTruncated() ? " (first " + hunks.size() + " listed)" : "");
+    }
+}
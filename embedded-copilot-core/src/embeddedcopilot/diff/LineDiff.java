@@ -0,0 +1,272 @@
+package embeddedcopilot.diff;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+
+/**
+ * Line diff between two versions of a file, as shown in the diff editor: the Unix `diff` output is
+ * parsed into operations and merged with the new content, so removed lines appear (highlighted)
+ * where they used to be.
+ *
+ * No Eclipse dependencies - ProjectService does the workspace and editor side.
+ */
+public final class LineDiff {
+
+    private static final Logger LOG = Log.get(LineDiff.class);
+
+    static final Pattern OP_PATTERN = Pattern.compile("^(\\d+)(,(\\d+))?([acd])(\\d+)(,(\\d+))?$");
+
+    private LineDiff() {
+    }
+
+    /**
+     * Represents a single diff operation from Unix diff output
+     */
+    public static class DiffOperation {
+        public enum Type { CHANGE, DELETE, ADD }
+
+        public final Type type;
+        public final int beforeStart;  // 1-indexed line in before file
+        public final int beforeEnd;    // 1-indexed line in before file (inclusive)
+        public final int afterStart;   // 1-indexed line in after file
+        public final int afterEnd;     // 1-indexed line in after file (inclusive)
+        public final List<String> removedLines;  // Lines removed (< prefix)
+        public final List<String> addedLines;    // Lines added (> prefix)
+
+        public DiffOperation(Type type, int beforeStart, int beforeEnd,
+                             int afterStart, int afterEnd,
+                             List<String> removedLines, List<String> addedLines) {
+            this.type = type;
+            this.beforeStart = beforeStart;
+            this.beforeEnd = beforeEnd;
+            this.afterStart = afterStart;
+            this.afterEnd = afterEnd;
+            this.removedLines = removedLines;
+            this.addedLines = addedLines;
+        }
+    }
+
+    /**
+     * Represents a line in the final combined content with highlight information
+     */
+    public static class CombinedLine {
+        public enum HighlightType { NONE, ADDED, REMOVED }
+
+        public final String content;
+        public final HighlightType highlight;
+
+        public CombinedLine(String content, HighlightType highlight) {
+            this.content = content;
+            this.highlight = highlight;
+        }
+    }
+
+    /**
+     * Parses Unix diff output format into structured DiffOperation objects.
+     * Handles formats like:
+     *   1c1          - change line 1 to line 1
+     *   4,5c4,6      - change lines 4-5 to lines 4-6
+     *   5d4          - delete line 5
+     *   7a9,11       - add after line 7, becoming lines 9-11
+     */
+    public static List<DiffOperation> parseDiffOutput(String diffOutput) {
+        List<DiffOperation> operations = new ArrayList<>();
+        String[] lines = diffOutput.split("\n");
+        int i = 0;
+
+        while (i < lines.length) {
+            String line = lines[i];
+            Matcher m = OP_PATTERN.matcher(line);
+
+            if (m.matches()) {
+                // Parse line numbers
+                int beforeStart = Integer.parseInt(m.group(1));
+                int beforeEnd = m.group(3) != null ? Integer.parseInt(m.group(3)) : beforeStart;
+                char operation = m.group(4).charAt(0);
+                int afterStart = Integer.parseInt(m.group(5));
+                int afterEnd = m.group(7) != null ? Integer.parseInt(m.group(7)) : afterStart;
+
+                DiffOperation.Type type;
+                if (operation == 'c') type = DiffOperation.Type.CHANGE;
+                else if (operation == 'd') type = DiffOperation.Type.DELETE;
+                else type = DiffOperation.Type.ADD;
+
+                i++; // Move to content lines
+
+                // Collect removed lines (< prefix)
+                List<String> removed = new ArrayList<>();
+                while (i < lines.length && lines[i].startsWith("< ")) {
+                    removed.add(lines[i].substring(2)); // Remove "< " prefix
+                    i++;
+                }
+
+                // Skip separator (---)
+                if (i < lines.length && lines[i].equals("---")) {
+                    i++;
+                }
+
+                // Collect added lines (> prefix)
+                List<String> added = new ArrayList<>();
+                while (i < lines.length && lines[i].startsWith("> ")) {
+                    added.add(lines[i].substring(2)); // Remove "> " prefix
+                    i++;
+                }
+
+                operations.add(new DiffOperation(type, beforeStart, beforeEnd,
+                                                 afterStart, afterEnd, removed, added));
+            } else {
+                i++;
+            }
+        }
+
+        LOG.debug(() -> "Parsed " + operations.size() + " diff operations");
+        return operations;
+    }
+
+    /**
+     * Builds combined content with removed lines inserted at their original positions.
+     * Uses sequential processing - no complex state machine, no infinite loops.
+     *
+     * @param afterLines the lines from the after file (Cline's changes)
+     * @param operations the parsed diff operations
+     * @return list of combined lines with highlight information
+     */
+    public static List<CombinedLine> buildCombinedContent(String[] afterLines, List<DiffOperation> operations) {
+        List<CombinedLine> combined = new ArrayList<>();
+        int afterIndex = 0; // 0-indexed position in afterLines array
+
+        for (DiffOperation op : operations) {
+            // Add unchanged lines from after file up to this operation
+            int insertPosition = op.afterStart - 1; // Convert to 0-indexed
+
+            // Add unchanged lines before this operation
+            while (afterIndex < insertPosition && afterIndex < afterLines.length) {
+                combined.add(new CombinedLine(afterLines[afterIndex], CombinedLine.HighlightType.NONE));
+                afterIndex++;
+            }
+
+            // Add removed lines with REMOVED highlight
+            for (String removed : op.removedLines) {
+                combined.add(new CombinedLine(removed, CombinedLine.HighlightType.REMOVED));
+            }
+
+            // Add added lines with ADDED highlight (and consume from after array)
+            for (String added : op.addedLines) {
+                combined.add(new CombinedLine(added, CombinedLine.HighlightType.ADDED));
+                afterIndex++; // Consume corresponding line from after file
+            }
+        }
+
+        // Add remaining unchanged lines
+        while (afterIndex < afterLines.length) {
+            combined.add(new CombinedLine(afterLines[afterIndex], CombinedLine.HighlightType.NONE));
+            afterIndex++;
+        }
+
+        LOG.debug(() -> "Built combined content with " + combined.size() + " lines");
+        return combined;
+    }
+
+    /**
+     * Converts list of CombinedLine objects to a single string with newlines
+     */
+    public static String combinedLinesToString(List<CombinedLine> combined) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < combined.size(); i++) {
+            sb.append(combined.get(i).content);
+            if (i < combined.size() - 1) {
+                sb.append("\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Computes diff operations by calling Unix diff command and parsing the output.
+     *
+     * @param beforeContent content before changes
+     * @param afterContent content after changes
+     * @return list of diff operations
+     */
+    public static List<DiffOperation> computeDiffOperations(String beforeContent, String afterContent)
+            throws IOException, InterruptedException {
+
+        File beforeFile = null;
+        File afterFile = null;
+
+        try {
+            // Create temp files
+            beforeFile = File.createTempFile("diff_before_", ".txt");
+            afterFile = File.createTempFile("diff_after_", ".txt");
+
+            // Write contents, encoded in chunks (diff compares bytes; its output is read back as UTF-8)
+            Files.copy(FileText.encode(beforeContent, StandardCharsets.UTF_8), beforeFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(FileText.encode(afterContent, StandardCharsets.UTF_8), afterFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            // Execute diff command and read output
+            StringBuilder output = new StringBuilder();
+            boolean identical = runDiff(beforeFile.toPath(), afterFile.toPath(), line -> output.append(line).append("\n"));
+            if (identical) {
+                LOG.debug("Files are identical, no diff operations");
+                return new ArrayList<>(); // No differences
+            }
+
+            // Parse diff output
+            return parseDiffOutput(output.toString());
+
+        } finally {
+            // Clean up temp files
+            if (beforeFile != null) {
+                beforeFile.delete();
+            }
+            if (afterFile != null) {
+                afterFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Runs the Unix diff command on two files, handing its output (read as UTF-8) to the consumer
+     * line by line as it is produced
+     *
+     * @return true if the files are identical
+     */
+    static boolean runDiff(Path before, Path after, Consumer<String> outputLine) throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder("diff", before.toAbsolutePath().toString(), after.toAbsolutePath().toString());
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+        try {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    outputLine.accept(line);
+                }
+            }
+
+            int exitCode = process.waitFor();
+
+            // Exit code 0 = files identical, 1 = files differ, 2+ = error
+            if (exitCode > 1) {
+                throw new IOException("diff command failed with exit code: " + exitCode);
+            }
+            return exitCode == 0;
+        } finally {
+            process.destroy(); // No-op once it exited; stops it if reading failed or was interrupted
+        }
+    }
+}
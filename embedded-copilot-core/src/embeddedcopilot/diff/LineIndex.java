@@ -0,0 +1,247 @@
+package embeddedcopilot.diff;
+
+import java.util.Arrays;
+
+/**
+ * Immutable line index of one version of a text: line start offsets in an int[], so line/offset
+ * conversions need no splitting or scanning, plus a lazily built lookup of lines by their trimmed text.
+ *
+ * Lines are separated by '\n' exactly like String.split("\n", -1): a text ending with a newline has an
+ * empty last line, and a '\r' before the newline belongs to the line. Build one index per content
+ * version and pass it along - diffing, patch application and highlighting can all share it.
+ *
+ * Safe to share between threads; the lazy parts may be computed twice in a race, never wrongly.
+ */
+public final class LineIndex {
+
+    private final String text;
+    private final int[] starts;
+
+    private volatile TrimmedLookup trimmedLookup; // Built on first use
+
+    /**
+     * Lines grouped by the hash of their trimmed text, in an open hash table of chains
+     */
+    private static final class TrimmedLookup {
+        final int[] hashes;      // Line -> String.hashCode() of its trimmed text
+        final int[] bucketHead;  // Bucket -> first line in it, or -1
+        final int[] bucketSize;  // Bucket -> lines in it
+        final int[] next;        // Line -> next line in the same bucket, or -1 (ascending)
+        final int mask;
+
+        TrimmedLookup(int[] hashes, int[] bucketHead, int[] bucketSize, int[] next) {
+            this.hashes = hashes;
+            this.bucketHead = bucketHead;
+            this.bucketSize = bucketSize;
+            this.next = next;
+            this.mask = bucketHead.length - 1;
+        }
+    }
+
+    private LineIndex(String text, int[] starts) {
+        this.text = text;
+        this.starts = starts;
+    }
+
+    /**
+     * Indexes the text in one pass
+     */
+    public static LineIndex of(String text) {
+        int count = 1;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            count++;
+        }
+        int[] starts = new int[count];
+        int line = 1;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            starts[line++] = i + 1;
+        }
+        return new LineIndex(text, starts);
+    }
+
+    public String text() { return text; }
+    public int length() { return text.length(); }
+    public int lineCount() { return starts.length; }
+
+    /**
+     * @return offset of the line's first character
+     */
+    public int lineStart(int line) {
+        return starts[line];
+    }
+
+    /**
+     * @return offset just past the line's content (its '\n' or the end of the text)
+     */
+    public int lineEnd(int line) {
+        return line + 1 < starts.length ? starts[line + 1] - 1 : text.length();
+    }
+
+    /**
+     * @return offset where the line ends including its '\n' (the next line's start, or the end of the text)
+     */
+    public int lineEndWithNewline(int line) {
+        return line + 1 < starts.length ? starts[line + 1] : text.length();
+    }
+
+    /**
+     * @return the line's content, without the '\n'
+     */
+    public String line(int line) {
+        return text.substring(starts[line], lineEnd(line));
+    }
+
+    /**
+     * @return all lines, as String.split("\n", -1) would return them
+     */
+    public String[] lines() {
+        String[] lines = new String[starts.length];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = line(i);
+        }
+        return lines;
+    }
+
+    /**
+     * @return the line containing the offset (a '\n' belongs to the line it ends)
+     */
+    public int lineAt(int offset) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first line starting at or after the offset, or lineCount() if there is none
+     */
+    public int firstLineAtOrAfter(int offset) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return true if the line equals the given text once surrounding whitespace (as String.trim()) is removed
+     */
+    public boolean trimmedEquals(int line, String trimmed) {
+        int start = trimmedStart(line);
+        int end = trimmedEnd(line, start);
+        return end - start == trimmed.length() && text.regionMatches(start, trimmed, 0, trimmed.length());
+    }
+
+    /**
+     * @return String.hashCode() of the line's trimmed text, without creating that String
+     */
+    public int trimmedHash(int line) {
+        return trimmedLookup().hashes[line];
+    }
+
+    /**
+     * @return the first line at or after fromLine whose trimmed text equals the given (trimmed) text, or -1
+     */
+    public int firstWithTrimmed(String trimmed, int fromLine) {
+        TrimmedLookup lookup = trimmedLookup();
+        int hash = trimmed.hashCode();
+        for (int line = lookup.bucketHead[spread(hash) & lookup.mask]; line >= 0; line = lookup.next[line]) {
+            if (line >= fromLine && lookup.hashes[line] == hash && trimmedEquals(line, trimmed)) {
+                return line;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the next line after the given one with the same trimmed text (which the caller already
+     *         matched against this text), or -1
+     */
+    public int nextWithTrimmed(int line, String trimmed) {
+        TrimmedLookup lookup = trimmedLookup();
+        int hash = lookup.hashes[line];
+        for (int next = lookup.next[line]; next >= 0; next = lookup.next[next]) {
+            if (lookup.hashes[next] == hash && trimmedEquals(next, trimmed)) {
+                return next;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return an upper bound of how many lines have the given trimmed text (cheap; for picking rare lines)
+     */
+    public int countWithTrimmedAtMost(String trimmed) {
+        TrimmedLookup lookup = trimmedLookup();
+        return lookup.bucketSize[spread(trimmed.hashCode()) & lookup.mask];
+    }
+
+    private TrimmedLookup trimmedLookup() {
+        TrimmedLookup lookup = trimmedLookup;
+        if (lookup == null) {
+            lookup = buildTrimmedLookup();
+            trimmedLookup = lookup;
+        }
+        return lookup;
+    }
+
+    private TrimmedLookup buildTrimmedLookup() {
+        int count = starts.length;
+        int[] hashes = new int[count];
+        int buckets = Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+        int[] bucketHead = new int[buckets];
+        int[] bucketSize = new int[buckets];
+        int[] next = new int[count];
+        Arrays.fill(bucketHead, -1);
+        int mask = buckets - 1;
+        // Backwards, so every chain ends up in ascending line order
+        for (int line = count - 1; line >= 0; line--) {
+            int start = trimmedStart(line);
+            int end = trimmedEnd(line, start);
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + text.charAt(i);
+            }
+            hashes[line] = hash;
+            int bucket = spread(hash) & mask;
+            next[line] = bucketHead[bucket];
+            bucketHead[bucket] = line;
+            bucketSize[bucket]++;
+        }
+        return new TrimmedLookup(hashes, bucketHead, bucketSize, next);
+    }
+
+    private int trimmedStart(int line) {
+        int start = starts[line];
+        int end = lineEnd(line);
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimmedEnd(int line, int trimmedStart) {
+        int end = lineEnd(line);
+        while (end > trimmedStart && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
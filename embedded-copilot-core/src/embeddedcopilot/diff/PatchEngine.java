@@ -0,0 +1,408 @@
+package embeddedcopilot.diff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Applies Cline's SEARCH/REPLACE edits for real use (previews of proposed edits).
+ *
+ * Blocks resolve to the same locations as in SearchReplaceDiff, the line-by-line port of Cline's
+ * constructNewFileContentV1, but the work per edit stays close to linear in the file size:
+ * - markers are recognised by a character scan instead of compiling a regex for every line
+ * - the original's LineIndex is built once per edit (or passed in), and only used by fallback matches
+ * - fallback matchers look candidates up by trimmed line instead of re-splitting and rescanning the file
+ *
+ * Unlike the port, a match that includes the last line of a file without a trailing newline ends at
+ * the end of the content (the port runs one character past it). No Eclipse dependencies.
+ */
+public final class PatchEngine {
+
+    private PatchEngine() {
+    }
+
+    /**
+     * One resolved SEARCH/REPLACE block: original[start, end) is replaced by text
+     */
+    public static class Replacement {
+        public final int start;
+        public final int end;
+        public final String text;
+
+        public Replacement(int start, int end, String text) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+    }
+
+    /**
+     * New content plus the replacements (sorted by start) that produced it
+     */
+    public static class Result {
+        public final String content;
+        public final List<Replacement> replacements;
+
+        Result(String content, List<Replacement> replacements) {
+            this.content = content;
+            this.replacements = replacements;
+        }
+    }
+
+    /**
+     * Content of a tool ask (write_to_file or replace_in_file) as the file will look after the edit
+     *
+     * @param payloadContent the "content" field of an editedExistingFile/newFileCreated ask: either the
+     *                       complete new file or SEARCH/REPLACE blocks
+     * @throws IllegalArgumentException if the blocks don't apply to the original
+     */
+    public static String proposedContent(String payloadContent, LineIndex original) {
+        return isPatch(payloadContent) ? apply(payloadContent, original).content : payloadContent;
+    }
+
+    /**
+     * @return true if any line of the content is a SEARCH block start marker
+     */
+    public static boolean isPatch(String content) {
+        int pos = 0;
+        int length = content.length();
+        while (pos <= length) {
+            int newline = content.indexOf('\n', pos);
+            int lineEnd = newline < 0 ? length : newline;
+            if (isSearchBlockStart(content, pos, lineEnd)) {
+                return true;
+            }
+            pos = lineEnd + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Applies SEARCH/REPLACE blocks:
+     *   ------- SEARCH
+     *   [Exact content to find]
+     *   =======
+     *   [Content to replace with]
+     *   +++++++ REPLACE
+     *
+     * Each block is matched exactly after the previous one, then line by line ignoring surrounding
+     * whitespace, then by its first and last lines, then exactly anywhere in the file (out-of-order
+     * edits). A trailing block without its REPLACE marker is applied as well, so partial (streaming)
+     * payloads preview what has arrived so far.
+     *
+     * @throws IllegalArgumentException if a block doesn't match, is malformed or overlaps another one
+     */
+    public static Result apply(String patch, String originalContent) {
+        return apply(patch, originalContent, null);
+    }
+
+    /**
+     * Same as apply(patch, original.text()), reusing an index of the original the caller already has
+     */
+    public static Result apply(String patch, LineIndex original) {
+        return apply(patch, original.text(), original);
+    }
+
+    private static Result apply(String patch, String originalContent, LineIndex lines) {
+        List<Replacement> replacements = new ArrayList<>();
+
+        int lastProcessedIndex = 0;
+        boolean inSearch = false;
+        boolean inReplace = false;
+        String searchText = "";
+        int searchContentStart = -1;
+        StringBuilder replaceText = new StringBuilder();
+        int replaceContentStart = -1;
+        int searchMatchIndex = -1;
+        int searchEndIndex = -1;
+        boolean pendingOutOfOrderReplacement = false;
+
+        // If the last line looks like a partial marker but isn't recognized, ignore it
+        int length = patch.length();
+        int end = length + 1; // Lines start before this offset
+        int lastLineStart = patch.lastIndexOf('\n') + 1;
+        if (lastLineStart < length && "-<=+>".indexOf(patch.charAt(lastLineStart)) >= 0 &&
+            !isSearchBlockStart(patch, lastLineStart, length) && !isSearchBlockEnd(patch, lastLineStart, length) &&
+            !isReplaceBlockEnd(patch, lastLineStart, length)) {
+            end = lastLineStart;
+        }
+
+        for (int pos = 0; pos < end; ) {
+            int newline = patch.indexOf('\n', pos);
+            int lineEnd = newline < 0 ? length : newline;
+            int next = lineEnd + 1;
+
+            if (isSearchBlockStart(patch, pos, lineEnd)) {
+                inSearch = true;
+                searchContentStart = next;
+                replaceText.setLength(0);
+            } else if (isSearchBlockEnd(patch, pos, lineEnd)) {
+                if (inSearch) {
+                    searchText = patch.substring(searchContentStart, pos);
+                } else if (inReplace) {
+                    replaceText.append(patch, replaceContentStart, pos); // The marker line itself is dropped
+                }
+                inSearch = false;
+                inReplace = true;
+                replaceContentStart = next;
+
+                if (searchText.isEmpty()) {
+                    if (!originalContent.isEmpty()) {
+                        throw new IllegalArgumentException(
+                            "Empty SEARCH block detected with non-empty file. This usually indicates a malformed SEARCH marker.\n" +
+                            "Please ensure your SEARCH marker follows the correct format:\n" +
+                            "- Use '------- SEARCH' (7+ dashes + space + SEARCH)\n");
+                    }
+                    // New file: nothing to match, just insert
+                    searchMatchIndex = 0;
+                    searchEndIndex = 0;
+                } else {
+                    int exactIndex = indexOf(originalContent, searchText, lastProcessedIndex);
+                    int[] match = null;
+                    if (exactIndex != -1) {
+                        match = new int[] { exactIndex, exactIndex + searchText.length() };
+                    } else {
+                        if (lines == null) {
+                            lines = LineIndex.of(originalContent); // Only edits that need a fallback pay for it
+                        }
+                        match = lineTrimmedMatch(lines, searchText, lastProcessedIndex);
+                        if (match == null) {
+                            match = blockAnchorMatch(lines, searchText, lastProcessedIndex);
+                        }
+                        if (match == null) {
+                            int fullFileIndex = indexOf(originalContent, searchText, 0);
+                            if (fullFileIndex == -1) {
+                                throw new IllegalArgumentException(
+                                    "The SEARCH block:\n" + searchText.trim() + "\n...does not match anything in the file.");
+                            }
+                            match = new int[] { fullFileIndex, fullFileIndex + searchText.length() };
+                        }
+                    }
+                    searchMatchIndex = match[0];
+                    searchEndIndex = match[1];
+                }
+                if (searchMatchIndex < lastProcessedIndex) {
+                    pendingOutOfOrderReplacement = true;
+                }
+            } else if (isReplaceBlockEnd(patch, pos, lineEnd)) {
+                if (searchMatchIndex == -1) {
+                    String malformed = inSearch ? patch.substring(searchContentStart, pos) : searchText;
+                    throw new IllegalArgumentException("The SEARCH block:\n" + malformed.trim() + "\n...is malformatted.");
+                }
+                if (inReplace && !inSearch) {
+                    replaceText.append(patch, replaceContentStart, pos);
+                }
+                replacements.add(new Replacement(searchMatchIndex, searchEndIndex, replaceText.toString()));
+                if (!pendingOutOfOrderReplacement) {
+                    lastProcessedIndex = searchEndIndex;
+                }
+                inSearch = false;
+                inReplace = false;
+                searchText = "";
+                replaceText.setLength(0);
+                searchMatchIndex = -1;
+                searchEndIndex = -1;
+                pendingOutOfOrderReplacement = false;
+            }
+            pos = next;
+        }
+
+        // Still in a replace block when the patch ends: apply what there is
+        if (inReplace && searchMatchIndex != -1) {
+            if (!inSearch) {
+                if (end <= length) {
+                    replaceText.append(patch, replaceContentStart, end);
+                } else if (replaceContentStart <= length) {
+                    replaceText.append(patch, replaceContentStart, length).append('\n');
+                }
+            }
+            replacements.add(new Replacement(searchMatchIndex, searchEndIndex, replaceText.toString()));
+        }
+
+        return new Result(applyReplacements(originalContent, replacements), Collections.unmodifiableList(replacements));
+    }
+
+    /**
+     * String.indexOf for SEARCH blocks. Blocks usually start with indentation, and indexOf stops at every
+     * space or tab of the file to compare the rest, so the scan looks for the block from its first
+     * non-whitespace character on and then checks the indentation in front of it.
+     */
+    static int indexOf(String content, String search, int fromIndex) {
+        int skip = 0;
+        while (skip < search.length() && Character.isWhitespace(search.charAt(skip))) {
+            skip++;
+        }
+        if (skip == 0 || skip == search.length()) {
+            return content.indexOf(search, fromIndex);
+        }
+        String indent = search.substring(0, skip);
+        String rest = search.substring(skip);
+        for (int at = content.indexOf(rest, fromIndex + skip); at >= 0; at = content.indexOf(rest, at + 1)) {
+            if (content.startsWith(indent, at - skip)) {
+                return at - skip;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sorts the replacements by start and builds the new content
+     */
+    private static String applyReplacements(String originalContent, List<Replacement> replacements) {
+        replacements.sort((a, b) -> Integer.compare(a.start, b.start));
+        int capacity = originalContent.length();
+        for (Replacement replacement : replacements) {
+            capacity += replacement.text.length() - (replacement.end - replacement.start);
+        }
+        StringBuilder result = new StringBuilder(Math.max(capacity, 16));
+        int currentPos = 0;
+        for (Replacement replacement : replacements) {
+            if (replacement.start < currentPos) {
+                throw new IllegalArgumentException("SEARCH blocks overlap at offset " + replacement.start);
+            }
+            result.append(originalContent, currentPos, replacement.start);
+            result.append(replacement.text);
+            currentPos = replacement.end;
+        }
+        result.append(originalContent, currentPos, originalContent.length());
+        return result.toString();
+    }
+
+    /**
+     * "---+ SEARCH" or "<<<+ SEARCH", optionally followed by '>'
+     */
+    static boolean isSearchBlockStart(String s, int from, int to) {
+        return isMarker(s, from, to, '-', " SEARCH") || isMarker(s, from, to, '<', " SEARCH");
+    }
+
+    /**
+     * Three or more '='
+     */
+    static boolean isSearchBlockEnd(String s, int from, int to) {
+        return to - from >= 3 && runLength(s, from, to, '=') == to - from;
+    }
+
+    /**
+     * "+++ REPLACE" or ">>>+ REPLACE", optionally followed by '>'
+     */
+    static boolean isReplaceBlockEnd(String s, int from, int to) {
+        return isMarker(s, from, to, '+', " REPLACE") || isMarker(s, from, to, '>', " REPLACE");
+    }
+
+    private static boolean isMarker(String s, int from, int to, char fill, String word) {
+        int run = runLength(s, from, to, fill);
+        if (run < 3) {
+            return false;
+        }
+        int rest = to - from - run;
+        if (rest != word.length() && !(rest == word.length() + 1 && s.charAt(to - 1) == '>')) {
+            return false;
+        }
+        return s.startsWith(word, from + run);
+    }
+
+    private static int runLength(String s, int from, int to, char c) {
+        int i = from;
+        while (i < to && s.charAt(i) == c) {
+            i++;
+        }
+        return i - from;
+    }
+
+    /**
+     * Every search line matches the original line at the same position, ignoring surrounding whitespace.
+     * Candidates come from the lines sharing the text of the rarest search line.
+     */
+    static int[] lineTrimmedMatch(LineIndex original, String searchContent, int startIndex) {
+        String[] search = trimmedSearchLines(searchContent);
+        int size = search.length;
+        if (size == 0) {
+            return null;
+        }
+        int anchor = 0;
+        int anchorCount = Integer.MAX_VALUE;
+        for (int j = 0; j < size; j++) {
+            int count = original.countWithTrimmedAtMost(search[j]);
+            if (count == 0) {
+                return null;
+            }
+            if (count < anchorCount) {
+                anchor = j;
+                anchorCount = count;
+            }
+        }
+        int startLine = original.firstLineAtOrAfter(startIndex);
+        int lastStart = original.lineCount() - size;
+        for (int candidate = original.firstWithTrimmed(search[anchor], startLine + anchor); candidate >= 0;
+             candidate = original.nextWithTrimmed(candidate, search[anchor])) {
+            int i = candidate - anchor;
+            if (i > lastStart) {
+                break;
+            }
+            if (matchesAt(original, search, i)) {
+                return range(original, i, size);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * First and last search lines match, ignoring surrounding whitespace (blocks of 3+ lines only)
+     */
+    static int[] blockAnchorMatch(LineIndex original, String searchContent, int startIndex) {
+        if (countLines(searchContent) < 3) {
+            return null;
+        }
+        String[] search = trimmedSearchLines(searchContent);
+        int size = search.length;
+        String last = search[size - 1];
+        int lastStart = original.lineCount() - size;
+        for (int i = original.firstWithTrimmed(search[0], original.firstLineAtOrAfter(startIndex));
+             i >= 0 && i <= lastStart; i = original.nextWithTrimmed(i, search[0])) {
+            if (original.trimmedEquals(i + size - 1, last)) {
+                return range(original, i, size);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Offsets of the given lines; a match that includes the last line ends at the end of the content
+     */
+    private static int[] range(LineIndex original, int line, int lineCount) {
+        return new int[] { original.lineStart(line), original.lineEndWithNewline(line + lineCount - 1) };
+    }
+
+    private static boolean matchesAt(LineIndex original, String[] search, int line) {
+        for (int j = 0; j < search.length; j++) {
+            if (!original.trimmedEquals(line + j, search[j])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Trimmed search lines, without the empty line after the final newline
+     */
+    private static String[] trimmedSearchLines(String searchContent) {
+        String[] lines = searchContent.split("\n", -1);
+        int size = lines.length;
+        if (size > 0 && lines[size - 1].isEmpty()) {
+            size--;
+        }
+        String[] trimmedLines = new String[size];
+        for (int i = 0; i < size; i++) {
+            trimmedLines[i] = lines[i].trim();
+        }
+        return trimmedLines;
+    }
+
+    private static int countLines(String s) {
+        int count = 1;
+        for (int i = s.indexOf('\n'); i >= 0; i = s.indexOf('\n', i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
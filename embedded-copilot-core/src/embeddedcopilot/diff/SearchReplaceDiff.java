@@ -0,0 +1,381 @@
+package embeddedcopilot.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Applies Cline's SEARCH/REPLACE edit format to file content.
+ *
+ * Ported from Cline's diff.ts (constructNewFileContentV1 and its fallback matchers), so that edits
+ * resolve to the same locations they do in Cline. No Eclipse dependencies.
+ */
+public final class SearchReplaceDiff {
+
+    private SearchReplaceDiff() {
+    }
+
+    /**
+     * Constructs new file content by applying Cline's SEARCH/REPLACE format.
+     * This is a port of Cline's constructNewFileContentV1 function from diff.ts.
+     *
+     * The diff format uses these markers:
+     *   ------- SEARCH
+     *   [Exact content to find]
+     *   =======
+     *   [Content to replace with]
+     *   +++++++ REPLACE
+     */
+    public static String constructNewFileContent(String diffContent, String originalContent) {
+        return constructNewFileContentV1(diffContent, originalContent, true);
+    }
+
+    /**
+     * Port of Cline's constructNewFileContentV1 function.
+     * Handles SEARCH/REPLACE parsing with fallback matching strategies.
+     */
+    public static String constructNewFileContentV1(String diffContent, String originalContent, boolean isFinal) {
+        StringBuilder result = new StringBuilder();
+        int lastProcessedIndex = 0;
+
+        StringBuilder currentSearchContent = new StringBuilder();
+        StringBuilder currentReplaceContent = new StringBuilder();
+        boolean inSearch = false;
+        boolean inReplace = false;
+
+        int searchMatchIndex = -1;
+        int searchEndIndex = -1;
+
+        // Track all replacements to handle out-of-order edits
+        List<Replacement> replacements = new ArrayList<>();
+        boolean pendingOutOfOrderReplacement = false;
+
+        String[] lines = diffContent.split("\n", -1);
+        List<String> linesList = new ArrayList<>(Arrays.asList(lines));
+
+        // If the last line looks like a partial marker but isn't recognized, remove it
+        if (linesList.size() > 0) {
+            String lastLine = linesList.get(linesList.size() - 1);
+            if ((lastLine.startsWith("-") || lastLine.startsWith("<") || 
+                 lastLine.startsWith("=") || lastLine.startsWith("+") || 
+                 lastLine.startsWith(">")) &&
+                !isSearchBlockStart(lastLine) &&
+                !isSearchBlockEnd(lastLine) &&
+                !isReplaceBlockEnd(lastLine)) {
+                linesList.remove(linesList.size() - 1);
+            }
+        }
+
+        for (String line : linesList) {
+            if (isSearchBlockStart(line)) {
+                inSearch = true;
+                currentSearchContent = new StringBuilder();
+                currentReplaceContent = new StringBuilder();
+                continue;
+            }
+
+            if (isSearchBlockEnd(line)) {
+                inSearch = false;
+                inReplace = true;
+
+                String searchText = currentSearchContent.toString();
+
+                if (searchText.isEmpty()) {
+                    // Empty search block
+                    if (originalContent.isEmpty()) {
+                        // New file scenario: nothing to match, just start inserting
+                        searchMatchIndex = 0;
+                        searchEndIndex = 0;
+                    } else {
+                        throw new IllegalArgumentException(
+                            "Empty SEARCH block detected with non-empty file. This usually indicates a malformed SEARCH marker.\n" +
+                            "Please ensure your SEARCH marker follows the correct format:\n" +
+                            "- Use '------- SEARCH' (7+ dashes + space + SEARCH)\n"
+                        );
+                    }
+                } else {
+                    // Exact search match scenario
+                    int exactIndex = originalContent.indexOf(searchText, lastProcessedIndex);
+                    if (exactIndex != -1) {
+                        searchMatchIndex = exactIndex;
+                        searchEndIndex = exactIndex + searchText.length();
+                    } else {
+                        // Attempt fallback line-trimmed matching
+                        int[] lineMatch = lineTrimmedFallbackMatch(originalContent, searchText, lastProcessedIndex);
+                        if (lineMatch != null) {
+                            searchMatchIndex = lineMatch[0];
+                            searchEndIndex = lineMatch[1];
+                        } else {
+                            // Try block anchor fallback for larger blocks
+                            int[] blockMatch = blockAnchorFallbackMatch(originalContent, searchText, lastProcessedIndex);
+                            if (blockMatch != null) {
+                                searchMatchIndex = blockMatch[0];
+                                searchEndIndex = blockMatch[1];
+                            } else {
+                                // Last resort: search the entire file from the beginning
+                                int fullFileIndex = originalContent.indexOf(searchText, 0);
+                                if (fullFileIndex != -1) {
+                                    // Found in the file - could be out of order
+                                    searchMatchIndex = fullFileIndex;
+                                    searchEndIndex = fullFileIndex + searchText.length();
+                                    if (searchMatchIndex < lastProcessedIndex) {
+                                        pendingOutOfOrderReplacement = true;
+                                    }
+                                } else {
+                                    throw new IllegalArgumentException(
+                                        "The SEARCH block:\n" + searchText.trim() + "\n...does not match anything in the file."
+                                    );
+                                }
+                            }
+                        }
+                    }
+                }
+
+                // Check if this is an out-of-order replacement
+                if (searchMatchIndex < lastProcessedIndex) {
+                    pendingOutOfOrderReplacement = true;
+                }
+
+                // For in-order replacements, output everything up to the match location
+                if (!pendingOutOfOrderReplacement) {
+                    result.append(originalContent, lastProcessedIndex, searchMatchIndex);
+                }
+                continue;
+            }
+
+            if (isReplaceBlockEnd(line)) {
+                // Finished one replace block
+                if (searchMatchIndex == -1) {
+                    throw new IllegalArgumentException(
+                        "The SEARCH block:\n" + currentSearchContent.toString().trim() + "\n...is malformatted."
+                    );
+                }
+
+                // Store this replacement
+                replacements.add(new Replacement(searchMatchIndex, searchEndIndex, currentReplaceContent.toString()));
+
+                // If this was an in-order replacement, advance lastProcessedIndex
+                if (!pendingOutOfOrderReplacement) {
+                    lastProcessedIndex = searchEndIndex;
+                }
+
+                // Reset for next block
+                inSearch = false;
+                inReplace = false;
+                currentSearchContent = new StringBuilder();
+                currentReplaceContent = new StringBuilder();
+                searchMatchIndex = -1;
+                searchEndIndex = -1;
+                pendingOutOfOrderReplacement = false;
+                continue;
+            }
+
+            // Accumulate content for search or replace
+            if (inSearch) {
+                currentSearchContent.append(line).append("\n");
+            } else if (inReplace) {
+                currentReplaceContent.append(line).append("\n");
+                // Only output replacement lines immediately for in-order replacements
+                if (searchMatchIndex != -1 && !pendingOutOfOrderReplacement) {
+                    result.append(line).append("\n");
+                }
+            }
+        }
+
+        // If this is the final chunk, we need to apply all replacements and build the final result
+        if (isFinal) {
+            // Handle the case where we're still in replace mode when processing ends
+            if (inReplace && searchMatchIndex != -1) {
+                // Store this replacement
+                replacements.add(new Replacement(searchMatchIndex, searchEndIndex, currentReplaceContent.toString()));
+
+                // If this was an in-order replacement, advance lastProcessedIndex
+                if (!pendingOutOfOrderReplacement) {
+                    lastProcessedIndex = searchEndIndex;
+                }
+            }
+
+            // Sort replacements by start position
+            replacements.sort((a, b) -> Integer.compare(a.start, b.start));
+
+            // Rebuild the entire result by applying all replacements
+            result = new StringBuilder();
+            int currentPos = 0;
+
+            for (Replacement replacement : replacements) {
+                // Add original content up to this replacement
+                result.append(originalContent, currentPos, replacement.start);
+                // Add the replacement content
+                result.append(replacement.content);
+                // Move position to after the replaced section
+                currentPos = replacement.end;
+            }
+
+            // Add any remaining original content
+            result.append(originalContent.substring(currentPos));
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Helper class to track replacements for out-of-order edits
+     */
+    private static class Replacement {
+        final int start;
+        final int end;
+        final String content;
+
+        Replacement(int start, int end, String content) {
+            this.start = start;
+            this.end = end;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Checks if a line is a SEARCH block start marker.
+     * Port of Cline's isSearchBlockStart function.
+     */
+    static boolean isSearchBlockStart(String line) {
+        return line.matches("^[-]{3,} SEARCH>?$") || line.matches("^[<]{3,} SEARCH>?$");
+    }
+
+    /**
+     * Checks if a line is a SEARCH block end marker (=======).
+     * Port of Cline's isSearchBlockEnd function.
+     */
+    static boolean isSearchBlockEnd(String line) {
+        return line.matches("^[=]{3,}$");
+    }
+
+    /**
+     * Checks if a line is a REPLACE block end marker.
+     * Port of Cline's isReplaceBlockEnd function.
+     */
+    static boolean isReplaceBlockEnd(String line) {
+        return line.matches("^[+]{3,} REPLACE>?$") || line.matches("^[>]{3,} REPLACE>?$");
+    }
+
+    /**
+     * Attempts a line-trimmed fallback match for the given search content.
+     * Port of Cline's lineTrimmedFallbackMatch function.
+     * Returns [matchStartIndex, matchEndIndex] if found, or null if not found.
+     */
+    public static int[] lineTrimmedFallbackMatch(String originalContent, String searchContent, int startIndex) {
+        String[] originalLines = originalContent.split("\n", -1);
+        String[] searchLines = searchContent.split("\n", -1);
+
+        // Trim trailing empty line if exists
+        List<String> searchLinesList = new ArrayList<>(Arrays.asList(searchLines));
+        if (searchLinesList.size() > 0 && searchLinesList.get(searchLinesList.size() - 1).isEmpty()) {
+            searchLinesList.remove(searchLinesList.size() - 1);
+        }
+        searchLines = searchLinesList.toArray(new String[0]);
+
+        // Find the line number where startIndex falls
+        int startLineNum = 0;
+        int currentIndex = 0;
+        while (currentIndex < startIndex && startLineNum < originalLines.length) {
+            currentIndex += originalLines[startLineNum].length() + 1; // +1 for \n
+            startLineNum++;
+        }
+
+        // For each possible starting position in original content
+        for (int i = startLineNum; i <= originalLines.length - searchLines.length; i++) {
+            boolean matches = true;
+
+            // Try to match all search lines from this position
+            for (int j = 0; j < searchLines.length; j++) {
+                String originalTrimmed = originalLines[i + j].trim();
+                String searchTrimmed = searchLines[j].trim();
+
+                if (!originalTrimmed.equals(searchTrimmed)) {
+                    matches = false;
+                    break;
+                }
+            }
+
+            // If we found a match, calculate the exact character positions
+            if (matches) {
+                // Find start character index
+                int matchStartIndex = 0;
+                for (int k = 0; k < i; k++) {
+                    matchStartIndex += originalLines[k].length() + 1; // +1 for \n
+                }
+
+                // Find end character index
+                int matchEndIndex = matchStartIndex;
+                for (int k = 0; k < searchLines.length; k++) {
+                    matchEndIndex += originalLines[i + k].length() + 1; // +1 for \n
+                }
+
+                return new int[]{matchStartIndex, matchEndIndex};
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Attempts to match blocks of code by using the first and last lines as anchors.
+     * Port of Cline's blockAnchorFallbackMatch function.
+     * Returns [matchStartIndex, matchEndIndex] if found, or null if not found.
+     */
+    public static int[] blockAnchorFallbackMatch(String originalContent, String searchContent, int startIndex) {
+        String[] originalLines = originalContent.split("\n", -1);
+        String[] searchLines = searchContent.split("\n", -1);
+
+        // Only use this approach for blocks of 3+ lines
+        if (searchLines.length < 3) {
+            return null;
+        }
+
+        // Trim trailing empty line if exists
+        List<String> searchLinesList = new ArrayList<>(Arrays.asList(searchLines));
+        if (searchLinesList.size() > 0 && searchLinesList.get(searchLinesList.size() - 1).isEmpty()) {
+            searchLinesList.remove(searchLinesList.size() - 1);
+        }
+        searchLines = searchLinesList.toArray(new String[0]);
+
+        String firstLineSearch = searchLines[0].trim();
+        String lastLineSearch = searchLines[searchLines.length - 1].trim();
+        int searchBlockSize = searchLines.length;
+
+        // Find the line number where startIndex falls
+        int startLineNum = 0;
+        int currentIndex = 0;
+        while (currentIndex < startIndex && startLineNum < originalLines.length) {
+            currentIndex += originalLines[startLineNum].length() + 1; // +1 for \n
+            startLineNum++;
+        }
+
+        // Look for matching start and end anchors
+        for (int i = startLineNum; i <= originalLines.length - searchBlockSize; i++) {
+            // Check if first line matches
+            if (!originalLines[i].trim().equals(firstLineSearch)) {
+                continue;
+            }
+
+            // Check if last line matches at the expected position
+            if (!originalLines[i + searchBlockSize - 1].trim().equals(lastLineSearch)) {
+                continue;
+            }
+
+            // Calculate exact character positions
+            int matchStartIndex = 0;
+            for (int k = 0; k < i; k++) {
+                matchStartIndex += originalLines[k].length() + 1; // +1 for \n
+            }
+
+            int matchEndIndex = matchStartIndex;
+            for (int k = 0; k < searchBlockSize; k++) {
+                matchEndIndex += originalLines[i + k].length() + 1; // +1 for \n
+            }
+
+            return new int[]{matchStartIndex, matchEndIndex};
+        }
+
+        return null;
+    }
+}
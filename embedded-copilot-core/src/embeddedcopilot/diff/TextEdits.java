@@ -0,0 +1,118 @@
+package embeddedcopilot.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import embeddedcopilot.diff.LineDiff.CombinedLine;
+
+/**
+ * Minimal edits turning the text of an editor into a new content, so a review decision can be applied to
+ * the editor's document instead of rewriting the file: only the changed regions are touched, undo keeps
+ * working and the editor reconciles just those regions.
+ *
+ * A diff editor shows the combined text (Cline's version with the removed lines put back), so approving
+ * drops the REMOVED lines and denying drops the ADDED ones - no diff needs to be computed. When the
+ * document no longer matches the combined lines (e.g. the user edited it), one replacement covers
+ * everything between the common prefix and suffix.
+ */
+public final class TextEdits {
+
+    /**
+     * Replaces length characters at offset (in the text before any edit) with text
+     */
+    public static final class Replacement {
+        public final int offset;
+        public final int length;
+        public final String text;
+
+        public Replacement(int offset, int length, String text) {
+            this.offset = offset;
+            this.length = length;
+            this.text = text;
+        }
+    }
+
+    private TextEdits() {
+    }
+
+    /**
+     * @param combined the diff editor's lines, or null if the document isn't a diff editor's
+     * @return non-overlapping edits in ascending order turning document into target (empty if equal)
+     */
+    public static List<Replacement> compute(LineIndex document, List<CombinedLine> combined, String target) {
+        if (document.text().equals(target)) {
+            return new ArrayList<>();
+        }
+        if (combined != null && combined.size() == document.lineCount()) {
+            for (CombinedLine.HighlightType drop : new CombinedLine.HighlightType[] {
+                    CombinedLine.HighlightType.REMOVED, CombinedLine.HighlightType.ADDED }) {
+                List<Replacement> edits = dropLines(document, combined, drop);
+                if (apply(document.text(), edits).equals(target)) {
+                    return edits;
+                }
+            }
+        }
+        return between(document.text(), target);
+    }
+
+    /**
+     * @return edits deleting the lines with the given highlight, each run of them as one deletion
+     */
+    static List<Replacement> dropLines(LineIndex document, List<CombinedLine> combined, CombinedLine.HighlightType drop) {
+        List<Replacement> edits = new ArrayList<>();
+        int line = 0;
+        while (line < combined.size()) {
+            if (combined.get(line).highlight != drop) {
+                line++;
+                continue;
+            }
+            int first = line;
+            while (line < combined.size() && combined.get(line).highlight == drop) {
+                line++;
+            }
+            int start = document.lineStart(first);
+            int end = document.lineEndWithNewline(line - 1);
+            if (line == combined.size() && first > 0) {
+                start = document.lineEnd(first - 1); // The last line has no newline - drop the one before it
+            }
+            edits.add(new Replacement(start, end - start, ""));
+        }
+        return edits;
+    }
+
+    /**
+     * @return one replacement of what lies between the common prefix and suffix (empty if equal)
+     */
+    public static List<Replacement> between(String before, String after) {
+        List<Replacement> edits = new ArrayList<>();
+        int max = Math.min(before.length(), after.length());
+        int prefix = 0;
+        while (prefix < max && before.charAt(prefix) == after.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix == before.length() && prefix == after.length()) {
+            return edits;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+                && before.charAt(before.length() - 1 - suffix) == after.charAt(after.length() - 1 - suffix)) {
+            suffix++;
+        }
+        edits.add(new Replacement(prefix, before.length() - prefix - suffix,
+            after.substring(prefix, after.length() - suffix)));
+        return edits;
+    }
+
+    /**
+     * @return the text with the edits (ascending, non-overlapping) applied
+     */
+    public static String apply(String text, List<Replacement> edits) {
+        StringBuilder result = new StringBuilder(text.length());
+        int position = 0;
+        for (Replacement edit : edits) {
+            result.append(text, position, edit.offset).append(edit.text);
+            position = edit.offset + edit.length;
+        }
+        return result.append(text, position, text.length()).toString();
+    }
+}
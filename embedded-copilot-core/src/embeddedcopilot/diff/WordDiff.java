@@ -0,0 +1,199 @@
+package embeddedcopilot.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import embeddedcopilot.diff.LineDiff.CombinedLine;
+
+/**
+ * Word-level refinement of a line diff: for each changed line pair, finds the words that actually
+ * differ, so the diff view can mark them on top of the whole-line highlight.
+ *
+ * In the combined content a change is a run of REMOVED lines followed by a run of ADDED lines; lines
+ * are paired in order. Words are runs of letters, digits and '_', runs of whitespace, or single other
+ * characters. Each pair is diffed by LCS over its words after stripping the common prefix and suffix.
+ *
+ * The work is bounded so huge diffs stay cheap: long lines, lines with many words, big hunks and
+ * diffs with many pairs fall back to the whole-line highlight for what is over the limit.
+ */
+public final class WordDiff {
+
+    public static final int MAX_LINE_LENGTH = 2000;   // Longer lines are not refined
+    public static final int MAX_TOKENS = 300;         // Words per side left after prefix/suffix stripping
+    public static final int MAX_PAIRS_PER_HUNK = 200; // Line pairs refined per change
+    public static final int MAX_PAIRS = 5000;         // Line pairs refined per diff
+
+    private WordDiff() {
+    }
+
+    /**
+     * Changed characters [start, end) of one combined line (offsets within the line)
+     */
+    public static class Range {
+        public final int line;
+        public final int start;
+        public final int end;
+
+        public Range(int line, int start, int end) {
+            this.line = line;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * @param cancelled checked between line pairs; once it returns true, the ranges found so far are returned
+     * @return changed word ranges, sorted by line and offset
+     */
+    public static List<Range> compute(List<CombinedLine> combined, BooleanSupplier cancelled) {
+        List<Range> ranges = new ArrayList<>();
+        int pairs = 0;
+        int i = 0;
+        int size = combined.size();
+        while (i < size && pairs < MAX_PAIRS) {
+            if (combined.get(i).highlight != CombinedLine.HighlightType.REMOVED) {
+                i++;
+                continue;
+            }
+            int removedStart = i;
+            while (i < size && combined.get(i).highlight == CombinedLine.HighlightType.REMOVED) {
+                i++;
+            }
+            int addedStart = i;
+            while (i < size && combined.get(i).highlight == CombinedLine.HighlightType.ADDED) {
+                i++;
+            }
+            int hunkPairs = Math.min(Math.min(addedStart - removedStart, i - addedStart), MAX_PAIRS_PER_HUNK);
+            for (int p = 0; p < hunkPairs && pairs < MAX_PAIRS; p++, pairs++) {
+                if (cancelled.getAsBoolean()) {
+                    return ranges;
+                }
+                int removedLine = removedStart + p;
+                int addedLine = addedStart + p;
+                diffPair(combined.get(removedLine).content, combined.get(addedLine).content, removedLine, addedLine, ranges);
+            }
+        }
+        ranges.sort((a, b) -> a.line != b.line ? Integer.compare(a.line, b.line) : Integer.compare(a.start, b.start));
+        return ranges;
+    }
+
+    /**
+     * Adds the changed ranges of one line pair, unless the lines are too long or share no words
+     */
+    static void diffPair(String before, String after, int beforeLine, int afterLine, List<Range> out) {
+        if (before.length() > MAX_LINE_LENGTH || after.length() > MAX_LINE_LENGTH) {
+            return;
+        }
+        int[] a = tokenize(before);
+        int[] b = tokenize(after);
+        int aCount = a.length - 1;
+        int bCount = b.length - 1;
+
+        int prefix = 0;
+        while (prefix < aCount && prefix < bCount && tokenEquals(before, a, prefix, after, b, prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < aCount - prefix && suffix < bCount - prefix &&
+               tokenEquals(before, a, aCount - 1 - suffix, after, b, bCount - 1 - suffix)) {
+            suffix++;
+        }
+        int aMid = aCount - prefix - suffix;
+        int bMid = bCount - prefix - suffix;
+        if (aMid == 0 && bMid == 0) {
+            return; // Identical
+        }
+        if (prefix == 0 && suffix == 0 && aMid > MAX_TOKENS) {
+            return; // Nothing in common cheaply found; the whole-line highlight says it all
+        }
+
+        boolean[] aChanged = new boolean[aMid];
+        boolean[] bChanged = new boolean[bMid];
+        if (aMid > MAX_TOKENS || bMid > MAX_TOKENS || aMid == 0 || bMid == 0) {
+            Arrays.fill(aChanged, true);
+            Arrays.fill(bChanged, true);
+        } else {
+            // LCS table over the middle tokens, from the end so the walk below goes forwards
+            int[][] lcs = new int[aMid + 1][bMid + 1];
+            for (int x = aMid - 1; x >= 0; x--) {
+                for (int y = bMid - 1; y >= 0; y--) {
+                    lcs[x][y] = tokenEquals(before, a, prefix + x, after, b, prefix + y)
+                        ? lcs[x + 1][y + 1] + 1 : Math.max(lcs[x + 1][y], lcs[x][y + 1]);
+                }
+            }
+            if (lcs[0][0] == 0 && prefix == 0 && suffix == 0) {
+                return; // No word in common
+            }
+            int x = 0;
+            int y = 0;
+            while (x < aMid || y < bMid) {
+                if (x < aMid && y < bMid && tokenEquals(before, a, prefix + x, after, b, prefix + y)) {
+                    x++;
+                    y++;
+                } else if (y >= bMid || (x < aMid && lcs[x + 1][y] >= lcs[x][y + 1])) {
+                    aChanged[x++] = true;
+                } else {
+                    bChanged[y++] = true;
+                }
+            }
+        }
+        addRanges(a, prefix, aChanged, beforeLine, out);
+        addRanges(b, prefix, bChanged, afterLine, out);
+    }
+
+    /**
+     * Merges runs of changed tokens into ranges
+     */
+    private static void addRanges(int[] bounds, int offset, boolean[] changed, int line, List<Range> out) {
+        int i = 0;
+        while (i < changed.length) {
+            if (!changed[i]) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < changed.length && changed[i]) {
+                i++;
+            }
+            out.add(new Range(line, bounds[offset + start], bounds[offset + i]));
+        }
+    }
+
+    /**
+     * @return token boundaries: token i spans [bounds[i], bounds[i + 1]); the last entry is the length
+     */
+    static int[] tokenize(String s) {
+        int length = s.length();
+        int[] bounds = new int[length + 1];
+        int count = 0;
+        int i = 0;
+        while (i < length) {
+            bounds[count++] = i;
+            char c = s.charAt(i);
+            if (isWordChar(c)) {
+                while (i < length && isWordChar(s.charAt(i))) {
+                    i++;
+                }
+            } else if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(s.charAt(i))) {
+                    i++;
+                }
+            } else {
+                i++;
+            }
+        }
+        bounds[count] = length;
+        return Arrays.copyOf(bounds, count + 1);
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean tokenEquals(String s1, int[] b1, int i1, String s2, int[] b2, int i2) {
+        int length = b1[i1 + 1] - b1[i1];
+        return length == b2[i2 + 1] - b2[i2] && s1.regionMatches(b1[i1], s2, b2[i2], length);
+    }
+}
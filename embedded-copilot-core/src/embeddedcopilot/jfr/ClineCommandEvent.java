@@ -0,0 +1,48 @@
+package embeddedcopilot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One cline CLI process, from spawn to exit (or timeout/cancellation).
+ *
+ * This and the other events in this package show up under the "Embedded Copilot" category of any
+ * JFR recording (e.g. -XX:StartFlightRecording=filename=ide.jfr,settings=profile), next to GC and
+ * thread events. Without a running recording, creating and committing them costs next to nothing.
+ */
+@Name("embeddedcopilot.ClineCommand")
+@Label("Cline Command")
+@Category({ "Embedded Copilot", "Cline CLI" })
+@Description("Execution of one cline CLI process")
+@StackTrace(false)
+public class ClineCommandEvent extends Event {
+
+    @Label("Command")
+    @Description("Subcommand, e.g. task.view")
+    public String command;
+
+    @Label("Arguments")
+    @Description("Command line arguments (abbreviated)")
+    public String arguments;
+
+    @Label("Exit Code")
+    public int exitCode = -1;
+
+    @Label("Output Size")
+    @DataAmount
+    public long outputBytes;
+
+    @Label("Output Lines")
+    public long outputLines;
+
+    @Label("Timed Out")
+    public boolean timedOut;
+
+    @Label("Cancelled")
+    public boolean cancelled;
+}
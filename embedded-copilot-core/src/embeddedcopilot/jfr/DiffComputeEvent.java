@@ -0,0 +1,32 @@
+package embeddedcopilot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Diff of a file Cline edited against its backup, including building the combined view
+ */
+@Name("embeddedcopilot.DiffCompute")
+@Label("Diff Computation")
+@Category({ "Embedded Copilot", "Diff" })
+@Description("Diff of an edited file against its backup")
+@StackTrace(false)
+public class DiffComputeEvent extends Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Lines Before")
+    public int beforeLines;
+
+    @Label("Lines After")
+    public int afterLines;
+
+    @Label("Operations")
+    @Description("Number of change/add/delete hunks")
+    public int operations;
+}
@@ -0,0 +1,29 @@
+package embeddedcopilot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Application of diff highlights to an editor (UI thread)
+ */
+@Name("embeddedcopilot.Highlight")
+@Label("Diff Highlight")
+@Category({ "Embedded Copilot", "Diff" })
+@Description("Applying diff highlights to a text editor")
+@StackTrace(false)
+public class HighlightEvent extends Event {
+
+    @Label("Editor")
+    public String editor;
+
+    @Label("Lines")
+    @Description("Lines of the combined document")
+    public int lines;
+
+    @Label("Highlighted Ranges")
+    public int ranges;
+}
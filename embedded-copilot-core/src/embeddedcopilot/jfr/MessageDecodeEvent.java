@@ -0,0 +1,34 @@
+package embeddedcopilot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Classification of one Cline message (MessageProcessor) or its display filtering (ChatUIManager)
+ */
+@Name("embeddedcopilot.MessageDecode")
+@Label("Message Decode")
+@Category({ "Embedded Copilot", "Messages" })
+@Description("Decoding or display filtering of one Cline message")
+@StackTrace(false)
+public class MessageDecodeEvent extends Event {
+
+    public static final String STAGE_DECODE = "decode";
+    public static final String STAGE_FILTER = "filter";
+
+    @Label("Stage")
+    @Description("decode (MessageProcessor) or filter (ChatUIManager)")
+    public String stage;
+
+    @Label("Message Type")
+    @Description("say/ask type, e.g. say:text or ask:tool")
+    public String messageType;
+
+    @Label("Result")
+    @Description("Resulting message type or display action (empty if dropped)")
+    public String result;
+}
@@ -0,0 +1,40 @@
+package embeddedcopilot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One polling cycle: a `task view` call and the processing of its streamed output.
+ * Committed on the thread that finished the call, not the one that started it.
+ */
+@Name("embeddedcopilot.PollCycle")
+@Label("Poll Cycle")
+@Category({ "Embedded Copilot", "Polling" })
+@Description("One task view poll, including streamed message processing")
+@StackTrace(false)
+public class PollCycleEvent extends Event {
+
+    @Label("Instance Address")
+    @Description("Cline instance polled (empty for the default instance)")
+    public String address;
+
+    @Label("Output Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Messages")
+    @Description("JSON objects processed")
+    public int messages;
+
+    @Label("Failed")
+    public boolean failed;
+
+    @Label("Stop Requested")
+    @Description("A message ended the polling run")
+    public boolean stopRequested;
+}
@@ -0,0 +1,28 @@
+package embeddedcopilot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One batch of chat UI work run through display.asyncExec
+ */
+@Name("embeddedcopilot.UiRender")
+@Label("UI Render")
+@Category({ "Embedded Copilot", "UI" })
+@Description("Chat rendering work executed on the UI thread")
+@StackTrace(false)
+public class UiRenderEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Queue Delay")
+    @Description("Time the work waited in the UI event queue")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueDelay;
+}
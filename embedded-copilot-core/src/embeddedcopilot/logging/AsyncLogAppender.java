@@ -0,0 +1,217 @@
+package embeddedcopilot.logging;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import embeddedcopilot.concurrent.ExecutionScope;
+import embeddedcopilot.concurrent.PluginExecutors;
+import embeddedcopilot.concurrent.WorkCategory;
+
+/**
+ * Asynchronous appender backed by a fixed-size ring buffer.
+ *
+ * Callers only copy the record into the ring; a single writer thread drains it in batches to the
+ * console, the log file and (for WARN and ERROR) the host's error log, see Log.setErrorLog. When the ring is full the
+ * oldest records are overwritten and counted as dropped, so logging never blocks the caller.
+ */
+public final class AsyncLogAppender {
+
+    private static final long MAX_FILE_BYTES = 5L * 1024 * 1024; // Roll copilot.log to copilot.log.1 beyond this
+
+    private final LogRecord[] ring;
+    private int head = 0; // Index of the oldest record
+    private int count = 0;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean writerRunning = false;
+    private volatile boolean closed = false;
+
+    private final LogLevel consoleLevel;
+    private final File logFile; // null = no file output
+    private BufferedWriter fileWriter = null; // Writer thread only
+    private long fileBytes = 0;
+
+    AsyncLogAppender(int capacity, LogLevel consoleLevel, File logFile) {
+        this.ring = new LogRecord[Math.max(16, capacity)];
+        this.consoleLevel = consoleLevel;
+        this.logFile = logFile;
+
+        try {
+            ExecutionScope scope = PluginExecutors.newScope("LogWriter", WorkCategory.STREAM);
+            scope.execute(this::writeLoop);
+            writerRunning = true;
+        } catch (RejectedExecutionException e) {
+            // Plugin is shutting down - append() writes synchronously
+        }
+    }
+
+    /**
+     * Queues a record without blocking (overwrites the oldest record when full)
+     */
+    void append(LogRecord record) {
+        if (!writerRunning || closed) {
+            write(List.of(record));
+            flushFile();
+            return;
+        }
+        lock.lock();
+        try {
+            int tail = (head + count) % ring.length;
+            ring[tail] = record;
+            if (count < ring.length) {
+                count++;
+            } else {
+                head = (head + 1) % ring.length;
+                dropped.incrementAndGet();
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (!closed) {
+                List<LogRecord> batch = takeBatch(true);
+                write(batch);
+                flushFile();
+            }
+        } catch (InterruptedException e) {
+            // Shutting down - close() drains what is left
+        } finally {
+            writerRunning = false;
+        }
+    }
+
+    /**
+     * Removes everything currently in the ring
+     *
+     * @param wait block until at least one record is available
+     */
+    private List<LogRecord> takeBatch(boolean wait) throws InterruptedException {
+        lock.lock();
+        try {
+            while (wait && count == 0) {
+                notEmpty.await();
+            }
+            List<LogRecord> batch = new ArrayList<>(count);
+            while (count > 0) {
+                batch.add(ring[head]);
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                count--;
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private synchronized void write(List<LogRecord> batch) {
+        long droppedCount = dropped.getAndSet(0);
+        if (droppedCount > 0) {
+            writeFile("... " + droppedCount + " log records dropped (ring buffer full)", null);
+        }
+        Consumer<LogRecord> errorLog = Log.errorLog(); // null outside Eclipse
+        for (LogRecord record : batch) {
+            if (record.level.ordinal() >= consoleLevel.ordinal()) {
+                if (record.level.ordinal() >= LogLevel.WARN.ordinal()) {
+                    System.err.println(record.toConsoleLine());
+                    if (record.error != null) {
+                        record.error.printStackTrace();
+                    }
+                } else {
+                    System.out.println(record.toConsoleLine());
+                }
+            }
+            writeFile(record.toFileLine(), record.error);
+            if (errorLog != null && record.level.ordinal() >= LogLevel.WARN.ordinal()) {
+                errorLog.accept(record);
+            }
+        }
+    }
+
+    private void writeFile(String line, Throwable error) {
+        if (logFile == null) {
+            return;
+        }
+        try {
+            if (fileWriter == null || fileBytes > MAX_FILE_BYTES) {
+                openFile();
+            }
+            fileWriter.write(line);
+            fileWriter.newLine();
+            fileBytes += line.length() + 1;
+            if (error != null) {
+                PrintWriter pw = new PrintWriter(fileWriter);
+                error.printStackTrace(pw);
+                pw.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("[AsyncLogAppender] Could not write log file " + logFile + ": " + e.getMessage());
+        }
+    }
+
+    private void openFile() throws IOException {
+        if (fileWriter != null) {
+            fileWriter.close();
+            Files.move(logFile.toPath(), new File(logFile.getPath() + ".1").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        logFile.getParentFile().mkdirs();
+        fileWriter = Files.newBufferedWriter(logFile.toPath(), StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = logFile.length();
+    }
+
+    private synchronized void flushFile() {
+        if (fileWriter != null) {
+            try {
+                fileWriter.flush();
+            } catch (IOException e) {
+                // Reported on the next write
+            }
+        }
+    }
+
+    /**
+     * @return number of records overwritten since the last write
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops the writer and synchronously writes whatever is still queued
+     */
+    synchronized void close() {
+        closed = true;
+        try {
+            write(takeBatch(false));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (fileWriter != null) {
+            try {
+                fileWriter.close();
+            } catch (IOException e) {
+                // Nothing left to report to
+            }
+            fileWriter = null;
+        }
+    }
+}
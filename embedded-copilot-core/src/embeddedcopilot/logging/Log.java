@@ -0,0 +1,142 @@
+package embeddedcopilot.logging;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Entry point of the plugin logging facility.
+ *
+ * Levels are configured with system properties (e.g. in eclipse.ini or the launch configuration):
+ *   -Dembeddedcopilot.log.level=DEBUG                   default level for all categories (INFO)
+ *   -Dembeddedcopilot.log.level.ClineService=TRACE      level for one category
+ *   -Dembeddedcopilot.log.console=WARN                  minimum level echoed to the console (same as default level)
+ *   -Dembeddedcopilot.log.file=/path/copilot.log        log file, or "none" (defaults to the plugin state location)
+ * and at runtime with setDefaultLevel/setLevel.
+ *
+ * Free of OSGi: inside Eclipse the UI bundle's activator supplies the state location and the error log
+ * through setDefaultLogFile/setErrorLog; in a plain JVM the log goes to the temp directory.
+ */
+public final class Log {
+
+    private static final String PROPERTY_PREFIX = "embeddedcopilot.log.";
+
+    private static final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+    private static final Map<String, LogLevel> categoryLevels = new ConcurrentHashMap<>();
+    private static volatile LogLevel defaultLevel = LogLevel.parse(System.getProperty(PROPERTY_PREFIX + "level"), LogLevel.INFO);
+    private static volatile AsyncLogAppender appender = null;
+    private static volatile File defaultLogFile = null;          // Used when no log file property is given
+    private static volatile Consumer<LogRecord> errorLog = null; // Receives WARN and ERROR records
+
+    static {
+        String levelPrefix = PROPERTY_PREFIX + "level.";
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith(levelPrefix)) {
+                LogLevel level = LogLevel.parse(System.getProperty(key), null);
+                if (level != null) {
+                    categoryLevels.put(key.substring(levelPrefix.length()), level);
+                }
+            }
+        }
+    }
+
+    private static final Logger LOG = get(Log.class); // After the levels are read, so its own level applies
+
+    private Log() {
+    }
+
+    /**
+     * @param category logger category, printed as "[category]"
+     * @return the shared logger for the category
+     */
+    public static Logger get(String category) {
+        return loggers.computeIfAbsent(category, c -> new Logger(c, levelFor(c)));
+    }
+
+    /**
+     * @return the logger named after the class's simple name
+     */
+    public static Logger get(Class<?> type) {
+        return get(type.getSimpleName());
+    }
+
+    private static LogLevel levelFor(String category) {
+        return categoryLevels.getOrDefault(category, defaultLevel);
+    }
+
+    public static LogLevel getDefaultLevel() { return defaultLevel; }
+
+    public static void setDefaultLevel(LogLevel level) {
+        defaultLevel = level;
+        loggers.values().forEach(logger -> logger.setThreshold(levelFor(logger.getCategory())));
+        LOG.info("Set default level to " + level);
+    }
+
+    public static void setLevel(String category, LogLevel level) {
+        if (level == null) {
+            categoryLevels.remove(category);
+        } else {
+            categoryLevels.put(category, level);
+        }
+        get(category).setThreshold(levelFor(category));
+        LOG.info("Set level of " + category + " to " + levelFor(category));
+    }
+
+    /**
+     * Sets the log file used when -Dembeddedcopilot.log.file is not given.
+     * Only takes effect before the first record is logged.
+     */
+    public static void setDefaultLogFile(File file) {
+        defaultLogFile = file;
+    }
+
+    /**
+     * Forwards WARN and ERROR records to the host (the Eclipse error log). Called on the writer thread.
+     */
+    public static void setErrorLog(Consumer<LogRecord> sink) {
+        errorLog = sink;
+    }
+
+    static Consumer<LogRecord> errorLog() {
+        return errorLog;
+    }
+
+    static AsyncLogAppender appender() {
+        AsyncLogAppender current = appender;
+        if (current == null) {
+            synchronized (Log.class) {
+                if (appender == null) {
+                    LogLevel consoleLevel = LogLevel.parse(System.getProperty(PROPERTY_PREFIX + "console"), defaultLevel);
+                    appender = new AsyncLogAppender(8192, consoleLevel, resolveLogFile());
+                }
+                current = appender;
+            }
+        }
+        return current;
+    }
+
+    private static File resolveLogFile() {
+        String configured = System.getProperty(PROPERTY_PREFIX + "file");
+        if ("none".equalsIgnoreCase(configured)) {
+            return null;
+        }
+        if (configured != null && !configured.isBlank()) {
+            return new File(configured);
+        }
+        if (defaultLogFile != null) {
+            return defaultLogFile;
+        }
+        return new File(System.getProperty("java.io.tmpdir"), "embedded-copilot-" + System.getProperty("user.name") + ".log");
+    }
+
+    /**
+     * Writes all queued records and stops the writer (called when the bundle stops)
+     */
+    public static void shutdown() {
+        AsyncLogAppender current = appender;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package embeddedcopilot.logging;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * One log event, captured on the calling thread and written later by the appender
+ */
+public final class LogRecord {
+    private static final DateTimeFormatter TIME_FORMAT =
+        DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    public final long timestamp;
+    public final LogLevel level;
+    public final String category;
+    public final String threadName;
+    public final String message;
+    public final Throwable error;
+
+    LogRecord(long timestamp, LogLevel level, String category, String threadName, String message, Throwable error) {
+        this.timestamp = timestamp;
+        this.level = level;
+        this.category = category;
+        this.threadName = threadName;
+        this.message = message;
+        this.error = error;
+    }
+
+    /**
+     * Formats the record the way the plugin always printed to the console: "[Category] message"
+     */
+    public String toConsoleLine() {
+        return "[" + category + "] " + message;
+    }
+
+    /**
+     * Formats the record with time, level and thread for the log file
+     */
+    public String toFileLine() {
+        return TIME_FORMAT.format(Instant.ofEpochMilli(timestamp)) + " " + level + " [" + category + "] (" +
+            threadName + ") " + message;
+    }
+}
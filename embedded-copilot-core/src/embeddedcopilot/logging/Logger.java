@@ -0,0 +1,57 @@
+package embeddedcopilot.logging;
+
+import java.util.function.Supplier;
+
+/**
+ * Logger for one category (usually a class name). Obtain instances with Log.get(...).
+ *
+ * Use the Supplier overloads for messages built by concatenation on hot paths - the message
+ * is only constructed when the level is enabled, so a disabled debug call costs a field read and a compare.
+ */
+public final class Logger {
+
+    private final String category;
+    private volatile LogLevel threshold; // Updated by Log when the configuration changes
+
+    Logger(String category, LogLevel threshold) {
+        this.category = category;
+        this.threshold = threshold;
+    }
+
+    void setThreshold(LogLevel threshold) {
+        this.threshold = threshold;
+    }
+
+    public String getCategory() { return category; }
+    public LogLevel getThreshold() { return threshold; }
+
+    public boolean isEnabled(LogLevel level) {
+        return level.ordinal() >= threshold.ordinal() && level != LogLevel.OFF;
+    }
+
+    public boolean isTraceEnabled() { return isEnabled(LogLevel.TRACE); }
+    public boolean isDebugEnabled() { return isEnabled(LogLevel.DEBUG); }
+
+    public void trace(Supplier<String> message) { log(LogLevel.TRACE, message, null); }
+    public void debug(String message) { log(LogLevel.DEBUG, message, null); }
+    public void debug(Supplier<String> message) { log(LogLevel.DEBUG, message, null); }
+    public void info(String message) { log(LogLevel.INFO, message, null); }
+    public void info(Supplier<String> message) { log(LogLevel.INFO, message, null); }
+    public void warn(String message) { log(LogLevel.WARN, message, null); }
+    public void warn(String message, Throwable error) { log(LogLevel.WARN, message, error); }
+    public void error(String message) { log(LogLevel.ERROR, message, null); }
+    public void error(String message, Throwable error) { log(LogLevel.ERROR, message, error); }
+
+    public void log(LogLevel level, String message, Throwable error) {
+        if (isEnabled(level)) {
+            Log.appender().append(new LogRecord(System.currentTimeMillis(), level, category,
+                Thread.currentThread().getName(), message, error));
+        }
+    }
+
+    public void log(LogLevel level, Supplier<String> message, Throwable error) {
+        if (isEnabled(level)) {
+            log(level, message.get(), error);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package embeddedcopilot.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Point-in-time value. Either set explicitly (set/add) or read from a supplier
+ * each time a snapshot is taken (e.g. queue depth, active tasks).
+ */
+public final class Gauge {
+
+    private final String name;
+    private final AtomicLong value = new AtomicLong();
+    private final LongSupplier supplier; // null = value is set explicitly
+
+    Gauge(String name, LongSupplier supplier) {
+        this.name = name;
+        this.supplier = supplier;
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    public long get() {
+        if (supplier == null) {
+            return value.get();
+        }
+        try {
+            return supplier.getAsLong();
+        } catch (RuntimeException e) {
+            return -1; // Source already disposed
+        }
+    }
+
+    public String getName() { return name; }
+}
@@ -0,0 +1,190 @@
+package embeddedcopilot.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram with log-linear buckets (the HdrHistogram layout).
+ *
+ * Values below 64 get a bucket each; above that every power of two is split into 32 sub-buckets,
+ * so any recorded value is reported within ~3% of its true value while the whole range up to
+ * MAX_TRACKABLE fits in ~1200 counters. Recording is a bucket index computation and a few
+ * atomic increments - cheap enough for per-line and per-poll use.
+ */
+public final class Histogram {
+
+    /**
+     * What the recorded values mean - only affects formatting
+     */
+    public enum Unit {
+        NANOSECONDS,
+        BYTES,
+        COUNT;
+
+        public String format(double value) {
+            switch (this) {
+                case NANOSECONDS:
+                    if (value >= 1_000_000_000d) return String.format("%.2f s", value / 1_000_000_000d);
+                    if (value >= 1_000_000d) return String.format("%.1f ms", value / 1_000_000d);
+                    return String.format("%.0f µs", value / 1_000d);
+                case BYTES:
+                    if (value >= 1024d * 1024d) return String.format("%.1f MB", value / (1024d * 1024d));
+                    if (value >= 1024d) return String.format("%.1f KB", value / 1024d);
+                    return String.format("%.0f B", value);
+                default:
+                    return String.format("%.0f", value);
+            }
+        }
+    }
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;     // 32 per power of two
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;         // Values below this are exact
+    public static final long MAX_TRACKABLE = 1L << 40;               // ~18 minutes in ns, 1 TB in bytes
+
+    private final String name;
+    private final Unit unit;
+    private final AtomicLongArray buckets = new AtomicLongArray(indexOf(MAX_TRACKABLE) + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram(String name, Unit unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    /**
+     * Records a value (negative values count as 0, values above MAX_TRACKABLE are clamped)
+     */
+    public void record(long value) {
+        long v = Math.min(Math.max(0, value), MAX_TRACKABLE);
+        buckets.incrementAndGet(indexOf(v));
+        count.increment();
+        sum.add(v);
+        long currentMax = max.get();
+        while (v > currentMax && !max.compareAndSet(currentMax, v)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Records the time elapsed since a System.nanoTime() reading
+     *
+     * @return the recorded duration in nanoseconds
+     */
+    public long recordSince(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        record(elapsed);
+        return elapsed;
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS; // >= 1
+        int subBucket = (int) (value >>> magnitude); // in [SUB_BUCKETS, 2 * SUB_BUCKETS)
+        return LINEAR_LIMIT + (magnitude - 1) * SUB_BUCKETS + (subBucket - SUB_BUCKETS);
+    }
+
+    /**
+     * @return the midpoint of the values that map to the given bucket
+     */
+    static long valueAt(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int offset = index - LINEAR_LIMIT;
+        int magnitude = offset / SUB_BUCKETS + 1;
+        long subBucket = offset % SUB_BUCKETS + SUB_BUCKETS;
+        long lower = subBucket << magnitude;
+        return lower + ((1L << magnitude) >> 1);
+    }
+
+    /**
+     * Takes a consistent-enough copy for reporting. Records racing with the copy may be
+     * partially included, which only shifts the numbers by those few records.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[buckets.length()];
+        long total = 0;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = buckets.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(name, unit, copy, total, sum.sum(), max.get());
+    }
+
+    /**
+     * Clears all recorded values. Not atomic with respect to concurrent records.
+     */
+    void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    public String getName() { return name; }
+    public Unit getUnit() { return unit; }
+    public long getCount() { return count.sum(); }
+
+    /**
+     * Immutable view of a histogram at one point in time
+     */
+    public static final class Snapshot {
+        private final String name;
+        private final Unit unit;
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(String name, Unit unit, long[] buckets, long count, long sum, long max) {
+            this.name = name;
+            this.unit = unit;
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @param percentile 0..100
+         * @return the value below which the given percentage of recorded values fall (0 if empty)
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100d * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(valueAt(i), max);
+                }
+            }
+            return max;
+        }
+
+        public String getName() { return name; }
+        public Unit getUnit() { return unit; }
+        public long getCount() { return count; }
+        public long getMax() { return max; }
+        public double getMean() { return count == 0 ? 0 : (double) sum / count; }
+        public long getP50() { return getValueAtPercentile(50); }
+        public long getP90() { return getValueAtPercentile(90); }
+        public long getP99() { return getValueAtPercentile(99); }
+
+        @Override
+        public String toString() {
+            return name + " n=" + count + " p50=" + unit.format(getP50()) + " p90=" + unit.format(getP90()) +
+                " p99=" + unit.format(getP99()) + " max=" + unit.format(max);
+        }
+    }
+}
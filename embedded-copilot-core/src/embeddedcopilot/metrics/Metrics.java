@@ -0,0 +1,81 @@
+package embeddedcopilot.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+
+/**
+ * Plugin-wide metrics registry.
+ *
+ * Metrics are created on first use and live for the life of the plugin, so call sites usually keep
+ * them in static final fields. Names are dot-separated with the component first
+ * (e.g. "cline.command.run", "poll.bytes") - the Performance view groups by that prefix.
+ */
+public final class Metrics {
+
+    private static final Logger LOG = Log.get(Metrics.class);
+
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * @return a gauge whose value is set explicitly
+     */
+    public static Gauge gauge(String name) {
+        return gauges.computeIfAbsent(name, n -> new Gauge(n, null));
+    }
+
+    /**
+     * Registers (or replaces) a gauge that reads its value from a supplier when a snapshot is taken
+     */
+    public static Gauge gauge(String name, LongSupplier supplier) {
+        Gauge gauge = new Gauge(name, supplier);
+        gauges.put(name, gauge);
+        return gauge;
+    }
+
+    /**
+     * @return a latency histogram (values in nanoseconds)
+     */
+    public static Histogram timer(String name) {
+        return histogram(name, Histogram.Unit.NANOSECONDS);
+    }
+
+    public static Histogram histogram(String name, Histogram.Unit unit) {
+        return histograms.computeIfAbsent(name, n -> new Histogram(n, unit));
+    }
+
+    /**
+     * @return all current values, sorted by name
+     */
+    public static MetricsSnapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.get()));
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.get()));
+        Map<String, Histogram.Snapshot> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+        return new MetricsSnapshot(System.currentTimeMillis(), counterValues, gaugeValues, histogramValues);
+    }
+
+    /**
+     * Clears counters and histograms (gauges keep their values)
+     */
+    public static void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(Histogram::reset);
+        LOG.info("Reset counters and histograms");
+    }
+}
@@ -0,0 +1,81 @@
+package embeddedcopilot.metrics;
+
+import java.time.Instant;
+import java.util.Map;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+/**
+ * All metric values at one point in time, with text and JSON export
+ */
+public final class MetricsSnapshot {
+
+    private final long timestamp;
+    private final Map<String, Long> counters;
+    private final Map<String, Long> gauges;
+    private final Map<String, Histogram.Snapshot> histograms;
+
+    MetricsSnapshot(long timestamp, Map<String, Long> counters, Map<String, Long> gauges,
+                    Map<String, Histogram.Snapshot> histograms) {
+        this.timestamp = timestamp;
+        this.counters = counters;
+        this.gauges = gauges;
+        this.histograms = histograms;
+    }
+
+    public long getTimestamp() { return timestamp; }
+    public Map<String, Long> getCounters() { return counters; }
+    public Map<String, Long> getGauges() { return gauges; }
+    public Map<String, Histogram.Snapshot> getHistograms() { return histograms; }
+
+    /**
+     * @return human readable report, one metric per line
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Embedded Copilot metrics at ").append(Instant.ofEpochMilli(timestamp)).append('\n');
+        sb.append("\nHistograms:\n");
+        for (Histogram.Snapshot h : histograms.values()) {
+            sb.append("  ").append(h).append('\n');
+        }
+        sb.append("\nCounters:\n");
+        counters.forEach((name, value) -> sb.append("  ").append(name).append(" = ").append(value).append('\n'));
+        sb.append("\nGauges:\n");
+        gauges.forEach((name, value) -> sb.append("  ").append(name).append(" = ").append(value).append('\n'));
+        return sb.toString();
+    }
+
+    /**
+     * @return JSON document with raw values (histogram values in their unit, e.g. nanoseconds)
+     */
+    public String toJson() {
+        JsonObject root = new JsonObject();
+        root.addProperty("timestamp", Instant.ofEpochMilli(timestamp).toString());
+
+        JsonObject histogramsJson = new JsonObject();
+        for (Histogram.Snapshot h : histograms.values()) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("unit", h.getUnit().name());
+            entry.addProperty("count", h.getCount());
+            entry.addProperty("mean", h.getMean());
+            entry.addProperty("p50", h.getP50());
+            entry.addProperty("p90", h.getP90());
+            entry.addProperty("p99", h.getP99());
+            entry.addProperty("p999", h.getValueAtPercentile(99.9));
+            entry.addProperty("max", h.getMax());
+            histogramsJson.add(h.getName(), entry);
+        }
+        root.add("histograms", histogramsJson);
+
+        JsonObject countersJson = new JsonObject();
+        counters.forEach(countersJson::addProperty);
+        root.add("counters", countersJson);
+
+        JsonObject gaugesJson = new JsonObject();
+        gauges.forEach(gaugesJson::addProperty);
+        root.add("gauges", gaugesJson);
+
+        return new GsonBuilder().setPrettyPrinting().create().toJson(root);
+    }
+}
@@ -0,0 +1,206 @@
+package embeddedcopilot.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import embeddedcopilot.backup.BackupStore.Backup;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+
+/**
+ * The file edits Cline made during one turn, reviewed together.
+ *
+ * An edit is added when Cline asks to make it and becomes READY once its diff is shown. The user then
+ * approves (keeps Cline's version) or denies (restores the original) each file, or all of them at once.
+ * Editing a file again in the same turn folds into its entry, so its review always compares against the
+ * file as it was before the turn.
+ *
+ * Thread-safe: edits arrive on background threads, reviews come from the UI thread.
+ */
+public class Changeset {
+
+    private static final Logger LOG = Log.get(Changeset.class);
+
+    public enum Status { PENDING, READY, APPROVED, DENIED, DISCARDED }
+
+    /**
+     * One edited file
+     */
+    public static class FileChange {
+        public final String filePath;
+        private volatile Backup originalBackup;    // File before the turn (for DENY), absent() for a new file
+        private volatile Backup cleanEditedBackup; // Cline's version (for APPROVE), once the diff is shown
+        private volatile Object editor;            // Diff editor (an IEditorPart; the core bundle has no UI types)
+        private volatile Status status = Status.PENDING;
+        private volatile int edit = 1;             // Edits folded into this change; only the last one's diff counts
+
+        FileChange(String filePath, Backup originalBackup) {
+            this.filePath = filePath;
+            this.originalBackup = originalBackup;
+        }
+
+        public Backup getOriginalBackup() { return originalBackup; }
+        public Backup getCleanEditedBackup() { return cleanEditedBackup; }
+        public Object getEditor() { return editor; }
+        public Status getStatus() { return status; }
+        public int getEdit() { return edit; }
+
+        /**
+         * @return true while the change can still be approved or denied
+         */
+        public boolean isOpen() {
+            return status == Status.PENDING || status == Status.READY;
+        }
+    }
+
+    private final Map<String, FileChange> changes = new LinkedHashMap<>(); // By path, in edit order
+    private boolean discarded = false;
+
+    /**
+     * Adds an edit Cline asked to make. If the file already has an open change in this turn, that change
+     * is reused with its original backup (the given backup is released) and goes back to PENDING; its
+     * previous clean backup must have been restored or released by the caller.
+     *
+     * @param originalBackup the file before the edit (BackupStore.absent() for a new file), or null if it
+     *                       couldn't be saved - the change then can't be denied
+     * @return the change to track the edit with
+     */
+    public synchronized FileChange add(String filePath, Backup originalBackup) {
+        FileChange existing = changes.get(filePath);
+        if (existing != null && existing.isOpen() && !discarded) {
+            if (originalBackup != null && originalBackup != existing.originalBackup) {
+                originalBackup.release();
+            }
+            existing.cleanEditedBackup = null;
+            existing.editor = null;
+            existing.status = Status.PENDING;
+            existing.edit++;
+            LOG.debug(() -> "Folded another edit into the changeset entry of " + filePath);
+            return existing;
+        }
+        FileChange change = new FileChange(filePath, originalBackup);
+        if (discarded) {
+            // The turn is over - nothing will review the change
+            discard(change);
+            return change;
+        }
+        changes.remove(filePath); // A resolved entry moves to the end
+        changes.put(filePath, change);
+        return change;
+    }
+
+    /**
+     * @return the file's change in this turn, or null
+     */
+    public synchronized FileChange get(String filePath) {
+        return changes.get(filePath);
+    }
+
+    /**
+     * Records that the diff of an edit is shown
+     *
+     * @param edit the change's getEdit() when the edit was added
+     * @return false if the change was discarded or got a newer edit meanwhile (the caller releases the backup)
+     */
+    public synchronized boolean ready(FileChange change, int edit, Object editor, Backup cleanEditedBackup) {
+        if (change.status != Status.PENDING || change.edit != edit || changes.get(change.filePath) != change) {
+            return false;
+        }
+        change.editor = editor;
+        change.cleanEditedBackup = cleanEditedBackup;
+        change.status = Status.READY;
+        return true;
+    }
+
+    /**
+     * Approves or denies a READY change and releases the backup that is no longer needed. The other one
+     * (clean version for approve, original for deny) stays for the caller to restore and release.
+     *
+     * @return false if the change isn't READY or has no backup to restore for the decision
+     */
+    public synchronized boolean resolve(FileChange change, boolean approve) {
+        if (change.status != Status.READY) {
+            return false;
+        }
+        if ((approve ? change.cleanEditedBackup : change.originalBackup) == null) {
+            LOG.warn("Cannot " + (approve ? "approve " : "deny ") + change.filePath + ": its backup is missing");
+            return false;
+        }
+        if (approve) {
+            release(change.originalBackup);
+            change.originalBackup = null;
+            change.status = Status.APPROVED;
+        } else {
+            release(change.cleanEditedBackup);
+            change.cleanEditedBackup = null;
+            change.status = Status.DENIED;
+        }
+        return true;
+    }
+
+    /**
+     * @return all changes of the turn, in edit order
+     */
+    public synchronized List<FileChange> changes() {
+        return new ArrayList<>(changes.values());
+    }
+
+    /**
+     * @return the changes waiting for a review
+     */
+    public synchronized List<FileChange> ready() {
+        List<FileChange> ready = new ArrayList<>();
+        for (FileChange change : changes.values()) {
+            if (change.status == Status.READY) {
+                ready.add(change);
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * The clean version of every file whose diff is shown: the file itself holds the diff view's combined
+     * text until the change is resolved, so a copy of the workspace must take these instead
+     *
+     * @return new pins by file path, which the caller releases
+     */
+    public synchronized Map<String, Backup> pinCleanEditedBackups() {
+        Map<String, Backup> clean = new LinkedHashMap<>();
+        for (FileChange change : changes.values()) {
+            if (change.isOpen() && change.cleanEditedBackup != null) {
+                clean.put(change.filePath, change.cleanEditedBackup.pin());
+            }
+        }
+        return clean;
+    }
+
+    /**
+     * Ends the turn: open changes are dropped (their backups released) and later edits are not tracked
+     */
+    public synchronized void discard() {
+        discarded = true;
+        for (FileChange change : changes.values()) {
+            if (change.isOpen()) {
+                discard(change);
+            }
+        }
+    }
+
+    private void discard(FileChange change) {
+        release(change.originalBackup);
+        release(change.cleanEditedBackup);
+        change.originalBackup = null;
+        change.cleanEditedBackup = null;
+        change.editor = null;
+        change.status = Status.DISCARDED;
+        LOG.debug(() -> "Discarded unreviewed change of " + change.filePath);
+    }
+
+    private static void release(Backup backup) {
+        if (backup != null) {
+            backup.release();
+        }
+    }
+}
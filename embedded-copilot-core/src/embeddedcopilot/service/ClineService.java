@@ -0,0 +1,1545 @@
+package embeddedcopilot.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import embeddedcopilot.jfr.ClineCommandEvent;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.metrics.Counter;
+import embeddedcopilot.metrics.Histogram;
+import embeddedcopilot.metrics.Metrics;
+import embeddedcopilot.concurrent.ExecutionScope;
+import embeddedcopilot.concurrent.PluginExecutors;
+import embeddedcopilot.concurrent.WorkCategory;
+import embeddedcopilot.model.ChatHistory;
+import embeddedcopilot.model.ChatMessage;
+
+/**
+ * Service for interacting with the Cline CLI.
+ *
+ * Every command has a CompletableFuture-returning *Async variant that runs on a virtual thread
+ * in the "ClineCommand" scope (bounded by WorkCategory.CLI) with a per-call deadline; cancelling the returned future kills the cline process.
+ * The blocking methods are thin wrappers that wait for the async result.
+ *
+ * Has no Eclipse dependencies: the workspace directory and the bundled binaries are supplied by the
+ * caller, so the service also runs in a plain JVM (e.g. against FakeCline).
+ */
+public class ClineService {
+
+    private static final Logger LOG = Log.get(ClineService.class);
+
+    /** Deadline used when a caller does not pass one */
+    public static final Duration DEFAULT_COMMAND_TIMEOUT = Duration.ofSeconds(30);
+
+    /** Characters of each command's output kept for diagnostics */
+    private static final int OUTPUT_TAIL_CHARS = 16 * 1024;
+
+    private static final Histogram SPAWN_TIME = Metrics.timer("cline.spawn");                    // ProcessBuilder.start()
+    private static final Histogram OUTPUT_BYTES = Metrics.histogram("cline.outputBytes", Histogram.Unit.BYTES);
+    private static final Counter COMMANDS = Metrics.counter("cline.commands");
+    private static final Counter FAILED_COMMANDS = Metrics.counter("cline.commands.failed");      // Non-zero exit or Cline error marker
+    private static final Counter TIMED_OUT_COMMANDS = Metrics.counter("cline.commands.timedOut");
+
+    /**
+     * System property replacing the bundled CLI with another command, given as a whitespace-separated
+     * prefix (e.g. "java -cp <classes> embeddedcopilot.testing.FakeCline" for offline load tests)
+     */
+    public static final String COMMAND_OVERRIDE_PROPERTY = "embeddedcopilot.cline.command";
+
+    private String cliBinaryDir = null;
+    private final List<String> commandOverride = parseCommandOverride(); // null = bundled CLI
+    private final Supplier<String> workspaceRoot;                // Directory the CLI runs in
+    private final Function<String, URL> bundledResources;       // Plugin-relative path -> URL, null if missing
+    private volatile boolean clineInitialized = false;
+    private boolean shutdownHookRegistered = false; // Guarded by this
+    private String nodeJsPath = null;
+    private String nodePathValue = null;
+    private String platformIdentifier = null;
+    private String clineExecutableName = null;
+    private String instanceAddress = null;
+    private final Set<String> sessionInstanceAddresses = ConcurrentHashMap.newKeySet(); // Extra instances started for task sessions
+    private final ExecutionScope commandScope = PluginExecutors.newScope("ClineCommand", WorkCategory.CLI);
+    private final ExecutionScope outputReaderScope = PluginExecutors.newScope("ClineOutputReader", WorkCategory.STREAM);
+
+    /**
+     * @param workspaceRoot supplies the directory the CLI runs in (the selected project)
+     * @param bundledResources finds a file shipped with the plugin, e.g. "resources/standalone.zip",
+     *                         returning null when it is missing
+     */
+    public ClineService(Supplier<String> workspaceRoot, Function<String, URL> bundledResources) {
+        this.workspaceRoot = workspaceRoot;
+        this.bundledResources = bundledResources;
+        detectPlatform();
+    }
+
+    /**
+     * Future for an asynchronous CLI command.
+     * Unlike a plain CompletableFuture, cancelling it destroys the running cline process
+     * (and its children) instead of just abandoning the result.
+     */
+    public static class CommandFuture<T> extends CompletableFuture<T> {
+        private volatile Process process = null;
+
+        void attach(Process proc) {
+            process = proc;
+            if (isCancelled()) {
+                // Cancelled between submission and process start
+                destroyProcessTree(proc);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Process proc = process;
+            if (cancelled && proc != null) {
+                destroyProcessTree(proc);
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * Converts raw command output into the async result
+     */
+    @FunctionalInterface
+    private interface OutputParser<T> {
+        T parse(String output) throws Exception;
+    }
+
+    /**
+     * Unwraps the CompletionException/ExecutionException layers added by future chaining
+     *
+     * @param t the exception passed to a completion callback
+     * @return the underlying cause
+     */
+    public static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException)
+                && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    /**
+     * Detects the current platform and architecture
+     */
+    private void detectPlatform() {
+        String osName = System.getProperty("os.name").toLowerCase();
+        String osArch = System.getProperty("os.arch").toLowerCase();
+
+        String os;
+        String arch;
+
+        if (osName.contains("mac") || osName.contains("darwin")) {
+            os = "darwin";
+        } else if (osName.contains("linux")) {
+            os = "linux";
+        } else {
+            throw new RuntimeException("Unsupported OS: " + osName);
+        }
+
+        if (osArch.contains("aarch64") || osArch.contains("arm64")) {
+            arch = "arm64";
+        } else if (osArch.contains("amd64") || osArch.contains("x86_64") || osArch.contains("x64")) {
+            arch = "amd64";  // Cline binaries use "amd64"
+        } else {
+            throw new RuntimeException("Unsupported architecture: " + osArch);
+        }
+
+        platformIdentifier = os + "-" + arch;
+        clineExecutableName = "cline-" + platformIdentifier;
+
+        LOG.debug(() -> "Detected OS: " + osName + " (" + os + ")");
+        LOG.debug(() -> "Detected Arch: " + osArch + " (" + arch + ")");
+        LOG.debug(() -> "Platform identifier: " + platformIdentifier);
+        LOG.debug(() -> "Will use Cline binary: " + clineExecutableName);
+    }
+    
+    /**
+     * Initializes cline by extracting binaries, detecting Node.js, and starting interactive session in background.
+     * This should be called once at application startup.
+     */
+    public synchronized void initialize() throws Exception {
+        if (clineInitialized) {
+            return;
+        }
+        if (!shutdownHookRegistered) {
+            // Clean up the cline instances on exit - registered here, as the constructor must not leak this
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    shutdown();
+                } catch (Exception e) {
+                    LOG.error("Error during shutdown: " + e.getMessage());
+                }
+            }));
+            shutdownHookRegistered = true;
+        }
+
+        String cliBinaryPath;
+        if (commandOverride != null) {
+            // Stand-in command: nothing to extract, no Node.js needed
+            cliBinaryPath = String.join(" ", commandOverride);
+            LOG.info("Using cline command override: " + cliBinaryPath);
+        } else {
+            // Extract binaries first
+            cliBinaryPath = extractCliBinary();
+
+            // Detect Node.js and set up NODE_PATH (once during initialization)
+            setupNodeJsEnvironment();
+        }
+        
+        // Start interactive cline in background to initialize default instance
+        ensureClineInitialized(cliBinaryPath);
+        
+        clineInitialized = true;
+        LOG.info("Cline initialization completed");
+    }
+    
+    /**
+     * Extracts the bundled Node.js binary for the detected platform
+     *
+     * @param tempDir the temporary directory where binaries are extracted
+     * @return the path to the Node.js bin directory
+     */
+    private String extractNodeJs(Path tempDir) throws Exception {
+        // Node.js uses "x64" instead of "amd64"
+        // Using Node 22 LTS instead of Node 24 to avoid punycode deprecation issues with gRPC
+        String nodeArch = platformIdentifier.contains("amd64") ? platformIdentifier.replace("amd64", "x64") : platformIdentifier;
+        String nodeTarballName;
+
+        if (nodeArch.equals("darwin-arm64")) {
+            nodeTarballName = "node-v22.21.1-darwin-arm64.tar.gz";
+        } else if (nodeArch.equals("darwin-x64")) {
+            nodeTarballName = "node-v22.21.1-darwin-x64.tar.gz";
+        } else if (nodeArch.equals("linux-arm64")) {
+            nodeTarballName = "node-v22.21.1-linux-arm64.tar.xz";
+        } else if (nodeArch.equals("linux-x64")) {
+            nodeTarballName = "node-v22.21.1-linux-x64.tar.xz";
+        } else {
+            throw new Exception("Unsupported platform for Node.js: " + nodeArch + " (original: " + platformIdentifier + ")");
+        }
+
+        LOG.debug(() -> "Extracting Node.js tarball: " + nodeTarballName);
+
+        URL tarballUrl = bundledResources.apply("resources/" + nodeTarballName);
+        if (tarballUrl == null) {
+            throw new Exception("Node.js tarball not found in bundle: resources/" + nodeTarballName);
+        }
+
+        Path nodeDir = tempDir.resolve("node");
+        Files.createDirectories(nodeDir);
+
+        // Extract using tar command (system tar supports both gz and xz)
+        Path tarballPath = tempDir.resolve(nodeTarballName);
+        try (InputStream tarIn = tarballUrl.openStream()) {
+            Files.copy(tarIn, tarballPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        LOG.debug(() -> "Extracting " + nodeTarballName + "...");
+        ProcessBuilder pb = new ProcessBuilder("tar", "-xf", tarballPath.toString(), "-C", nodeDir.toString(), "--strip-components=1");
+        pb.redirectErrorStream(true);
+        Process proc = pb.start();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String output = line;
+                LOG.debug(() -> "[ClineService TAR] " + output);
+            }
+        }
+
+        boolean finished = proc.waitFor(60, TimeUnit.SECONDS);
+        if (!finished) {
+            proc.destroyForcibly();
+            throw new Exception("Node.js extraction timed out");
+        }
+
+        if (proc.exitValue() != 0) {
+            throw new Exception("Failed to extract Node.js tarball (exit code: " + proc.exitValue() + ")");
+        }
+
+        // Delete tarball after extraction
+        Files.deleteIfExists(tarballPath);
+
+        Path nodeBinPath = nodeDir.resolve("bin");
+        Path nodeExecutable = nodeBinPath.resolve("node");
+        if (!Files.exists(nodeExecutable)) {
+            throw new Exception("Node.js binary not found after extraction at: " + nodeBinPath);
+        }
+
+        // Ensure node binary is executable
+        nodeExecutable.toFile().setExecutable(true);
+        LOG.info("✓ Node.js extracted and made executable: " + nodeBinPath);
+
+        return nodeBinPath.toString();
+    }
+
+    /**
+     * Sets up Node.js environment (PATH and NODE_PATH) - called once during initialization
+     */
+    private void setupNodeJsEnvironment() {
+        LOG.debug("========== Setting up Node.js ==========");
+
+        // Use the extracted Node.js from bundled binaries
+        try {
+            Path tempDir = Paths.get(cliBinaryDir);
+            nodeJsPath = extractNodeJs(tempDir);
+            LOG.info("✓ Using bundled Node.js from: " + nodeJsPath);
+
+            // Verify the node binary works
+            Path nodeBinary = Paths.get(nodeJsPath).resolve("node");
+            ProcessBuilder testPb = new ProcessBuilder(nodeBinary.toString(), "--version");
+            Process testProc = testPb.start();
+            boolean testFinished = testProc.waitFor(5, TimeUnit.SECONDS);
+            if (testFinished && testProc.exitValue() == 0) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(testProc.getInputStream()))) {
+                    String version = reader.readLine();
+                    LOG.info("✓ Verified bundled Node.js works: " + version);
+                }
+            } else {
+                throw new Exception("Node binary test failed or timed out");
+            }
+        } catch (Exception e) {
+            LOG.error("FATAL: Failed to extract bundled Node.js: " + e.getMessage(), e);
+            throw new RuntimeException("Could not extract bundled Node.js", e);
+        }
+
+        // Set up NODE_PATH
+        Path tempDir = Paths.get(cliBinaryDir);
+        Path nodeModulesPath = tempDir.resolve("node_modules");
+        String osName = System.getProperty("os.name").toLowerCase();
+        String osArch = System.getProperty("os.arch").toLowerCase();
+        String platformDir = osName.contains("mac") || osName.contains("darwin") 
+            ? (osArch.contains("aarch64") || osArch.contains("arm64") ? "darwin-arm64" : "darwin-x64")
+            : (osName.contains("linux") 
+                ? (osArch.contains("aarch64") || osArch.contains("arm64") ? "linux-arm64" : "linux-x64")
+                : "win-x64");
+        Path platformBinariesPath = tempDir.resolve("binaries").resolve(platformDir).resolve("node_modules");
+        
+        List<String> nodePathParts = new ArrayList<>();
+        if (Files.exists(platformBinariesPath)) {
+            nodePathParts.add(platformBinariesPath.toString());
+            LOG.info("✓ Found platform-specific binaries at: " + platformBinariesPath);
+        }
+        if (Files.exists(nodeModulesPath)) {
+            nodePathParts.add(nodeModulesPath.toString());
+        }
+        
+        if (!nodePathParts.isEmpty()) {
+            nodePathValue = String.join(File.pathSeparator, nodePathParts);
+        }
+    }
+
+    /**
+     * @return command prefix (executable plus leading arguments) that runs the CLI; a new mutable list
+     */
+    private List<String> cliCommand() throws Exception {
+        if (commandOverride != null) {
+            return new ArrayList<>(commandOverride);
+        }
+        List<String> command = new ArrayList<>();
+        command.add(extractCliBinary());
+        return command;
+    }
+
+    private static List<String> parseCommandOverride() {
+        String value = System.getProperty(COMMAND_OVERRIDE_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return List.of(value.trim().split("\\s+"));
+    }
+
+    /**
+     * Extracts the Cline CLI binary and standalone.zip contents from the bundle
+     * 
+     * @return path to the cline binary
+     * @throws Exception if extraction fails
+     */
+    private String extractCliBinary() throws Exception {
+        if (cliBinaryDir != null) {
+            // Even if we're returning early, check if better-sqlite3 needs to be copied
+            ensureBetterSqlite3Copied(Paths.get(cliBinaryDir));
+            return cliBinaryDir + "/bin/cline";
+        }
+
+        Path tempDir = Files.createTempDirectory("cline-binaries");
+        cliBinaryDir = tempDir.toString();
+
+        LOG.debug(() -> "Created temp directory: " + cliBinaryDir);
+
+        // First, extract standalone.zip (contains cline-core.js, node_modules, etc.)
+        LOG.debug("Looking for standalone.zip in bundle...");
+        URL zipUrl = bundledResources.apply("resources/standalone.zip");
+        LOG.debug(zipUrl != null ? "Bundle entry 'resources/standalone.zip': FOUND" : "Bundle entry 'resources/standalone.zip': NOT FOUND");
+        
+        // Try alternative paths
+        if (zipUrl == null) {
+            zipUrl = bundledResources.apply("standalone.zip");
+            LOG.debug(zipUrl != null ? "Bundle entry 'standalone.zip': FOUND" : "Bundle entry 'standalone.zip': NOT FOUND");
+        }
+        
+        if (zipUrl != null) {
+            LOG.info("✓ Found standalone.zip, extracting...");
+            Path zipPath = tempDir.resolve("standalone.zip");
+            
+            // Copy zip file to temp directory first
+            // Use bundle URL directly - FileLocator might not work correctly for zip files
+            try (InputStream zipIn = zipUrl.openStream()) {
+                long bytesCopied = Files.copy(zipIn, zipPath, StandardCopyOption.REPLACE_EXISTING);
+                LOG.debug(() -> "Copied " + bytesCopied + " bytes to " + zipPath);
+                
+                // Verify the file exists and has content
+                if (!Files.exists(zipPath)) {
+                    throw new Exception("Zip file was not copied successfully");
+                }
+                long fileSize = Files.size(zipPath);
+                if (fileSize == 0) {
+                    throw new Exception("Zip file is empty (0 bytes)");
+                }
+                LOG.debug(() -> "Zip file size: " + fileSize + " bytes");
+            } catch (Exception e) {
+                LOG.error("ERROR: Failed to copy zip file: " + e.getMessage(), e);
+                throw new Exception("Failed to copy standalone.zip from bundle: " + e.getMessage(), e);
+            }
+            
+            // Extract the zip file
+            try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                int entryCount = 0;
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    Path entryPath = tempDir.resolve(entry.getName());
+                    
+                    if (entry.isDirectory()) {
+                        Files.createDirectories(entryPath);
+                    } else {
+                        Files.createDirectories(entryPath.getParent());
+                        try (InputStream entryIn = zipFile.getInputStream(entry)) {
+                            Files.copy(entryIn, entryPath, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                    }
+                    entryCount++;
+                }
+                int extracted = entryCount;
+                LOG.debug(() -> "Extracted " + extracted + " entries from zip");
+            } catch (Exception e) {
+                LOG.error("ERROR: Failed to extract zip file: " + e.getMessage());
+                LOG.error("Zip file path: " + zipPath);
+                LOG.error("Zip file exists: " + Files.exists(zipPath));
+                if (Files.exists(zipPath)) {
+                    try {
+                        LOG.error("Zip file size: " + Files.size(zipPath) + " bytes");
+                    } catch (Exception ex) {
+                        LOG.error("Could not get file size: " + ex.getMessage());
+                    }
+                }
+                throw new Exception("Failed to extract standalone.zip: " + e.getMessage(), e);
+            }
+            
+            // Delete the zip file after extraction
+            try {
+                Files.delete(zipPath);
+            } catch (Exception e) {
+                LOG.warn("WARNING: Could not delete zip file: " + e.getMessage());
+            }
+            LOG.info("✓ Extracted standalone.zip");
+            
+            // Copy better-sqlite3 from platform-specific binaries to main node_modules
+            ensureBetterSqlite3Copied(tempDir);
+        } else {
+            LOG.warn("WARNING: standalone.zip not found in bundle");
+        }
+
+        // Create bin subdirectory and extract binaries
+        Path binDir = tempDir.resolve("bin");
+        Files.createDirectories(binDir);
+
+        // Extract platform-specific cline binary
+        String clineHostName = "cline-host-" + platformIdentifier;
+
+        LOG.debug("Extracting platform-specific binaries:");
+        LOG.debug(() -> "  - cline: " + clineExecutableName);
+        LOG.debug(() -> "  - cline-host: " + clineHostName);
+
+        // Extract cline binary
+        URL clineUrl = bundledResources.apply("resources/" + clineExecutableName);
+        if (clineUrl == null) {
+            throw new Exception("Platform-specific binary not found in bundle: resources/" + clineExecutableName);
+        }
+        InputStream clineIn = clineUrl.openStream();
+        Path clinePath = binDir.resolve("cline");
+        Files.copy(clineIn, clinePath, StandardCopyOption.REPLACE_EXISTING);
+        clineIn.close();
+        clinePath.toFile().setExecutable(true);
+        LOG.info("✓ Extracted cline to: " + clinePath);
+
+        // Extract cline-host binary
+        URL hostUrl = bundledResources.apply("resources/" + clineHostName);
+        if (hostUrl != null) {
+            InputStream hostIn = hostUrl.openStream();
+            Path hostPath = binDir.resolve("cline-host");
+            Files.copy(hostIn, hostPath, StandardCopyOption.REPLACE_EXISTING);
+            hostIn.close();
+            hostPath.toFile().setExecutable(true);
+            LOG.info("✓ Extracted cline-host to: " + hostPath);
+        } else {
+            LOG.warn("WARNING: cline-host binary not found: resources/" + clineHostName);
+        }
+
+        // Verify final structure
+        LOG.debug("Final structure:");
+        LOG.debug(() -> "  - cline binary: " + clinePath);
+        LOG.debug(() -> "  - cline-core.js should be at: " + tempDir.resolve("cline-core.js"));
+        LOG.debug("  - cline will look for ../cline-core.js from bin/cline");
+
+        return clinePath.toString();
+    }
+
+    /**
+     * Executes a Cline CLI command
+     * 
+     * @param args command arguments
+     * @return command output
+     * @throws Exception if command execution fails
+     */
+    public String executeClineCommand(String... args) throws Exception {
+        return executeClineCommandAt(null, args);
+    }
+
+    /**
+     * Executes a Cline CLI command against a specific Cline instance
+     *
+     * @param address the instance address, or null for the default instance
+     * @param args command arguments
+     * @return command output
+     * @throws Exception if command execution fails
+     */
+    public String executeClineCommandAt(String address, String... args) throws Exception {
+        return await(executeClineCommandAsync(address, DEFAULT_COMMAND_TIMEOUT, args));
+    }
+
+    /**
+     * Executes a Cline CLI command asynchronously on a virtual thread
+     *
+     * @param address the instance address, or null for the default instance
+     * @param timeout deadline for the cline process; it is killed when exceeded
+     * @param args command arguments
+     * @return future completing with the command output; cancelling it kills the process
+     */
+    public CommandFuture<String> executeClineCommandAsync(String address, Duration timeout, String... args) {
+        return submitCommand(address, timeout, output -> output, args);
+    }
+
+    /**
+     * Executes a Cline CLI command asynchronously, streaming its output line by line instead of collecting it.
+     * Lines are delivered on the output reader thread while the process is still running.
+     *
+     * @param address the instance address, or null for the default instance
+     * @param timeout deadline for the cline process; it is killed when exceeded
+     * @param lineConsumer receives each output line (stdout and stderr merged)
+     * @param args command arguments
+     * @return future completing with the process exit code; cancelling it kills the process
+     */
+    public CommandFuture<Integer> streamClineCommandAsync(String address, Duration timeout, Consumer<String> lineConsumer, String... args) {
+        CommandFuture<Integer> future = new CommandFuture<>();
+        String[] addressedArgs = withAddress(address, args);
+        return commandScope.submit(future, () -> {
+            if (!clineInitialized) {
+                initialize();
+            }
+            return streamClineCommandInternal(future, timeout, lineConsumer, addressedArgs);
+        });
+    }
+
+    /**
+     * Runs a command on the command executor and completes the returned future with the parsed output
+     */
+    private <T> CommandFuture<T> submitCommand(String address, Duration timeout, OutputParser<T> parser, String... args) {
+        CommandFuture<T> future = new CommandFuture<>();
+        String[] addressedArgs = withAddress(address, args);
+        return commandScope.submit(future, () -> {
+            // Ensure cline is initialized (should already be done, but check just in case)
+            if (!clineInitialized) {
+                initialize();
+            }
+            String output = executeClineCommandInternal(future, timeout, addressedArgs);
+            long parseStart = System.nanoTime();
+            T result = parser.parse(output);
+            Metrics.timer("cline.parse." + commandName(addressedArgs)).recordSince(parseStart);
+            return result;
+        });
+    }
+
+    /**
+     * Prefixes the global --address flag when targeting a non-default instance
+     */
+    private String[] withAddress(String address, String... args) {
+        if (address == null) {
+            return args;
+        }
+        String[] addressedArgs = new String[args.length + 2];
+        addressedArgs[0] = "--address";
+        addressedArgs[1] = address;
+        System.arraycopy(args, 0, addressedArgs, 2, args.length);
+        return addressedArgs;
+    }
+
+    /**
+     * @return metric name of a command, e.g. "task.view" for `--address x task view --output-format json`
+     */
+    static String commandName(String... args) {
+        StringBuilder name = new StringBuilder();
+        int words = 0;
+        for (int i = 0; i < args.length && words < 2; i++) {
+            if ("--address".equals(args[i])) {
+                i++; // Skip the value
+            } else if (!args[i].startsWith("-")) {
+                name.append(words++ > 0 ? "." : "").append(args[i]);
+            }
+        }
+        return words > 0 ? name.toString() : "unknown";
+    }
+
+    private static String abbreviate(String text, int maxLength) {
+        return text.length() <= maxLength ? text : text.substring(0, maxLength - 3) + "...";
+    }
+
+    /**
+     * Waits for an async command and rethrows its original failure.
+     * Interrupting the waiting thread cancels the command (and kills its process).
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Forcibly destroys a cline process and anything it spawned
+     */
+    private static void destroyProcessTree(Process proc) {
+        proc.descendants().forEach(ProcessHandle::destroyForcibly);
+        proc.destroyForcibly();
+    }
+    
+    /**
+     * Internal method to execute cline commands with the default deadline (used during initialization)
+     */
+    private String executeClineCommandInternal(String... args) throws Exception {
+        return executeClineCommandInternal(null, DEFAULT_COMMAND_TIMEOUT, args);
+    }
+
+    /**
+     * Internal method to execute cline commands and collect their whole output (for small outputs that are parsed)
+     *
+     * @param call the future to attach the process to for cancellation, or null
+     * @param timeout deadline after which the process is killed
+     */
+    private String executeClineCommandInternal(CommandFuture<?> call, Duration timeout, String... args) throws Exception {
+        StringBuilder output = new StringBuilder();
+        streamClineCommandInternal(call, timeout, line -> output.append(line).append("\n"), args);
+        return output.toString();
+    }
+
+    /**
+     * Internal method to execute cline commands (extracted to avoid duplication).
+     * Output is handed to the consumer as it arrives; only a bounded tail is kept here for diagnostics,
+     * so memory and console output per command stay fixed regardless of output size.
+     *
+     * @param call the future to attach the process to for cancellation, or null
+     * @param timeout deadline after which the process is killed
+     * @param lineConsumer receives each output line
+     * @return the process exit code
+     */
+    private int streamClineCommandInternal(CommandFuture<?> call, Duration timeout, Consumer<String> lineConsumer, String... args) throws Exception {
+        ClineCommandEvent event = new ClineCommandEvent();
+        event.command = commandName(args);
+        event.arguments = abbreviate(String.join(" ", args), 200);
+        event.begin();
+        try {
+            int exitCode = runClineProcess(call, timeout, lineConsumer, event, args);
+            event.exitCode = exitCode;
+            return exitCode;
+        } catch (TimeoutException e) {
+            event.timedOut = true;
+            throw e;
+        } catch (CancellationException | InterruptedException e) {
+            event.cancelled = true;
+            throw e;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Body of streamClineCommandInternal: builds the environment, runs the process and drains its output
+     *
+     * @param event flight recorder event receiving the output statistics
+     */
+    private int runClineProcess(CommandFuture<?> call, Duration timeout, Consumer<String> lineConsumer,
+                                ClineCommandEvent event, String... args) throws Exception {
+        List<String> command = cliCommand();
+        command.addAll(Arrays.asList(args));
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+
+        Map<String, String> env = pb.environment();
+        String home = System.getProperty("user.home");
+        
+        if (!env.containsKey("HOME") || env.get("HOME") == null || env.get("HOME").isEmpty()) {
+            env.put("HOME", home);
+        }
+
+        String projectRoot = workspaceRoot.get();
+        pb.directory(new File(projectRoot));
+        
+        // Set CLINE_WORKSPACE environment variable so cline-host knows the correct workspace
+        env.put("CLINE_WORKSPACE", projectRoot);
+        LOG.trace(() -> "Set CLINE_WORKSPACE=" + projectRoot);
+        
+        // Build PATH with bundled binaries first
+        String currentPath = env.get("PATH");
+        StringBuilder pathBuilder = new StringBuilder();
+
+        // Add cline bin directory first (for cline and cline-host binaries)
+        if (cliBinaryDir != null) {
+            pathBuilder.append(cliBinaryDir).append("/bin");
+        }
+
+        // Add bundled Node.js path second (so it takes precedence over system node)
+        if (nodeJsPath != null) {
+            pathBuilder.append(File.pathSeparator).append(nodeJsPath);
+
+            // Explicitly set NODE to point to our bundled node binary
+            Path nodeBinary = Paths.get(nodeJsPath).resolve("node");
+            if (Files.exists(nodeBinary)) {
+                env.put("NODE", nodeBinary.toString());
+                LOG.trace(() -> "Set NODE=" + nodeBinary.toString());
+            } else {
+                LOG.warn("WARNING: Node binary not found at: " + nodeBinary);
+            }
+        }
+
+        // Add original PATH last
+        if (currentPath != null && !currentPath.isEmpty()) {
+            if (pathBuilder.length() > 0) {
+                pathBuilder.append(File.pathSeparator);
+            }
+            pathBuilder.append(currentPath);
+        }
+
+        String finalPath = pathBuilder.toString();
+        env.put("PATH", finalPath);
+        LOG.trace(() -> "Final PATH=" + finalPath);
+
+        // Set NODE_PATH (pre-configured during initialization)
+        if (nodePathValue != null) {
+            env.put("NODE_PATH", nodePathValue);
+            LOG.trace(() -> "Set NODE_PATH=" + nodePathValue);
+        }
+
+        // Redirect both stdout and stderr to capture all output
+        pb.redirectErrorStream(true);
+        pb.redirectInput(ProcessBuilder.Redirect.PIPE);
+
+        long spawnStart = System.nanoTime();
+        Process proc = pb.start();
+        long runStart = System.nanoTime();
+        SPAWN_TIME.record(runStart - spawnStart);
+        COMMANDS.increment();
+        if (call != null) {
+            call.attach(proc);
+        }
+        proc.getOutputStream().close();
+
+        OutputRingBuffer outputTail = new OutputRingBuffer(OUTPUT_TAIL_CHARS);
+
+        CompletableFuture<Void> reader = outputReaderScope.run(() -> {
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(proc.getInputStream()))) {
+                String line;
+                boolean consumerFailed = false;
+                while ((line = br.readLine()) != null) {
+                    outputTail.appendLine(line);
+                    if (consumerFailed) {
+                        continue; // Keep draining so the process never blocks on a full pipe
+                    }
+                    try {
+                        lineConsumer.accept(line);
+                    } catch (RuntimeException e) {
+                        consumerFailed = true;
+                        LOG.debug(() -> "Output consumer failed, discarding the rest: " + e.getMessage());
+                    }
+                }
+            } catch (Exception e) {
+                LOG.warn("Error reading: " + e.getMessage(), e);
+            }
+        });
+
+        // Wait for cline to start cline-core and provide verbose output, up to the call's deadline
+        boolean finished;
+        try {
+            finished = proc.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // Caller gave up (or the service is shutting down) - don't leave the process behind
+            destroyProcessTree(proc);
+            throw e;
+        }
+        LOG.debug(() -> "Process finished: " + finished);
+
+        Metrics.timer("cline.run." + commandName(args)).recordSince(runStart);
+
+        if (!finished) {
+            TIMED_OUT_COMMANDS.increment();
+            LOG.debug("Process timed out, destroying...");
+            destroyProcessTree(proc);
+            throw new TimeoutException("Command timed out after " + timeout.toMillis() + " ms");
+        }
+        if (call != null && call.isCancelled()) {
+            throw new CancellationException("Command cancelled");
+        }
+
+        // Wait longer for output reader to finish
+        try {
+            reader.get(5000, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            LOG.debug(() -> "Output reader did not finish cleanly: " + e.getMessage());
+        }
+
+        int exitCode = proc.exitValue();
+        OUTPUT_BYTES.record(outputTail.getTotalChars());
+        event.outputBytes = outputTail.getTotalChars();
+        event.outputLines = outputTail.getTotalLines();
+        LOG.debug(() -> "Process exited with code: " + exitCode + ", output: " +
+            outputTail.getTotalLines() + " lines, " + outputTail.getTotalChars() + " chars");
+
+        // Error markers are printed at the end of the output, so the retained tail is enough to detect them
+        String outputStr = outputTail.toString();
+        boolean clineError = outputStr.contains("No instances available") || 
+            outputStr.contains("instance not found in registry") ||
+            outputStr.contains("failed to start instance") ||
+            outputStr.contains("failed to ensure default instance") ||
+            outputStr.contains("error reading from server") ||
+            outputStr.contains("rpc error") ||
+            outputStr.contains("code = Unavailable");
+        if (exitCode != 0 || clineError) {
+            FAILED_COMMANDS.increment();
+            LOG.debug(() -> "Output tail" + (outputTail.isTruncated() ? " (truncated)" : "") + ":\n" + outputStr);
+        }
+
+        // If we got errors, check cline logs for more details
+        if (clineError) {
+            Path logsDir = new File(home, ".cline/logs").toPath();
+            if (Files.exists(logsDir)) {
+                LOG.debug(() -> "Checking cline logs in: " + logsDir);
+                try {
+                    // List recent log files (both cline-core and cline-host)
+                    File[] logFiles = logsDir.toFile().listFiles((dir, name) -> 
+                        (name.startsWith("cline-core-") || name.startsWith("cline-host-")) && name.endsWith(".log"));
+                    if (logFiles != null && logFiles.length > 0) {
+                        // Sort by last modified, get most recent
+                        Arrays.sort(logFiles, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+                        LOG.debug(() -> "Found " + logFiles.length + " log files");
+                        // Show the 3 most recent log files
+                        int filesToShow = Math.min(3, logFiles.length);
+                        for (int i = 0; i < filesToShow; i++) {
+                            File logFile = logFiles[i];
+                            long age = System.currentTimeMillis() - logFile.lastModified();
+                            int number = i + 1;
+                            LOG.debug(() -> "Log file " + number + ": " + logFile.getName() +
+                                " (modified " + (age / 1000) + " seconds ago)");
+                        }
+                        
+                        // Find the most recent cline-core log (not cline-host)
+                        File latestCoreLog = null;
+                        for (File logFile : logFiles) {
+                            if (logFile.getName().startsWith("cline-core-")) {
+                                latestCoreLog = logFile;
+                                break;
+                            }
+                        }
+                        if (latestCoreLog == null) {
+                            latestCoreLog = logFiles[0]; // Fallback to most recent if no core log found
+                        }
+                        
+                        long logAge = System.currentTimeMillis() - latestCoreLog.lastModified();
+                        File latestLog = latestCoreLog;
+                        LOG.debug(() -> "Reading latest cline-core log: " + latestLog.getName() +
+                            " (modified " + (logAge / 1000) + " seconds ago)");
+
+                        // Read last 100 lines to see more context
+                        try (BufferedReader logReader = Files.newBufferedReader(latestLog.toPath())) {
+                            List<String> lines = new ArrayList<>();
+                            String line;
+                            while ((line = logReader.readLine()) != null) {
+                                lines.add(line);
+                                if (lines.size() > 100) {
+                                    lines.remove(0);
+                                }
+                            }
+                            LOG.debug("Last 100 lines from log:");
+                            for (String logLine : lines) {
+                                LOG.debug(() -> "[ClineService LOG] " + logLine);
+                            }
+                        }
+                    } else {
+                        LOG.debug(() -> "No log files found in: " + logsDir);
+                    }
+                } catch (Exception e) {
+                    LOG.warn("Could not read cline logs: " + e.getMessage(), e);
+                }
+            }
+        }
+
+        return exitCode;
+    }
+
+    /**
+     * Creates a new Cline task on the default instance
+     * 
+     * @param message the initial message for the task
+     * @throws Exception if task creation fails
+     */
+    public void createTask(String message) throws Exception {
+        createTask(null, message);
+    }
+
+    /**
+     * Creates a new Cline task
+     * 
+     * @param address the instance address, or null for the default instance
+     * @param message the initial message for the task
+     * @return the task ID if reported by the CLI, otherwise null
+     * @throws Exception if task creation fails
+     */
+    public String createTask(String address, String message) throws Exception {
+        return await(createTaskAsync(address, message));
+    }
+
+    /**
+     * Creates a new Cline task asynchronously with the default deadline
+     *
+     * @see #createTaskAsync(String, String, Duration)
+     */
+    public CommandFuture<String> createTaskAsync(String address, String message) {
+        return createTaskAsync(address, message, DEFAULT_COMMAND_TIMEOUT);
+    }
+
+    /**
+     * Creates a new Cline task asynchronously
+     *
+     * @param address the instance address, or null for the default instance
+     * @param message the initial message for the task
+     * @param timeout deadline for the CLI call
+     * @return future completing with the task ID (or null if not reported), or failing if creation is not confirmed
+     */
+    public CommandFuture<String> createTaskAsync(String address, String message, Duration timeout) {
+        LOG.debug(() -> "Creating task with message: " + message);
+
+        return submitCommand(address, timeout, output -> {
+            LOG.debug(() -> "Output from cline task new: " + output);
+
+            if (!isTaskCreationSuccessful(output)) {
+                throw new Exception("Failed to confirm task creation from output: " + output);
+            }
+
+            LOG.info("Task created successfully");
+            return parseTaskId(output);
+        },
+            "-v",
+            "task",
+            "new",
+            "-s", "act-mode-api-provider=anthropic",
+            "-s", "act-mode-api-model-id=claude-sonnet-4.5",
+            message
+        );
+    }
+
+    /**
+     * Makes an existing task the current task of an instance, so messages sent there continue it
+     *
+     * @param address the instance address, or null for the default instance
+     * @param taskId the ID of the task (see listTasksAsync)
+     * @return future completing with the command output
+     */
+    public CommandFuture<String> openTaskAsync(String address, String taskId) {
+        LOG.debug(() -> "Opening task " + taskId);
+        return submitCommand(address, DEFAULT_COMMAND_TIMEOUT, output -> {
+            LOG.debug(() -> "Output from cline task open: " + output);
+            return output;
+        }, "-v", "task", "open", taskId);
+    }
+
+    /**
+     * Sends a message to the current Cline task on the default instance
+     * 
+     * @param message the message to send
+     * @return the command output
+     * @throws Exception if sending fails
+     */
+    public String sendMessage(String message) throws Exception {
+        return sendMessage(null, message);
+    }
+
+    /**
+     * Sends a message to the current Cline task
+     * 
+     * @param address the instance address, or null for the default instance
+     * @param message the message to send
+     * @return the command output
+     * @throws Exception if sending fails
+     */
+    public String sendMessage(String address, String message) throws Exception {
+        return await(sendMessageAsync(address, message));
+    }
+
+    /**
+     * Sends a message asynchronously with the default deadline
+     *
+     * @see #sendMessageAsync(String, String, Duration)
+     */
+    public CommandFuture<String> sendMessageAsync(String address, String message) {
+        return sendMessageAsync(address, message, DEFAULT_COMMAND_TIMEOUT);
+    }
+
+    /**
+     * Sends a message to the current Cline task asynchronously
+     *
+     * @param address the instance address, or null for the default instance
+     * @param message the message to send
+     * @param timeout deadline for the CLI call
+     * @return future completing with the command output
+     */
+    public CommandFuture<String> sendMessageAsync(String address, String message, Duration timeout) {
+        LOG.debug(() -> "Sending message: " + message);
+        return submitCommand(address, timeout, output -> {
+            LOG.debug(() -> "Output from cline task send: " + output);
+            return output;
+        }, "-v", "task", "send", message);
+    }
+
+    /**
+     * Sends an ask response (approve or deny) to the current Cline task on the default instance
+     *
+     * @param approve true to approve, false to deny
+     * @param feedback optional user feedback to send with the response
+     * @return the command output
+     * @throws Exception if sending fails
+     */
+    public String sendAskResponse(boolean approve, String feedback) throws Exception {
+        return sendAskResponse(null, approve, feedback);
+    }
+
+    /**
+     * Sends an ask response (approve or deny) to the current Cline task
+     *
+     * @param address the instance address, or null for the default instance
+     * @param approve true to approve, false to deny
+     * @param feedback optional user feedback to send with the response
+     * @return the command output
+     * @throws Exception if sending fails
+     */
+    public String sendAskResponse(String address, boolean approve, String feedback) throws Exception {
+        return await(sendAskResponseAsync(address, approve, feedback));
+    }
+
+    /**
+     * Sends an ask response asynchronously with the default deadline
+     *
+     * @see #sendAskResponseAsync(String, boolean, String, Duration)
+     */
+    public CommandFuture<String> sendAskResponseAsync(String address, boolean approve, String feedback) {
+        return sendAskResponseAsync(address, approve, feedback, DEFAULT_COMMAND_TIMEOUT);
+    }
+
+    /**
+     * Sends an ask response (approve or deny) to the current Cline task asynchronously
+     *
+     * @param address the instance address, or null for the default instance
+     * @param approve true to approve, false to deny
+     * @param feedback optional user feedback to send with the response
+     * @param timeout deadline for the CLI call
+     * @return future completing with the command output
+     */
+    public CommandFuture<String> sendAskResponseAsync(String address, boolean approve, String feedback, Duration timeout) {
+        LOG.debug(() -> "Sending ask response: " + (approve ? "approve" : "deny") +
+                          " with feedback: " + (feedback != null && !feedback.isEmpty() ? feedback : "(none)"));
+
+        // Use empty string if feedback is null
+        String feedbackValue = (feedback != null) ? feedback : "";
+        String flag = approve ? "-a" : "-d";
+
+        return submitCommand(address, timeout, output -> {
+            LOG.debug(() -> "Output from cline task send " + flag + ": " + output);
+            return output;
+        }, "-v", "task", "send", flag, feedbackValue);
+    }
+
+    /**
+     * Gets the current task view in JSON format from the default instance
+     * 
+     * @return JSON output of the task view
+     * @throws Exception if command fails
+     */
+    public String getTaskViewJson() throws Exception {
+        return getTaskViewJson(null);
+    }
+
+    /**
+     * Gets the current task view in JSON format
+     * 
+     * @param address the instance address, or null for the default instance
+     * @return JSON output of the task view
+     * @throws Exception if command fails
+     */
+    public String getTaskViewJson(String address) throws Exception {
+        return await(getTaskViewJsonAsync(address, DEFAULT_COMMAND_TIMEOUT));
+    }
+
+    /**
+     * Gets the current task view in JSON format asynchronously
+     *
+     * @param address the instance address, or null for the default instance
+     * @param timeout deadline for the CLI call
+     * @return future completing with the JSON output of the task view
+     */
+    public CommandFuture<String> getTaskViewJsonAsync(String address, Duration timeout) {
+        return executeClineCommandAsync(address, timeout, "-v", "task", "view", "-F", "json");
+    }
+
+    /**
+     * Streams the current task view in JSON format line by line, without collecting the whole output
+     *
+     * @param address the instance address, or null for the default instance
+     * @param timeout deadline for the CLI call
+     * @param lineConsumer receives each output line as it is printed
+     * @return future completing with the process exit code
+     */
+    public CommandFuture<Integer> streamTaskViewJsonAsync(String address, Duration timeout, Consumer<String> lineConsumer) {
+        return streamClineCommandAsync(address, timeout, lineConsumer, "-v", "task", "view", "-F", "json");
+    }
+
+    /**
+     * Starts an additional (non-default) Cline instance for a task session.
+     * Each instance runs its own cline-core, so tasks on different instances run concurrently.
+     *
+     * @return the new instance address, or null if it could not be parsed from the output
+     * @throws Exception if the command fails
+     */
+    public String startInstance() throws Exception {
+        return await(startInstanceAsync());
+    }
+
+    /**
+     * Starts an additional Cline instance asynchronously
+     *
+     * @return future completing with the new instance address, or null if it could not be parsed
+     * @see #startInstance()
+     */
+    public CommandFuture<String> startInstanceAsync() {
+        return submitCommand(null, DEFAULT_COMMAND_TIMEOUT, output -> {
+            String address = parseInstanceAddress(output);
+            if (address != null) {
+                sessionInstanceAddresses.add(address);
+                LOG.info("✓ Started session instance at: " + address);
+            } else {
+                LOG.warn("WARNING: Could not parse session instance address from output: " + output);
+            }
+            return address;
+        }, "-v", "instance", "new");
+    }
+
+    /**
+     * Kills an instance previously started with startInstance()
+     *
+     * @param address the instance address
+     */
+    public void killInstance(String address) {
+        if (address == null || !sessionInstanceAddresses.contains(address)) {
+            return;
+        }
+        // Forget the address only once killed, so shutdown() retries kills it interrupted
+        if (killInstanceInternal(address)) {
+            sessionInstanceAddresses.remove(address);
+        }
+    }
+
+    /**
+     * Kills an instance previously started with startInstance() without blocking the caller
+     *
+     * @param address the instance address
+     * @return future completing once the kill command has finished
+     */
+    public CompletableFuture<Void> killInstanceAsync(String address) {
+        if (commandScope.isClosed()) {
+            killInstance(address);
+            return CompletableFuture.completedFuture(null);
+        }
+        return commandScope.run(() -> killInstance(address));
+    }
+
+    /**
+     * Lists all tasks
+     * 
+     * @return list of task history
+     * @throws Exception if listing fails
+     */
+    public List<ChatHistory> listTasks() throws Exception {
+        return await(listTasksAsync());
+    }
+
+    /**
+     * Lists all tasks asynchronously
+     *
+     * @return future completing with the parsed task history
+     */
+    public CommandFuture<List<ChatHistory>> listTasksAsync() {
+        return submitCommand(null, DEFAULT_COMMAND_TIMEOUT, output -> {
+            LOG.debug(() -> "Output from task list: " + output);
+            return parseTaskHistory(output);
+        }, "-v", "task", "list");
+    }
+
+    /**
+     * Checks if task creation was successful based on output
+     * 
+     * @param output the command output
+     * @return true if successful
+     */
+    private boolean isTaskCreationSuccessful(String output) {
+        String[] lines = output.split("\\R");
+
+        for (String line : lines) {
+            if (line.contains("Cancelled existing task to start new one") || 
+                line.contains("Task created successfully")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Parses the task ID from `task new` output, using the same "Task ID:" prefix as `task list`
+     * 
+     * @param output the command output
+     * @return the task ID, or null if not present
+     */
+    private String parseTaskId(String output) {
+        for (String line : output.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("Task ID:")) {
+                String id = trimmed.substring("Task ID:".length()).trim();
+                if (!id.isEmpty()) {
+                    return id;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses task history from command output
+     * 
+     * @param text the command output
+     * @return list of parsed chat histories
+     */
+    private List<ChatHistory> parseTaskHistory(String text) {
+        List<ChatHistory> result = new ArrayList<>();
+        String[] lines = text.split("\\R");
+
+        String id = null;
+        String message = null;
+        String usage = null;
+
+        for (String line : lines) {
+            if (line.startsWith("Task ID:")) {
+                if (message != null && id != null) {
+                    ChatHistory h = new ChatHistory(message);
+                    h.addMessage(new ChatMessage("Task ID: " + id, false));
+                    if (usage != null) {
+                        h.addMessage(new ChatMessage(usage, false));
+                    }
+                    result.add(h);
+                    message = null;
+                    usage = null;
+                }
+                id = line.substring("Task ID:".length()).trim();
+            } else if (line.startsWith("Message:")) {
+                message = line.substring("Message:".length()).trim();
+            } else if (line.startsWith("Usage")) {
+                usage = line.trim();
+            }
+        }
+
+        if (message != null && id != null) {
+            ChatHistory h = new ChatHistory(message);
+            h.addMessage(new ChatMessage("Task ID: " + id, false));
+            if (usage != null) {
+                h.addMessage(new ChatMessage(usage, false));
+            }
+            result.add(h);
+        }
+
+        return result;
+    }
+    
+    /**
+     * Recursively copies a directory from source to destination
+     * 
+     * @param source the source directory
+     * @param destination the destination directory
+     * @throws IOException if copying fails
+     */
+    private void copyDirectory(Path source, Path destination) throws IOException {
+        Files.walk(source).forEach(sourcePath -> {
+            try {
+                Path targetPath = destination.resolve(source.relativize(sourcePath));
+                if (Files.isDirectory(sourcePath)) {
+                    Files.createDirectories(targetPath);
+                } else {
+                    Files.createDirectories(targetPath.getParent());
+                    Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to copy " + sourcePath + " to " + destination, e);
+            }
+        });
+    }
+
+    /**
+     * Ensures better-sqlite3 is copied from platform-specific binaries to main node_modules.
+     * This is needed because the Go code sets NODE_PATH to main node_modules, not platform-specific.
+     * 
+     * @param tempDir the temporary directory where binaries are extracted
+     */
+    private void ensureBetterSqlite3Copied(Path tempDir) {
+        try {
+            String osName = System.getProperty("os.name").toLowerCase();
+            String osArch = System.getProperty("os.arch").toLowerCase();
+            
+            String platformDir;
+            if (osName.contains("mac") || osName.contains("darwin")) {
+                platformDir = osArch.contains("aarch64") || osArch.contains("arm64") ? "darwin-arm64" : "darwin-x64";
+            } else if (osName.contains("linux")) {
+                platformDir = osArch.contains("aarch64") || osArch.contains("arm64") ? "linux-arm64" : "linux-x64";
+            } else if (osName.contains("win")) {
+                platformDir = "win-x64";
+            } else {
+                platformDir = "unknown";
+            }
+            
+            Path platformBetterSqlite3 = tempDir.resolve("binaries").resolve(platformDir).resolve("node_modules").resolve("better-sqlite3");
+            Path mainBetterSqlite3 = tempDir.resolve("node_modules").resolve("better-sqlite3");
+            
+            if (Files.exists(platformBetterSqlite3) && !Files.exists(mainBetterSqlite3)) {
+                copyDirectory(platformBetterSqlite3, mainBetterSqlite3);
+                LOG.info("✓ Copied better-sqlite3 to main node_modules");
+            } else if (Files.exists(mainBetterSqlite3)) {
+                // Already exists, no need to log
+            } else {
+                LOG.warn("ERROR: better-sqlite3 not found at: " + platformBetterSqlite3);
+            }
+        } catch (Exception e) {
+            LOG.error("ERROR: Could not copy better-sqlite3: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Ensures a cline instance exists by creating one if none exists.
+     * This starts cline-host and cline-core processes which stay alive independently.
+     * We don't need to keep the CLI process itself running.
+     *
+     * @param cliBinaryPath path to the cline binary
+     */
+    private void ensureClineInitialized(String cliBinaryPath) {
+        try {
+            LOG.debug("Ensuring cline instance exists...");
+
+            // First check if any instances exist
+            String listOutput = executeClineCommandInternal("-v", "instance", "list");
+
+            // If no instances found, create a new one
+            if (listOutput.contains("No Cline instances found") ||
+                listOutput.contains("No instances available")) {
+                LOG.debug("No instances found, creating new instance...");
+                String newOutput = executeClineCommandInternal("-v", "instance", "new", "--default");
+
+                // Parse the address from the output
+                instanceAddress = parseInstanceAddress(newOutput);
+
+                if (instanceAddress != null) {
+                    LOG.info("✓ Created new cline instance at: " + instanceAddress);
+                } else {
+                    LOG.warn("WARNING: Could not parse instance address from output");
+                    LOG.error("Output was: " + newOutput);
+                }
+            } else {
+                LOG.info("✓ Cline instance already exists (cline-host and cline-core processes run independently)");
+                // Try to parse address from list output if available
+                instanceAddress = parseInstanceAddress(listOutput);
+            }
+        } catch (Exception e) {
+            LOG.warn("Warning: Could not ensure cline instance: " + e.getMessage());
+            // Don't fail completely - the next command will try to ensure instance anyway
+        }
+    }
+
+    /**
+     * Parses the instance address from cline command output
+     *
+     * Example output:
+     * Successfully started new instance:
+     *   Address: 127.0.0.1:58297
+     *   Core Port: 58297
+     *
+     * @param output the command output
+     * @return the instance address (e.g., "127.0.0.1:58297") or null if not found
+     */
+    private String parseInstanceAddress(String output) {
+        if (output == null) {
+            return null;
+        }
+
+        String[] lines = output.split("\\R");
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("Address:")) {
+                String address = trimmed.substring("Address:".length()).trim();
+                if (!address.isEmpty()) {
+                    return address;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Shuts down the cline instances and cleans up resources.
+     * This should be called when the service is being destroyed.
+     */
+    public void shutdown() {
+        commandScope.close();
+        outputReaderScope.close();
+        for (String address : new ArrayList<>(sessionInstanceAddresses)) {
+            killInstance(address);
+        }
+        if (instanceAddress != null) {
+            killInstanceInternal(instanceAddress);
+            instanceAddress = null;
+        }
+    }
+
+    /**
+     * Kills a cline instance without relying on the workspace (which may be closed during shutdown)
+     *
+     * @param address the instance address
+     * @return false if the kill command was interrupted
+     */
+    private boolean killInstanceInternal(String address) {
+        if (cliBinaryDir == null && commandOverride == null) {
+            return true;
+        }
+        try {
+            LOG.debug(() -> "Shutting down cline instance at: " + address);
+
+            List<String> command = commandOverride != null ? new ArrayList<>(commandOverride) : new ArrayList<>();
+            if (commandOverride == null) {
+                command.add(cliBinaryDir + "/bin/cline");
+            }
+            command.add("-v");
+            command.add("instance");
+            command.add("kill");
+            command.add(address);
+
+            ProcessBuilder pb = new ProcessBuilder(command);
+
+            // Use home directory as working directory (workspace may be closed)
+            String home = System.getProperty("user.home");
+            pb.directory(new File(home));
+
+            Map<String, String> env = pb.environment();
+            env.put("HOME", home);
+
+            // Set up PATH for bundled binaries
+            if (cliBinaryDir != null) {
+                StringBuilder pathBuilder = new StringBuilder(cliBinaryDir + "/bin");
+                if (nodeJsPath != null) {
+                    pathBuilder.append(File.pathSeparator).append(nodeJsPath);
+                }
+                String currentPath = env.get("PATH");
+                if (currentPath != null && !currentPath.isEmpty()) {
+                    pathBuilder.append(File.pathSeparator).append(currentPath);
+                }
+                env.put("PATH", pathBuilder.toString());
+            }
+
+            pb.redirectErrorStream(true);
+            Process proc = pb.start();
+
+            // Read output
+            StringBuilder output = new StringBuilder();
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(proc.getInputStream()))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    output.append(line).append("\n");
+                }
+            }
+
+            boolean finished = proc.waitFor(10, TimeUnit.SECONDS);
+            if (!finished) {
+                proc.destroyForcibly();
+                LOG.error("Kill command timed out");
+            } else {
+                LOG.info("✓ Killed cline instance: " + output.toString());
+            }
+        } catch (InterruptedException e) {
+            LOG.debug(() -> "Kill of " + address + " interrupted");
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            LOG.error("Error killing cline instance: " + e.getMessage(), e);
+        }
+        return true;
+    }
+}
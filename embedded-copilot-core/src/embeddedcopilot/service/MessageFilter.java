@@ -0,0 +1,255 @@
+package embeddedcopilot.service;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import embeddedcopilot.jfr.MessageDecodeEvent;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+
+/**
+ * Decides how each Cline message is shown in the chat (shown, shown with approve/deny buttons,
+ * hidden or debug only) and formats its display text. Used by ChatUIManager; has no UI dependencies.
+ */
+public final class MessageFilter {
+
+    private static final Logger LOG = Log.get(MessageFilter.class);
+
+    private MessageFilter() {
+    }
+
+    /**
+     * Message display action after filtering
+     */
+    public enum DisplayAction {
+        SHOW,           // Display as regular message
+        SHOW_ASK,       // Display as ask message with approve/deny buttons
+        HIDE,           // Don't display
+        DEBUG_ONLY      // Only display in ChatUIManager debug mode
+    }
+
+    /**
+     * Result of message filtering
+     */
+    public static class FilteredMessage {
+        public final DisplayAction action;
+        public final String displayText;
+        public final String rawJson;
+
+        public FilteredMessage(DisplayAction action, String displayText, String rawJson) {
+            this.action = action;
+            this.displayText = displayText;
+            this.rawJson = rawJson;
+        }
+    }
+
+    /**
+     * Filters a ClineService JSON message and determines how to display it
+     * 
+     * @param jsonLine the JSON line from ClineService output
+     * @return FilteredMessage indicating what to do with this message
+     */
+    public static FilteredMessage filter(String jsonLine) {
+        MessageDecodeEvent event = new MessageDecodeEvent();
+        event.begin();
+        FilteredMessage filtered = filterInternal(jsonLine);
+        if (event.shouldCommit()) {
+            event.stage = MessageDecodeEvent.STAGE_FILTER;
+            event.result = filtered.action.name();
+            event.commit();
+        }
+        return filtered;
+    }
+
+    private static FilteredMessage filterInternal(String jsonLine) {
+        try {
+            JsonObject json = JsonParser.parseString(jsonLine).getAsJsonObject();
+            
+            // Check if this is a "say" message
+            if (json.has("type") && "say".equals(json.get("type").getAsString())) {
+                return filterSayMessage(json);
+            }
+            
+            // Check if this is an "ask" message
+            if (json.has("type") && "ask".equals(json.get("type").getAsString())) {
+                return filterAskMessage(json);
+            }
+            
+            // Unknown message type - hide by default
+            return new FilteredMessage(DisplayAction.HIDE, null, jsonLine);
+            
+        } catch (Exception e) {
+            // If we can't parse it, hide it
+            LOG.error("Failed to parse message: " + e.getMessage());
+            return new FilteredMessage(DisplayAction.HIDE, null, jsonLine);
+        }
+    }
+
+    /**
+     * Filters "say" type messages
+     */
+    private static FilteredMessage filterSayMessage(JsonObject json) {
+        String say = json.has("say") ? json.get("say").getAsString() : "";
+        String text = json.has("text") ? json.get("text").getAsString() : "";
+        
+        // Handle reasoning - hidden, its timestamp is tracked per chat in processClineMessage
+        if ("reasoning".equals(say)) {
+            return new FilteredMessage(DisplayAction.HIDE, null, json.toString());
+        }
+        
+        switch (say) {
+            // Messages that should be displayed
+            case "text":
+                return new FilteredMessage(DisplayAction.SHOW, text, json.toString());
+            
+            case "error":
+                return new FilteredMessage(DisplayAction.SHOW, 
+                    "❌ Error: " + text, json.toString());
+            
+            case "completion_result":
+                return new FilteredMessage(DisplayAction.SHOW, 
+                    "✅ " + text, json.toString());
+            
+            // Task progress - show to user
+            case "task_progress":
+                return new FilteredMessage(DisplayAction.SHOW, 
+                    "📋 Task Progress:\n" + text, json.toString());
+            
+            // Command being executed - show to user
+            case "command":
+                return new FilteredMessage(DisplayAction.SHOW, 
+                    "⚡ Running: " + text, json.toString());
+            
+            // Messages that should be hidden (internal state)
+            case "user_feedback":
+            case "user_feedback_diff":
+            case "api_req_started":
+            case "api_req_finished":
+            case "api_req_retried":
+            case "command_output":
+            case "tool":
+            case "browser_action":
+            case "browser_action_launch":
+            case "shell_integration_warning":
+            case "inspect_site_result":
+            case "mcp_server_request_started":
+            case "checkpoint_created":  // Internal checkpoint tracking
+                return new FilteredMessage(DisplayAction.HIDE, null, json.toString());
+            
+            // Messages for debugging only
+            case "api_req_failed":
+            case "api_req_canceled":
+                String debugText = "⚠️ API Request Issue: " + text;
+                return new FilteredMessage(DisplayAction.DEBUG_ONLY, debugText, json.toString());
+            
+            // Unknown say type - hide by default
+            default:
+                LOG.debug(() -> "Unknown say type: " + say);
+                return new FilteredMessage(DisplayAction.DEBUG_ONLY, 
+                    "[" + say + "] " + text, json.toString());
+        }
+    }
+
+    /**
+     * Filters "ask" type messages
+     */
+    private static FilteredMessage filterAskMessage(JsonObject json) {
+        String ask = json.has("ask") ? json.get("ask").getAsString() : "";
+        String text = json.has("text") ? json.get("text").getAsString() : "";
+        
+        switch (ask) {
+            // Ask messages that require user approval with buttons
+            case "tool":
+            case "command":
+            case "api_req_failed":
+            case "resume_task":
+            case "resume_completed_task":
+                // Extract tool information for display
+                String displayText = formatAskMessageForDisplay(json);
+                return new FilteredMessage(DisplayAction.SHOW_ASK, displayText, json.toString());
+            
+            // Completion result - simple acknowledgment (no buttons needed)
+            case "completion_result":
+                return new FilteredMessage(DisplayAction.SHOW, "✅ Task completed", json.toString());
+            
+            // Command output - show as regular message (no approve/deny buttons)
+            case "command_output":
+                // Show the output so user can see what's happening, but no buttons
+                return new FilteredMessage(DisplayAction.SHOW, text, json.toString());
+            
+            // Ask messages that should be hidden (handled internally)
+            case "request_limit_reached":
+            case "followup":
+                return new FilteredMessage(DisplayAction.HIDE, null, json.toString());
+            
+            // Unknown ask type - show for safety (better to ask than auto-approve)
+            default:
+                LOG.debug(() -> "Unknown ask type: " + ask);
+                return new FilteredMessage(DisplayAction.SHOW_ASK, text, json.toString());
+        }
+    }
+
+    /**
+     * Formats an ask message for user-friendly display
+     */
+    public static String formatAskMessageForDisplay(JsonObject json) {
+        String ask = json.has("ask") ? json.get("ask").getAsString() : "";
+        String text = json.has("text") ? json.get("text").getAsString() : "";
+        
+        StringBuilder sb = new StringBuilder();
+        
+        switch (ask) {
+            case "tool":
+                sb.append("🔧 Tool Request\n\n");
+                if (json.has("tool")) {
+                    String toolName = json.get("tool").getAsString();
+                    sb.append("Tool: ").append(formatToolName(toolName)).append("\n");
+                }
+                if (json.has("path")) {
+                    sb.append("Path: ").append(json.get("path").getAsString()).append("\n");
+                }
+                if (!text.isEmpty()) {
+                    sb.append("\n").append(text);
+                }
+                break;
+            
+            case "command":
+                sb.append("⚡ Command Execution\n\n");
+                if (json.has("command")) {
+                    sb.append("Command: ").append(json.get("command").getAsString()).append("\n");
+                }
+                if (!text.isEmpty()) {
+                    sb.append("\n").append(text);
+                }
+                break;
+            
+            case "api_req_failed":
+                sb.append("⚠️ API Request Failed\n\n");
+                sb.append(text);
+                break;
+            
+            case "resume_task":
+                sb.append("🔄 Resume Task\n\n");
+                sb.append(text);
+                break;
+            
+            case "resume_completed_task":
+                sb.append("🔄 Resume Completed Task\n\n");
+                sb.append(text);
+                break;
+            
+            default:
+                sb.append(text);
+                break;
+        }
+        
+        return sb.toString();
+    }
+
+    /**
+     * Formats tool names to be more readable
+     */
+    private static String formatToolName(String toolName) {
+        // Convert camelCase to Title Case
+        return toolName.replaceAll("([a-z])([A-Z])", "$1 $2");
+    }
+}
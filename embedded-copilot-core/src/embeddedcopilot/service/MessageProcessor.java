@@ -1,6 +1,7 @@
 package embeddedcopilot.service;
 
 import com.google.gson.JsonObject;
+import embeddedcopilot.jfr.MessageDecodeEvent;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -49,6 +50,28 @@ public class MessageProcessor {
      * Processes a JSON message and returns a Message object if it should be displayed
      */
     public Message process(JsonObject root) {
+        MessageDecodeEvent event = new MessageDecodeEvent();
+        event.begin();
+        Message msg = decode(root);
+        if (event.shouldCommit()) {
+            event.stage = MessageDecodeEvent.STAGE_DECODE;
+            event.messageType = messageType(root);
+            event.result = msg != null ? msg.type.name() : "";
+            event.commit();
+        }
+        return msg;
+    }
+
+    /**
+     * @return "say:<say>" or "ask:<ask>" for flight recorder events
+     */
+    public static String messageType(JsonObject root) {
+        String type = root.has("type") ? root.get("type").getAsString() : "";
+        String subType = root.has(type) ? root.get(type).getAsString() : "";
+        return type + ":" + subType;
+    }
+
+    private Message decode(JsonObject root) {
         String type = root.has("type") ? root.get("type").getAsString() : "";
         if (!"say".equals(type) && !"ask".equals(type)) {
             return null; // Ignore non-say/ask messages
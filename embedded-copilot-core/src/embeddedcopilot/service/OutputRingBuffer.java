@@ -0,0 +1,69 @@
+package embeddedcopilot.service;
+
+/**
+ * Fixed-size character ring buffer holding the most recent lines of a process's output.
+ * Older output is overwritten, so memory use stays constant no matter how much the process prints.
+ * Used to keep a diagnostic tail of CLI output without accumulating all of it.
+ */
+public class OutputRingBuffer {
+
+    private final char[] buffer;
+    private int start = 0; // Index of the oldest retained char
+    private int size = 0; // Number of retained chars
+    private long totalChars = 0;
+    private long totalLines = 0;
+
+    /**
+     * @param capacity number of characters to retain
+     */
+    public OutputRingBuffer(int capacity) {
+        this.buffer = new char[Math.max(1, capacity)];
+    }
+
+    /**
+     * Appends a line (a trailing newline is added)
+     */
+    public synchronized void appendLine(CharSequence line) {
+        int length = line.length();
+        // Only the last `capacity` chars of an oversized line can be retained
+        int from = Math.max(0, length - (buffer.length - 1));
+        for (int i = from; i < length; i++) {
+            put(line.charAt(i));
+        }
+        put('\n');
+        totalChars += length + 1;
+        totalLines++;
+    }
+
+    private void put(char c) {
+        int end = (start + size) % buffer.length;
+        buffer[end] = c;
+        if (size < buffer.length) {
+            size++;
+        } else {
+            start = (start + 1) % buffer.length;
+        }
+    }
+
+    /**
+     * @return true if some output has been overwritten
+     */
+    public synchronized boolean isTruncated() {
+        return totalChars > size;
+    }
+
+    public synchronized long getTotalChars() { return totalChars; }
+    public synchronized long getTotalLines() { return totalLines; }
+
+    /**
+     * @return the retained output, oldest first
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(size);
+        int firstPart = Math.min(size, buffer.length - start);
+        sb.append(buffer, start, firstPart);
+        sb.append(buffer, 0, size - firstPart);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,199 @@
+package embeddedcopilot.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+
+/**
+ * Single-consumer command pipeline for one task.
+ *
+ * - Ordering: exactly one command talks to the CLI at a time, in submission order, so e.g. an auto-deny
+ *   is guaranteed to reach Cline before the message that triggered it.
+ * - Coalescing: a command whose coalesce key equals that of the command waiting at the end of the queue
+ *   is merged into it (e.g. repeated auto-denies) - both callers get the same result.
+ * - Pipelining: as soon as a command's CLI call returns, the next command is started, and only then is
+ *   the result handed to the caller, so response handling overlaps the next CLI call.
+ *
+ * Submitting never blocks - callers get a future for their command's result. No result is dropped:
+ * every submitted command's future completes, exceptionally with a CancellationException if the queue
+ * is closed before the command ran.
+ */
+public class TaskCommandQueue {
+
+    private static final Logger LOG = Log.get(TaskCommandQueue.class);
+
+    /**
+     * A queued command and the future handed out to its caller(s)
+     */
+    private static final class Command<T> {
+        final String label;
+        final String coalesceKey; // null = never merged
+        final Supplier<CompletableFuture<T>> starter;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<T> call; // The CLI call, once started
+
+        Command(String label, String coalesceKey, Supplier<CompletableFuture<T>> starter) {
+            this.label = label;
+            this.coalesceKey = coalesceKey;
+            this.starter = starter;
+        }
+    }
+
+    private final Deque<Command<?>> pending = new ArrayDeque<>(); // Guarded by this
+    private Command<?> running = null; // Command whose CLI call is in flight
+    private boolean closed = false;
+    private long submittedCount = 0;
+    private long coalescedCount = 0;
+    private int maxDepth = 0;
+
+    /**
+     * Queues a command that is never merged with others
+     *
+     * @see #submit(String, String, Supplier)
+     */
+    public <T> CompletableFuture<T> submit(String label, Supplier<CompletableFuture<T>> command) {
+        return submit(label, null, command);
+    }
+
+    /**
+     * Queues a command behind all previously submitted ones
+     *
+     * @param label short description for logging
+     * @param coalesceKey commands with equal keys queued back to back are merged; callers must only reuse
+     *                    a key for commands with the same result type. null disables merging.
+     * @param command starts the command and returns its future; invoked when the command's turn comes
+     * @return future completing with the command's result
+     */
+    public <T> CompletableFuture<T> submit(String label, String coalesceKey, Supplier<CompletableFuture<T>> command) {
+        Command<?> toStart = null;
+        CompletableFuture<T> result;
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new CancellationException("Command queue closed"));
+            }
+            submittedCount++;
+
+            Command<?> last = pending.peekLast();
+            if (coalesceKey != null && last != null && coalesceKey.equals(last.coalesceKey)) {
+                coalescedCount++;
+                LOG.debug(() -> "Coalesced '" + label + "' into queued '" + last.label + "'");
+                @SuppressWarnings("unchecked")
+                CompletableFuture<T> merged = ((Command<T>) last).result;
+                return merged;
+            }
+
+            Command<T> cmd = new Command<>(label, coalesceKey, command);
+            pending.addLast(cmd);
+            maxDepth = Math.max(maxDepth, pending.size());
+            result = cmd.result;
+            if (running == null) {
+                toStart = pollNext();
+            }
+        }
+        if (toStart != null) {
+            run(toStart, null);
+        }
+        return result;
+    }
+
+    /**
+     * Takes the next command and marks it running (caller holds the lock)
+     */
+    private Command<?> pollNext() {
+        running = pending.pollFirst();
+        return running;
+    }
+
+    /**
+     * Runs commands until one's CLI call is still in flight. A call that has already completed hands over
+     * to the next command in this loop rather than from a nested callback, so a long run of them doesn't
+     * grow the stack. Each result is handed out after the next command was started.
+     *
+     * @param finished command whose result is still to be handed out, or null
+     */
+    private void run(Command<?> next, Command<?> finished) {
+        while (next != null) {
+            Command<?> current = next;
+            start(current);
+            boolean done = current.call.isDone();
+            if (done) {
+                next = finishRunning();
+            } else {
+                next = null;
+                current.call.whenComplete((value, error) -> run(finishRunning(), current));
+            }
+            if (finished != null) {
+                deliver(finished);
+            }
+            finished = done ? current : null;
+        }
+        if (finished != null) {
+            deliver(finished);
+        }
+    }
+
+    private static <T> void start(Command<T> cmd) {
+        LOG.debug(() -> "Running: " + cmd.label);
+        try {
+            cmd.call = cmd.starter.get();
+        } catch (Throwable t) {
+            cmd.call = CompletableFuture.failedFuture(t);
+        }
+    }
+
+    /**
+     * Marks the running command's CLI call as returned and takes the next command to run
+     */
+    private synchronized Command<?> finishRunning() {
+        running = null;
+        return closed ? null : pollNext();
+    }
+
+    /**
+     * Completes the caller's future with the command's CLI call result
+     */
+    private static <T> void deliver(Command<T> cmd) {
+        cmd.call.whenComplete((value, error) -> {
+            if (error != null) {
+                cmd.result.completeExceptionally(error);
+            } else {
+                cmd.result.complete(value);
+            }
+        });
+    }
+
+    /**
+     * Fails all queued (not yet started) commands and rejects new ones.
+     * The running command completes normally (or fails when its CLI call is cancelled).
+     */
+    public void close() {
+        List<Command<?>> dropped;
+        synchronized (this) {
+            closed = true;
+            dropped = new ArrayList<>(pending);
+            pending.clear();
+        }
+        for (Command<?> cmd : dropped) {
+            cmd.result.completeExceptionally(new CancellationException("Command queue closed before '" + cmd.label + "' ran"));
+        }
+    }
+
+    /**
+     * @return true if no command is running or waiting
+     */
+    public synchronized boolean isIdle() {
+        return running == null && pending.isEmpty();
+    }
+
+    public synchronized int getPendingCount() { return pending.size(); }
+    public synchronized long getSubmittedCount() { return submittedCount; }
+    public synchronized long getCoalescedCount() { return coalescedCount; }
+    public synchronized int getMaxDepth() { return maxDepth; }
+}
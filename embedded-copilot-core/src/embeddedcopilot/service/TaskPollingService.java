@@ -0,0 +1,407 @@
+package embeddedcopilot.service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import embeddedcopilot.concurrent.ExecutionScope;
+import embeddedcopilot.concurrent.PluginExecutors;
+import embeddedcopilot.concurrent.WorkCategory;
+import embeddedcopilot.config.PollingConfig;
+import embeddedcopilot.jfr.PollCycleEvent;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.metrics.Counter;
+import embeddedcopilot.metrics.Histogram;
+import embeddedcopilot.metrics.Metrics;
+import embeddedcopilot.service.MessageProcessor.Message;
+
+/**
+ * Service for polling Cline task updates.
+ * Uses PollingConfig for flexible, runtime-configurable behavior.
+ * One instance per TaskSession; all instances share the plugin timer, so concurrent sessions
+ * don't stop each other and don't each hold a dedicated thread. The `task view` calls themselves
+ * run through ClineService's async API, so stopping a run kills an in-flight CLI process, and their
+ * output is parsed as it streams in rather than collected first.
+ * When PollingConfig has a recording directory, every poll's raw output is also written to a
+ * TaskViewRecording for offline replay.
+ */
+public class TaskPollingService {
+
+    private static final Logger LOG = Log.get(TaskPollingService.class);
+
+    private static final Histogram POLL_LATENCY = Metrics.timer("poll.latency");             // Whole `task view` cycle
+    private static final Histogram POLL_BYTES = Metrics.histogram("poll.bytes", Histogram.Unit.BYTES);
+    private static final Histogram POLL_MESSAGES = Metrics.histogram("poll.messages", Histogram.Unit.COUNT);
+    private static final Histogram MESSAGE_PARSE_TIME = Metrics.timer("poll.processMessage"); // Decode and dispatch one JSON object
+    private static final Counter FAILED_POLLS = Metrics.counter("poll.failed");
+
+    // Recording files are created here, not on the timer thread every session's polls share
+    private static final ExecutionScope RECORDING_SCOPE = PluginExecutors.newScope("TaskViewRecording", WorkCategory.DISK_IO);
+
+    private final ClineService clineService;
+    private final TaskSession session;
+    private PollRun currentRun = null;
+    private Set<String> processedTextChunks = new HashSet<>();
+    private final Object pollingLock = new Object();
+    private final MessageProcessor messageProcessor = new MessageProcessor();
+    private TaskViewRecording.Writer recorder = null; // Guarded by pollingLock
+    private boolean recordingFailed = false;
+    private boolean closed = false;                   // Guarded by pollingLock
+
+    public TaskPollingService(ClineService clineService, TaskSession session) {
+        this.clineService = clineService;
+        this.session = session;
+    }
+
+    /**
+     * A single polling run. Each poll cycle issues one async `task view` call and, once it completes,
+     * reschedules itself on the plugin timer until a stop condition is met or the run is stopped.
+     */
+    private class PollRun {
+        final Consumer<Message> onMessage;
+        final Runnable onComplete;
+        final Runnable onToolUsed;
+        volatile boolean stopped = false;
+        volatile ScheduledFuture<?> future;
+        volatile ClineService.CommandFuture<Integer> call; // In-flight `task view` call, if any
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        PollRun(Consumer<Message> onMessage, Runnable onComplete, Runnable onToolUsed) {
+            this.onMessage = onMessage;
+            this.onComplete = onComplete;
+            this.onToolUsed = onToolUsed;
+        }
+
+        void schedule(long delayMs) {
+            try {
+                // pollOnce only issues the async CLI call, so it is cheap enough to run on the timer thread
+                future = PluginExecutors.timer().schedule(this::pollOnce, delayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Plugin is shutting down
+                stopped = true;
+                complete();
+            }
+        }
+
+        void pollOnce() {
+            if (stopped) {
+                complete();
+                return;
+            }
+
+            long startTime = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            PollCycleEvent event = new PollCycleEvent();
+            event.begin();
+            TaskViewSplitter parser = new TaskViewSplitter(jsonStr -> {
+                if (stopped) {
+                    return true;
+                }
+                long parseStart = System.nanoTime();
+                boolean stopRequested = processJsonObject(jsonStr, this);
+                MESSAGE_PARSE_TIME.recordSince(parseStart);
+                return stopRequested;
+            });
+            Consumer<String> output = parser;
+            TaskViewRecording.Writer recording = recorder();
+            if (recording != null) {
+                recording.beginPoll();
+                output = line -> {
+                    recording.line(line);
+                    parser.accept(line);
+                };
+            }
+            ClineService.CommandFuture<Integer> viewCall = clineService.streamTaskViewJsonAsync(
+                session.getInstanceAddress(), Duration.ofMillis(PollingConfig.getPollTimeoutMs()), output);
+            call = viewCall;
+            if (stopped) {
+                viewCall.cancel(true); // Stopped while the call was being issued
+            }
+            viewCall.whenComplete((exitCode, ex) -> {
+                call = null;
+                long nextDelay;
+                if (ex == null) {
+                    if (parser.finish()) {
+                        stopped = true;
+                    }
+                    POLL_LATENCY.recordSince(startNanos);
+                    POLL_BYTES.record(parser.getBytes());
+                    POLL_MESSAGES.record(parser.getObjects());
+                    event.stopRequested = stopped;
+                    long elapsedTime = System.currentTimeMillis() - startTime;
+                    if (recording != null) {
+                        recording.endPoll(elapsedTime);
+                    }
+                    nextDelay = Math.max(0, PollingConfig.getPollingIntervalMs() - elapsedTime);
+                } else {
+                    if (recording != null) {
+                        recording.discardPoll();
+                    }
+                    FAILED_POLLS.increment();
+                    event.failed = true;
+                    nextDelay = PollingConfig.getPollingIntervalMs();
+                }
+                event.address = session.getInstanceAddress() != null ? session.getInstanceAddress() : "";
+                event.bytes = parser.getBytes();
+                event.messages = parser.getObjects();
+                event.commit();
+
+                synchronized (pollingLock) {
+                    if (stopped) {
+                        complete();
+                    } else {
+                        schedule(nextDelay);
+                    }
+                }
+            });
+        }
+
+        void complete() {
+            if (completed.compareAndSet(false, true) && onComplete != null) {
+                onComplete.run();
+            }
+        }
+    }
+
+    /**
+     * Starts polling for task updates.
+     * Thread-safe - will stop this session's existing polling before starting new one.
+     * Other sessions' pollers are unaffected.
+     *
+     * @param onMessage callback for each message (receives Message object)
+     * @param onComplete callback when polling completes
+     * @param onAskRequiresApproval callback when an ask message requiring approval is detected (receives ask JSON text)
+     * @param onToolUsed callback when a tool is used (for refreshing package explorer)
+     */
+    public void startPolling(Consumer<Message> onMessage, Runnable onComplete, Consumer<String> onAskRequiresApproval, Runnable onToolUsed) {
+        synchronized (pollingLock) {
+            stopPollingInternal();
+            PollRun run = new PollRun(onMessage, onComplete, onToolUsed);
+            currentRun = run;
+            if (recorder != null || recordingFailed || PollingConfig.getRecordingDirectory() == null) {
+                run.schedule(0);
+                return;
+            }
+            // The first poll waits for the recording, so it is recorded too
+            RECORDING_SCOPE.run(this::openRecorder).whenComplete((opened, error) -> {
+                synchronized (pollingLock) {
+                    if (!run.stopped) {
+                        run.schedule(0);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the session's recording, or null if recording is off or not open yet
+     */
+    private TaskViewRecording.Writer recorder() {
+        synchronized (pollingLock) {
+            return recorder;
+        }
+    }
+
+    /**
+     * Creates the session's recording file in the configured directory, unless already done (disk thread)
+     */
+    private void openRecorder() {
+        String directory = PollingConfig.getRecordingDirectory();
+        synchronized (pollingLock) {
+            if (recorder != null || recordingFailed || closed || directory == null) {
+                return;
+            }
+        }
+        TaskViewRecording.Writer created;
+        try {
+            created = TaskViewRecording.Writer.create(Paths.get(directory));
+        } catch (IOException e) {
+            synchronized (pollingLock) {
+                recordingFailed = true;
+            }
+            LOG.warn("Could not start task view recording in " + directory + ": " + e.getMessage());
+            return;
+        }
+        synchronized (pollingLock) {
+            if (recorder == null && !closed) {
+                recorder = created;
+                LOG.info("Recording task view output to " + created.getFile());
+                return;
+            }
+        }
+        created.close(); // Closed or opened elsewhere meanwhile
+    }
+
+    /**
+     * Decodes one JSON object from the task view and dispatches the resulting message.
+     *
+     * @return true if polling should stop
+     */
+    private boolean processJsonObject(String jsonStr, PollRun run) {
+        try {
+            JsonObject root = JsonParser.parseString(jsonStr).getAsJsonObject();
+            Message msg = messageProcessor.process(root);
+
+            if (msg != null) {
+                // Send all messages (including ASK_REQUIRES_APPROVAL) to the main callback
+                // The ChatUIManager filtering will handle display logic
+                if (run.onMessage != null) {
+                    run.onMessage.accept(msg);
+                }
+
+                // Check if polling should stop based on this message
+                String stopReason = shouldStopPolling(msg);
+                if (stopReason != null) {
+                    LOG.debug(() -> stopReason);
+                    return true;
+                }
+
+                // Check if tool was used (for refreshing package explorer)
+                // Check both "say" messages with tool and "ask" messages with tool
+                boolean isToolMessage = (msg.sayType != null && msg.sayType.equals("tool")) ||
+                                      (msg.askType != null && msg.askType.equals("tool"));
+
+                if (isToolMessage && msg.text != null) {
+                    // Check if it's a file creation/modification tool
+                    String toolText = msg.text.toLowerCase();
+                    if (toolText.contains("newfilecreated") ||
+                        toolText.contains("write_to_file") ||
+                        toolText.contains("editedexistingfile") ||
+                        toolText.contains("filedeleted")) {
+                        if (run.onToolUsed != null) {
+                            run.onToolUsed.run();
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOG.debug(() -> "Error processing message: " + e.getMessage());
+        }
+        return false;
+    }
+
+    public void setLastPrompt(String prompt) {
+        messageProcessor.startNewPrompt(prompt);
+        TaskViewRecording.Writer recording = recorder();
+        if (recording != null) {
+            recording.prompt(prompt, true);
+        }
+    }
+
+    /**
+     * Updates the prompt for the next message without clearing conversation history.
+     * Use this when sending subsequent messages in an ongoing conversation.
+     */
+    public void updatePrompt(String prompt) {
+        messageProcessor.updatePrompt(prompt);
+        TaskViewRecording.Writer recording = recorder();
+        if (recording != null) {
+            recording.prompt(prompt, false);
+        }
+    }
+
+
+    /**
+     * Stops the current polling run (internal method, does not acquire lock)
+     */
+    private void stopPollingInternal() {
+        PollRun run = currentRun;
+        currentRun = null;
+        if (run == null) {
+            return;
+        }
+
+        LOG.debug("Stopping polling (internal)");
+        run.stopped = true;
+        ScheduledFuture<?> future = run.future;
+        if (future != null) {
+            // A pending cycle is simply dropped
+            future.cancel(false);
+        }
+        ClineService.CommandFuture<Integer> call = run.call;
+        if (call != null) {
+            // Kills the in-flight `task view` process
+            call.cancel(true);
+        }
+        run.complete();
+    }
+
+
+    /**
+     * Stops polling (public method, acquires lock)
+     */
+    public void stopPolling() {
+        synchronized (pollingLock) {
+            stopPollingInternal();
+        }
+    }
+
+    /**
+     * Stops polling for good and finishes the session's recording, if any
+     */
+    public void close() {
+        synchronized (pollingLock) {
+            closed = true;
+            stopPollingInternal();
+            if (recorder != null) {
+                recorder.close();
+            }
+        }
+    }
+
+    /**
+     * Clears processed text chunks (call when starting a new task)
+     */
+    public void clearProcessedChunks() {
+        processedTextChunks.clear();
+    }
+
+    /**
+     * Checks if polling is currently active
+     */
+    public boolean isPolling() {
+        PollRun run = currentRun;
+        return run != null && !run.stopped;
+    }
+
+    /**
+     * Determines if polling should stop based on the received message.
+     * Returns a reason string if polling should stop, null otherwise.
+     *
+     * @param msg the message to check
+     * @return reason string if polling should stop, null if polling should continue
+     */
+    static String shouldStopPolling(Message msg) {
+        // Stop polling if we receive an "ask" message requesting tool usage
+        if (msg.askType != null && msg.askType.equals("tool")) {
+            return "Received tool request (ask), stopping polling";
+        }
+
+        // Stop polling if we receive an "ask" message requesting command execution
+        if (msg.askType != null && msg.askType.equals("command")) {
+            return "Received command request (ask), stopping polling";
+        }
+
+        // Stop polling if we receive a completion_result (task finished)
+        if (msg.askType != null && msg.askType.equals("completion_result")) {
+            return "Task completed (completion_result), stopping polling";
+        }
+
+        // Add more stop conditions here as needed
+        // Example:
+        // if (someOtherCondition) {
+        //     return "Some other reason to stop polling";
+        // }
+
+        return null; // Continue polling
+    }
+}
@@ -0,0 +1,211 @@
+package embeddedcopilot.service;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import embeddedcopilot.backup.WorkspaceSnapshots;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+
+/**
+ * State for a single chat tab's Cline task.
+ *
+ * Every session owns its own Cline instance (so several tasks can run at the same time),
+ * its own poller, its own set of displayed message ids and its own pending-approval state.
+ * Pollers from all sessions reschedule themselves on the shared PluginExecutors timer, so no session
+ * holds a polling thread of its own.
+ * CLI calls made for the session are tracked so closing the tab cancels them (and kills their processes).
+ * Commands that change the task (create, send, approve, deny) go through the session's TaskCommandQueue
+ * so they reach Cline one at a time, in the order the user issued them.
+ */
+public class TaskSession {
+
+    private static final Logger LOG = Log.get(TaskSession.class);
+
+    private final ClineService clineService;
+    private TaskPollingService pollingService = null; // Created on first use - the constructor must not leak this
+    private final TaskCommandQueue commandQueue = new TaskCommandQueue();
+    private final TurnAnalytics turnAnalytics = new TurnAnalytics();
+    private final Set<String> displayedMessageIds = new HashSet<>(); // Only touched on the UI thread
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet(); // Pending CLI calls for this session
+
+    private volatile String instanceAddress = null; // null = default Cline instance
+    private volatile boolean ownsInstance = false;
+    private volatile String taskId = null;
+    private volatile boolean closed = false;
+    private volatile WorkspaceSnapshots snapshots = null; // Project tree at task start and each checkpoint, null = none
+
+    // Pending approval / diff state
+    private volatile Changeset changeset = new Changeset(); // File edits of the current turn, reviewed together
+    private volatile boolean hasPendingApproval = false; // ANY pending approval (file diff or command)
+    private volatile boolean alreadyAutoApproved = false; // Prevents double approval of file edits
+
+    public TaskSession(ClineService clineService) {
+        this.clineService = clineService;
+    }
+
+    /**
+     * Starts a dedicated Cline instance for this session.
+     * Falls back to the default instance if a new one cannot be started, so the returned future never fails
+     * (unless the session is closed while starting).
+     *
+     * @return future completing with the instance address to use (null = default instance)
+     */
+    public CompletableFuture<String> startInstance() {
+        if (instanceAddress != null) {
+            return CompletableFuture.completedFuture(instanceAddress);
+        }
+        return track(clineService.startInstanceAsync()).handle((address, ex) -> {
+            if (ex != null) {
+                if (!closed) {
+                    LOG.debug(() -> "Failed to start dedicated instance, using default instance: " +
+                        ClineService.unwrap(ex).getMessage());
+                }
+                return null;
+            }
+            if (address != null && closed) {
+                // Tab was closed while the instance was starting
+                clineService.killInstanceAsync(address);
+                return null;
+            } else if (address != null) {
+                instanceAddress = address;
+                ownsInstance = true;
+                LOG.info("Using dedicated instance: " + address);
+            } else {
+                LOG.debug("Could not start dedicated instance, using default instance");
+            }
+            return address;
+        });
+    }
+
+    /**
+     * Registers a CLI call so that close() cancels it if it is still running
+     *
+     * @param future the call to track
+     * @return the same future, for chaining
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        if (closed) {
+            future.cancel(true);
+            return future;
+        }
+        inFlight.add(future);
+        future.whenComplete((result, ex) -> inFlight.remove(future));
+        return future;
+    }
+
+    /**
+     * Queues an arbitrary command (e.g. task creation) behind the session's pending commands
+     *
+     * @see TaskCommandQueue#submit(String, Supplier)
+     */
+    public <T> CompletableFuture<T> enqueue(String label, Supplier<CompletableFuture<T>> command) {
+        return commandQueue.submit(label, command);
+    }
+
+    /**
+     * Queues a `task send` of a regular message
+     *
+     * @param message the message to send
+     * @return future completing with the command output
+     */
+    public CompletableFuture<String> enqueueMessage(String message) {
+        return enqueue("send message", () -> track(clineService.sendMessageAsync(instanceAddress, message)));
+    }
+
+    /**
+     * Queues an approve/deny response to the pending ask.
+     * Identical responses queued back to back (e.g. repeated auto-denies) are sent once.
+     *
+     * @param approve true to approve, false to deny
+     * @param feedback optional feedback sent with the response
+     * @return future completing with the command output
+     */
+    public CompletableFuture<String> enqueueAskResponse(boolean approve, String feedback) {
+        String coalesceKey = (approve ? "approve:" : "deny:") + (feedback != null ? feedback : "");
+        return commandQueue.submit(approve ? "approve" : "deny", coalesceKey,
+            () -> track(clineService.sendAskResponseAsync(instanceAddress, approve, feedback)));
+    }
+
+    /**
+     * Stops polling, cancels pending CLI calls, drops any abandoned diff backups and snapshots
+     * and kills the session's own instance.
+     * Safe to call from the UI thread - the instance is killed in the background.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        TaskPollingService poller;
+        synchronized (this) {
+            poller = pollingService;
+        }
+        if (poller != null) {
+            poller.close();
+        }
+        commandQueue.close();
+        for (CompletableFuture<?> future : inFlight) {
+            future.cancel(true);
+        }
+        inFlight.clear();
+        discardPendingDiff();
+        hasPendingApproval = false;
+        WorkspaceSnapshots taken = snapshots;
+        if (taken != null) {
+            taken.close();
+        }
+
+        String address = instanceAddress;
+        if (ownsInstance && address != null) {
+            clineService.killInstanceAsync(address);
+        }
+    }
+
+    /**
+     * Ends the current changeset: unreviewed edits are dropped (their backups released) and the next
+     * edits go into a new changeset.
+     * Does not clear hasPendingApproval - command approvals have no backup files
+     * and are tracked separately.
+     */
+    public void discardPendingDiff() {
+        changeset.discard();
+        changeset = new Changeset();
+        alreadyAutoApproved = false;
+    }
+
+    /**
+     * @return the session's poller (already closed if the session is)
+     */
+    public synchronized TaskPollingService getPollingService() {
+        if (pollingService == null) {
+            pollingService = new TaskPollingService(clineService, this);
+            if (closed) {
+                pollingService.close();
+            }
+        }
+        return pollingService;
+    }
+
+    public ClineService getClineService() { return clineService; }
+    public TaskCommandQueue getCommandQueue() { return commandQueue; }
+    public TurnAnalytics getTurnAnalytics() { return turnAnalytics; }
+    public Set<String> getDisplayedMessageIds() { return displayedMessageIds; }
+
+    public String getInstanceAddress() { return instanceAddress; }
+    public String getTaskId() { return taskId; }
+    public void setTaskId(String taskId) { this.taskId = taskId; }
+    public boolean isClosed() { return closed; }
+
+    public Changeset getChangeset() { return changeset; }
+    public WorkspaceSnapshots getSnapshots() { return snapshots; }
+    public void setSnapshots(WorkspaceSnapshots snapshots) { this.snapshots = snapshots; }
+
+    public boolean hasPendingApproval() { return hasPendingApproval; }
+    public void setPendingApproval(boolean pending) { this.hasPendingApproval = pending; }
+    public boolean isAlreadyAutoApproved() { return alreadyAutoApproved; }
+    public void setAlreadyAutoApproved(boolean approved) { this.alreadyAutoApproved = approved; }
+}
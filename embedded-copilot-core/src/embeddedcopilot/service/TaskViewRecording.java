@@ -0,0 +1,287 @@
+package embeddedcopilot.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+
+/**
+ * A recorded session of `task view -F json` polls, with the prompts that started each turn.
+ *
+ * Recordings are gzipped UTF-8 text. Each poll returns the whole task so far, so a poll is stored as the
+ * number of leading lines it shares with the previous poll plus the lines that differ:
+ *
+ *   embedded-copilot-task-view 1
+ *   N <offsetMs> <newChat 0|1> <prompt, escaped>
+ *   P <offsetMs> <durationMs> <keptLines> <addedLines>
+ *   <addedLines raw output lines>
+ *
+ * Offsets are milliseconds since the recording started. A recording cut off by a crash is read up to the
+ * last complete entry. Written by TaskPollingService when PollingConfig has a recording directory,
+ * replayed by TaskViewReplayer.
+ */
+public class TaskViewRecording {
+
+    private static final Logger LOG = Log.get(TaskViewRecording.class);
+
+    public static final String FILE_EXTENSION = ".tvrec.gz";
+    private static final String HEADER = "embedded-copilot-task-view 1";
+
+    /**
+     * One recorded event: either a prompt sent by the user or a completed poll
+     */
+    public static class Entry {
+        public final long offsetMs;
+        public final String prompt;      // Prompt entries only
+        public final boolean newChat;    // Prompt entries only: new task (true) or follow-up message
+        public final long durationMs;    // Poll entries only: how long the `task view` call took
+        public final List<String> lines; // Poll entries only: the complete raw output
+
+        private Entry(long offsetMs, String prompt, boolean newChat, long durationMs, List<String> lines) {
+            this.offsetMs = offsetMs;
+            this.prompt = prompt;
+            this.newChat = newChat;
+            this.durationMs = durationMs;
+            this.lines = lines;
+        }
+
+        public boolean isPrompt() {
+            return prompt != null;
+        }
+    }
+
+    private final Path file;
+    private final List<Entry> entries;
+
+    private TaskViewRecording(Path file, List<Entry> entries) {
+        this.file = file;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    public Path getFile() { return file; }
+    public List<Entry> getEntries() { return entries; }
+
+    /**
+     * @return number of recorded polls
+     */
+    public int getPollCount() {
+        int polls = 0;
+        for (Entry entry : entries) {
+            if (!entry.isPrompt()) {
+                polls++;
+            }
+        }
+        return polls;
+    }
+
+    /**
+     * @return offset of the last entry, i.e. the recording's length at original speed
+     */
+    public long getDurationMs() {
+        return entries.isEmpty() ? 0 : entries.get(entries.size() - 1).offsetMs;
+    }
+
+    /**
+     * Reads a recording
+     *
+     * @param file a file written by {@link Writer}
+     * @throws IOException if the file cannot be read or is not a recording
+     */
+    public static TaskViewRecording read(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file), 64 * 1024), StandardCharsets.UTF_8))) {
+            if (!HEADER.equals(reader.readLine())) {
+                throw new IOException("Not a task view recording: " + file);
+            }
+            List<String> previous = List.of();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("N ")) {
+                    String[] parts = line.split(" ", 4);
+                    entries.add(new Entry(Long.parseLong(parts[1]), unescape(parts.length > 3 ? parts[3] : ""),
+                        "1".equals(parts[2]), 0, null));
+                } else if (line.startsWith("P ")) {
+                    String[] parts = line.split(" ");
+                    int kept = Integer.parseInt(parts[3]);
+                    int added = Integer.parseInt(parts[4]);
+                    List<String> lines = new ArrayList<>(kept + added);
+                    lines.addAll(previous.subList(0, kept));
+                    for (int i = 0; i < added; i++) {
+                        String outputLine = reader.readLine();
+                        if (outputLine == null) {
+                            throw new EOFException();
+                        }
+                        lines.add(outputLine);
+                    }
+                    previous = lines;
+                    entries.add(new Entry(Long.parseLong(parts[1]), null, false, Long.parseLong(parts[2]), lines));
+                } else {
+                    throw new IOException("Corrupt task view recording: " + file);
+                }
+            }
+        } catch (EOFException e) {
+            LOG.warn("Recording " + file + " is truncated, replaying " + entries.size() + " complete entries");
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // A number that doesn't parse, a negative count or more kept lines than the previous poll had
+            throw new IOException("Corrupt task view recording: " + file, e);
+        }
+        return new TaskViewRecording(file, entries);
+    }
+
+    /**
+     * Appends polls to a new recording file. Each poll is written (and flushed) when it ends, so a
+     * recording stays readable if Eclipse dies mid-session. Thread-safe.
+     */
+    public static class Writer implements Closeable {
+        private final Path file;
+        private final BufferedWriter out;
+        private final long startTime = System.currentTimeMillis();
+        private List<String> previous = new ArrayList<>();
+        private List<String> current = null; // Lines of the poll in progress
+        private boolean closed = false;
+
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            this.out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024, true), StandardCharsets.UTF_8));
+            out.write(HEADER);
+            out.newLine();
+            out.flush();
+        }
+
+        /**
+         * Creates a new recording in the directory, named after the current time
+         */
+        public static Writer create(Path directory) throws IOException {
+            Files.createDirectories(directory);
+            String name = "task-view-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + FILE_EXTENSION;
+            return new Writer(directory.resolve(name));
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public synchronized void prompt(String prompt, boolean newChat) {
+            if (closed) {
+                return;
+            }
+            try {
+                out.write("N " + offset() + " " + (newChat ? "1" : "0") + " " + escape(prompt != null ? prompt : ""));
+                out.newLine();
+                out.flush();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        public synchronized void beginPoll() {
+            current = new ArrayList<>();
+        }
+
+        /**
+         * Adds one raw output line to the poll in progress
+         */
+        public synchronized void line(String line) {
+            if (current != null) {
+                current.add(line);
+            }
+        }
+
+        /**
+         * Drops the poll in progress (failed or cancelled calls have incomplete output)
+         */
+        public synchronized void discardPoll() {
+            current = null;
+        }
+
+        /**
+         * Writes the poll in progress
+         *
+         * @param durationMs how long the `task view` call took
+         */
+        public synchronized void endPoll(long durationMs) {
+            List<String> lines = current;
+            current = null;
+            if (closed || lines == null) {
+                return;
+            }
+            int kept = 0;
+            int max = Math.min(lines.size(), previous.size());
+            while (kept < max && lines.get(kept).equals(previous.get(kept))) {
+                kept++;
+            }
+            try {
+                out.write("P " + (offset() - durationMs) + " " + durationMs + " " + kept + " " + (lines.size() - kept));
+                out.newLine();
+                for (int i = kept; i < lines.size(); i++) {
+                    out.write(lines.get(i));
+                    out.newLine();
+                }
+                out.flush();
+            } catch (IOException e) {
+                fail(e);
+            }
+            previous = lines;
+        }
+
+        private long offset() {
+            return System.currentTimeMillis() - startTime;
+        }
+
+        private void fail(IOException e) {
+            LOG.error("Stopped recording to " + file + ": " + e.getMessage(), e);
+            close();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            previous = null;
+            try {
+                out.close();
+                LOG.info("Saved task view recording: " + file);
+            } catch (IOException e) {
+                LOG.warn("Failed to close recording " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char next = s.charAt(++i);
+                sb.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
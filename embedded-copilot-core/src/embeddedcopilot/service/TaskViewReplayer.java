@@ -0,0 +1,164 @@
+package embeddedcopilot.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+
+import com.google.gson.JsonParser;
+
+import embeddedcopilot.concurrent.ExecutionScope;
+import embeddedcopilot.concurrent.PluginExecutors;
+import embeddedcopilot.concurrent.WorkCategory;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.metrics.Histogram;
+import embeddedcopilot.metrics.Metrics;
+import embeddedcopilot.service.MessageProcessor.Message;
+
+/**
+ * Plays a TaskViewRecording back through the same splitting, MessageProcessor and stop logic as
+ * TaskPollingService, without Cline or a network. Messages go to the same callback a live poller
+ * would call, so the UI filtering and rendering downstream can be reproduced and measured.
+ *
+ * Entries are released at their recorded offsets divided by the speed factor and decoded on a virtual
+ * thread, like live `task view` output. A speed of 0 replays everything back to back; benchmarks can
+ * use {@link #replayNow} to stay on the calling thread.
+ */
+public class TaskViewReplayer {
+
+    private static final Logger LOG = Log.get(TaskViewReplayer.class);
+
+    private static final ExecutionScope replayScope = PluginExecutors.newScope("TaskViewReplay", WorkCategory.STREAM);
+    private static final Histogram REPLAY_POLL_TIME = Metrics.timer("replay.poll"); // Split and decode one recorded poll
+
+    private final TaskViewRecording recording;
+    private final double speed;
+    private final Consumer<String> onPrompt;
+    private final Consumer<Message> onMessage;
+    private final MessageProcessor messageProcessor = new MessageProcessor();
+    private final CompletableFuture<Integer> done = new CompletableFuture<>();
+    private volatile ScheduledFuture<?> next;
+    private long startTime;
+    private int index = 0;   // Next entry to replay; only touched by the entry being replayed
+    private int messages = 0;
+
+    /**
+     * @param recording the recording to play
+     * @param speed 1.0 for original timing, 10.0 for ten times faster, 0 for no delays
+     * @param onPrompt called with each recorded user prompt (may be null)
+     * @param onMessage called with each message, like TaskPollingService's onMessage
+     */
+    public TaskViewReplayer(TaskViewRecording recording, double speed, Consumer<String> onPrompt, Consumer<Message> onMessage) {
+        this.recording = recording;
+        this.speed = speed;
+        this.onPrompt = onPrompt;
+        this.onMessage = onMessage;
+    }
+
+    /**
+     * Starts the replay in the background. Cancelling the returned future stops it.
+     *
+     * @return future completing with the number of messages delivered
+     */
+    public CompletableFuture<Integer> start() {
+        done.whenComplete((count, ex) -> {
+            ScheduledFuture<?> pending = next;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        });
+        startTime = System.currentTimeMillis();
+        LOG.info("Replaying " + recording.getFile() + " (" + recording.getPollCount() + " polls, " +
+            recording.getDurationMs() + "ms at original speed) at speed " + speed);
+        scheduleNext();
+        return done;
+    }
+
+    /**
+     * Replays the whole recording on the calling thread without delays
+     *
+     * @return number of messages delivered
+     */
+    public static int replayNow(TaskViewRecording recording, Consumer<String> onPrompt, Consumer<Message> onMessage) {
+        TaskViewReplayer replayer = new TaskViewReplayer(recording, 0, onPrompt, onMessage);
+        for (TaskViewRecording.Entry entry : recording.getEntries()) {
+            replayer.replay(entry);
+        }
+        return replayer.messages;
+    }
+
+    private void scheduleNext() {
+        List<TaskViewRecording.Entry> entries = recording.getEntries();
+        if (done.isDone()) {
+            return;
+        }
+        if (index >= entries.size()) {
+            LOG.info("Replay finished: " + messages + " messages in " + (System.currentTimeMillis() - startTime) + "ms");
+            done.complete(messages);
+            return;
+        }
+        TaskViewRecording.Entry entry = entries.get(index++);
+        long due = speed > 0 ? startTime + Math.round(entry.offsetMs / speed) : 0;
+        long delay = Math.max(0, due - System.currentTimeMillis());
+        try {
+            next = replayScope.schedule(() -> {
+                try {
+                    if (!done.isDone()) {
+                        replay(entry);
+                    }
+                    scheduleNext();
+                } catch (RuntimeException e) {
+                    LOG.error("Replay failed: " + e.getMessage(), e);
+                    done.completeExceptionally(e);
+                }
+            }, delay);
+        } catch (RejectedExecutionException e) {
+            // Plugin is shutting down
+            done.cancel(false);
+        }
+    }
+
+    private void replay(TaskViewRecording.Entry entry) {
+        if (entry.isPrompt()) {
+            if (entry.newChat) {
+                messageProcessor.startNewPrompt(entry.prompt);
+            } else {
+                messageProcessor.updatePrompt(entry.prompt);
+            }
+            if (onPrompt != null) {
+                onPrompt.accept(entry.prompt);
+            }
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        TaskViewSplitter splitter = new TaskViewSplitter(this::processJsonObject);
+        for (String line : entry.lines) {
+            splitter.accept(line);
+        }
+        splitter.finish();
+        REPLAY_POLL_TIME.recordSince(startNanos);
+    }
+
+    /**
+     * Same decoding and stop conditions as the live poller, minus its side effects
+     *
+     * @return true if the live poller would have stopped reading this output
+     */
+    private boolean processJsonObject(String jsonStr) {
+        try {
+            Message msg = messageProcessor.process(JsonParser.parseString(jsonStr).getAsJsonObject());
+            if (msg == null) {
+                return false;
+            }
+            messages++;
+            onMessage.accept(msg);
+            return TaskPollingService.shouldStopPolling(msg) != null;
+        } catch (Exception e) {
+            LOG.debug(() -> "Error processing recorded message: " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package embeddedcopilot.service;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Splits one `task view -F json` output into JSON objects while it is still being read line by line.
+ * Each object starts on a line beginning with '{'; verbose log lines before the first object are skipped.
+ * Only the object currently being read is buffered. Used by the poller and by TaskViewReplayer.
+ */
+public class TaskViewSplitter implements Consumer<String> {
+
+    private final Predicate<String> onObject; // Receives each JSON object, returns true to stop
+    private final StringBuilder current = new StringBuilder();
+    private boolean inJson = false;
+    private boolean stop = false;
+    private long bytes = 0;   // Output size, for metrics
+    private int objects = 0;  // JSON objects passed to onObject
+
+    /**
+     * @param onObject called with each complete JSON object; returning true skips the rest of the output
+     */
+    public TaskViewSplitter(Predicate<String> onObject) {
+        this.onObject = onObject;
+    }
+
+    @Override
+    public void accept(String line) {
+        bytes += line.length() + 1;
+        if (stop) {
+            return;
+        }
+        if (!inJson) {
+            // Skip verbose log lines until the first JSON object
+            int firstBrace = line.indexOf('{');
+            if (firstBrace < 0) {
+                return;
+            }
+            inJson = true;
+            line = line.substring(firstBrace);
+        } else if (line.startsWith("{")) {
+            flush();
+            if (stop) {
+                return;
+            }
+        }
+        current.append(line).append('\n');
+    }
+
+    /**
+     * Processes the last buffered object
+     *
+     * @return true if onObject asked to stop
+     */
+    public boolean finish() {
+        if (!stop) {
+            flush();
+        }
+        return stop;
+    }
+
+    public long getBytes() { return bytes; }
+    public int getObjects() { return objects; }
+
+    private void flush() {
+        String jsonStr = current.toString().trim();
+        current.setLength(0);
+        if (jsonStr.isEmpty()) {
+            return;
+        }
+        int lastBrace = jsonStr.lastIndexOf('}');
+        if (lastBrace > 0) jsonStr = jsonStr.substring(0, lastBrace + 1);
+        objects++;
+        if (onObject.test(jsonStr)) {
+            stop = true;
+        }
+    }
+}
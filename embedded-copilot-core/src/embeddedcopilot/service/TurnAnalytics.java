@@ -0,0 +1,254 @@
+package embeddedcopilot.service;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonObject;
+
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.metrics.Histogram;
+import embeddedcopilot.metrics.Metrics;
+import embeddedcopilot.service.MessageProcessor.Message;
+
+/**
+ * Builds a latency timeline for every turn of a task from the Cline message stream.
+ *
+ * A turn starts when the user sends a message and ends with the completion_result. In between,
+ * time is attributed to one phase at a time, switched by the messages' `ts`:
+ * - model: from api_req_started until the model's output asks for approval or starts a tool
+ * - approval: from an ask that needs approval until the user (or auto-approve) answers
+ * - tools: from a tool call (or the approval) until the next api_req_started
+ * - other: sending the message, Cline startup between the user echo and the first request
+ * Display lag is the time between a message's `ts` and when the plugin rendered it.
+ *
+ * Message timestamps come from Cline and the send/approval times from the plugin; both are wall clock
+ * times on the same machine. Finished turns are recorded in the "turn.*" histograms.
+ * One instance per TaskSession; methods may be called from the UI thread and from command callbacks.
+ */
+public class TurnAnalytics {
+
+    private static final Logger LOG = Log.get(TurnAnalytics.class);
+
+    private static final Histogram TURN_TOTAL = Metrics.timer("turn.total");
+    private static final Histogram TURN_FIRST_TOKEN = Metrics.timer("turn.firstToken");
+    private static final Histogram TURN_MODEL = Metrics.timer("turn.model");
+    private static final Histogram TURN_TOOLS = Metrics.timer("turn.tools");
+    private static final Histogram TURN_APPROVAL = Metrics.timer("turn.approval");
+    private static final Histogram DISPLAY_LAG = Metrics.timer("turn.displayLag"); // Per message
+
+    /** Asks that wait for the user (same list SampleView uses to show approve/deny buttons) */
+    private static final Set<String> APPROVAL_ASKS = Set.of("tool", "command", "api_req_failed", "resume_task", "resume_completed_task");
+    /** Say types emitted when the model hands over to a tool */
+    private static final Set<String> TOOL_SAYS = Set.of("tool", "command", "command_output", "browser_action", "use_mcp_server", "mcp_server_request_started");
+
+    private enum Phase { OTHER, MODEL, TOOLS, APPROVAL }
+
+    /**
+     * Timeline of one finished turn (all durations in milliseconds, -1 = not observed)
+     */
+    public static class Breakdown {
+        public final int turn;
+        public final boolean completed; // false = interrupted by a new message
+        public final long total;
+        public final long firstToken;
+        public final long model;
+        public final long tools;
+        public final long approval;
+        public final long other;
+        public final int apiRequests;
+        public final long maxDisplayLag;
+        public final long meanDisplayLag;
+
+        Breakdown(int turn, boolean completed, long total, long firstToken, long[] phases, int apiRequests,
+                  long maxDisplayLag, long meanDisplayLag) {
+            this.turn = turn;
+            this.completed = completed;
+            this.total = total;
+            this.firstToken = firstToken;
+            this.model = phases[Phase.MODEL.ordinal()];
+            this.tools = phases[Phase.TOOLS.ordinal()];
+            this.approval = phases[Phase.APPROVAL.ordinal()];
+            this.other = phases[Phase.OTHER.ordinal()];
+            this.apiRequests = apiRequests;
+            this.maxDisplayLag = maxDisplayLag;
+            this.meanDisplayLag = meanDisplayLag;
+        }
+
+        /**
+         * @return one-line summary shown under the turn, e.g.
+         *         "⏱ 12.4s · first token 1.3s · model 8.1s (2 requests) · tools 2.0s · approval 0.9s · display lag 0.2s"
+         */
+        public String format() {
+            StringBuilder sb = new StringBuilder("⏱ ").append(seconds(total));
+            if (!completed) {
+                sb.append(" (interrupted)");
+            }
+            if (firstToken >= 0) {
+                sb.append(" · first token ").append(seconds(firstToken));
+            }
+            sb.append(" · model ").append(seconds(model));
+            if (apiRequests > 1) {
+                sb.append(" (").append(apiRequests).append(" requests)");
+            }
+            sb.append(" · tools ").append(seconds(tools));
+            sb.append(" · approval ").append(seconds(approval));
+            if (maxDisplayLag >= 0) {
+                sb.append(" · display lag ").append(seconds(meanDisplayLag)).append(" avg / ").append(seconds(maxDisplayLag)).append(" max");
+            }
+            return sb.toString();
+        }
+
+        private static String seconds(long millis) {
+            return String.format("%.1fs", millis / 1000.0);
+        }
+
+        @Override
+        public String toString() {
+            return "turn " + turn + ": total=" + total + "ms firstToken=" + firstToken + "ms model=" + model +
+                "ms tools=" + tools + "ms approval=" + approval + "ms other=" + other + "ms requests=" + apiRequests +
+                " displayLag(avg/max)=" + meanDisplayLag + "/" + maxDisplayLag + "ms" + (completed ? "" : " (interrupted)");
+        }
+    }
+
+    private int turnCount = 0;
+    private boolean active = false;
+    private long turnStart;
+    private long firstToken;
+    private final long[] phaseMillis = new long[Phase.values().length];
+    private Phase phase;
+    private long phaseStart;
+    private int apiRequests;
+    private long lagSum;
+    private long lagMax;
+    private int lagCount;
+    private long lastTs = Long.MIN_VALUE; // Messages older than this were already seen
+
+    /**
+     * Starts a new turn when the user sends a message. A turn still open is finished as interrupted.
+     *
+     * @param sentAt local time the message was sent (epoch millis)
+     * @return the interrupted turn's breakdown, or null
+     */
+    public synchronized Breakdown startTurn(long sentAt) {
+        Breakdown interrupted = active ? finish(sentAt, false) : null;
+        active = true;
+        turnCount++;
+        turnStart = sentAt;
+        firstToken = -1;
+        Arrays.fill(phaseMillis, 0);
+        phase = Phase.OTHER;
+        phaseStart = sentAt;
+        apiRequests = 0;
+        lagSum = 0;
+        lagMax = -1;
+        lagCount = 0;
+        return interrupted;
+    }
+
+    /**
+     * Feeds one message as it is rendered
+     *
+     * @param msg message from the poller
+     * @param renderedAt local time the message was displayed (epoch millis)
+     * @return the turn's breakdown if this message completed it, otherwise null
+     */
+    public synchronized Breakdown onMessage(Message msg, long renderedAt) {
+        JsonObject raw = msg.rawJson;
+        if (!active || raw == null || !raw.has("ts")) {
+            return null;
+        }
+        long ts = raw.get("ts").getAsLong();
+        if (ts < lastTs || ts < turnStart - TimeUnit.SECONDS.toMillis(1)) {
+            return null; // Replayed history or a message from an earlier turn
+        }
+        lastTs = ts;
+
+        long lag = Math.max(0, renderedAt - ts);
+        DISPLAY_LAG.record(TimeUnit.MILLISECONDS.toNanos(lag));
+        lagSum += lag;
+        lagMax = Math.max(lagMax, lag);
+        lagCount++;
+
+        if (msg.type == Message.Type.USER) {
+            return null; // Echo of the prompt - Cline has the message, still "other" until the first request
+        }
+
+        String say = msg.sayType != null ? msg.sayType : "";
+        String ask = msg.askType != null ? msg.askType : "";
+        boolean isAsk = "ask".equals(raw.has("type") ? raw.get("type").getAsString() : "");
+
+        if ("completion_result".equals(say) || "completion_result".equals(ask)) {
+            markFirstToken(ts);
+            return finish(ts, true);
+        }
+        if (!isAsk && "api_req_started".equals(say)) {
+            apiRequests++;
+            switchPhase(Phase.MODEL, ts);
+            return null;
+        }
+        if (!isAsk && ("reasoning".equals(say) || "text".equals(say))) {
+            markFirstToken(ts);
+            return null;
+        }
+        if (isAsk && APPROVAL_ASKS.contains(ask)) {
+            markFirstToken(ts);
+            switchPhase(Phase.APPROVAL, ts);
+            return null;
+        }
+        if (!isAsk && TOOL_SAYS.contains(say)) {
+            markFirstToken(ts);
+            if (phase == Phase.MODEL) {
+                switchPhase(Phase.TOOLS, ts);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Marks the pending approval as answered (by the user or by auto-approve); time until the next
+     * api request counts as tool execution
+     *
+     * @param answeredAt local time of the answer (epoch millis)
+     */
+    public synchronized void approvalResolved(long answeredAt) {
+        if (active && phase == Phase.APPROVAL) {
+            switchPhase(Phase.TOOLS, answeredAt);
+        }
+    }
+
+    private void markFirstToken(long ts) {
+        if (firstToken < 0) {
+            firstToken = Math.max(0, ts - turnStart);
+        }
+    }
+
+    private void switchPhase(Phase next, long at) {
+        phaseMillis[phase.ordinal()] += Math.max(0, at - phaseStart);
+        phase = next;
+        phaseStart = Math.max(phaseStart, at);
+    }
+
+    private Breakdown finish(long endTime, boolean completed) {
+        switchPhase(Phase.OTHER, endTime);
+        active = false;
+        long total = Math.max(0, endTime - turnStart);
+        Breakdown breakdown = new Breakdown(turnCount, completed, total, firstToken, phaseMillis.clone(), apiRequests,
+            lagMax, lagCount > 0 ? lagSum / lagCount : -1);
+
+        TURN_TOTAL.record(TimeUnit.MILLISECONDS.toNanos(breakdown.total));
+        if (breakdown.firstToken >= 0) {
+            TURN_FIRST_TOKEN.record(TimeUnit.MILLISECONDS.toNanos(breakdown.firstToken));
+        }
+        TURN_MODEL.record(TimeUnit.MILLISECONDS.toNanos(breakdown.model));
+        TURN_TOOLS.record(TimeUnit.MILLISECONDS.toNanos(breakdown.tools));
+        TURN_APPROVAL.record(TimeUnit.MILLISECONDS.toNanos(breakdown.approval));
+        LOG.info(breakdown.toString());
+        return breakdown;
+    }
+
+    public synchronized boolean isTurnActive() {
+        return active;
+    }
+}
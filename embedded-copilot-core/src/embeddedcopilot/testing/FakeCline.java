@@ -0,0 +1,476 @@
+package embeddedcopilot.testing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic stand-in for the cline CLI, for load tests and benchmarks without a model or network.
+ *
+ * Implements the commands ClineService uses - `task new/send/view/list` and `instance list/new/kill` -
+ * with the same output markers ClineService parses. Every invocation is a separate process (like the
+ * real CLI), so tasks and instances live in a state directory. `task view -F json` replays a scripted
+ * message stream: each turn's messages become visible over time at the scenario's rate, so polling sees
+ * the task progress as it would with a live model.
+ *
+ * Point the plugin at it with
+ *   -Dembeddedcopilot.cline.command="java -cp <core bundle classes or jar> embeddedcopilot.testing.FakeCline"
+ *
+ * Environment (or the system properties in parentheses, which win):
+ *   FAKE_CLINE_HOME       (fakecline.home) state directory (default: $TMPDIR/fake-cline)
+ *   FAKE_CLINE_SCENARIO   (fakecline.scenario) properties file overriding the scenario defaults below
+ *
+ * Scenario properties:
+ *   messages=200            model messages per turn (generated streams)
+ *   ratePerSecond=50        messages made visible per second (0 = all at once)
+ *   textSize=200            characters per reasoning/text message
+ *   toolEvery=10            every Nth message is a tool call followed by its output (0 = never)
+ *   toolOutputSize=2000     characters of each tool output (use megabytes to test huge outputs)
+ *   askEvery=0              every Nth message is an ask that waits for `task send -a/-d` (0 = never)
+ *   commandLatencyMs=0      delay before every command answers (process/gRPC overhead)
+ *   seed=1                  seed for generated text
+ *   script=                 JSONL file of recorded messages replayed instead of generated ones;
+ *                           their `ts` spacing (scaled by speed) sets the pacing
+ *   speed=1.0               replay speed factor for scripts
+ */
+public class FakeCline {
+
+    private static final String DEFAULT_ADDRESS = "127.0.0.1:50051";
+    private static final Pattern TS_PATTERN = Pattern.compile("\"ts\"\\s*:\\s*(\\d+)");
+    private static final String[] WORDS = {
+        "the", "class", "method", "returns", "value", "field", "update", "check", "file", "line",
+        "parser", "buffer", "index", "result", "change", "test", "call", "error", "list", "map"
+    };
+
+    /**
+     * Scenario settings (see class comment)
+     */
+    static class Scenario {
+        int messages = 200;
+        double ratePerSecond = 50;
+        int textSize = 200;
+        int toolEvery = 10;
+        int toolOutputSize = 2000;
+        int askEvery = 0;
+        long commandLatencyMs = 0;
+        long seed = 1;
+        String script = null;
+        double speed = 1.0;
+
+        static Scenario load(String path) throws IOException {
+            Scenario scenario = new Scenario();
+            if (path == null || path.isEmpty()) {
+                return scenario;
+            }
+            Properties p = new Properties();
+            try (InputStream in = Files.newInputStream(Paths.get(path))) {
+                p.load(in);
+            }
+            scenario.messages = Integer.parseInt(p.getProperty("messages", String.valueOf(scenario.messages)));
+            scenario.ratePerSecond = Double.parseDouble(p.getProperty("ratePerSecond", String.valueOf(scenario.ratePerSecond)));
+            scenario.textSize = Integer.parseInt(p.getProperty("textSize", String.valueOf(scenario.textSize)));
+            scenario.toolEvery = Integer.parseInt(p.getProperty("toolEvery", String.valueOf(scenario.toolEvery)));
+            scenario.toolOutputSize = Integer.parseInt(p.getProperty("toolOutputSize", String.valueOf(scenario.toolOutputSize)));
+            scenario.askEvery = Integer.parseInt(p.getProperty("askEvery", String.valueOf(scenario.askEvery)));
+            scenario.commandLatencyMs = Long.parseLong(p.getProperty("commandLatencyMs", String.valueOf(scenario.commandLatencyMs)));
+            scenario.seed = Long.parseLong(p.getProperty("seed", String.valueOf(scenario.seed)));
+            scenario.script = p.getProperty("script", null);
+            scenario.speed = Double.parseDouble(p.getProperty("speed", String.valueOf(scenario.speed)));
+            return scenario;
+        }
+
+        /**
+         * @return spacing of message timestamps; at least 1ms, since Cline timestamps identify messages
+         */
+        long intervalMs() {
+            return ratePerSecond > 0 ? Math.max(1, Math.round(1000 / ratePerSecond)) : 1;
+        }
+    }
+
+    private final Path home;
+    private final Scenario scenario;
+    private final PrintStream out;
+    private final long now;
+
+    FakeCline(Path home, Scenario scenario, PrintStream out, long now) {
+        this.home = home;
+        this.scenario = scenario;
+        this.out = out;
+        this.now = now;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String homeEnv = setting("fakecline.home", "FAKE_CLINE_HOME");
+        Path home = homeEnv != null && !homeEnv.isEmpty()
+            ? Paths.get(homeEnv)
+            : Paths.get(System.getProperty("java.io.tmpdir"), "fake-cline");
+        Files.createDirectories(home.resolve("tasks"));
+        Scenario scenario = Scenario.load(setting("fakecline.scenario", "FAKE_CLINE_SCENARIO"));
+        if (scenario.commandLatencyMs > 0) {
+            Thread.sleep(scenario.commandLatencyMs);
+        }
+        PrintStream out = new PrintStream(new java.io.BufferedOutputStream(new java.io.FileOutputStream(java.io.FileDescriptor.out), 1 << 16), false, StandardCharsets.UTF_8);
+        int exitCode = new FakeCline(home, scenario, out, System.currentTimeMillis()).run(args);
+        out.flush();
+        System.exit(exitCode);
+    }
+
+    /**
+     * Reads a setting from a system property (set by load tests on the command line) or the environment
+     */
+    private static String setting(String property, String environmentVariable) {
+        String value = System.getProperty(property);
+        return value != null ? value : System.getenv(environmentVariable);
+    }
+
+    /**
+     * Runs one CLI invocation
+     *
+     * @return the process exit code
+     */
+    int run(String[] rawArgs) throws IOException {
+        String address = null;
+        boolean verbose = false;
+        List<String> args = new ArrayList<>();
+        for (int i = 0; i < rawArgs.length; i++) {
+            String arg = rawArgs[i];
+            if ("--address".equals(arg) && i + 1 < rawArgs.length) {
+                address = rawArgs[++i];
+            } else if ("-v".equals(arg) || "--verbose".equals(arg)) {
+                verbose = true;
+            } else if (("-F".equals(arg) || "--output-format".equals(arg) || "-s".equals(arg)) && i + 1 < rawArgs.length) {
+                i++; // Output format is always JSON for `task view`; settings are ignored
+            } else {
+                args.add(arg);
+            }
+        }
+        if (verbose) {
+            out.println("[fake-cline] " + String.join(" ", rawArgs).replace('\n', ' '));
+        }
+        if (args.size() < 2) {
+            out.println("Error: expected <task|instance> <command>");
+            return 2;
+        }
+
+        String group = args.get(0);
+        String command = args.get(1);
+        List<String> rest = args.subList(2, args.size());
+        try (FileChannel state = openStateLock()) {
+            state.lock(); // Released when the channel closes
+            if ("instance".equals(group)) {
+                return instanceCommand(command, rest);
+            }
+            if ("task".equals(group)) {
+                return taskCommand(command, rest, address);
+            }
+        }
+        out.println("Error: unknown command " + group + " " + command);
+        return 2;
+    }
+
+    /**
+     * Serializes state changes between concurrently running fake processes: lock the returned channel
+     */
+    private FileChannel openStateLock() throws IOException {
+        return FileChannel.open(home.resolve(".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    // ------------------------------------------------------------------------
+    // instance commands
+    // ------------------------------------------------------------------------
+
+    private int instanceCommand(String command, List<String> rest) throws IOException {
+        Properties instances = load(home.resolve("instances.properties"));
+        List<String> addresses = new ArrayList<>(split(instances.getProperty("addresses", "")));
+        switch (command) {
+            case "list":
+                if (addresses.isEmpty()) {
+                    out.println("No Cline instances found");
+                } else {
+                    for (String address : addresses) {
+                        out.println("Address: " + address);
+                    }
+                }
+                return 0;
+            case "new": {
+                String address;
+                if (rest.contains("--default") || addresses.isEmpty()) {
+                    address = DEFAULT_ADDRESS;
+                    instances.setProperty("default", address);
+                } else {
+                    int port = Integer.parseInt(instances.getProperty("nextPort", "50100"));
+                    instances.setProperty("nextPort", String.valueOf(port + 1));
+                    address = "127.0.0.1:" + port;
+                }
+                if (!addresses.contains(address)) {
+                    addresses.add(address);
+                }
+                instances.setProperty("addresses", String.join(",", addresses));
+                store(home.resolve("instances.properties"), instances);
+                out.println("Successfully started new instance:");
+                out.println("  Address: " + address);
+                out.println("  Core Port: " + address.substring(address.indexOf(':') + 1));
+                return 0;
+            }
+            case "kill":
+                if (!rest.isEmpty()) {
+                    addresses.remove(rest.get(0));
+                    instances.setProperty("addresses", String.join(",", addresses));
+                    store(home.resolve("instances.properties"), instances);
+                    out.println("Killed instance " + rest.get(0));
+                }
+                return 0;
+            default:
+                out.println("Error: unknown instance command " + command);
+                return 2;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // task commands
+    // ------------------------------------------------------------------------
+
+    private int taskCommand(String command, List<String> rest, String address) throws IOException {
+        Path instanceFile = home.resolve("instance-" + (address != null ? address : DEFAULT_ADDRESS).replace(':', '_') + ".properties");
+        Properties instance = load(instanceFile);
+        String taskId = instance.getProperty("currentTask");
+
+        switch (command) {
+            case "new": {
+                String prompt = rest.isEmpty() ? "" : rest.get(rest.size() - 1);
+                taskId = String.valueOf(now);
+                Properties task = new Properties();
+                task.setProperty("id", taskId);
+                task.setProperty("turns", "1");
+                task.setProperty("prompt.0", prompt);
+                task.setProperty("start.0", String.valueOf(now));
+                store(taskFile(taskId), task);
+                instance.setProperty("currentTask", taskId);
+                store(instanceFile, instance);
+                out.println("Task created successfully");
+                out.println("Task ID: " + taskId);
+                return 0;
+            }
+            case "send": {
+                if (taskId == null) {
+                    out.println("Error: no active task");
+                    return 1;
+                }
+                Properties task = load(taskFile(taskId));
+                int turn = Integer.parseInt(task.getProperty("turns")) - 1;
+                if (!rest.isEmpty() && ("-a".equals(rest.get(0)) || "-d".equals(rest.get(0)))) {
+                    String approvals = task.getProperty("approvals." + turn, "");
+                    task.setProperty("approvals." + turn, approvals.isEmpty() ? String.valueOf(now) : approvals + "," + now);
+                } else {
+                    String message = rest.isEmpty() ? "" : rest.get(rest.size() - 1);
+                    task.setProperty("turns", String.valueOf(turn + 2));
+                    task.setProperty("prompt." + (turn + 1), message);
+                    task.setProperty("start." + (turn + 1), String.valueOf(now));
+                }
+                store(taskFile(taskId), task);
+                out.println("Message sent successfully");
+                return 0;
+            }
+            case "view": {
+                if (taskId == null) {
+                    out.println("Error: no active task");
+                    return 1;
+                }
+                Properties task = load(taskFile(taskId));
+                int turns = Integer.parseInt(task.getProperty("turns"));
+                for (int turn = 0; turn < turns; turn++) {
+                    long start = Long.parseLong(task.getProperty("start." + turn));
+                    List<Long> approvals = new ArrayList<>();
+                    for (String approval : split(task.getProperty("approvals." + turn, ""))) {
+                        approvals.add(Long.parseLong(approval));
+                    }
+                    printTurn(taskId, turn, task.getProperty("prompt." + turn), start, approvals);
+                }
+                return 0;
+            }
+            case "list": {
+                File[] files = home.resolve("tasks").toFile().listFiles((dir, name) -> name.endsWith(".properties"));
+                if (files != null) {
+                    Arrays.sort(files, (a, b) -> b.getName().compareTo(a.getName()));
+                    for (File file : files) {
+                        Properties task = load(file.toPath());
+                        out.println("Task ID: " + task.getProperty("id"));
+                        out.println("Message: " + task.getProperty("prompt.0", "").replace('\n', ' '));
+                        out.println("Usage: " + task.getProperty("turns") + " turns");
+                    }
+                }
+                return 0;
+            }
+            default:
+                out.println("Error: unknown task command " + command);
+                return 2;
+        }
+    }
+
+    private Path taskFile(String taskId) {
+        return home.resolve("tasks").resolve(taskId + ".properties");
+    }
+
+    /**
+     * Prints the messages of one turn that are visible at `now`, one JSON object per line
+     */
+    private void printTurn(String taskId, int turn, String prompt, long start, List<Long> approvals) throws IOException {
+        out.println(message(start, "say", "text", prompt));
+        if (scenario.script != null) {
+            printScript(start);
+            return;
+        }
+
+        Random random = new Random(scenario.seed * 31 + taskId.hashCode() * 17L + turn);
+        long interval = scenario.intervalMs();
+        long base = start;
+        int sinceBase = 1;
+        int asks = 0;
+
+        if (!emit(base + interval * sinceBase++, "say", "api_req_started", "{\"request\":\"turn " + turn + "\"}")) {
+            return;
+        }
+        for (int i = 1; i <= scenario.messages; i++) {
+            long ts = base + interval * sinceBase++;
+            if (scenario.askEvery > 0 && i % scenario.askEvery == 0) {
+                if (!emit(ts, "ask", "tool", "{\"tool\":\"readFile\",\"path\":\"src/Fake" + i + ".java\"}")) {
+                    return;
+                }
+                if (asks >= approvals.size()) {
+                    return; // Waiting for approval
+                }
+                base = Math.max(ts, approvals.get(asks++));
+                sinceBase = 1;
+            } else if (scenario.toolEvery > 0 && i % scenario.toolEvery == 0) {
+                if (!emit(ts, "say", "tool", "{\"tool\":\"readFile\",\"path\":\"src/Fake" + i + ".java\"}")
+                        || !emit(base + interval * sinceBase++, "say", "command_output", text(random, scenario.toolOutputSize, true))
+                        || !emit(base + interval * sinceBase++, "say", "api_req_started", "{\"request\":\"tool result " + i + "\"}")) {
+                    return;
+                }
+            } else if (!emit(ts, "say", i % 2 == 0 ? "text" : "reasoning", text(random, scenario.textSize, false))) {
+                return;
+            }
+        }
+        long end = base + interval * sinceBase;
+        if (emit(end, "say", "completion_result", "Done with turn " + turn + ".")) {
+            emit(end, "ask", "completion_result", "");
+        }
+    }
+
+    /**
+     * Prints a recorded stream, shifted to start at `start` and paced by its original timestamps
+     */
+    private void printScript(long start) throws IOException {
+        long firstTs = -1;
+        for (String line : Files.readAllLines(Paths.get(scenario.script), StandardCharsets.UTF_8)) {
+            Matcher m = TS_PATTERN.matcher(line);
+            if (line.isBlank() || !m.find()) {
+                continue;
+            }
+            long ts = Long.parseLong(m.group(1));
+            if (firstTs < 0) {
+                firstTs = ts;
+            }
+            long shifted = start + Math.round((ts - firstTs) / scenario.speed);
+            if (shifted > now) {
+                return;
+            }
+            out.println(m.replaceFirst("\"ts\":" + shifted));
+        }
+    }
+
+    /**
+     * Prints a message if it is due
+     *
+     * @return false if the message (and so everything after it) is not visible yet
+     */
+    private boolean emit(long ts, String type, String subType, String text) {
+        if (ts > now && scenario.ratePerSecond > 0) {
+            return false;
+        }
+        out.println(message(ts, type, subType, text));
+        return true;
+    }
+
+    private static String message(long ts, String type, String subType, String text) {
+        return "{\"ts\":" + ts + ",\"type\":\"" + type + "\",\"" + type + "\":\"" + subType + "\",\"text\":\"" + escape(text) + "\"}";
+    }
+
+    /**
+     * Deterministic filler text (multi-line for tool output)
+     */
+    private static String text(Random random, int size, boolean lines) {
+        StringBuilder sb = new StringBuilder(size + 16);
+        int lineLength = 0;
+        while (sb.length() < size) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            sb.append(word);
+            lineLength += word.length();
+            if (lines && lineLength > 72) {
+                sb.append('\n');
+                lineLength = 0;
+            } else {
+                sb.append(' ');
+                lineLength++;
+            }
+        }
+        sb.setLength(size);
+        return sb.toString();
+    }
+
+    static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static List<String> split(String list) {
+        return list.isEmpty() ? List.of() : Arrays.asList(list.split(","));
+    }
+
+    private static Properties load(Path file) throws IOException {
+        Properties p = new Properties();
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                p.load(in);
+            }
+        }
+        return p;
+    }
+
+    private static void store(Path file, Properties p) throws IOException {
+        try (OutputStream o = Files.newOutputStream(file)) {
+            p.store(o, null);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package embeddedcopilot.backup;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import embeddedcopilot.backup.BackupStore.Backup;
+
+class BackupStoreTest {
+
+    private static final long HOUR_MS = 60 * 60 * 1000;
+    private static final long COMPRESS_THRESHOLD = 1024;
+
+    @TempDir
+    Path directory;
+
+    private final List<BackupStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void closeStores() {
+        stores.forEach(BackupStore::close);
+    }
+
+    private BackupStore open(long maxBytes, long maxAgeMs) {
+        BackupStore store = new BackupStore(directory.resolve("store"), maxBytes, maxAgeMs, COMPRESS_THRESHOLD);
+        stores.add(store);
+        return store;
+    }
+
+    @Test
+    void identicalContentIsStoredOnce() throws IOException {
+        BackupStore store = open(Long.MAX_VALUE, HOUR_MS);
+        Path file = Files.writeString(directory.resolve("file.txt"), "content");
+        Backup first = store.put(bytes("content"));
+        Backup second = store.put(bytes("content"));
+        Backup fromFile = store.put(file);
+        Backup other = store.put(bytes("other"));
+        assertEquals(first.hash, second.hash);
+        assertEquals(first.hash, fromFile.hash);
+        assertNotEquals(first.hash, other.hash);
+        assertEquals(2, objects(store).size());
+        assertEquals("content", new String(fromFile.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void contentOverTheThresholdIsCompressed() throws IOException {
+        BackupStore store = open(Long.MAX_VALUE, HOUR_MS);
+        byte[] small = new byte[(int) COMPRESS_THRESHOLD];
+        byte[] large = new byte[(int) COMPRESS_THRESHOLD + 1];
+        large[0] = 1;
+
+        Backup smallBackup = store.put(small);
+        Backup largeBackup = store.put(large);
+        assertFalse(isCompressed(store, smallBackup));
+        assertTrue(isCompressed(store, largeBackup));
+        assertTrue(Files.size(object(store, largeBackup)) < large.length);
+        assertEquals(large.length, largeBackup.size);
+        assertArrayEquals(large, largeBackup.readAllBytes());
+
+        Path copy = directory.resolve("copy");
+        largeBackup.copyTo(copy);
+        assertArrayEquals(large, Files.readAllBytes(copy));
+    }
+
+    @Test
+    void streamsAndFilesStoreTheSameObjects() throws IOException {
+        BackupStore store = open(Long.MAX_VALUE, HOUR_MS);
+        byte[] large = "line\n".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        Backup fromBytes = store.put(large);
+        Backup fromStream = store.put(new ByteArrayInputStream(large));
+        Backup fromFile = store.put(Files.write(directory.resolve("large.txt"), large));
+        assertEquals(fromBytes.hash, fromStream.hash);
+        assertEquals(fromBytes.hash, fromFile.hash);
+        assertEquals(1, objects(store).size());
+        assertArrayEquals(large, fromStream.readAllBytes());
+    }
+
+    @Test
+    void pinnedObjectsSurviveTheSweep() throws IOException {
+        BackupStore store = open(0, HOUR_MS); // Everything is over the cap
+        Backup kept = store.put(bytes("kept"));
+        Backup keptTwice = store.put(bytes("kept"));
+        Backup released = store.put(bytes("released"));
+        released.release();
+        keptTwice.release(); // One pin on "kept" is left
+
+        store.sweep();
+        assertTrue(Files.exists(object(store, kept)));
+        assertFalse(Files.exists(object(store, released)));
+        assertEquals("kept", new String(kept.readAllBytes(), StandardCharsets.UTF_8));
+        assertNull(store.get(released.hash, released.size));
+
+        kept.release();
+        kept.release(); // No-op
+        store.sweep();
+        assertTrue(objects(store).isEmpty());
+    }
+
+    @Test
+    void anotherPinKeepsTheContentAfterTheFirstIsReleased() throws IOException {
+        BackupStore store = open(0, HOUR_MS);
+        Backup first = store.put(bytes("content"));
+        Backup second = first.pin();
+        first.release();
+        store.sweep();
+        assertEquals("content", new String(second.readAllBytes(), StandardCharsets.UTF_8));
+
+        second.release();
+        store.sweep();
+        assertTrue(objects(store).isEmpty());
+        assertThrows(IllegalStateException.class, first::pin);
+        assertSame(BackupStore.absent(), BackupStore.absent().pin());
+    }
+
+    @Test
+    void sweepDeletesExpiredObjectsThenTheOldestOverTheCap() throws IOException {
+        BackupStore store = open(20, HOUR_MS);
+        long now = System.currentTimeMillis();
+        Backup expired = unpinned(store, "expired-01", now - 2 * HOUR_MS);
+        Backup oldest = unpinned(store, "oldest-001", now - 30 * 60 * 1000);
+        Backup older = unpinned(store, "older-0001", now - 20 * 60 * 1000);
+        Backup recent = unpinned(store, "recent-001", now - 10 * 60 * 1000);
+
+        store.sweep();
+        assertFalse(Files.exists(object(store, expired)));
+        assertFalse(Files.exists(object(store, oldest))); // 30 bytes left over the 20 byte cap
+        assertTrue(Files.exists(object(store, older)));
+        assertTrue(Files.exists(object(store, recent)));
+        assertEquals(20, store.getSizeBytes());
+    }
+
+    @Test
+    void expiredObjectsAreDeletedUnderTheCap() throws IOException {
+        BackupStore store = open(Long.MAX_VALUE, HOUR_MS);
+        long now = System.currentTimeMillis();
+        Backup expired = unpinned(store, "expired", now - 2 * HOUR_MS);
+        Backup recent = unpinned(store, "recent", now);
+        store.sweep();
+        assertFalse(Files.exists(object(store, expired)));
+        assertTrue(Files.exists(object(store, recent)));
+    }
+
+    @Test
+    void gettingStoredContentPinsAndRefreshesIt() throws IOException {
+        BackupStore store = open(Long.MAX_VALUE, HOUR_MS);
+        Backup backup = unpinned(store, "content", System.currentTimeMillis() - 2 * HOUR_MS);
+        Backup again = store.get(backup.hash, backup.size);
+        assertNotNull(again);
+        store.sweep();
+        assertTrue(Files.exists(object(store, again)));
+    }
+
+    @Test
+    void aDirectoryInUseIsNotShared() throws IOException {
+        BackupStore first = open(0, HOUR_MS);
+        BackupStore second = open(0, HOUR_MS);
+        assertNotEquals(first.getRoot(), second.getRoot());
+        assertEquals(first.getRoot().resolve("instance-1"), second.getRoot());
+
+        Backup pinned = first.put(bytes("pinned by the first store"));
+        second.sweep();
+        assertTrue(Files.exists(object(first, pinned)));
+
+        first.close();
+        assertEquals(first.getRoot(), open(0, HOUR_MS).getRoot()); // Free again
+    }
+
+    @Test
+    void sweepKeepsTheLockFile() throws IOException {
+        BackupStore store = open(0, HOUR_MS);
+        Path lock = store.getRoot().resolve(".lock");
+        Files.setLastModifiedTime(lock, FileTime.fromMillis(System.currentTimeMillis() - 2 * HOUR_MS));
+        store.sweep();
+        assertTrue(Files.exists(lock));
+    }
+
+    @Test
+    void absentBackupReadsAsEmpty() throws IOException {
+        Backup absent = BackupStore.absent();
+        assertTrue(absent.isAbsent());
+        assertTrue(absent.isEmpty());
+        assertEquals(0, absent.readAllBytes().length);
+        absent.release();
+    }
+
+    /**
+     * @return a released backup whose object was last used at the given time
+     */
+    private Backup unpinned(BackupStore store, String content, long lastUsedMs) throws IOException {
+        Backup backup = store.put(bytes(content));
+        backup.release();
+        Files.setLastModifiedTime(object(store, backup), FileTime.fromMillis(lastUsedMs));
+        return backup;
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Path object(BackupStore store, Backup backup) {
+        Path prefix = store.getRoot().resolve("objects").resolve(backup.hash.substring(0, 2));
+        Path compressed = prefix.resolve(backup.hash + ".gz");
+        return Files.exists(compressed) ? compressed : prefix.resolve(backup.hash);
+    }
+
+    private static boolean isCompressed(BackupStore store, Backup backup) {
+        return object(store, backup).getFileName().toString().endsWith(".gz");
+    }
+
+    private static List<Path> objects(BackupStore store) throws IOException {
+        Path objects = store.getRoot().resolve("objects");
+        if (!Files.isDirectory(objects)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(objects)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+}
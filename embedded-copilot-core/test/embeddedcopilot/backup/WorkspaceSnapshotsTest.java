@@ -0,0 +1,198 @@
+package embeddedcopilot.backup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import embeddedcopilot.diff.ContentHash;
+import embeddedcopilot.metrics.Counter;
+import embeddedcopilot.metrics.Metrics;
+
+class WorkspaceSnapshotsTest {
+
+    private static final long MAX_FILE_BYTES = 100;
+    private static final Counter HASHED = Metrics.counter("snapshot.hashed");
+
+    @TempDir
+    Path directory;
+
+    private Path project;
+    private BackupStore store;
+    private WorkspaceSnapshots snapshots;
+    private long time = System.currentTimeMillis() - 60 * 60 * 1000; // Old enough for timestamps to be trusted
+
+    @BeforeEach
+    void open() throws IOException {
+        project = Files.createDirectories(directory.resolve("project"));
+        store = new BackupStore(directory.resolve("backups"), 0, 60 * 60 * 1000, 1024); // Sweeps all unpinned content
+        snapshots = new WorkspaceSnapshots(store, project, Set.of("target"), MAX_FILE_BYTES, 2);
+    }
+
+    @AfterEach
+    void close() {
+        snapshots.close();
+        store.close();
+    }
+
+    @Test
+    void rollbackRestoresChangedAndDeletedFilesAndDeletesNewOnes() throws IOException {
+        write("changed.txt", "before");
+        write("deleted.txt", "deleted");
+        write("dir/same.txt", "same");
+        WorkspaceSnapshots.Snapshot snapshot = snapshots.take("start");
+        assertEquals(3, snapshot.getFileCount());
+
+        write("changed.txt", "after");
+        Files.delete(project.resolve("deleted.txt"));
+        write("dir/new.txt", "new");
+        List<String> changed = snapshots.rollback(snapshot);
+
+        assertEquals(Set.of("changed.txt", "deleted.txt", Path.of("dir", "new.txt").toString()), Set.copyOf(changed));
+        assertEquals("before", read("changed.txt"));
+        assertEquals("deleted", read("deleted.txt"));
+        assertEquals("same", read("dir/same.txt"));
+        assertFalse(Files.exists(project.resolve("dir/new.txt")));
+    }
+
+    @Test
+    void unchangedFilesAreNotReadAgain() throws IOException {
+        write("a.txt", "a");
+        write("b.txt", "b");
+        long hashed = HASHED.get();
+        snapshots.take("first");
+        assertEquals(2, HASHED.get() - hashed);
+
+        snapshots.take("second");
+        assertEquals(2, HASHED.get() - hashed);
+
+        write("b.txt", "changed");
+        snapshots.take("third");
+        assertEquals(3, HASHED.get() - hashed);
+    }
+
+    @Test
+    void recentlyModifiedFilesAreReadAgain() throws IOException {
+        Files.writeString(project.resolve("racy.txt"), "racy"); // Modified now
+        long hashed = HASHED.get();
+        snapshots.take("first");
+        snapshots.take("second");
+        assertEquals(2, HASHED.get() - hashed);
+    }
+
+    @Test
+    void skippedFilesAreNotDeleted() throws IOException {
+        write("large.txt", "x".repeat((int) MAX_FILE_BYTES + 1));
+        write("target/output.txt", "excluded");
+        WorkspaceSnapshots.Snapshot snapshot = snapshots.take("start");
+        assertEquals(0, snapshot.getFileCount());
+
+        write("large.txt", "small now"); // Under the limit, so the rollback walk sees it
+        write("target/new.txt", "excluded");
+        assertTrue(snapshots.rollback(snapshot).isEmpty());
+        assertEquals("small now", read("large.txt"));
+        assertTrue(Files.exists(project.resolve("target/new.txt")));
+    }
+
+    @Test
+    void droppedContentIsReleased() throws IOException {
+        write("file.txt", "one");
+        WorkspaceSnapshots.Snapshot first = snapshots.take("first");
+        write("file.txt", "two");
+        snapshots.take("second");
+        write("file.txt", "three");
+        snapshots.take("third"); // Only two are kept
+        assertFalse(snapshots.getSnapshots().contains(first));
+        assertThrows(IllegalStateException.class, () -> snapshots.rollback(first));
+
+        store.sweep();
+        assertFalse(isStored("one"));
+        assertTrue(isStored("two"));
+        assertTrue(isStored("three"));
+
+        snapshots.close();
+        store.sweep();
+        assertFalse(isStored("two"));
+        assertFalse(isStored("three"));
+        assertNull(snapshots.take("closed"));
+    }
+
+    @Test
+    void sharedContentStaysPinnedWhileAnySnapshotUsesIt() throws IOException {
+        write("file.txt", "kept");
+        snapshots.take("first");
+        write("other.txt", "other");
+        WorkspaceSnapshots.Snapshot second = snapshots.take("second");
+        write("other.txt", "changed");
+        snapshots.take("third"); // Drops the first; "kept" is still in the others
+
+        store.sweep();
+        assertTrue(isStored("kept"));
+        assertNotNull(second);
+        snapshots.rollback(second);
+        assertEquals("other", read("other.txt"));
+    }
+
+    @Test
+    void givenContentsReplaceTheFilesOwn() throws IOException {
+        write("shown.txt", "combined diff text");
+        write("other.txt", "other");
+        BackupStore.Backup clean = store.put(bytes("clean"));
+        WorkspaceSnapshots.Snapshot snapshot = snapshots.take("diff shown",
+            Map.of(project.resolve("shown.txt").toString(), clean));
+        clean.release(); // The snapshot holds its own pin
+        store.sweep();
+
+        long hashed = HASHED.get();
+        snapshots.take("next"); // The file doesn't hold the recorded content, so it's read again
+        assertEquals(1, HASHED.get() - hashed);
+
+        snapshots.rollback(snapshot);
+        assertEquals("clean", read("shown.txt"));
+        assertEquals("other", read("other.txt"));
+    }
+
+    /**
+     * Writes a file with a distinct modification time well before the scan
+     */
+    private void write(String relative, String content) throws IOException {
+        Path file = project.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        time += 1000;
+        Files.setLastModifiedTime(file, FileTime.fromMillis(time));
+    }
+
+    private String read(String relative) throws IOException {
+        return Files.readString(project.resolve(relative));
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private boolean isStored(String content) {
+        byte[] bytes = bytes(content);
+        BackupStore.Backup backup = store.get(ContentHash.of(bytes), bytes.length);
+        if (backup != null) {
+            backup.release();
+        }
+        return backup != null;
+    }
+}
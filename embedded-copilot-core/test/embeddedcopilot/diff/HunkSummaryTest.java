@@ -0,0 +1,112 @@
+package embeddedcopilot.diff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Hunk parsing of the diff command's output (needs diff on the PATH, like the plugin)
+ */
+class HunkSummaryTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Line 3 changed, lines 6-7 removed, two lines added after line 9
+     */
+    private HunkSummary changeRemoveAdd() throws Exception {
+        return summarize("l1\nl2\nl3\nl4\nl5\nl6\nl7\nl8\nl9\nl10\n",
+                         "l1\nl2\nX3\nl4\nl5\nl8\nl9\nN1\nN2\nl10\n");
+    }
+
+    @Test
+    void hunksAreParsedInFileOrder() throws Exception {
+        HunkSummary summary = changeRemoveAdd();
+        assertEquals(3, summary.totalHunks);
+        assertEquals(3, summary.hunks.size());
+        assertEquals(3, summary.added);
+        assertEquals(3, summary.removed);
+        assertFalse(summary.isTruncated());
+        assertEquals("3 hunks, +3 -3 lines", summary.format());
+
+        HunkSummary.Hunk changed = summary.hunks.get(0);
+        assertEquals(3, changed.beforeStart);
+        assertEquals(1, changed.beforeCount);
+        assertEquals(3, changed.afterStart);
+        assertEquals(1, changed.afterCount);
+        assertEquals("line 3 (+1 -1)", changed.format());
+
+        HunkSummary.Hunk removed = summary.hunks.get(1);
+        assertEquals(6, removed.beforeStart);
+        assertEquals(2, removed.beforeCount);
+        assertEquals(5, removed.afterStart);
+        assertEquals(0, removed.afterCount);
+        assertEquals("after line 5 (-2)", removed.format());
+
+        HunkSummary.Hunk added = summary.hunks.get(2);
+        assertEquals(0, added.beforeCount);
+        assertEquals(8, added.afterStart);
+        assertEquals(2, added.afterCount);
+        assertEquals("lines 8-9 (+2 -0)", added.format());
+    }
+
+    @Test
+    void hunksAreShownAtTheirFirstNewLine() throws Exception {
+        HunkSummary summary = changeRemoveAdd();
+        assertEquals(2, summary.hunks.get(0).firstAfterLine());
+        assertEquals(5, summary.hunks.get(1).firstAfterLine()); // The line after the removal
+        assertEquals(7, summary.hunks.get(2).firstAfterLine());
+    }
+
+    @Test
+    void firstHunkFromSkipsHunksEndingBeforeTheLine() throws Exception {
+        HunkSummary summary = changeRemoveAdd();
+        assertEquals(0, summary.firstHunkFrom(0));
+        assertEquals(0, summary.firstHunkFrom(2));
+        assertEquals(1, summary.firstHunkFrom(3));
+        assertEquals(1, summary.firstHunkFrom(5));
+        assertEquals(2, summary.firstHunkFrom(6));
+        assertEquals(2, summary.firstHunkFrom(8));
+        assertEquals(3, summary.firstHunkFrom(9));
+    }
+
+    @Test
+    void onlyAddedAndChangedLinesAreMarked() throws Exception {
+        HunkSummary summary = changeRemoveAdd();
+        boolean[] expected = { false, false, true, false, false, false, false, true, true, false };
+        for (int line = 0; line < expected.length; line++) {
+            assertEquals(expected[line], summary.isAddedLine(line), "Line " + line);
+        }
+    }
+
+    @Test
+    void identicalFilesHaveNoHunks() throws Exception {
+        HunkSummary summary = summarize("a\nb\n", "a\nb\n");
+        assertTrue(summary.hunks.isEmpty());
+        assertEquals(0, summary.firstHunkFrom(0));
+        assertFalse(summary.isAddedLine(0));
+        assertEquals("0 hunks, +0 -0 lines", summary.format());
+    }
+
+    @Test
+    void largeFileThreshold() {
+        assertFalse(HunkSummary.isLarge(HunkSummary.LARGE_FILE_BYTES - 1));
+        assertTrue(HunkSummary.isLarge(HunkSummary.LARGE_FILE_BYTES));
+    }
+
+    private HunkSummary summarize(String before, String after) throws Exception {
+        return HunkSummary.compute(write("before.txt", before), write("after.txt", after));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content);
+    }
+}
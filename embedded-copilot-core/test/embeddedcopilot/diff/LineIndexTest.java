@@ -0,0 +1,129 @@
+package embeddedcopilot.diff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LineIndexTest {
+
+    @Test
+    void offsetsOfEveryLine() {
+        LineIndex index = LineIndex.of("ab\n\ncd");
+        assertEquals(3, index.lineCount());
+        assertEquals(6, index.length());
+
+        assertEquals(0, index.lineStart(0));
+        assertEquals(2, index.lineEnd(0));
+        assertEquals(3, index.lineEndWithNewline(0));
+
+        assertEquals(3, index.lineStart(1));
+        assertEquals(3, index.lineEnd(1));
+        assertEquals(4, index.lineEndWithNewline(1));
+
+        assertEquals(4, index.lineStart(2));
+        assertEquals(6, index.lineEnd(2));
+        assertEquals(6, index.lineEndWithNewline(2)); // No newline after the last line
+        assertEquals("cd", index.line(2));
+    }
+
+    @Test
+    void trailingNewlineStartsAnEmptyLine() {
+        LineIndex index = LineIndex.of("a\r\nb\n");
+        assertArrayEquals(new String[] { "a\r", "b", "" }, index.lines());
+        assertEquals(5, index.lineStart(2));
+        assertEquals(5, index.lineEnd(2));
+        assertEquals(1, LineIndex.of("").lineCount());
+    }
+
+    @Test
+    void offsetToLine() {
+        LineIndex index = LineIndex.of("ab\n\ncd");
+        assertEquals(0, index.lineAt(0));
+        assertEquals(0, index.lineAt(2)); // A '\n' belongs to the line it ends
+        assertEquals(1, index.lineAt(3));
+        assertEquals(2, index.lineAt(4));
+        assertEquals(2, index.lineAt(6));
+
+        assertEquals(0, index.firstLineAtOrAfter(0));
+        assertEquals(1, index.firstLineAtOrAfter(1));
+        assertEquals(1, index.firstLineAtOrAfter(3));
+        assertEquals(2, index.firstLineAtOrAfter(4));
+        assertEquals(3, index.firstLineAtOrAfter(5));
+    }
+
+    @Test
+    void linesMatchSplit() {
+        Random random = new Random(3);
+        for (int round = 0; round < 1000; round++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(30);
+            for (int i = 0; i < length; i++) {
+                text.append("ab \n\r".charAt(random.nextInt(5)));
+            }
+            String content = text.toString();
+            LineIndex index = LineIndex.of(content);
+            String[] expected = content.split("\n", -1);
+            assertArrayEquals(expected, index.lines(), content);
+            int offset = 0;
+            for (int line = 0; line < expected.length; line++) {
+                assertEquals(offset, index.lineStart(line));
+                for (int i = 0; i <= expected[line].length(); i++) {
+                    assertEquals(line, index.lineAt(offset + i));
+                }
+                offset += expected[line].length() + 1;
+            }
+        }
+    }
+
+    @Test
+    void trimmedLookupFindsLinesInOrder() {
+        LineIndex index = LineIndex.of("  foo\nbar\nfoo  \n\tfoo\t\nfood");
+        assertEquals(0, index.firstWithTrimmed("foo", 0));
+        assertEquals(2, index.firstWithTrimmed("foo", 1));
+        assertEquals(3, index.nextWithTrimmed(2, "foo"));
+        assertEquals(-1, index.nextWithTrimmed(3, "foo"));
+        assertEquals(-1, index.firstWithTrimmed("foo", 4));
+        assertEquals(-1, index.firstWithTrimmed("baz", 0));
+        assertEquals(4, index.firstWithTrimmed("food", 0));
+
+        assertTrue(index.countWithTrimmedAtMost("foo") >= 3);
+        assertTrue(index.trimmedEquals(3, "foo"));
+        assertFalse(index.trimmedEquals(4, "foo"));
+        assertEquals("foo".hashCode(), index.trimmedHash(0));
+        assertEquals("".hashCode(), LineIndex.of("  \n").trimmedHash(0));
+    }
+
+    @Test
+    void trimmedLookupMatchesTrim() {
+        Random random = new Random(4);
+        String[] texts = { "a", " a", "a\t", "b", " ", "", "ab", "a b" };
+        for (int round = 0; round < 200; round++) {
+            int count = 1 + random.nextInt(40);
+            String[] lines = new String[count];
+            for (int i = 0; i < count; i++) {
+                lines[i] = texts[random.nextInt(texts.length)];
+            }
+            LineIndex index = LineIndex.of(String.join("\n", lines));
+            for (String text : texts) {
+                String trimmed = text.trim();
+                int expected = -1;
+                int found = index.firstWithTrimmed(trimmed, 0);
+                for (int line = 0; line < count; line++) {
+                    if (!lines[line].trim().equals(trimmed)) {
+                        continue;
+                    }
+                    assertEquals(line, found, "Line with \"" + trimmed + "\"");
+                    found = index.nextWithTrimmed(line, trimmed);
+                    expected = line;
+                }
+                assertEquals(-1, found);
+                assertTrue(expected < 0 || index.countWithTrimmedAtMost(trimmed) > 0);
+            }
+        }
+    }
+}
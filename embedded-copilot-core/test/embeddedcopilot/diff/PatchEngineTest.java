@@ -0,0 +1,154 @@
+package embeddedcopilot.diff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * PatchEngine against SearchReplaceDiff, the port of Cline's constructNewFileContentV1: both must agree
+ * on every patch, apart from the documented end-of-file case.
+ */
+class PatchEngineTest {
+
+    private static final String[] LINES = { "a", "b", "  a", "c  ", "\td", "e", "", "x y", "=======", "------- SEARCH" };
+
+    @Test
+    void exactMatchIsReplaced() {
+        String patch = "------- SEARCH\nb\n=======\nB\n+++++++ REPLACE\n";
+        PatchEngine.Result result = PatchEngine.apply(patch, "a\nb\nc\n");
+        assertEquals("a\nB\nc\n", result.content);
+        assertEquals(1, result.replacements.size());
+        assertEquals(2, result.replacements.get(0).start);
+        assertEquals(4, result.replacements.get(0).end);
+    }
+
+    @Test
+    void whitespaceDifferencesFallBackToTrimmedLines() {
+        String patch = "------- SEARCH\nfoo()\n  bar()\n=======\nbaz()\n+++++++ REPLACE\n";
+        assertEquals("x\nbaz()\ny\n", PatchEngine.apply(patch, "x\n    foo()\n\tbar()  \ny\n").content);
+    }
+
+    @Test
+    void blocksMayComeOutOfOrder() {
+        String patch = "------- SEARCH\nc\n=======\nC\n+++++++ REPLACE\n" +
+                       "------- SEARCH\na\n=======\nA\n+++++++ REPLACE\n";
+        assertEquals("A\nb\nC\n", PatchEngine.apply(patch, "a\nb\nc\n").content);
+    }
+
+    @Test
+    void partialPayloadAppliesWhatHasArrived() {
+        String patch = "------- SEARCH\nb\n=======\nB1\nB2";
+        assertEquals("a\nB1\nB2\nc\n", PatchEngine.apply(patch, "a\nb\nc\n").content);
+    }
+
+    @Test
+    void unmatchedBlockIsRejected() {
+        String patch = "------- SEARCH\nmissing\n=======\nx\n+++++++ REPLACE\n";
+        assertThrows(IllegalArgumentException.class, () -> PatchEngine.apply(patch, "a\nb\n"));
+    }
+
+    @Test
+    void fullContentIsNotAPatch() {
+        assertFalse(PatchEngine.isPatch("a\n======\nb\n"));
+        assertTrue(PatchEngine.isPatch("------- SEARCH\na\n=======\n"));
+        assertEquals("new\n", PatchEngine.proposedContent("new\n", LineIndex.of("old\n")));
+    }
+
+    /**
+     * A fallback match including the last line of a file without a trailing newline ends one character
+     * past the content in the port, which then fails; PatchEngine ends the match at the end of the content.
+     */
+    @Test
+    void matchOfTheLastLineWithoutNewlineEndsAtTheEnd() {
+        String original = "a\n  b";
+        String patch = "------- SEARCH\na\nb\n=======\nc\n+++++++ REPLACE\n";
+        assertThrows(StringIndexOutOfBoundsException.class,
+            () -> SearchReplaceDiff.constructNewFileContent(patch, original));
+        assertEquals("c\n", PatchEngine.apply(patch, original).content);
+    }
+
+    @Test
+    void randomPatchesMatchThePort() {
+        Random random = new Random(1);
+        int compared = 0;
+        for (int round = 0; round < 20_000; round++) {
+            String original = randomOriginal(random);
+            String patch = randomPatch(random);
+            String expected = null;
+            RuntimeException portError = null;
+            try {
+                expected = SearchReplaceDiff.constructNewFileContentV1(patch, original, true);
+            } catch (RuntimeException e) {
+                portError = e;
+            }
+            if (portError instanceof StringIndexOutOfBoundsException) {
+                continue; // The end-of-file case above
+            }
+            String actual = null;
+            RuntimeException engineError = null;
+            try {
+                actual = PatchEngine.apply(patch, original).content;
+            } catch (RuntimeException e) {
+                engineError = e;
+            }
+            if ((portError == null) != (engineError == null) || expected != null && !expected.equals(actual)) {
+                fail("Round " + round + " differs\noriginal:\n" + original + "\npatch:\n" + patch +
+                    "\nport: " + (portError != null ? portError : expected) +
+                    "\nengine: " + (engineError != null ? engineError : actual));
+            }
+            if (expected != null) {
+                compared++;
+            }
+        }
+        assertTrue(compared > 1000, "Too few patches applied: " + compared);
+    }
+
+    private static String randomOriginal(Random random) {
+        StringBuilder original = new StringBuilder();
+        int lines = random.nextInt(12);
+        for (int i = 0; i < lines; i++) {
+            original.append(LINES[random.nextInt(8)]);
+            if (i < lines - 1 || random.nextBoolean()) {
+                original.append('\n');
+            }
+        }
+        return original.toString();
+    }
+
+    /**
+     * One to three blocks, the last one sometimes unterminated or cut anywhere (a streaming payload)
+     */
+    private static String randomPatch(Random random) {
+        StringBuilder patch = new StringBuilder();
+        int blocks = 1 + random.nextInt(3);
+        for (int block = 0; block < blocks; block++) {
+            patch.append(random.nextInt(10) == 0 ? "<<<<<<< SEARCH\n" : "------- SEARCH\n");
+            int searchLines = 1 + random.nextInt(4);
+            for (int i = 0; i < searchLines; i++) {
+                patch.append(randomPatchLine(random)).append('\n');
+            }
+            patch.append("=======\n");
+            int replaceLines = random.nextInt(3);
+            for (int i = 0; i < replaceLines; i++) {
+                patch.append(randomPatchLine(random)).append('\n');
+            }
+            if (block < blocks - 1 || random.nextInt(3) > 0) {
+                patch.append(random.nextBoolean() ? "+++++++ REPLACE\n" : ">>>>>>> REPLACE>");
+            }
+        }
+        return random.nextInt(5) == 0 ? patch.substring(0, random.nextInt(patch.length() + 1)) : patch.toString();
+    }
+
+    /**
+     * Mostly file lines, sometimes a marker-like line
+     */
+    private static String randomPatchLine(Random random) {
+        return LINES[random.nextInt(random.nextInt(20) == 0 ? LINES.length : 8)];
+    }
+}
@@ -0,0 +1,133 @@
+package embeddedcopilot.diff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import embeddedcopilot.diff.LineDiff.CombinedLine;
+import embeddedcopilot.diff.LineDiff.CombinedLine.HighlightType;
+
+class TextEditsTest {
+
+    @Test
+    void equalTextsNeedNoEdit() {
+        assertTrue(TextEdits.compute(LineIndex.of("a\nb"), null, "a\nb").isEmpty());
+    }
+
+    @Test
+    void betweenReplacesOnlyTheMiddle() {
+        List<TextEdits.Replacement> edits = TextEdits.between("abcXYdef", "abcZdef");
+        assertEquals(1, edits.size());
+        assertEquals(3, edits.get(0).offset);
+        assertEquals(2, edits.get(0).length);
+        assertEquals("Z", edits.get(0).text);
+    }
+
+    @Test
+    void approvingDropsTheRemovedLines() {
+        String document = "keep\nold1\nold2\nnew\nend";
+        List<CombinedLine> combined = combined(HighlightType.NONE, HighlightType.REMOVED, HighlightType.REMOVED,
+            HighlightType.ADDED, HighlightType.NONE);
+        List<TextEdits.Replacement> edits = TextEdits.compute(LineIndex.of(document), combined, "keep\nnew\nend");
+        assertEquals(1, edits.size()); // One deletion for the run of removed lines
+        assertEquals("keep\nnew\nend", TextEdits.apply(document, edits));
+    }
+
+    @Test
+    void denyingDropsTheAddedLines() {
+        String document = "keep\nold\nnew1\nend\nnew2";
+        List<CombinedLine> combined = combined(HighlightType.NONE, HighlightType.REMOVED, HighlightType.ADDED,
+            HighlightType.NONE, HighlightType.ADDED);
+        List<TextEdits.Replacement> edits = TextEdits.compute(LineIndex.of(document), combined, "keep\nold\nend");
+        assertEquals(2, edits.size());
+        assertEquals("keep\nold\nend", TextEdits.apply(document, edits));
+    }
+
+    @Test
+    void staleCombinedLinesFallBackToOneReplacement() {
+        String document = "a\nb\nc";
+        List<CombinedLine> combined = combined(HighlightType.NONE, HighlightType.ADDED, HighlightType.NONE);
+        List<TextEdits.Replacement> edits = TextEdits.compute(LineIndex.of(document), combined, "a\nX\nc");
+        assertEquals(1, edits.size());
+        assertEquals("a\nX\nc", TextEdits.apply(document, edits));
+    }
+
+    @Test
+    void randomEditsRoundTrip() {
+        Random random = new Random(2);
+        for (int round = 0; round < 2000; round++) {
+            String before = randomText(random);
+            String after = random.nextInt(4) == 0 ? before : mutate(before, random);
+            List<TextEdits.Replacement> edits = TextEdits.compute(LineIndex.of(before), null, after);
+            assertEquals(after, TextEdits.apply(before, edits), before);
+            assertEquals(before.equals(after), edits.isEmpty());
+        }
+    }
+
+    @Test
+    void randomDecisionsRoundTrip() {
+        Random random = new Random(5);
+        for (int round = 0; round < 2000; round++) {
+            List<CombinedLine> combined = new ArrayList<>();
+            List<String> original = new ArrayList<>();
+            List<String> edited = new ArrayList<>();
+            int count = 1 + random.nextInt(8);
+            for (int i = 0; i < count; i++) {
+                HighlightType type = HighlightType.values()[random.nextInt(3)];
+                String line = type.name().charAt(0) + Integer.toString(i);
+                combined.add(new CombinedLine(line, type));
+                if (type != HighlightType.ADDED) {
+                    original.add(line);
+                }
+                if (type != HighlightType.REMOVED) {
+                    edited.add(line);
+                }
+            }
+            List<String> lines = new ArrayList<>();
+            for (CombinedLine line : combined) {
+                lines.add(line.content);
+            }
+            LineIndex document = LineIndex.of(String.join("\n", lines));
+            for (List<String> target : List.of(original, edited)) {
+                String content = String.join("\n", target);
+                assertEquals(content, TextEdits.apply(document.text(), TextEdits.compute(document, combined, content)));
+            }
+        }
+    }
+
+    private static List<CombinedLine> combined(HighlightType... types) {
+        List<CombinedLine> lines = new ArrayList<>();
+        for (HighlightType type : types) {
+            lines.add(new CombinedLine("", type));
+        }
+        return lines;
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(20);
+        for (int i = 0; i < length; i++) {
+            text.append("ab\n".charAt(random.nextInt(3)));
+        }
+        return text.toString();
+    }
+
+    private static String mutate(String text, Random random) {
+        StringBuilder mutated = new StringBuilder(text);
+        int changes = 1 + random.nextInt(3);
+        for (int i = 0; i < changes; i++) {
+            int at = random.nextInt(mutated.length() + 1);
+            if (random.nextBoolean() || at == mutated.length()) {
+                mutated.insert(at, "xy\n".charAt(random.nextInt(3)));
+            } else {
+                mutated.deleteCharAt(at);
+            }
+        }
+        return mutated.toString();
+    }
+}
@@ -0,0 +1,125 @@
+package embeddedcopilot.diff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import embeddedcopilot.diff.LineDiff.CombinedLine;
+import embeddedcopilot.diff.LineDiff.CombinedLine.HighlightType;
+
+class WordDiffTest {
+
+    @Test
+    void tokensAreWordsWhitespaceRunsAndSingleCharacters() {
+        // "foo_1", "(", "bar", ",", "  ", "2", ")"
+        assertArrayEquals(new int[] { 0, 5, 6, 9, 10, 12, 13, 14 }, WordDiff.tokenize("foo_1(bar,  2)"));
+        assertArrayEquals(new int[] { 0 }, WordDiff.tokenize(""));
+    }
+
+    @Test
+    void onlyTheChangedWordIsMarked() {
+        List<WordDiff.Range> ranges = compute(
+            line("int count = 1;", HighlightType.REMOVED),
+            line("int count = 42;", HighlightType.ADDED));
+        assertEquals(2, ranges.size());
+        assertRange(ranges.get(0), 0, 12, 13);
+        assertRange(ranges.get(1), 1, 12, 14);
+    }
+
+    @Test
+    void commonWordsInTheMiddleAreNotMarked() {
+        List<WordDiff.Range> ranges = compute(
+            line("a b c d", HighlightType.REMOVED),
+            line("a x c y", HighlightType.ADDED));
+        assertEquals(4, ranges.size());
+        assertRange(ranges.get(0), 0, 2, 3); // "b"
+        assertRange(ranges.get(1), 0, 6, 7); // "d"
+        assertRange(ranges.get(2), 1, 2, 3); // "x"
+        assertRange(ranges.get(3), 1, 6, 7); // "y"
+    }
+
+    @Test
+    void insertedWordsAreOnlyMarkedOnTheAddedLine() {
+        List<WordDiff.Range> ranges = compute(
+            line("call(a)", HighlightType.REMOVED),
+            line("call(a, b)", HighlightType.ADDED));
+        assertEquals(1, ranges.size());
+        assertRange(ranges.get(0), 1, 6, 9); // ", b"
+    }
+
+    @Test
+    void linesArePairedInOrderWithinAChange() {
+        List<WordDiff.Range> ranges = compute(
+            line("same", HighlightType.NONE),
+            line("x = 1", HighlightType.REMOVED),
+            line("y = 1", HighlightType.REMOVED),
+            line("x = 2", HighlightType.ADDED),
+            line("unpaired", HighlightType.REMOVED));
+        assertEquals(2, ranges.size());
+        assertRange(ranges.get(0), 1, 4, 5);
+        assertRange(ranges.get(1), 3, 4, 5); // y = 1 has no added line to pair with
+    }
+
+    @Test
+    void identicalAndUnrelatedLinesAreNotRefined() {
+        assertTrue(compute(line("same", HighlightType.REMOVED), line("same", HighlightType.ADDED)).isEmpty());
+        assertTrue(compute(line("abc", HighlightType.REMOVED), line("xyz", HighlightType.ADDED)).isEmpty());
+    }
+
+    @Test
+    void longLinesAreNotRefined() {
+        String longLine = "a".repeat(WordDiff.MAX_LINE_LENGTH) + " x";
+        assertTrue(compute(line(longLine, HighlightType.REMOVED),
+            line(longLine.replace('x', 'y'), HighlightType.ADDED)).isEmpty());
+    }
+
+    @Test
+    void middleOverTheTokenLimitIsMarkedWhole() {
+        String before = "same " + "a ".repeat(WordDiff.MAX_TOKENS);
+        String after = "same " + "b ".repeat(WordDiff.MAX_TOKENS);
+        List<WordDiff.Range> ranges = compute(line(before, HighlightType.REMOVED), line(after, HighlightType.ADDED));
+        assertEquals(2, ranges.size());
+        assertRange(ranges.get(0), 0, 5, before.length() - 1); // Between "same " and the final space
+        assertRange(ranges.get(1), 1, 5, after.length() - 1);
+    }
+
+    @Test
+    void pairsPerChangeAreLimited() {
+        int lines = WordDiff.MAX_PAIRS_PER_HUNK + 10;
+        List<CombinedLine> combined = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            combined.add(line("value " + i + " old", HighlightType.REMOVED));
+        }
+        for (int i = 0; i < lines; i++) {
+            combined.add(line("value " + i + " new", HighlightType.ADDED));
+        }
+        List<WordDiff.Range> ranges = WordDiff.compute(combined, () -> false);
+        assertEquals(2 * WordDiff.MAX_PAIRS_PER_HUNK, ranges.size());
+        assertTrue(ranges.stream().allMatch(range -> range.line % lines < WordDiff.MAX_PAIRS_PER_HUNK));
+    }
+
+    @Test
+    void cancellationStopsBeforeTheNextPair() {
+        List<CombinedLine> combined = List.of(line("x = 1", HighlightType.REMOVED), line("x = 2", HighlightType.ADDED));
+        assertTrue(WordDiff.compute(combined, () -> true).isEmpty());
+    }
+
+    private static List<WordDiff.Range> compute(CombinedLine... lines) {
+        return WordDiff.compute(List.of(lines), () -> false);
+    }
+
+    private static CombinedLine line(String content, HighlightType highlight) {
+        return new CombinedLine(content, highlight);
+    }
+
+    private static void assertRange(WordDiff.Range range, int line, int start, int end) {
+        assertEquals(line, range.line, "line");
+        assertEquals(start, range.start, "start");
+        assertEquals(end, range.end, "end");
+    }
+}
@@ -0,0 +1,148 @@
+package embeddedcopilot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Ordering and coalescing of TaskCommandQueue, with CLI calls the test completes by hand
+ */
+class TaskCommandQueueTest {
+
+    private final List<String> started = new ArrayList<>();
+    private final List<CompletableFuture<String>> calls = new ArrayList<>();
+
+    /**
+     * @return a command recording that it started, whose CLI call completes when the test says so
+     */
+    private Supplier<CompletableFuture<String>> command(String name) {
+        return () -> {
+            started.add(name);
+            CompletableFuture<String> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        };
+    }
+
+    @Test
+    void commandsRunOneAtATimeInSubmissionOrder() {
+        TaskCommandQueue queue = new TaskCommandQueue();
+        CompletableFuture<String> first = queue.submit("first", command("first"));
+        CompletableFuture<String> second = queue.submit("second", command("second"));
+        CompletableFuture<String> third = queue.submit("third", command("third"));
+        assertEquals(List.of("first"), started);
+        assertEquals(2, queue.getPendingCount());
+
+        calls.get(0).complete("1");
+        assertEquals(List.of("first", "second"), started);
+        assertEquals("1", first.join());
+        calls.get(1).complete("2");
+        calls.get(2).complete("3");
+        assertEquals(List.of("first", "second", "third"), started);
+        assertEquals("2", second.join());
+        assertEquals("3", third.join());
+        assertTrue(queue.isIdle());
+        assertEquals(2, queue.getMaxDepth());
+    }
+
+    @Test
+    void nextCommandStartsBeforeTheResultIsHandedOut() {
+        TaskCommandQueue queue = new TaskCommandQueue();
+        List<String> seen = new ArrayList<>();
+        queue.submit("first", command("first")).thenRun(() -> seen.add("started: " + started));
+        queue.submit("second", command("second"));
+        calls.get(0).complete("1");
+        assertEquals(List.of("started: [first, second]"), seen);
+    }
+
+    @Test
+    void backToBackCommandsWithTheSameKeyAreMerged() {
+        TaskCommandQueue queue = new TaskCommandQueue();
+        queue.submit("running", "deny", command("running"));
+        CompletableFuture<String> queued = queue.submit("deny 1", "deny", command("deny 1"));
+        CompletableFuture<String> merged = queue.submit("deny 2", "deny", command("deny 2"));
+        assertSame(queued, merged);
+        assertEquals(1, queue.getPendingCount());
+        assertEquals(1, queue.getCoalescedCount());
+        assertEquals(3, queue.getSubmittedCount());
+
+        calls.get(0).complete("r");
+        calls.get(1).complete("d");
+        assertEquals(List.of("running", "deny 1"), started);
+        assertEquals("d", merged.join());
+    }
+
+    @Test
+    void commandsAreOnlyMergedWithTheLastQueuedOne() {
+        TaskCommandQueue queue = new TaskCommandQueue();
+        CompletableFuture<String> running = queue.submit("deny 1", "deny", command("deny 1"));
+        CompletableFuture<String> afterRunning = queue.submit("deny 2", "deny", command("deny 2"));
+        queue.submit("message", command("message"));
+        CompletableFuture<String> afterMessage = queue.submit("deny 3", "deny", command("deny 3"));
+        CompletableFuture<String> unkeyed = queue.submit("deny 4", command("deny 4"));
+        assertNotSame(running, afterRunning); // The running command is no longer in the queue
+        assertNotSame(afterRunning, afterMessage);
+        assertNotSame(afterMessage, unkeyed);
+        assertEquals(0, queue.getCoalescedCount());
+
+        for (int i = 0; i < 5; i++) {
+            calls.get(i).complete(Integer.toString(i));
+        }
+        assertEquals(List.of("deny 1", "deny 2", "message", "deny 3", "deny 4"), started);
+    }
+
+    @Test
+    void longRunOfCompletedCallsDoesNotGrowTheStack() {
+        TaskCommandQueue queue = new TaskCommandQueue();
+        queue.submit("first", command("first"));
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            int value = i;
+            results.add(queue.submit("completed " + i, () -> CompletableFuture.completedFuture(value)));
+        }
+        calls.get(0).complete("1");
+        // Before, the overflow was swallowed by the callbacks and the last result never completed
+        assertEquals(99_999, results.get(99_999).orTimeout(10, TimeUnit.SECONDS).join());
+        assertTrue(queue.isIdle());
+    }
+
+    @Test
+    void failedCommandDoesNotStopTheQueue() {
+        TaskCommandQueue queue = new TaskCommandQueue();
+        CompletableFuture<String> failing = queue.submit("failing", () -> {
+            throw new IllegalStateException("CLI not found");
+        });
+        CompletableFuture<String> next = queue.submit("next", command("next"));
+        CompletionException error = assertThrows(CompletionException.class, failing::join);
+        assertEquals(IllegalStateException.class, error.getCause().getClass());
+        calls.get(0).complete("ok");
+        assertEquals("ok", next.join());
+    }
+
+    @Test
+    void closeCancelsQueuedCommands() {
+        TaskCommandQueue queue = new TaskCommandQueue();
+        CompletableFuture<String> running = queue.submit("running", command("running"));
+        CompletableFuture<String> queued = queue.submit("queued", command("queued"));
+        queue.close();
+        assertThrows(CancellationException.class, queued::join);
+        assertThrows(CancellationException.class, () -> queue.submit("late", command("late")).join());
+
+        calls.get(0).complete("done");
+        assertEquals("done", running.join());
+        assertEquals(List.of("running"), started);
+        assertTrue(queue.isIdle());
+    }
+}
@@ -0,0 +1,78 @@
+package embeddedcopilot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TaskViewRecordingTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void pollsRoundTrip() throws IOException {
+        Path file;
+        try (TaskViewRecording.Writer writer = TaskViewRecording.Writer.create(directory)) {
+            file = writer.getFile();
+            writer.prompt("fix the build", true);
+            writer.beginPoll();
+            writer.line("a");
+            writer.line("b");
+            writer.endPoll(5);
+            writer.beginPoll();
+            writer.line("a");
+            writer.line("c");
+            writer.endPoll(7);
+        }
+        TaskViewRecording recording = TaskViewRecording.read(file);
+        List<TaskViewRecording.Entry> entries = recording.getEntries();
+        assertEquals(3, entries.size());
+        assertEquals("fix the build", entries.get(0).prompt);
+        assertTrue(entries.get(0).newChat);
+        assertEquals(List.of("a", "b"), entries.get(1).lines);
+        assertEquals(List.of("a", "c"), entries.get(2).lines); // "a" is stored once, as a kept line
+        assertEquals(7, entries.get(2).durationMs);
+        assertEquals(2, recording.getPollCount());
+    }
+
+    @Test
+    void truncatedPollKeepsTheCompleteEntries() throws IOException {
+        Path file = write("embedded-copilot-task-view 1\nP 0 5 0 1\na\nP 10 5 1 2\nb\n");
+        assertEquals(1, TaskViewRecording.read(file).getEntries().size());
+    }
+
+    @Test
+    void malformedEntriesAreReportedAsIOException() throws IOException {
+        for (String corrupt : new String[] {
+                "P 0 5 x 1\na\n",  // Count that doesn't parse
+                "P 0 5\n",         // Missing counts
+                "P 0 5 0 -1\n",    // Negative count
+                "P 0 5 3 0\n",     // More kept lines than the previous poll had
+                "N 1x 1 hello\n",  // Offset that doesn't parse
+                "X\n" }) {
+            Path file = write("embedded-copilot-task-view 1\n" + corrupt);
+            assertThrows(IOException.class, () -> TaskViewRecording.read(file), corrupt);
+        }
+        Path notARecording = write("something else\n");
+        assertThrows(IOException.class, () -> TaskViewRecording.read(notARecording));
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = Files.createTempFile(directory, "recording", TaskViewRecording.FILE_EXTENSION);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+}
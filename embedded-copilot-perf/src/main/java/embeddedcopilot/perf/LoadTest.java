@@ -0,0 +1,230 @@
+package embeddedcopilot.perf;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.metrics.Histogram;
+import embeddedcopilot.metrics.Metrics;
+import embeddedcopilot.service.ClineService;
+import embeddedcopilot.service.MessageProcessor.Message;
+import embeddedcopilot.service.TaskPollingService;
+import embeddedcopilot.service.TaskSession;
+import embeddedcopilot.testing.FakeCline;
+
+/**
+ * UI-less load test: several chat sessions run turns at the same time against FakeCline, through the
+ * same ClineService, TaskSession, command queue and poller the view uses. Asks are approved as soon as
+ * they arrive. Turn latency, time to first message and the plugin's own metrics are reported.
+ *
+ * Settings (system properties):
+ *   perf.load.sessions=4     concurrent sessions, each with its own instance
+ *   perf.load.turns=3        turns per session
+ *   perf.load.messages=200   model messages per turn
+ *   perf.load.rate=200       messages FakeCline releases per second
+ *   perf.load.askEvery=50    every Nth message is a tool ask (0 = never)
+ *   perf.load.toolOutput=2000  characters of each tool output
+ */
+public class LoadTest {
+
+    private static final Logger LOG = Log.get(LoadTest.class);
+
+    private static final long TURN_TIMEOUT_SECONDS = 120;
+
+    private static final Histogram TURN_TIME = Metrics.timer("load.turn");                 // Prompt sent -> completion seen
+    private static final Histogram FIRST_MESSAGE_TIME = Metrics.timer("load.firstMessage"); // Prompt sent -> first message polled
+
+    private final int sessions = Integer.getInteger("perf.load.sessions", 4);
+    private final int turns = Integer.getInteger("perf.load.turns", 3);
+    private final int messages = Integer.getInteger("perf.load.messages", 200);
+    private final int rate = Integer.getInteger("perf.load.rate", 200);
+    private final int askEvery = Integer.getInteger("perf.load.askEvery", 50);
+    private final int toolOutput = Integer.getInteger("perf.load.toolOutput", 2000);
+
+    private final AtomicInteger completedTurns = new AtomicInteger();
+    private final AtomicInteger failedTurns = new AtomicInteger();
+    private final AtomicInteger approvals = new AtomicInteger();
+    private final AtomicLong polledMessages = new AtomicLong();
+
+    private ClineService clineService;
+
+    /**
+     * Runs the load test with a fresh FakeCline state in the directory
+     *
+     * @return the results document (settings, totals and a metrics snapshot)
+     */
+    public JsonObject run(Path workDir) throws Exception {
+        Path home = workDir.resolve("fake-cline");
+        Files.createDirectories(home);
+        Path scenario = workDir.resolve("scenario.properties");
+        Files.writeString(scenario, "messages=" + messages + "\nratePerSecond=" + rate + "\naskEvery=" + askEvery +
+            "\ntoolOutputSize=" + toolOutput + "\n");
+
+        System.setProperty(ClineService.COMMAND_OVERRIDE_PROPERTY, fakeClineCommand(home, scenario));
+        clineService = new ClineService(workDir::toString, path -> null);
+        clineService.initialize();
+        Metrics.reset();
+
+        LOG.info("Load test: " + sessions + " sessions x " + turns + " turns, " + messages + " messages per turn at " +
+            rate + "/s");
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 1; i <= sessions; i++) {
+                int id = i;
+                running.add(executor.submit(() -> {
+                    runSession(id);
+                    return null;
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } finally {
+            clineService.shutdown();
+        }
+        long wallMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        JsonObject settings = new JsonObject();
+        settings.addProperty("sessions", sessions);
+        settings.addProperty("turns", turns);
+        settings.addProperty("messages", messages);
+        settings.addProperty("rate", rate);
+        settings.addProperty("askEvery", askEvery);
+        settings.addProperty("toolOutput", toolOutput);
+
+        JsonObject totals = new JsonObject();
+        totals.addProperty("wallMs", wallMs);
+        totals.addProperty("completedTurns", completedTurns.get());
+        totals.addProperty("failedTurns", failedTurns.get());
+        totals.addProperty("approvals", approvals.get());
+        totals.addProperty("messages", polledMessages.get());
+        totals.addProperty("messagesPerSecond", wallMs > 0 ? polledMessages.get() * 1000.0 / wallMs : 0);
+
+        JsonObject result = new JsonObject();
+        result.add("settings", settings);
+        result.add("totals", totals);
+        result.add("metrics", JsonParser.parseString(Metrics.snapshot().toJson()));
+        LOG.info("Load test finished in " + wallMs + "ms: " + completedTurns.get() + " turns, " + failedTurns.get() +
+            " failed, " + polledMessages.get() + " messages");
+        return result;
+    }
+
+    /**
+     * One chat: a dedicated instance, a new task, then follow-up messages
+     */
+    private void runSession(int id) throws Exception {
+        TaskSession session = new TaskSession(clineService);
+        try {
+            session.startInstance().get(TURN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            TaskPollingService polling = session.getPollingService();
+            for (int turn = 1; turn <= turns; turn++) {
+                String prompt = "Load test session " + id + ", turn " + turn;
+                long sentNanos = System.nanoTime();
+                session.getTurnAnalytics().startTurn(System.currentTimeMillis());
+                if (turn == 1) {
+                    session.enqueue("create task", () -> session.track(
+                        clineService.createTaskAsync(session.getInstanceAddress(), prompt)))
+                        .get(TURN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    polling.setLastPrompt(prompt);
+                } else {
+                    session.enqueueMessage(prompt).get(TURN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    polling.updatePrompt(prompt);
+                }
+                if (pollTurn(session, sentNanos)) {
+                    TURN_TIME.recordSince(sentNanos);
+                    completedTurns.incrementAndGet();
+                } else {
+                    failedTurns.incrementAndGet();
+                }
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Polls until the turn completes, approving asks on the way
+     *
+     * @return false if polling ended without a completion or timed out
+     */
+    private boolean pollTurn(TaskSession session, long sentNanos) throws Exception {
+        TaskPollingService polling = session.getPollingService();
+        AtomicLong firstMessage = new AtomicLong(0);
+        while (true) {
+            AtomicReference<Message> last = new AtomicReference<>();
+            CompletableFuture<Message> stopped = new CompletableFuture<>();
+            polling.startPolling(msg -> {
+                if (firstMessage.compareAndSet(0, System.nanoTime())) {
+                    FIRST_MESSAGE_TIME.record(firstMessage.get() - sentNanos);
+                }
+                polledMessages.incrementAndGet();
+                session.getTurnAnalytics().onMessage(msg, System.currentTimeMillis());
+                last.set(msg);
+            }, () -> stopped.complete(last.get()), null, null);
+
+            Message lastMessage;
+            try {
+                lastMessage = stopped.get(TURN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                polling.stopPolling();
+                LOG.warn("Turn timed out after " + TURN_TIMEOUT_SECONDS + "s");
+                return false;
+            }
+            String ask = lastMessage != null ? lastMessage.askType : null;
+            if ("completion_result".equals(ask)) {
+                return true;
+            }
+            if (!"tool".equals(ask) && !"command".equals(ask)) {
+                LOG.warn("Polling stopped without a completion (last ask: " + ask + ")");
+                return false;
+            }
+            session.enqueueAskResponse(true, "").get(TURN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            session.getTurnAnalytics().approvalResolved(System.currentTimeMillis());
+            approvals.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the command override running FakeCline from this JVM's classes (paths must not contain spaces)
+     */
+    private static String fakeClineCommand(Path home, Path scenario) throws Exception {
+        Path classes = Paths.get(FakeCline.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        return java + " -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -Dfakecline.home=" + home +
+            " -Dfakecline.scenario=" + scenario + " -cp " + classes + " " + FakeCline.class.getName();
+    }
+
+    /**
+     * Runs the load test alone: LoadTest [work directory], writing load-test.json there
+     */
+    public static void main(String[] args) throws Exception {
+        Path workDir = args.length > 0 ? Paths.get(args[0]) : Files.createTempDirectory("embedded-copilot-load");
+        Files.createDirectories(workDir);
+        JsonObject result = new LoadTest().run(workDir);
+        Path file = workDir.resolve("load-test.json");
+        PerfSuite.writeJson(file, result);
+        System.out.println("[LoadTest] Wrote " + file);
+        System.exit(failedTurnsIn(result) > 0 ? 1 : 0);
+    }
+
+    static int failedTurnsIn(JsonObject result) {
+        return result.getAsJsonObject("totals").get("failedTurns").getAsInt();
+    }
+}
@@ -0,0 +1,148 @@
+package embeddedcopilot.perf;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares the summaries of two PerfSuite runs, e.g. the previous and the current commit.
+ *
+ * A summary's "metrics" object maps each metric name to its value, unit and direction:
+ *   "LineDiffBenchmark.parseDiffOutput[changeEvery=20,size=1MB]": { "value": 812.4, "unit": "us/op", "better": "lower" }
+ *   "load.turn.p90":                                              { "value": 2.1E9, "unit": "ns", "better": "lower" }
+ * A metric regresses when it moves in the wrong direction by more than the threshold percentage.
+ *
+ * Usage: PerfCompare <baseline run dir or summary.json> <current run dir or summary.json> [threshold %]
+ * Exits with status 1 if anything regressed.
+ */
+public class PerfCompare {
+
+    public static final String SUMMARY_FILE = "summary.json";
+
+    private static final String LOWER = "lower";
+    private static final String HIGHER = "higher";
+
+    /**
+     * Plugin timings that depend on the code rather than on FakeCline's pacing or process start-up; p50 and p90 only,
+     * since a load test run has too few samples for a stable p99. All other metrics stay in load-test.json.
+     */
+    private static final List<String> COMPARED_TIMERS = List.of(
+        "load.turn", "load.firstMessage", "poll.latency", "poll.processMessage", "turn.displayLag");
+
+    /**
+     * Flattens JMH results and load test results into summary metrics
+     */
+    static JsonObject flatten(Path jmhFile, JsonObject loadTest) throws IOException {
+        Map<String, JsonObject> metrics = new TreeMap<>();
+        if (Files.exists(jmhFile)) {
+            JsonArray benchmarks = JsonParser.parseString(Files.readString(jmhFile)).getAsJsonArray();
+            for (JsonElement element : benchmarks) {
+                JsonObject benchmark = element.getAsJsonObject();
+                String name = benchmark.get("benchmark").getAsString();
+                name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1); // Class.method
+                if (benchmark.has("params")) {
+                    StringBuilder params = new StringBuilder();
+                    new TreeMap<>(benchmark.getAsJsonObject("params").asMap()).forEach((key, value) ->
+                        params.append(params.length() == 0 ? "" : ",").append(key).append('=').append(value.getAsString()));
+                    name += "[" + params + "]";
+                }
+                JsonObject primary = benchmark.getAsJsonObject("primaryMetric");
+                String better = "thrpt".equals(benchmark.get("mode").getAsString()) ? HIGHER : LOWER;
+                metrics.put(name, metric(primary.get("score").getAsDouble(), primary.get("scoreUnit").getAsString(), better));
+            }
+        }
+
+        JsonObject totals = loadTest.getAsJsonObject("totals");
+        metrics.put("load.messagesPerSecond", metric(totals.get("messagesPerSecond").getAsDouble(), "msg/s", HIGHER));
+        metrics.put("load.failedTurns", metric(totals.get("failedTurns").getAsDouble(), "turns", LOWER));
+        JsonObject histograms = loadTest.getAsJsonObject("metrics").getAsJsonObject("histograms");
+        for (String name : COMPARED_TIMERS) {
+            JsonObject histogram = histograms.getAsJsonObject(name);
+            if (histogram == null || histogram.get("count").getAsLong() == 0) {
+                continue;
+            }
+            metrics.put(name + ".p50", metric(histogram.get("p50").getAsDouble(), "ns", LOWER));
+            metrics.put(name + ".p90", metric(histogram.get("p90").getAsDouble(), "ns", LOWER));
+        }
+
+        JsonObject result = new JsonObject();
+        metrics.forEach(result::add);
+        return result;
+    }
+
+    private static JsonObject metric(double value, String unit, String better) {
+        JsonObject metric = new JsonObject();
+        metric.addProperty("value", value);
+        metric.addProperty("unit", unit);
+        metric.addProperty("better", better);
+        return metric;
+    }
+
+    /**
+     * @param path a run directory or a summary file
+     */
+    static JsonObject readSummary(Path path) throws IOException {
+        Path file = Files.isDirectory(path) ? path.resolve(SUMMARY_FILE) : path;
+        return JsonParser.parseString(Files.readString(file)).getAsJsonObject();
+    }
+
+    /**
+     * Prints every metric both summaries have, with its change
+     *
+     * @param thresholdPercent allowed change in the wrong direction
+     * @return number of regressed metrics
+     */
+    static int compare(JsonObject baseline, JsonObject current, double thresholdPercent, PrintStream out) {
+        JsonObject before = baseline.getAsJsonObject("metrics");
+        JsonObject after = current.getAsJsonObject("metrics");
+        out.println("Comparing " + baseline.get("commit").getAsString() + " -> " + current.get("commit").getAsString() +
+            " (threshold " + thresholdPercent + "%)");
+        int regressions = 0;
+        int compared = 0;
+        for (Map.Entry<String, JsonElement> entry : after.entrySet()) {
+            if (!before.has(entry.getKey())) {
+                continue;
+            }
+            compared++;
+            JsonObject metric = entry.getValue().getAsJsonObject();
+            double oldValue = before.getAsJsonObject(entry.getKey()).get("value").getAsDouble();
+            double newValue = metric.get("value").getAsDouble();
+            boolean lowerIsBetter = LOWER.equals(metric.get("better").getAsString());
+            double change = oldValue != 0 ? (newValue - oldValue) * 100 / oldValue : (newValue == 0 ? 0 : Double.POSITIVE_INFINITY);
+            double worse = lowerIsBetter ? change : -change; // Positive = got worse
+            String status;
+            if (worse > thresholdPercent) {
+                status = "REGRESSED";
+                regressions++;
+            } else if (worse < -thresholdPercent) {
+                status = "improved";
+            } else {
+                status = "ok";
+            }
+            out.println(String.format("  %-9s %-70s %14.3f -> %14.3f %-6s (%+.1f%%)", status, entry.getKey(), oldValue,
+                newValue, metric.get("unit").getAsString(), change));
+        }
+        out.println(compared + " metrics compared, " + regressions + " regressed");
+        return regressions;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PerfCompare <baseline run dir or summary.json> <current run dir or summary.json> [threshold %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 15;
+        int regressions = compare(readSummary(Paths.get(args[0])), readSummary(Paths.get(args[1])), threshold, System.out);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,158 @@
+package embeddedcopilot.perf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import embeddedcopilot.concurrent.PluginExecutors;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+
+/**
+ * The performance stage: runs the JMH suite and the load test and stores the results of the commit under
+ * test in a new directory of the results directory:
+ *
+ *   <perf.resultsDir>/<yyyyMMdd-HHmmss>-<commit>/
+ *     jmh.json         JMH's own JSON results
+ *     load-test.json   LoadTest results with a snapshot of the plugin metrics
+ *     summary.json     commit, environment and every metric flattened to name -> value (see PerfCompare)
+ *
+ * With -Dperf.baseline=<an earlier run directory> the run is compared against it and the process exits
+ * with status 1 when a metric got worse by more than perf.threshold percent.
+ *
+ * Settings (system properties): perf.resultsDir, perf.jmh.args (JMH command line, e.g. "-f 1 LineDiff"),
+ * perf.baseline, perf.threshold, perf.commit (defaults to `git rev-parse --short HEAD`) and the
+ * LoadTest settings.
+ */
+public class PerfSuite {
+
+    private static final Logger LOG = Log.get(PerfSuite.class);
+
+    public static void main(String[] args) throws Exception {
+        Path resultsDir = Paths.get(System.getProperty("perf.resultsDir", "perf-results"));
+        String commit = System.getProperty("perf.commit", "");
+        if (commit.isBlank()) {
+            commit = gitCommit();
+        }
+        Path runDir = resultsDir.resolve(new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + "-" + commit);
+        Files.createDirectories(runDir);
+        System.out.println("[PerfSuite] Writing results to " + runDir);
+
+        Path jmhFile = runDir.resolve("jmh.json");
+        runJmh(System.getProperty("perf.jmh.args", ""), jmhFile);
+
+        Path workDir = Files.createTempDirectory("embedded-copilot-load");
+        JsonObject loadTest;
+        try {
+            loadTest = new LoadTest().run(workDir);
+        } finally {
+            deleteRecursively(workDir);
+        }
+        writeJson(runDir.resolve("load-test.json"), loadTest);
+
+        JsonObject summary = new JsonObject();
+        summary.addProperty("commit", commit);
+        summary.addProperty("timestamp", Instant.now().toString());
+        summary.add("environment", environment());
+        summary.add("metrics", PerfCompare.flatten(jmhFile, loadTest));
+        writeJson(runDir.resolve(PerfCompare.SUMMARY_FILE), summary);
+        System.out.println("[PerfSuite] Wrote " + runDir.resolve(PerfCompare.SUMMARY_FILE));
+
+        int exitCode = 0;
+        String baseline = System.getProperty("perf.baseline", "");
+        if (!baseline.isBlank()) {
+            double threshold = Double.parseDouble(System.getProperty("perf.threshold", "15"));
+            int regressions = PerfCompare.compare(PerfCompare.readSummary(Paths.get(baseline)), summary, threshold, System.out);
+            exitCode = regressions > 0 ? 1 : 0;
+        }
+        Log.shutdown();
+        PluginExecutors.shutdown();
+        System.exit(exitCode);
+    }
+
+    /**
+     * Runs the benchmarks on the classpath (embedded-copilot-benchmarks) with JMH command line options
+     */
+    private static void runJmh(String jmhArgs, Path resultFile) throws Exception {
+        String trimmed = jmhArgs.trim();
+        CommandLineOptions commandLine = new CommandLineOptions(trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+"));
+        Options options = new OptionsBuilder()
+            .parent(commandLine)
+            .resultFormat(ResultFormatType.JSON)
+            .result(resultFile.toString())
+            .build();
+        LOG.info("Running JMH with: " + trimmed);
+        new Runner(options).run();
+    }
+
+    private static JsonObject environment() {
+        JsonObject environment = new JsonObject();
+        environment.addProperty("java", System.getProperty("java.version"));
+        environment.addProperty("vm", System.getProperty("java.vm.name"));
+        environment.addProperty("os", System.getProperty("os.name") + " " + System.getProperty("os.version"));
+        environment.addProperty("arch", System.getProperty("os.arch"));
+        environment.addProperty("cpus", Runtime.getRuntime().availableProcessors());
+        environment.addProperty("maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        return environment;
+    }
+
+    /**
+     * @return short hash of HEAD, suffixed with "-dirty" for uncommitted changes, or "unknown" without git
+     */
+    private static String gitCommit() {
+        try {
+            String hash = git("rev-parse", "--short", "HEAD");
+            if (hash.isEmpty()) {
+                return "unknown";
+            }
+            return git("status", "--porcelain", "--untracked-files=no").isEmpty() ? hash : hash + "-dirty";
+        } catch (IOException e) {
+            return "unknown";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "unknown";
+        }
+    }
+
+    private static String git(String... args) throws IOException, InterruptedException {
+        String[] command = new String[args.length + 1];
+        command[0] = "git";
+        System.arraycopy(args, 0, command, 1, args.length);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output;
+        try (InputStream in = process.getInputStream()) {
+            output = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        return process.waitFor() == 0 ? output : "";
+    }
+
+    static void writeJson(Path file, JsonElement json) throws IOException {
+        Files.writeString(file, new GsonBuilder().setPrettyPrinting().create().toJson(json) + "\n");
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            LOG.warn("Could not delete " + dir + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package embeddedcopilot;
+
+import java.net.URL;
+
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleActivator;
+import org.osgi.framework.BundleContext;
+
+import embeddedcopilot.concurrent.PluginExecutors;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.LogLevel;
+import embeddedcopilot.logging.Logger;
+
+/**
+ * Bundle activator - connects the OSGi-free core bundle to Eclipse (log location, error log, bundled
+ * resources), stops all background work and flushes the log when the plugin is stopped
+ */
+public class Activator implements BundleActivator {
+
+    private static final Logger LOG = Log.get(Activator.class);
+
+    private static volatile Bundle bundle = null;
+
+    @Override
+    public void start(BundleContext context) throws Exception {
+        bundle = context.getBundle();
+        try {
+            Log.setDefaultLogFile(Platform.getStateLocation(bundle).append("copilot.log").toFile());
+        } catch (Exception e) {
+            // No instance location (e.g. headless) - the log goes to the temp directory
+        }
+        ILog errorLog = Platform.getLog(bundle);
+        String bundleId = bundle.getSymbolicName();
+        Log.setErrorLog(record -> {
+            int severity = record.level == LogLevel.ERROR ? IStatus.ERROR : IStatus.WARNING;
+            errorLog.log(new Status(severity, bundleId, record.toConsoleLine(), record.error));
+        });
+        LOG.info("Embedded-copilot started"); // Only now - the log file is chosen by the first record
+    }
+
+    @Override
+    public void stop(BundleContext context) throws Exception {
+        LOG.info("Embedded-copilot stopping");
+        Log.setErrorLog(null);
+        Log.shutdown(); // Drain queued log records while the writer scope is still open
+        PluginExecutors.shutdown();
+        bundle = null;
+    }
+
+    /**
+     * Finds a file shipped in this bundle (e.g. "resources/standalone.zip")
+     *
+     * @return its URL, or null if it is missing or the bundle is not active
+     */
+    public static URL getBundleEntry(String path) {
+        Bundle current = bundle;
+        return current != null ? current.getEntry(path) : null;
+    }
+}
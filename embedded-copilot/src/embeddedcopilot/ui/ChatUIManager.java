@@ -13,16 +13,28 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Link;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonElement;
+import embeddedcopilot.diff.HunkSummary;
+import embeddedcopilot.jfr.UiRenderEvent;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.metrics.Histogram;
+import embeddedcopilot.metrics.Metrics;
+import embeddedcopilot.service.Changeset;
 import embeddedcopilot.service.MessageProcessor.Message;
+import embeddedcopilot.service.MessageFilter;
+import embeddedcopilot.service.MessageFilter.DisplayAction;
+import embeddedcopilot.service.MessageFilter.FilteredMessage;
 import embeddedcopilot.service.MessageProcessor;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -31,37 +43,46 @@ import java.util.regex.Pattern;
  */
 public class ChatUIManager {
 
+    private static final Logger LOG = Log.get(ChatUIManager.class);
+
+    private static final Histogram UI_QUEUE_DELAY = Metrics.timer("ui.queueDelay");        // asyncExec submit -> run
+    private static final Histogram LAYOUT_TIME = Metrics.timer("ui.layout");                // Chat re-layout + size computation
+    private static final Histogram RENDER_MESSAGE = Metrics.timer("ui.render.message");
+    private static final Histogram RENDER_UPDATE = Metrics.timer("ui.render.update");       // Streaming update of the last AI message
+    private static final Histogram RENDER_ASK = Metrics.timer("ui.render.ask");
+    private static final Histogram RENDER_HIDE_BUTTONS = Metrics.timer("ui.render.hideButtons");
+    private static final Histogram RENDER_CHANGESET = Metrics.timer("ui.render.changeset"); // Changeset review panel
+    private static final Histogram RENDER_HUNKS = Metrics.timer("ui.render.hunks");         // Large-file hunk summary
+
     private final Display display;
     private boolean debugMode = false; // Set to true to see all messages
-    private Long lastReasoningTimestamp = null; // Track reasoning start time
+    private static final String REASONING_TS_KEY = "lastReasoningTimestamp"; // Per-chat reasoning start time
 
     public ChatUIManager(Display display) {
         this.display = display;
     }
 
     /**
-     * Message display action after filtering
-     */
-    public enum DisplayAction {
-        SHOW,           // Display as regular message
-        SHOW_ASK,       // Display as ask message with approve/deny buttons
-        HIDE,           // Don't display
-        DEBUG_ONLY      // Only display if debugMode is enabled
-    }
-
-    /**
-     * Result of message filtering
+     * display.asyncExec that records how long the action waited in the UI queue and how long it ran
      */
-    public static class FilteredMessage {
-        public final DisplayAction action;
-        public final String displayText;
-        public final String rawJson;
-
-        public FilteredMessage(DisplayAction action, String displayText, String rawJson) {
-            this.action = action;
-            this.displayText = displayText;
-            this.rawJson = rawJson;
-        }
+    private void asyncExecTimed(Histogram renderTime, Runnable action) {
+        long queuedAt = System.nanoTime();
+        display.asyncExec(() -> {
+            UiRenderEvent event = new UiRenderEvent();
+            event.begin();
+            long start = System.nanoTime();
+            UI_QUEUE_DELAY.record(start - queuedAt);
+            try {
+                action.run();
+            } finally {
+                renderTime.recordSince(start);
+                if (event.shouldCommit()) {
+                    event.operation = renderTime.getName();
+                    event.queueDelay = start - queuedAt;
+                    event.commit();
+                }
+            }
+        });
     }
 
     /**
@@ -78,190 +99,7 @@ public class ChatUIManager {
      * @return FilteredMessage indicating what to do with this message
      */
     public FilteredMessage filterClineMessage(String jsonLine) {
-        try {
-            JsonObject json = JsonParser.parseString(jsonLine).getAsJsonObject();
-            
-            // Check if this is a "say" message
-            if (json.has("type") && "say".equals(json.get("type").getAsString())) {
-                return filterSayMessage(json);
-            }
-            
-            // Check if this is an "ask" message
-            if (json.has("type") && "ask".equals(json.get("type").getAsString())) {
-                return filterAskMessage(json);
-            }
-            
-            // Unknown message type - hide by default
-            return new FilteredMessage(DisplayAction.HIDE, null, jsonLine);
-            
-        } catch (Exception e) {
-            // If we can't parse it, hide it
-            System.err.println("[ChatUIManager] Failed to parse message: " + e.getMessage());
-            return new FilteredMessage(DisplayAction.HIDE, null, jsonLine);
-        }
-    }
-
-    /**
-     * Filters "say" type messages
-     */
-    private FilteredMessage filterSayMessage(JsonObject json) {
-        String say = json.has("say") ? json.get("say").getAsString() : "";
-        String text = json.has("text") ? json.get("text").getAsString() : "";
-        long timestamp = json.has("ts") ? json.get("ts").getAsLong() : 0;
-        
-        // Handle reasoning - just store timestamp
-        if ("reasoning".equals(say)) {
-            lastReasoningTimestamp = timestamp;
-            return new FilteredMessage(DisplayAction.HIDE, null, json.toString());
-        }
-        
-        switch (say) {
-            // Messages that should be displayed
-            case "text":
-                return new FilteredMessage(DisplayAction.SHOW, text, json.toString());
-            
-            case "error":
-                return new FilteredMessage(DisplayAction.SHOW, 
-                    "❌ Error: " + text, json.toString());
-            
-            case "completion_result":
-                return new FilteredMessage(DisplayAction.SHOW, 
-                    "✅ " + text, json.toString());
-            
-            // Task progress - show to user
-            case "task_progress":
-                return new FilteredMessage(DisplayAction.SHOW, 
-                    "📋 Task Progress:\n" + text, json.toString());
-            
-            // Command being executed - show to user
-            case "command":
-                return new FilteredMessage(DisplayAction.SHOW, 
-                    "⚡ Running: " + text, json.toString());
-            
-            // Messages that should be hidden (internal state)
-            case "user_feedback":
-            case "user_feedback_diff":
-            case "api_req_started":
-            case "api_req_finished":
-            case "api_req_retried":
-            case "command_output":
-            case "tool":
-            case "browser_action":
-            case "browser_action_launch":
-            case "shell_integration_warning":
-            case "inspect_site_result":
-            case "mcp_server_request_started":
-            case "checkpoint_created":  // Internal checkpoint tracking
-                return new FilteredMessage(DisplayAction.HIDE, null, json.toString());
-            
-            // Messages for debugging only
-            case "api_req_failed":
-            case "api_req_canceled":
-                String debugText = "⚠️ API Request Issue: " + text;
-                return new FilteredMessage(DisplayAction.DEBUG_ONLY, debugText, json.toString());
-            
-            // Unknown say type - hide by default
-            default:
-                System.out.println("[ChatUIManager] Unknown say type: " + say);
-                return new FilteredMessage(DisplayAction.DEBUG_ONLY, 
-                    "[" + say + "] " + text, json.toString());
-        }
-    }
-
-    /**
-     * Filters "ask" type messages
-     */
-    private FilteredMessage filterAskMessage(JsonObject json) {
-        String ask = json.has("ask") ? json.get("ask").getAsString() : "";
-        String text = json.has("text") ? json.get("text").getAsString() : "";
-        
-        switch (ask) {
-            // Ask messages that require user approval with buttons
-            case "tool":
-            case "command":
-            case "api_req_failed":
-            case "resume_task":
-            case "resume_completed_task":
-                // Extract tool information for display
-                String displayText = formatAskMessageForDisplay(json);
-                return new FilteredMessage(DisplayAction.SHOW_ASK, displayText, json.toString());
-            
-            // Completion result - simple acknowledgment (no buttons needed)
-            case "completion_result":
-                return new FilteredMessage(DisplayAction.SHOW, "✅ Task completed", json.toString());
-            
-            // Command output - show as regular message (no approve/deny buttons)
-            case "command_output":
-                // Show the output so user can see what's happening, but no buttons
-                return new FilteredMessage(DisplayAction.SHOW, text, json.toString());
-            
-            // Ask messages that should be hidden (handled internally)
-            case "request_limit_reached":
-            case "followup":
-                return new FilteredMessage(DisplayAction.HIDE, null, json.toString());
-            
-            // Unknown ask type - show for safety (better to ask than auto-approve)
-            default:
-                System.out.println("[ChatUIManager] Unknown ask type: " + ask);
-                return new FilteredMessage(DisplayAction.SHOW_ASK, text, json.toString());
-        }
-    }
-
-    /**
-     * Formats an ask message for user-friendly display
-     */
-    private String formatAskMessageForDisplay(JsonObject json) {
-        String ask = json.has("ask") ? json.get("ask").getAsString() : "";
-        String text = json.has("text") ? json.get("text").getAsString() : "";
-        
-        StringBuilder sb = new StringBuilder();
-        
-        switch (ask) {
-            case "tool":
-                sb.append("🔧 Tool Request\n\n");
-                if (json.has("tool")) {
-                    String toolName = json.get("tool").getAsString();
-                    sb.append("Tool: ").append(formatToolName(toolName)).append("\n");
-                }
-                if (json.has("path")) {
-                    sb.append("Path: ").append(json.get("path").getAsString()).append("\n");
-                }
-                if (!text.isEmpty()) {
-                    sb.append("\n").append(text);
-                }
-                break;
-            
-            case "command":
-                sb.append("⚡ Command Execution\n\n");
-                if (json.has("command")) {
-                    sb.append("Command: ").append(json.get("command").getAsString()).append("\n");
-                }
-                if (!text.isEmpty()) {
-                    sb.append("\n").append(text);
-                }
-                break;
-            
-            case "api_req_failed":
-                sb.append("⚠️ API Request Failed\n\n");
-                sb.append(text);
-                break;
-            
-            case "resume_task":
-                sb.append("🔄 Resume Task\n\n");
-                sb.append(text);
-                break;
-            
-            case "resume_completed_task":
-                sb.append("🔄 Resume Completed Task\n\n");
-                sb.append(text);
-                break;
-            
-            default:
-                sb.append(text);
-                break;
-        }
-        
-        return sb.toString();
+        return MessageFilter.filter(jsonLine);
     }
 
     /**
@@ -277,6 +115,8 @@ public class ChatUIManager {
             java.util.function.Consumer<Composite> onDeny) {
         
         FilteredMessage filtered = filterClineMessage(jsonLine);
+        trackReasoningTimestamp(chatComposite, jsonLine);
+        Long lastReasoningTimestamp = (Long) chatComposite.getData(REASONING_TS_KEY);
         
         // If we're about to show a message and there was recent reasoning, show thinking duration first
         if ((filtered.action == DisplayAction.SHOW || filtered.action == DisplayAction.SHOW_ASK) 
@@ -293,9 +133,9 @@ public class ChatUIManager {
                     addMessage(chatComposite, thinkingMsg, false);
                 }
             } catch (Exception e) {
-                System.err.println("[ChatUIManager] Error calculating reasoning duration: " + e.getMessage());
+                LOG.error("Error calculating reasoning duration: " + e.getMessage());
             }
-            lastReasoningTimestamp = null; // Reset after showing
+            chatComposite.setData(REASONING_TS_KEY, null); // Reset after showing
         }
         
         switch (filtered.action) {
@@ -319,6 +159,25 @@ public class ChatUIManager {
         }
     }
 
+    /**
+     * Remembers the timestamp of a reasoning message on its chat, so each tab
+     * computes its own "Thought for Ns" duration
+     */
+    private void trackReasoningTimestamp(Composite chatComposite, String jsonLine) {
+        if (!jsonLine.contains("\"reasoning\"")) {
+            return;
+        }
+        try {
+            JsonObject json = JsonParser.parseString(jsonLine).getAsJsonObject();
+            if (json.has("say") && "reasoning".equals(json.get("say").getAsString())) {
+                long timestamp = json.has("ts") ? json.get("ts").getAsLong() : 0;
+                chatComposite.setData(REASONING_TS_KEY, timestamp);
+            }
+        } catch (Exception e) {
+            // Unparseable messages are already hidden by filterClineMessage
+        }
+    }
+
     /**
      * Creates a chat composite with scrolling support
      * 
@@ -361,7 +220,7 @@ public class ChatUIManager {
      * @param isUser true if this is a user message, false if AI
      */
     public void addMessage(Composite chatComposite, String text, boolean isUser) {
-        display.asyncExec(() -> {
+        asyncExecTimed(RENDER_MESSAGE, () -> {
             addMessageSync(chatComposite, text, isUser);
         });
     }
@@ -373,7 +232,7 @@ public class ChatUIManager {
      * @param text the updated message text
      */
     public void updateLastAIMessage(Composite chatComposite, String text) {
-        display.asyncExec(() -> {
+        asyncExecTimed(RENDER_UPDATE, () -> {
             Composite chatContainer = (Composite) chatComposite.getData("chatContainer");
             Control[] children = chatContainer.getChildren();
 
@@ -393,6 +252,7 @@ public class ChatUIManager {
                 StyledText messageText = (StyledText) lastAssistantContainer.getData("messageText");
                 if (messageText != null && !messageText.isDisposed()) {
                     messageText.setText(text);
+                    long layoutStart = System.nanoTime();
                     lastAssistantContainer.layout(true, true);
                     Composite scrolled = (Composite) chatComposite.getData("scrolled");
                     if (scrolled instanceof ScrolledComposite) {
@@ -407,6 +267,7 @@ public class ChatUIManager {
 
                         int containerWidth = sc.getClientArea().width;
                         sc.setMinSize(chatContainer.computeSize(containerWidth, SWT.DEFAULT));
+                        LAYOUT_TIME.recordSince(layoutStart);
 
                         // Only auto-scroll if user was already at the bottom
                         if (wasAtBottom) {
@@ -490,9 +351,11 @@ public class ChatUIManager {
         int oldMaxScrollY = Math.max(0, oldContainerHeight - viewportHeight);
         boolean wasAtBottom = currentScrollY >= oldMaxScrollY - 10; // 10px threshold
 
+        long layoutStart = System.nanoTime();
         chatContainer.layout(true, true);
         int containerWidth = scrolled.getClientArea().width;
         scrolled.setMinSize(chatContainer.computeSize(containerWidth, SWT.DEFAULT));
+        LAYOUT_TIME.recordSince(layoutStart);
 
         // Only auto-scroll if user was already at the bottom
         if (wasAtBottom) {
@@ -604,7 +467,7 @@ public class ChatUIManager {
             try {
                 styledText.setStyleRange(style);
             } catch (Exception e) {
-                System.err.println("[ChatUIManager] Error applying style range: " + e.getMessage());
+                LOG.error("Error applying style range: " + e.getMessage());
             }
         }
 
@@ -769,7 +632,7 @@ public class ChatUIManager {
      * @param onDeny callback when deny button is clicked (receives message container)
      */
     public void addAskMessage(Composite chatComposite, String askJsonText, java.util.function.Consumer<Composite> onApprove, java.util.function.Consumer<Composite> onDeny) {
-        display.asyncExec(() -> {
+        asyncExecTimed(RENDER_ASK, () -> {
             ScrolledComposite scrolled = (ScrolledComposite) chatComposite.getData("scrolled");
             Composite chatContainer = (Composite) chatComposite.getData("chatContainer");
 
@@ -880,9 +743,11 @@ public class ChatUIManager {
             int oldMaxScrollY = Math.max(0, oldContainerHeight - viewportHeight);
             boolean wasAtBottom = currentScrollY >= oldMaxScrollY - 10; // 10px threshold
 
+            long layoutStart = System.nanoTime();
             chatContainer.layout(true, true);
             int containerWidth = scrolled.getClientArea().width;
             scrolled.setMinSize(chatContainer.computeSize(containerWidth, SWT.DEFAULT));
+            LAYOUT_TIME.recordSince(layoutStart);
 
             // Only auto-scroll if user was already at the bottom
             if (wasAtBottom) {
@@ -896,11 +761,39 @@ public class ChatUIManager {
         });
     }
 
+    /**
+     * Adds a turn's latency breakdown as a small line under the turn (not a message bubble, so
+     * streaming updates of the last AI message never overwrite it)
+     */
+    public void addTurnSummary(Composite chatComposite, String summary) {
+        asyncExecTimed(RENDER_MESSAGE, () -> {
+            ScrolledComposite scrolled = (ScrolledComposite) chatComposite.getData("scrolled");
+            Composite chatContainer = (Composite) chatComposite.getData("chatContainer");
+            if (chatContainer == null || chatContainer.isDisposed()) {
+                return;
+            }
+
+            Label summaryLabel = new Label(chatContainer, SWT.WRAP);
+            summaryLabel.setData("role", "turnSummary");
+            summaryLabel.setText(summary);
+            summaryLabel.setForeground(display.getSystemColor(SWT.COLOR_DARK_GRAY));
+            summaryLabel.setBackground(display.getSystemColor(SWT.COLOR_WHITE));
+            GridData summaryData = new GridData(SWT.FILL, SWT.CENTER, true, false);
+            summaryData.widthHint = 0;
+            summaryLabel.setLayoutData(summaryData);
+
+            long layoutStart = System.nanoTime();
+            chatContainer.layout(true, true);
+            scrolled.setMinSize(chatContainer.computeSize(scrolled.getClientArea().width, SWT.DEFAULT));
+            LAYOUT_TIME.recordSince(layoutStart);
+        });
+    }
+
     /**
      * Hides the approve/deny buttons in an ask message
      */
     public void hideAskButtons(Composite askMessageContainer) {
-        display.asyncExec(() -> {
+        asyncExecTimed(RENDER_HIDE_BUTTONS, () -> {
             Object buttonContainerObj = askMessageContainer.getData("buttonContainer");
             if (buttonContainerObj instanceof Composite) {
                 Composite buttonContainer = (Composite) buttonContainerObj;
@@ -910,6 +803,228 @@ public class ChatUIManager {
         });
     }
 
+    /**
+     * Shows or updates the review panel of a changeset: one row per edited file with its status and
+     * approve/deny buttons once its diff is shown, plus approve/deny for all of them. The panel is added
+     * under the chat the first time and updated in place afterwards.
+     *
+     * @param onApprove callback with the changes to approve
+     * @param onDeny callback with the changes to deny
+     * @param onOpen callback with the path of a file to bring to the front
+     */
+    public void showChangesetReview(Composite chatComposite, Changeset changeset,
+            java.util.function.Consumer<List<Changeset.FileChange>> onApprove,
+            java.util.function.Consumer<List<Changeset.FileChange>> onDeny,
+            java.util.function.Consumer<String> onOpen) {
+        asyncExecTimed(RENDER_CHANGESET, () -> {
+            ScrolledComposite scrolled = (ScrolledComposite) chatComposite.getData("scrolled");
+            Composite chatContainer = (Composite) chatComposite.getData("chatContainer");
+            if (chatContainer == null || chatContainer.isDisposed()) {
+                return;
+            }
+            List<Changeset.FileChange> changes = changeset.changes();
+            List<Changeset.FileChange> ready = changeset.ready();
+
+            Composite panel = null;
+            for (Control child : chatContainer.getChildren()) {
+                if (child.getData("changeset") == changeset) {
+                    panel = (Composite) child;
+                }
+            }
+            if (panel == null) {
+                if (changes.isEmpty()) {
+                    return;
+                }
+                panel = new Composite(chatContainer, SWT.BORDER);
+                panel.setData("role", "changeset");
+                panel.setData("changeset", changeset);
+                GridLayout panelLayout = new GridLayout(1, false);
+                panelLayout.marginWidth = 12;
+                panelLayout.marginHeight = 10;
+                panelLayout.verticalSpacing = 6;
+                panel.setLayout(panelLayout);
+                panel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+                Color panelColor = new Color(display, 240, 245, 255);
+                panel.setBackground(panelColor);
+                panel.addDisposeListener(e -> panelColor.dispose());
+            }
+            for (Control child : panel.getChildren()) {
+                child.dispose();
+            }
+            Color panelColor = panel.getBackground();
+
+            Label header = new Label(panel, SWT.WRAP);
+            header.setText("Changes in this turn: " + changes.size() + (changes.size() == 1 ? " file" : " files") +
+                (ready.isEmpty() ? "" : ", " + ready.size() + " to review"));
+            header.setBackground(panelColor);
+            header.setForeground(display.getSystemColor(SWT.COLOR_DARK_GRAY));
+            GridData headerData = new GridData(SWT.FILL, SWT.CENTER, true, false);
+            headerData.widthHint = 0;
+            header.setLayoutData(headerData);
+
+            for (Changeset.FileChange change : changes) {
+                boolean reviewable = change.getStatus() == Changeset.Status.READY;
+                Composite row = new Composite(panel, SWT.NONE);
+                GridLayout rowLayout = new GridLayout(reviewable ? 4 : 2, false);
+                rowLayout.marginWidth = 0;
+                rowLayout.marginHeight = 0;
+                row.setLayout(rowLayout);
+                row.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+                row.setBackground(panelColor);
+
+                Link fileLink = new Link(row, SWT.NONE);
+                fileLink.setText("<a>" + change.filePath.replace("&", "&&") + "</a>");
+                fileLink.setBackground(panelColor);
+                GridData fileData = new GridData(SWT.FILL, SWT.CENTER, true, false);
+                fileData.widthHint = 0;
+                fileLink.setLayoutData(fileData);
+                fileLink.addSelectionListener(new SelectionAdapter() {
+                    @Override
+                    public void widgetSelected(SelectionEvent e) {
+                        onOpen.accept(change.filePath);
+                    }
+                });
+
+                Label statusLabel = new Label(row, SWT.NONE);
+                statusLabel.setText(formatChangeStatus(change.getStatus()));
+                statusLabel.setBackground(panelColor);
+                statusLabel.setForeground(display.getSystemColor(SWT.COLOR_DARK_GRAY));
+
+                if (reviewable) {
+                    createReviewButton(row, "Approve", 76, 175, 80, 80, () -> onApprove.accept(List.of(change)));
+                    createReviewButton(row, "Deny", 244, 67, 54, 80, () -> onDeny.accept(List.of(change)));
+                }
+            }
+
+            if (ready.size() > 1) {
+                Composite allButtons = new Composite(panel, SWT.NONE);
+                GridLayout allLayout = new GridLayout(2, false);
+                allLayout.marginWidth = 0;
+                allLayout.marginHeight = 0;
+                allLayout.horizontalSpacing = 10;
+                allButtons.setLayout(allLayout);
+                allButtons.setLayoutData(new GridData(SWT.RIGHT, SWT.CENTER, false, false));
+                allButtons.setBackground(panelColor);
+                createReviewButton(allButtons, "Approve All", 76, 175, 80, 100, () -> onApprove.accept(ready));
+                createReviewButton(allButtons, "Deny All", 244, 67, 54, 100, () -> onDeny.accept(ready));
+            }
+
+            long layoutStart = System.nanoTime();
+            chatContainer.layout(true, true);
+            scrolled.setMinSize(chatContainer.computeSize(scrolled.getClientArea().width, SWT.DEFAULT));
+            LAYOUT_TIME.recordSince(layoutStart);
+        });
+    }
+
+    /**
+     * Adds the summary of a large file's diff: its size in hunks and lines, with previous/next buttons
+     * stepping through the hunks
+     *
+     * @param onReveal called with the index of the hunk to show (UI thread)
+     */
+    public void addHunkSummary(Composite chatComposite, String filePath, HunkSummary summary, IntConsumer onReveal) {
+        asyncExecTimed(RENDER_HUNKS, () -> {
+            ScrolledComposite scrolled = (ScrolledComposite) chatComposite.getData("scrolled");
+            Composite chatContainer = (Composite) chatComposite.getData("chatContainer");
+            if (chatContainer == null || chatContainer.isDisposed()) {
+                return;
+            }
+
+            Composite panel = new Composite(chatContainer, SWT.BORDER);
+            panel.setData("role", "hunkSummary");
+            GridLayout panelLayout = new GridLayout(3, false);
+            panelLayout.marginWidth = 12;
+            panelLayout.marginHeight = 10;
+            panelLayout.verticalSpacing = 6;
+            panel.setLayout(panelLayout);
+            panel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+            Color panelColor = new Color(display, 255, 248, 235);
+            panel.setBackground(panelColor);
+            panel.addDisposeListener(e -> panelColor.dispose());
+
+            Label header = new Label(panel, SWT.WRAP);
+            header.setText("Large file " + filePath + ": " + summary.format());
+            header.setBackground(panelColor);
+            header.setForeground(display.getSystemColor(SWT.COLOR_DARK_GRAY));
+            GridData headerData = new GridData(SWT.FILL, SWT.CENTER, true, false, 3, 1);
+            headerData.widthHint = 0;
+            header.setLayoutData(headerData);
+
+            if (!summary.hunks.isEmpty()) {
+                Button previous = new Button(panel, SWT.PUSH);
+                previous.setText("◀ Previous");
+                Button next = new Button(panel, SWT.PUSH);
+                next.setText("Next ▶");
+                Label position = new Label(panel, SWT.NONE);
+                position.setBackground(panelColor);
+                position.setForeground(display.getSystemColor(SWT.COLOR_DARK_GRAY));
+                position.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+
+                int[] current = { -1 };
+                Runnable show = () -> {
+                    HunkSummary.Hunk hunk = summary.hunks.get(current[0]);
+                    position.setText("Hunk " + (current[0] + 1) + " of " + summary.hunks.size() + ": " + hunk.format());
+                    previous.setEnabled(current[0] > 0);
+                    next.setEnabled(current[0] < summary.hunks.size() - 1);
+                    panel.layout(true, true);
+                    onReveal.accept(current[0]);
+                };
+                previous.setEnabled(false);
+                previous.addSelectionListener(new SelectionAdapter() {
+                    @Override
+                    public void widgetSelected(SelectionEvent e) {
+                        current[0]--;
+                        show.run();
+                    }
+                });
+                next.addSelectionListener(new SelectionAdapter() {
+                    @Override
+                    public void widgetSelected(SelectionEvent e) {
+                        current[0]++;
+                        show.run();
+                    }
+                });
+            }
+
+            long layoutStart = System.nanoTime();
+            chatContainer.layout(true, true);
+            scrolled.setMinSize(chatContainer.computeSize(scrolled.getClientArea().width, SWT.DEFAULT));
+            LAYOUT_TIME.recordSince(layoutStart);
+        });
+    }
+
+    private static String formatChangeStatus(Changeset.Status status) {
+        switch (status) {
+            case PENDING: return "Computing diff...";
+            case READY: return "Ready for review";
+            case APPROVED: return "✓ Approved";
+            case DENIED: return "✗ Denied";
+            default: return "Not reviewed";
+        }
+    }
+
+    /**
+     * Push button in the approve/deny style (colored background, white text)
+     */
+    private Button createReviewButton(Composite parent, String text, int red, int green, int blue, int width, Runnable onClick) {
+        Button button = new Button(parent, SWT.PUSH);
+        button.setText(text);
+        Color background = new Color(display, red, green, blue);
+        button.setBackground(background);
+        button.setForeground(display.getSystemColor(SWT.COLOR_WHITE));
+        GridData buttonData = new GridData(SWT.CENTER, SWT.CENTER, false, false);
+        buttonData.widthHint = width;
+        button.setLayoutData(buttonData);
+        button.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent e) {
+                onClick.run();
+            }
+        });
+        button.addDisposeListener(e -> background.dispose());
+        return button;
+    }
+
     /**
      * Adds a message from MessageProcessor
      */
@@ -930,18 +1045,11 @@ public class ChatUIManager {
     private String formatToolAskMessage(String toolJsonText) {
         try {
             JsonObject toolObj = JsonParser.parseString(toolJsonText).getAsJsonObject();
-            return formatAskMessageForDisplay(toolObj);
+            return MessageFilter.formatAskMessageForDisplay(toolObj);
         } catch (Exception e) {
             // If parsing fails, return a simple message
             return "Tool operation";
         }
     }
 
-    /**
-     * Formats tool names to be more readable
-     */
-    private String formatToolName(String toolName) {
-        // Convert camelCase to Title Case
-        return toolName.replaceAll("([a-z])([A-Z])", "$1 $2");
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,1562 @@
+package embeddedcopilot.ui;
+
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.ISelectionService;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.ide.IDE;
+import org.eclipse.ui.part.FileEditorInput;
+import org.eclipse.ui.texteditor.ITextEditor;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IRewriteTarget;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.eclipse.ui.IEditorInput;
+import org.eclipse.ui.texteditor.IDocumentProvider;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.TextViewer;
+import org.eclipse.jface.text.ITextViewerExtension5;
+import org.eclipse.jface.text.source.ISourceViewer;
+import org.eclipse.jface.text.source.SourceViewer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.jface.text.TextPresentation;
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Dialog;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.events.PaintListener;
+import org.eclipse.swt.custom.LineBackgroundListener;
+import embeddedcopilot.backup.BackupStore;
+import embeddedcopilot.backup.BackupStore.Backup;
+import embeddedcopilot.concurrent.ExecutionScope;
+import embeddedcopilot.concurrent.PluginExecutors;
+import embeddedcopilot.concurrent.WorkCategory;
+import embeddedcopilot.diff.DiffCache;
+import embeddedcopilot.diff.FileText;
+import embeddedcopilot.diff.HunkSummary;
+import embeddedcopilot.diff.LineDiff.CombinedLine;
+import embeddedcopilot.diff.LineIndex;
+import embeddedcopilot.diff.PatchEngine;
+import embeddedcopilot.diff.TextEdits;
+import embeddedcopilot.diff.WordDiff;
+import embeddedcopilot.jfr.DiffComputeEvent;
+import embeddedcopilot.jfr.HighlightEvent;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.metrics.Histogram;
+import embeddedcopilot.metrics.Metrics;
+import embeddedcopilot.service.ClineService;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service for Eclipse project-related operations
+ */
+public class ProjectService {
+
+    private static final Logger LOG = Log.get(ProjectService.class);
+
+    private static final Histogram DIFF_TIME = Metrics.timer("diff.compute");           // Diff + combined content
+    private static final Histogram HIGHLIGHT_TIME = Metrics.timer("diff.highlight");    // Style ranges + paint listener (UI thread)
+    private static final Histogram FILE_READ_TIME = Metrics.timer("file.read");
+    private static final Histogram FILE_WRITE_TIME = Metrics.timer("file.write");
+    private static final Histogram FILE_BYTES = Metrics.histogram("file.bytes", Histogram.Unit.BYTES);
+    private static final Histogram PATCH_TIME = Metrics.timer("diff.patch");            // Proposed content from an ask payload
+    private static final Histogram WORD_DIFF_TIME = Metrics.timer("diff.words");        // Changed words of the highlighted lines
+    private static final Histogram DOCUMENT_APPLY_TIME = Metrics.timer("diff.apply");   // Restore through an editor's document
+
+    private static final long PROPOSED_WRITE_POLL_MS = 50;      // How often to check whether Cline wrote a proposed edit
+    private static final long PROPOSED_WRITE_TIMEOUT_MS = 5000; // Then diff whatever is on disk
+
+    /**
+     * State for tracking active diff highlights in editors
+     */
+    private static class DiffHighlightState {
+        final List<CombinedLine> combined;
+        final String documentText;
+        volatile StyleRange[] styleRanges;             // Line highlights, replaced once the changed words are known
+        final StyleRange[] originalSyntaxHighlighting; // Store original syntax highlighting
+        final Color greenBg;
+        final Color greenFg;
+        final Color redBg;
+        final Color redFg;
+        final Color greenWordBg;                       // Changed words within an added line
+        final Color redWordBg;                         // Changed words within a removed line
+        PaintListener paintListener;
+        volatile boolean isReapplying = false; // Flag to prevent infinite recursion
+        volatile boolean disposed = false;     // Stops the word diff once the highlights are gone
+
+        DiffHighlightState(List<CombinedLine> combined, String documentText, StyleRange[] originalSyntaxHighlighting,
+                          Color greenBg, Color greenFg, Color redBg, Color redFg, Color greenWordBg, Color redWordBg) {
+            this.combined = combined;
+            this.documentText = documentText;
+            this.originalSyntaxHighlighting = originalSyntaxHighlighting;
+            this.greenBg = greenBg;
+            this.greenFg = greenFg;
+            this.redBg = redBg;
+            this.redFg = redFg;
+            this.greenWordBg = greenWordBg;
+            this.redWordBg = redWordBg;
+        }
+
+        /**
+         * Disposes the colors and cancels the pending word diff (UI thread)
+         */
+        void dispose() {
+            disposed = true;
+            greenBg.dispose();
+            greenFg.dispose();
+            redBg.dispose();
+            redFg.dispose();
+            greenWordBg.dispose();
+            redWordBg.dispose();
+        }
+    }
+
+    /**
+     * State of a large file's diff editor: the file is shown as Cline wrote it and the added lines of its
+     * hunks get a line background as they are painted
+     */
+    private static class HunkHighlightState {
+        final HunkSummary summary;
+        StyledText styledText;                  // Set once the highlights are installed
+        LineBackgroundListener backgroundListener;
+        Color addedBg;
+
+        HunkHighlightState(HunkSummary summary) {
+            this.summary = summary;
+        }
+
+        /**
+         * Removes the line backgrounds and disposes the color (UI thread)
+         */
+        void dispose() {
+            if (styledText != null && !styledText.isDisposed()) {
+                styledText.removeLineBackgroundListener(backgroundListener);
+                styledText.redraw();
+            }
+            styledText = null;
+            if (addedBg != null) {
+                addedBg.dispose();
+                addedBg = null;
+            }
+        }
+    }
+
+    /**
+     * Map to track active diff editors with their highlight state
+     * Key: ITextEditor, Value: DiffHighlightState
+     */
+    private final Map<ITextEditor, DiffHighlightState> activeDiffEditors = new HashMap<>();
+    private final Map<ITextEditor, HunkHighlightState> hunkEditors = new HashMap<>(); // Large files (UI thread)
+
+    private final ExecutionScope diffScope = PluginExecutors.newScope("DiffComputation", WorkCategory.DIFF);
+    private final ExecutionScope diskScope = PluginExecutors.newScope("ProjectFiles", WorkCategory.DISK_IO);
+
+    /**
+     * Stops pending diff computations (call when the owning view is disposed)
+     */
+    public void dispose() {
+        diffScope.close();
+        diskScope.close();
+    }
+
+    /**
+     * Gets the root directory of the currently selected project,
+     * or the first project in the workspace as fallback
+     * 
+     * @return the project root directory path, or null if no project found
+     */
+    public String getProjectRootDirectory() {
+        try {
+            IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+            if (window != null) {
+                ISelectionService service = window.getSelectionService();
+                ISelection selection = service.getSelection();
+                
+                if (selection instanceof IStructuredSelection) {
+                    Object element = ((IStructuredSelection) selection).getFirstElement();
+
+                    IProject project = null;
+                    if (element instanceof IResource) {
+                        project = ((IResource) element).getProject();
+                    } else if (element instanceof IAdaptable) {
+                        IResource resource = ((IAdaptable) element).getAdapter(IResource.class);
+                        if (resource != null) {
+                            project = resource.getProject();
+                        }
+                    }
+
+                    if (project != null) {
+                        return project.getLocation().toOSString();
+                    }
+                }
+            }
+
+            IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
+            if (projects.length > 0) {
+                return projects[0].getLocation().toOSString();
+            }
+        } catch (Exception e) {
+            LOG.warn("Error getting project root: " + e.getMessage(), e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Refreshes the package explorer to reflect file system changes
+     */
+    public void refreshPackageExplorer() {
+        try {
+            IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
+            IProgressMonitor monitor = new NullProgressMonitor();
+            for (IProject project : projects) {
+                if (project.isOpen()) {
+                    project.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+                }
+            }
+            LOG.debug("Refreshed package explorer");
+        } catch (CoreException e) {
+            LOG.warn("Error refreshing package explorer: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Saves the clean edited version (Cline's actual edits before inserting removed lines).
+     * This is needed for the APPROVE flow - we restore this version when user approves.
+     *
+     * @param filePath the relative path to the file
+     * @param cleanContent the clean content after Cline's edits (no removed lines inserted)
+     * @param charset the file's charset
+     * @return the backup containing the clean version
+     */
+    private Backup saveCleanEditedVersion(String filePath, String cleanContent, Charset charset) throws Exception {
+        long writeStart = System.nanoTime();
+        Backup cleanBackup = BackupStore.shared().put(FileText.encode(cleanContent, charset));
+        FILE_WRITE_TIME.recordSince(writeStart);
+        LOG.debug(() -> "Saved clean edited version of " + filePath + ": " + cleanBackup.hash);
+        return cleanBackup;
+    }
+
+    /**
+     * Saves a backup of the current file before Cline applies changes.
+     * The file is streamed into the backup store; unchanged content is stored only once.
+     *
+     * @param filePath the relative path to the file
+     * @return the backup, BackupStore.absent() if the file doesn't exist (new file), or null on error
+     */
+    public Backup saveBackup(String filePath) {
+        try {
+            String projectRoot = getProjectRootDirectory();
+            if (projectRoot == null) {
+                LOG.error("Cannot save backup: no project root found");
+                return null;
+            }
+
+            // Get the full file path
+            File file = new File(projectRoot, filePath);
+            if (!file.exists()) {
+                // New file - denying its creation deletes it
+                LOG.debug(() -> "New file, no backup needed: " + filePath);
+                return BackupStore.absent();
+            }
+
+            long writeStart = System.nanoTime();
+            Backup backup = BackupStore.shared().put(file.toPath());
+            FILE_WRITE_TIME.recordSince(writeStart);
+            FILE_BYTES.record(backup.size);
+            LOG.debug(() -> "Created backup of " + filePath + ": " + backup.hash);
+
+            return backup;
+        } catch (Exception e) {
+            LOG.error("Error saving backup: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Callback interface for diff view - receives editor and BOTH backup files
+     */
+    @FunctionalInterface
+    public interface DiffViewCallback {
+        void accept(IEditorPart editor, Backup originalBackup, Backup cleanEditedBackup);
+    }
+
+    /**
+     * Shows a diff view by comparing the backup file with the current (modified) file.
+     * Cline has already applied the changes, so we compute the diff and show highlights.
+     * NEW SIMPLIFIED VERSION - uses single diff computation with line number offsets.
+     * CRITICAL FIX: Maintains TWO backups for proper approve/deny handling.
+     *
+     * @param filePath the relative path to the file being edited
+     * @param originalBackup the backup file with original content (for DENY)
+     * @param onEditorOpened callback invoked with editor and BOTH backups
+     */
+    public void showDiffViewFromBackup(String filePath, Backup originalBackup, DiffViewCallback onEditorOpened) {
+        Display display = PlatformUI.getWorkbench().getDisplay();
+        // Steps 1-6 (file reads and diff computation) run off the UI thread; the rest needs it
+        diffScope.run(() -> {
+            try {
+                // 1. Find the workspace file (its charset decodes both versions)
+                IFile workspaceFile = findWorkspaceFile(filePath);
+                if (workspaceFile == null || !workspaceFile.exists()) {
+                    LOG.warn("File not found after Cline applied changes: " + filePath);
+                    return;
+                }
+                Charset charset = charsetOf(workspaceFile);
+
+                // Large files are summarized by hunk instead (see HunkSummary)
+                java.nio.file.Path afterPath = workspaceFile.getLocation() != null
+                    ? workspaceFile.getLocation().toFile().toPath() : null;
+                if (afterPath != null && HunkSummary.isLarge(
+                        Math.max(Files.size(afterPath), originalBackup != null ? originalBackup.size : 0))) {
+                    showLargeDiff(display, filePath, workspaceFile, afterPath, originalBackup, onEditorOpened);
+                    return;
+                }
+
+                // 2. Read original backup content (before any edits)
+                String beforeContent = readBackup(originalBackup, charset);
+
+                // 3. Read clean edited content (after Cline's edits, BEFORE we insert removed lines)
+                long readStart = System.nanoTime();
+                String afterContent = readWorkspaceFileContent(workspaceFile, charset);
+                FILE_READ_TIME.recordSince(readStart);
+                FILE_BYTES.record(afterContent.length());
+
+                // 4. SAVE THE CLEAN EDITED VERSION - needed for APPROVE
+                Backup cleanEditedBackup = saveCleanEditedVersion(filePath, afterContent, charset);
+                LOG.debug("Saved clean edited backup for approve flow");
+
+                // 5-6. Diff and combined content
+                DiffView view = computeDiffView(filePath, LineIndex.of(beforeContent), LineIndex.of(afterContent), charset);
+
+                display.asyncExec(() -> openDiffEditor(display, filePath, workspaceFile, view, originalBackup,
+                    cleanEditedBackup, onEditorOpened));
+            } catch (Exception e) {
+                LOG.error("Error showing diff view from backup: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Large-file variant of showDiffViewFromBackup (diff thread): the file stays as Cline wrote it and is
+     * never read into memory - it is stored as the clean version and diffed on disk, keeping only the hunks.
+     * The editor highlights the added lines as they are painted; removed lines are only counted.
+     */
+    private void showLargeDiff(Display display, String filePath, IFile workspaceFile, java.nio.file.Path afterPath,
+                               Backup originalBackup, DiffViewCallback onEditorOpened) throws Exception {
+        long writeStart = System.nanoTime();
+        Backup cleanEditedBackup = BackupStore.shared().put(afterPath);
+        FILE_WRITE_TIME.recordSince(writeStart);
+        FILE_BYTES.record(cleanEditedBackup.size);
+
+        HunkSummary summary;
+        java.nio.file.Path before = Files.createTempFile("diff_before_", ".txt"); // Empty for a new file
+        try {
+            if (originalBackup != null) {
+                originalBackup.copyTo(before);
+            }
+            long diffStart = System.nanoTime();
+            summary = HunkSummary.compute(before, afterPath);
+            DIFF_TIME.recordSince(diffStart);
+        } catch (Exception e) {
+            cleanEditedBackup.release();
+            throw e;
+        } finally {
+            Files.deleteIfExists(before);
+        }
+        LOG.info("Large file " + filePath + " (" + cleanEditedBackup.size / 1024 + " KB): " + summary.format());
+
+        display.asyncExec(() -> openLargeDiffEditor(display, filePath, workspaceFile, summary, originalBackup,
+            cleanEditedBackup, onEditorOpened));
+    }
+
+    /**
+     * Second half of showLargeDiff (UI thread): opens the editor and installs the lazy hunk highlights
+     */
+    private void openLargeDiffEditor(Display display, String filePath, IFile workspaceFile, HunkSummary summary,
+                                     Backup originalBackup, Backup cleanEditedBackup,
+                                     DiffViewCallback onEditorOpened) {
+        try {
+            IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+            IWorkbenchPage page = window != null ? window.getActivePage() : null;
+            if (page == null) {
+                LOG.warn("No active page");
+                return;
+            }
+
+            IEditorPart editor = IDE.openEditor(page, workspaceFile);
+            HunkHighlightState state = new HunkHighlightState(summary);
+            if (editor instanceof ITextEditor) {
+                ITextEditor textEditor = (ITextEditor) editor;
+                if (activeDiffEditors.containsKey(textEditor) || hunkEditors.containsKey(textEditor)) {
+                    removeDiffHighlights(textEditor); // An earlier diff of the file
+                }
+                hunkEditors.put(textEditor, state);
+            }
+
+            if (onEditorOpened != null) {
+                onEditorOpened.accept(editor, originalBackup, cleanEditedBackup);
+            }
+
+            if (editor instanceof ITextEditor) {
+                // Wait for editor to load
+                display.timerExec(500, () -> installHunkHighlights((ITextEditor) editor, state));
+            }
+            LOG.debug(() -> "Opened large diff view for: " + filePath);
+        } catch (Exception e) {
+            LOG.error("Error showing large diff view: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gives the added lines of a large file's hunks a background. StyledText asks for the background of
+     * the lines it paints only, so just the visible hunks are looked up (binary search) - nothing is
+     * styled up front, whatever the number of hunks.
+     */
+    private void installHunkHighlights(ITextEditor textEditor, HunkHighlightState state) {
+        long highlightStart = System.nanoTime();
+        ISourceViewer sourceViewer = textEditor.getAdapter(ISourceViewer.class);
+        StyledText styledText = sourceViewer != null ? sourceViewer.getTextWidget() : null;
+        if (hunkEditors.get(textEditor) != state || styledText == null || styledText.isDisposed()) {
+            return; // Cleared meanwhile, or not a source editor
+        }
+        Color addedBg = new Color(styledText.getDisplay(), 50, 150, 50);
+        state.styledText = styledText;
+        state.addedBg = addedBg;
+        state.backgroundListener = event -> {
+            IDocument document = sourceViewer.getDocument();
+            int modelOffset = sourceViewer instanceof ITextViewerExtension5
+                ? ((ITextViewerExtension5) sourceViewer).widgetOffset2ModelOffset(event.lineOffset) : event.lineOffset;
+            if (document == null || modelOffset < 0) {
+                return;
+            }
+            try {
+                if (state.summary.isAddedLine(document.getLineOfOffset(modelOffset))) {
+                    event.lineBackground = addedBg;
+                }
+            } catch (BadLocationException e) {
+                // Line outside the document while it changes
+            }
+        };
+        styledText.addLineBackgroundListener(state.backgroundListener);
+        styledText.redraw();
+        styledText.addDisposeListener(e -> {
+            if (hunkEditors.get(textEditor) == state) {
+                hunkEditors.remove(textEditor);
+            }
+            state.dispose();
+        });
+        HIGHLIGHT_TIME.recordSince(highlightStart);
+        LOG.debug(() -> "Installed lazy highlights for " + state.summary.hunks.size() + " hunks");
+    }
+
+    /**
+     * @return the hunks of the editor's diff if it shows a large file, or null
+     */
+    public HunkSummary getHunkSummary(IEditorPart editor) {
+        HunkHighlightState state = hunkEditors.get(editor);
+        return state != null ? state.summary : null;
+    }
+
+    /**
+     * Scrolls a large file's diff editor to one of its hunks and brings the editor to the front (UI thread)
+     *
+     * @param index index into the summary's hunks
+     */
+    public void revealHunk(IEditorPart editor, int index) {
+        HunkHighlightState state = hunkEditors.get(editor);
+        if (state == null || index < 0 || index >= state.summary.hunks.size()) {
+            return;
+        }
+        ITextEditor textEditor = (ITextEditor) editor;
+        IDocument document = textEditor.getDocumentProvider().getDocument(textEditor.getEditorInput());
+        if (document == null) {
+            return;
+        }
+        try {
+            int line = Math.min(state.summary.hunks.get(index).firstAfterLine(), document.getNumberOfLines() - 1);
+            editor.getSite().getPage().activate(editor);
+            textEditor.selectAndReveal(document.getLineOffset(line), 0);
+        } catch (BadLocationException e) {
+            LOG.debug(() -> "Hunk " + index + " is outside the document: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Shows the diff of an edit Cline asks to make, computed from the ask payload instead of the file Cline
+     * writes: the proposed content and its diff are ready while the approval is on its way, and the editor
+     * opens as soon as the file on disk holds the proposed content. If the proposal can't be computed or
+     * the file ends up different, this falls back to showDiffViewFromBackup once the file has settled.
+     *
+     * Call it before sending the approval - the file's state at that point is what "not written yet" means.
+     *
+     * @param originalBackup the file before the turn, which the diff compares against
+     * @param patchBase the file as Cline edits it, if the turn already edited it (its clean edited version),
+     *                  otherwise null for originalBackup; released once the proposal is computed
+     * @param payloadContent the "content" field of the ask (SEARCH/REPLACE blocks or the complete new file)
+     * @param approval completes when the approval has been sent; nothing is shown if it fails
+     */
+    public void showProposedDiffView(String filePath, Backup originalBackup, Backup patchBase, String payloadContent,
+                                     CompletableFuture<?> approval, DiffViewCallback onEditorOpened) {
+        String projectRoot = getProjectRootDirectory();
+        if (projectRoot == null) {
+            LOG.error("Cannot show proposed diff: no project root found");
+            if (patchBase != null) {
+                patchBase.release();
+            }
+            return;
+        }
+        WriteWatch watch = new WriteWatch(filePath, new File(projectRoot, filePath), originalBackup, onEditorOpened);
+
+        // No preview of large files - they are summarized from the file Cline writes
+        long baseSize = Math.max(originalBackup != null ? originalBackup.size : 0, patchBase != null ? patchBase.size : 0);
+        boolean large = HunkSummary.isLarge(Math.max(payloadContent.length(), baseSize));
+        CompletableFuture<DiffView> proposal = large ? CompletableFuture.completedFuture(null) : diffScope.submit(() -> {
+            IFile workspaceFile = findWorkspaceFile(filePath);
+            Charset charset = workspaceFile != null ? charsetOf(workspaceFile) : defaultCharset();
+            LineIndex before = LineIndex.of(readBackup(originalBackup, charset));
+            LineIndex base = patchBase != null ? LineIndex.of(readBackup(patchBase, charset)) : before;
+            long patchStart = System.nanoTime();
+            String proposedContent = PatchEngine.proposedContent(payloadContent, base);
+            PATCH_TIME.recordSince(patchStart);
+            return computeDiffView(filePath, before, LineIndex.of(proposedContent), charset);
+        });
+        if (patchBase != null) {
+            proposal.whenComplete((view, error) -> patchBase.release());
+        }
+        proposal.handle((view, error) -> {
+            if (error != null) {
+                LOG.debug(() -> "No diff preview for " + filePath + ", waiting for Cline's write: " + error.getMessage());
+            }
+            return view;
+        }).thenCombine(approval, (view, sent) -> view).whenComplete((view, error) -> {
+            if (error == null) {
+                watch.proposal = view;
+                diffScope.schedule(() -> checkProposedWrite(watch), PROPOSED_WRITE_POLL_MS);
+            }
+        });
+    }
+
+    /**
+     * State of showProposedDiffView while it waits for Cline to write the file
+     */
+    private static class WriteWatch {
+        final String filePath;
+        final File diskFile;
+        final Backup originalBackup;
+        final DiffViewCallback onEditorOpened;
+        final long deadline = System.currentTimeMillis() + PROPOSED_WRITE_TIMEOUT_MS;
+        final long initialModified;                  // File state before the approval (0 = missing)
+        final long initialLength;
+        long lastModified;                           // State seen by the previous check
+        long lastLength;
+        DiffView proposal;                           // Null if the proposed content couldn't be computed
+
+        WriteWatch(String filePath, File diskFile, Backup originalBackup, DiffViewCallback onEditorOpened) {
+            this.filePath = filePath;
+            this.diskFile = diskFile;
+            this.originalBackup = originalBackup;
+            this.onEditorOpened = onEditorOpened;
+            this.initialModified = lastModified = diskFile.lastModified();
+            this.initialLength = lastLength = diskFile.length();
+        }
+    }
+
+    /**
+     * One check of showProposedDiffView (diff thread): opens the precomputed diff once the file holds the
+     * proposed content, falls back to showDiffViewFromBackup once a different write has settled or on
+     * timeout, and otherwise checks again later
+     */
+    private void checkProposedWrite(WriteWatch watch) {
+        try {
+            long modified = watch.diskFile.lastModified();
+            long length = watch.diskFile.length();
+            boolean timedOut = System.currentTimeMillis() >= watch.deadline;
+            boolean written = modified != watch.initialModified || length != watch.initialLength;
+            boolean settled = modified == watch.lastModified && length == watch.lastLength;
+            watch.lastModified = modified;
+            watch.lastLength = length;
+
+            if (written && watch.proposal != null && length == watch.proposal.afterBytes) {
+                long readStart = System.nanoTime();
+                String onDisk = FileText.read(watch.diskFile.toPath(), watch.proposal.charset);
+                FILE_READ_TIME.recordSince(readStart);
+                IFile workspaceFile = findWorkspaceFile(watch.filePath);
+                if (onDisk.equals(watch.proposal.afterContent) && workspaceFile != null && workspaceFile.exists()) {
+                    Backup cleanEditedBackup = saveCleanEditedVersion(watch.filePath, watch.proposal.afterContent,
+                        watch.proposal.charset);
+                    DiffView view = watch.proposal;
+                    Display display = PlatformUI.getWorkbench().getDisplay();
+                    display.asyncExec(() -> openDiffEditor(display, watch.filePath, workspaceFile, view,
+                        watch.originalBackup, cleanEditedBackup, watch.onEditorOpened));
+                    return;
+                }
+            }
+            if (timedOut || (written && settled)) {
+                LOG.debug(() -> "Cline's write of " + watch.filePath + " differs from the preview, diffing the file on disk");
+                showDiffViewFromBackup(watch.filePath, watch.originalBackup, watch.onEditorOpened);
+                return;
+            }
+            diffScope.schedule(() -> checkProposedWrite(watch), PROPOSED_WRITE_POLL_MS);
+        } catch (Exception e) {
+            LOG.error("Error showing proposed diff: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A computed diff, ready for openDiffEditor
+     */
+    private static class DiffView {
+        final String afterContent;
+        final Charset charset;               // The file's, for reading and writing it
+        final long afterBytes;               // Encoded size of afterContent, to skip reads of a file that can't match
+        final List<CombinedLine> combined;
+        final LineIndex combinedIndex;       // Combined content, indexed for highlighting
+
+        DiffView(String afterContent, Charset charset, List<CombinedLine> combined, LineIndex combinedIndex)
+                throws IOException {
+            this.afterContent = afterContent;
+            this.charset = charset;
+            this.afterBytes = FileText.encodedLength(afterContent, charset);
+            this.combined = combined;
+            this.combinedIndex = combinedIndex;
+        }
+    }
+
+    /**
+     * Diffs two versions of a file and builds the combined content with removed lines inserted
+     * (for highlighting only)
+     */
+    private DiffView computeDiffView(String filePath, LineIndex before, LineIndex after, Charset charset) throws Exception {
+        LOG.debug(() -> "Before content: " + before.lineCount() + " lines");
+        LOG.debug(() -> "After content: " + after.lineCount() + " lines");
+
+        long diffStart = System.nanoTime();
+        DiffComputeEvent diffEvent = new DiffComputeEvent();
+        diffEvent.begin();
+        DiffCache.Entry diff = DiffCache.shared().diff(before, after); // Reopened or repeated diffs are cached
+        DIFF_TIME.recordSince(diffStart);
+        if (diffEvent.shouldCommit()) {
+            diffEvent.file = filePath;
+            diffEvent.beforeLines = before.lineCount();
+            diffEvent.afterLines = after.lineCount();
+            diffEvent.operations = diff.operations.size();
+            diffEvent.commit();
+        }
+        return new DiffView(after.text(), charset, diff.combined, diff.combinedIndex);
+    }
+
+    /**
+     * @return the content of a backup, or "" if there is none
+     */
+    private String readBackup(Backup backup, Charset charset) throws Exception {
+        if (backup == null) {
+            return "";
+        }
+        long readStart = System.nanoTime();
+        String content;
+        try (InputStream in = backup.open()) {
+            content = FileText.read(in, backup.size, charset);
+        }
+        FILE_READ_TIME.recordSince(readStart);
+        return content;
+    }
+
+    /**
+     * Second half of showDiffViewFromBackup (UI thread): writes the combined content, opens the editor
+     * and applies the highlights
+     */
+    private void openDiffEditor(Display display, String filePath, IFile workspaceFile, DiffView view,
+                                Backup originalBackup, Backup cleanEditedBackup,
+                                DiffViewCallback onEditorOpened) {
+        try {
+            // 7. Write COMBINED content to workspace file (for display only)
+            long writeStart = System.nanoTime();
+            InputStream combinedStream = FileText.encode(view.combinedIndex.text(), view.charset);
+            workspaceFile.setContents(combinedStream, IResource.FORCE, new NullProgressMonitor());
+            workspaceFile.refreshLocal(IResource.DEPTH_ZERO, new NullProgressMonitor());
+            FILE_WRITE_TIME.recordSince(writeStart);
+            LOG.debug("Inserted removed lines into file for highlighting");
+
+            // 8. Open editor
+            IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+            if (window == null) {
+                LOG.warn("No active workbench window");
+                return;
+            }
+
+            IWorkbenchPage page = window.getActivePage();
+            if (page == null) {
+                LOG.warn("No active page");
+                return;
+            }
+
+            IEditorPart editor = IDE.openEditor(page, workspaceFile);
+            HunkHighlightState hunks = hunkEditors.remove(editor);
+            if (hunks != null) {
+                hunks.dispose(); // An earlier diff of the file, when it was large
+            }
+
+            // 9. Notify callback with editor and BOTH backups
+            if (onEditorOpened != null) {
+                onEditorOpened.accept(editor, originalBackup, cleanEditedBackup);
+            }
+
+            // 10. Apply highlights using line numbers (NO content matching)
+            if (editor instanceof ITextEditor) {
+                // Wait for editor to load
+                display.timerExec(500, () -> {
+                    // Skip if the file was restored meanwhile (e.g. the change was dropped or edited again)
+                    ITextEditor textEditor = (ITextEditor) editor;
+                    IDocument document = textEditor.getDocumentProvider() != null
+                        ? textEditor.getDocumentProvider().getDocument(textEditor.getEditorInput()) : null;
+                    if (document != null && !document.get().equals(view.combinedIndex.text())) {
+                        LOG.debug(() -> "Not highlighting " + filePath + ": the file changed since the diff was written");
+                        return;
+                    }
+                    applyHighlightsFromCombined(textEditor, view.combined, view.combinedIndex);
+                });
+            }
+
+            LOG.debug(() -> "Opened diff view for: " + filePath);
+        } catch (Exception e) {
+            LOG.error("Error showing diff view from backup: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Finds a workspace file by path, trying multiple locations
+     */
+    private IFile findWorkspaceFile(String filePath) {
+        IFile workspaceFile = ResourcesPlugin.getWorkspace().getRoot().getFile(new Path(filePath));
+        if (workspaceFile.exists()) {
+            return workspaceFile;
+        }
+
+        // Try finding in all projects
+        IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
+        for (IProject project : projects) {
+            if (project.isOpen()) {
+                IFile file = project.getFile(filePath);
+                if (file.exists()) {
+                    return file;
+                }
+                // Also try with src/ prefix removed
+                if (filePath.startsWith("src/")) {
+                    String relativePath = filePath.substring(4);
+                    file = project.getFile(relativePath);
+                    if (file.exists()) {
+                        return file;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads content from a workspace file: large local files are memory-mapped (see FileText)
+     */
+    private String readWorkspaceFileContent(IFile workspaceFile, Charset charset) throws Exception {
+        if (workspaceFile.getLocation() != null) {
+            return FileText.read(workspaceFile.getLocation().toFile().toPath(), charset);
+        }
+        try (InputStream is = workspaceFile.getContents()) {
+            return FileText.read(is, 0, charset);
+        }
+    }
+
+    /**
+     * @return the file's charset (explicit, content-detected or inherited from its container)
+     */
+    private static Charset charsetOf(IFile workspaceFile) {
+        try {
+            return Charset.forName(workspaceFile.getCharset());
+        } catch (CoreException | RuntimeException e) {
+            LOG.debug(() -> "No charset for " + workspaceFile.getFullPath() + ": " + e.getMessage());
+            return defaultCharset();
+        }
+    }
+
+    /**
+     * @return the workspace's default charset
+     */
+    private static Charset defaultCharset() {
+        try {
+            return Charset.forName(ResourcesPlugin.getWorkspace().getRoot().getDefaultCharset());
+        } catch (CoreException | RuntimeException e) {
+            return Charset.defaultCharset();
+        }
+    }
+
+
+
+    /**
+     * Restores a file from backup (used when user denies changes)
+     */
+    public void restoreFromBackup(String filePath, Backup backup) {
+        Map<String, Backup> backups = new LinkedHashMap<>();
+        backups.put(filePath, backup);
+        restoreFromBackups(backups);
+    }
+
+    /**
+     * Restores several files from their backups. A file open in a text editor is restored through the
+     * editor's document with the minimal edits (see TextEdits) and saved, so its undo history survives and
+     * only the changed regions are reconciled: the document is read once on the UI thread, and the backup is
+     * decoded and the edits computed on a disk thread. The other files - and large ones (HunkSummary.isLarge),
+     * whose diff highlights are just cleared - are rewritten, each backup streamed into its file. Writing
+     * the files and applying the edits run on the UI thread in a single workspace operation, so builds and
+     * resource listeners see one change, and nothing is written if a backup can't be decoded. Nothing is
+     * touched if a backup is missing. The backups are released afterwards, whether the restore succeeded
+     * or not.
+     *
+     * @param backups backup by relative file path (BackupStore.absent() deletes the file - it was new)
+     * @return future completing once the files are restored (on the UI thread)
+     */
+    public CompletableFuture<Void> restoreFromBackups(Map<String, Backup> backups) {
+        CompletableFuture<Void> restored = new CompletableFuture<>();
+        onDisplay(() -> findRestores(backups))
+            .thenCompose(restores -> diskScope.submit(() -> {
+                computeRestores(restores);
+                return restores;
+            }))
+            .thenCompose(restores -> onDisplay(() -> {
+                applyRestores(restores);
+                return null;
+            }))
+            .whenComplete((result, error) -> {
+                for (Backup backup : backups.values()) {
+                    if (backup != null) {
+                        backup.release();
+                    }
+                }
+                if (error != null) {
+                    Throwable cause = ClineService.unwrap(error);
+                    LOG.error("Error restoring from backup: " + cause.getMessage(), cause);
+                    restored.completeExceptionally(cause);
+                } else {
+                    restored.complete(null);
+                }
+            });
+        return restored;
+    }
+
+    /**
+     * A file to restore, filled in by the steps of restoreFromBackups
+     */
+    private static class Restore {
+        final IFile file;
+        final Backup backup;               // BackupStore.absent() to delete the file
+        ITextEditor editor;                // Editor to restore the file through, null to rewrite the file
+        IDocument document;
+        String documentText;               // The document when the restore started
+        long documentStamp;
+        List<CombinedLine> combined;       // The diff editor's lines, if they are still the document's
+        String content;                    // The backup decoded (disk thread)
+        List<TextEdits.Replacement> edits; // Turning documentText into content (disk thread)
+
+        Restore(IFile file, Backup backup) {
+            this.file = file;
+            this.backup = backup;
+        }
+    }
+
+    /**
+     * First step of restoreFromBackups (UI thread): finds the files and snapshots the documents of their
+     * open editors
+     */
+    private List<Restore> findRestores(Map<String, Backup> backups) throws IOException {
+        if (backups.containsValue(null)) {
+            throw new IOException("Backup not found for " + backups.entrySet().stream()
+                .filter(entry -> entry.getValue() == null).map(Map.Entry::getKey).findFirst().orElse(""));
+        }
+        IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+        IWorkbenchPage page = window != null ? window.getActivePage() : null;
+        List<Restore> restores = new ArrayList<>();
+        for (Map.Entry<String, Backup> entry : backups.entrySet()) {
+            IFile workspaceFile = findWorkspaceFile(entry.getKey());
+            if (workspaceFile == null || !workspaceFile.exists()) {
+                if (!entry.getValue().isAbsent()) {
+                    LOG.warn("Workspace file not found for restore: " + entry.getKey());
+                }
+                continue;
+            }
+            Restore restore = new Restore(workspaceFile, entry.getValue());
+            restores.add(restore);
+            IEditorPart editor = page != null && !restore.backup.isAbsent()
+                ? page.findEditor(new FileEditorInput(workspaceFile)) : null;
+            if (!(editor instanceof ITextEditor) || ((ITextEditor) editor).getDocumentProvider() == null) {
+                continue;
+            }
+            ITextEditor textEditor = (ITextEditor) editor;
+            IDocument document = textEditor.getDocumentProvider().getDocument(textEditor.getEditorInput());
+            if (document == null) {
+                continue;
+            }
+            if (HunkSummary.isLarge(Math.max(restore.backup.size, document.getLength()))) {
+                removeDiffHighlights(textEditor); // Rewritten with the other files; the editor reloads it
+                continue;
+            }
+            restore.editor = textEditor;
+            restore.document = document;
+            restore.documentText = document.get();
+            restore.documentStamp = modificationStamp(document);
+            DiffHighlightState state = activeDiffEditors.get(textEditor);
+            restore.combined = state != null && state.documentText.equals(restore.documentText) ? state.combined : null;
+        }
+        return restores;
+    }
+
+    /**
+     * Second step of restoreFromBackups (disk thread): decodes the backups of the open documents and
+     * computes their edits
+     */
+    private void computeRestores(List<Restore> restores) throws IOException {
+        for (Restore restore : restores) {
+            if (restore.editor == null) {
+                continue;
+            }
+            long readStart = System.nanoTime();
+            try (InputStream in = restore.backup.open()) {
+                restore.content = FileText.read(in, restore.backup.size, charsetOf(restore.file));
+            }
+            FILE_READ_TIME.recordSince(readStart);
+            restore.edits = TextEdits.compute(LineIndex.of(restore.documentText), restore.combined, restore.content);
+        }
+    }
+
+    /**
+     * Last step of restoreFromBackups (UI thread): in one workspace operation, rewrites or deletes the
+     * files without a document and applies the edits to the documents and saves them
+     */
+    private void applyRestores(List<Restore> restores) throws CoreException {
+        int[] written = { 0 };
+        IWorkspaceRunnable apply = monitor -> {
+            for (Restore restore : restores) {
+                IFile workspaceFile = restore.file;
+                if (restore.editor != null) {
+                    applyToDocument(restore, monitor);
+                } else if (restore.backup.isAbsent()) {
+                    // The file was new - delete it instead of restoring
+                    workspaceFile.delete(IResource.FORCE, monitor);
+                    written[0]++;
+                    LOG.debug(() -> "Deleted new file (denied creation): " + workspaceFile.getFullPath());
+                } else {
+                    long writeStart = System.nanoTime();
+                    try (InputStream backupStream = restore.backup.open()) {
+                        workspaceFile.setContents(backupStream, IResource.FORCE, monitor);
+                    } catch (IOException e) {
+                        throw new CoreException(Status.error("Could not read the backup of " + workspaceFile.getName(), e));
+                    }
+                    FILE_WRITE_TIME.recordSince(writeStart);
+                    written[0]++;
+                    LOG.debug(() -> "Restored file from backup: " + workspaceFile.getFullPath());
+                }
+            }
+        };
+        ResourcesPlugin.getWorkspace().run(apply, ResourcesPlugin.getWorkspace().getRoot(),
+            IWorkspace.AVOID_UPDATE, new NullProgressMonitor());
+        LOG.debug(() -> "Restored " + restores.size() + " file(s) in one workspace operation, " + written[0] + " rewritten");
+    }
+
+    /**
+     * @return future completing with the action's result, run on the UI thread
+     */
+    private static <T> CompletableFuture<T> onDisplay(Callable<T> action) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        PlatformUI.getWorkbench().getDisplay().asyncExec(() -> {
+            try {
+                result.complete(action.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return the document's modification stamp, or UNKNOWN_MODIFICATION_STAMP if it has none
+     */
+    private static long modificationStamp(IDocument document) {
+        return document instanceof IDocumentExtension4 ? ((IDocumentExtension4) document).getModificationStamp()
+            : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+    }
+
+    /**
+     * Applies a restore's edits to its editor's document as one undoable change, and saves it (UI thread).
+     * The diff highlights are removed first - their offsets are for the old text. If the document changed
+     * since its snapshot, the edits are recomputed from its current text; if the editor was closed, the
+     * file is rewritten instead.
+     */
+    private void applyToDocument(Restore restore, IProgressMonitor monitor) throws CoreException {
+        ITextEditor editor = restore.editor;
+        IDocumentProvider provider = editor.getDocumentProvider();
+        IEditorInput input = editor.getEditorInput();
+        removeDiffHighlights(editor);
+        if (provider == null || provider.getDocument(input) != restore.document) {
+            restore.file.setContents(FileText.encode(restore.content, charsetOf(restore.file)), IResource.FORCE, monitor);
+            LOG.debug(() -> "Editor closed during the restore, rewrote " + restore.file.getFullPath());
+            return;
+        }
+
+        long applyStart = System.nanoTime();
+        IDocument document = restore.document;
+        long stamp = modificationStamp(document);
+        List<TextEdits.Replacement> replacements = restore.edits;
+        if (stamp != restore.documentStamp || stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) {
+            String current = document.get();
+            if (!current.equals(restore.documentText)) {
+                replacements = TextEdits.compute(LineIndex.of(current), null, restore.content);
+                LOG.debug(() -> "Document of " + input.getName() + " changed during the restore, recomputed its edits");
+            }
+        }
+        MultiTextEdit edit = new MultiTextEdit();
+        for (TextEdits.Replacement replacement : replacements) {
+            edit.addChild(new ReplaceEdit(replacement.offset, replacement.length, replacement.text));
+        }
+        IRewriteTarget rewriteTarget = editor.getAdapter(IRewriteTarget.class);
+        if (rewriteTarget != null) {
+            rewriteTarget.beginCompoundChange();
+        }
+        try {
+            edit.apply(document, TextEdit.NONE);
+        } catch (BadLocationException e) {
+            throw new CoreException(Status.error("Could not apply the edits to " + input.getName(), e));
+        } finally {
+            if (rewriteTarget != null) {
+                rewriteTarget.endCompoundChange();
+            }
+        }
+        provider.aboutToChange(input);
+        provider.saveDocument(monitor, input, document, true);
+        provider.changed(input);
+        DOCUMENT_APPLY_TIME.recordSince(applyStart);
+        int count = replacements.size();
+        LOG.debug(() -> "Applied " + count + " edit(s) to the document of " + input.getName());
+    }
+
+    /**
+     * @return the file's location in the file system, or null if it isn't found or isn't local
+     */
+    public java.nio.file.Path getFileLocation(String filePath) {
+        IFile workspaceFile = findWorkspaceFile(filePath);
+        return workspaceFile != null && workspaceFile.getLocation() != null
+            ? workspaceFile.getLocation().toFile().toPath() : null;
+    }
+
+    /**
+     * Brings the editor of a file to the front (opening it if needed)
+     */
+    public void showFile(String filePath) {
+        Display display = PlatformUI.getWorkbench().getDisplay();
+        display.asyncExec(() -> {
+            try {
+                IFile workspaceFile = findWorkspaceFile(filePath);
+                IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+                if (workspaceFile == null || window == null || window.getActivePage() == null) {
+                    LOG.warn("Cannot open file: " + filePath);
+                    return;
+                }
+                IDE.openEditor(window.getActivePage(), workspaceFile);
+            } catch (Exception e) {
+                LOG.error("Error opening file: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Tells the workspace about files changed outside of it (e.g. by a snapshot rollback), in one
+     * workspace operation. Open editors of the files reload; their diff highlights are cleared.
+     * Can be called from any thread.
+     *
+     * @param root the directory the paths are relative to
+     * @param changedPaths the restored or deleted files
+     */
+    public void refreshFiles(java.nio.file.Path root, List<String> changedPaths) throws CoreException {
+        IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        // Refresh the closest folder the workspace knows for each file - restored files may be in deleted folders
+        Set<IResource> containers = new HashSet<>();
+        for (String changedPath : changedPaths) {
+            java.nio.file.Path directory = root.resolve(changedPath).getParent();
+            while (directory != null) {
+                IResource[] found = workspace.getRoot().findContainersForLocationURI(directory.toUri());
+                if (found.length > 0 && found[0].exists()) {
+                    containers.add(found[0]);
+                    break;
+                }
+                directory = directory.getParent();
+            }
+        }
+        workspace.run(monitor -> {
+            for (IResource container : containers) {
+                container.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+            }
+        }, workspace.getRoot(), IWorkspace.AVOID_UPDATE, new NullProgressMonitor());
+        LOG.debug(() -> "Refreshed " + containers.size() + " folder(s) for " + changedPaths.size() + " changed file(s)");
+
+        Set<java.nio.file.Path> changed = new HashSet<>();
+        for (String changedPath : changedPaths) {
+            changed.add(root.resolve(changedPath).toAbsolutePath().normalize());
+        }
+        PlatformUI.getWorkbench().getDisplay().asyncExec(() -> {
+            Set<ITextEditor> diffEditors = new HashSet<>(activeDiffEditors.keySet());
+            diffEditors.addAll(hunkEditors.keySet());
+            for (ITextEditor editor : diffEditors) {
+                IFile file = editor.getEditorInput().getAdapter(IFile.class);
+                if (file != null && file.getLocation() != null &&
+                        changed.contains(file.getLocation().toFile().toPath().toAbsolutePath().normalize())) {
+                    clearDiffHighlights(editor);
+                }
+            }
+        });
+    }
+
+    /**
+     * Clears all diff highlights from the editor for a given file path.
+     * Public method that can be called from SampleView to clear highlights.
+     * 
+     * @param filePath the relative path to the file
+     */
+    public void clearDiffHighlights(String filePath) {
+        Display display = PlatformUI.getWorkbench().getDisplay();
+        display.asyncExec(() -> {
+            try {
+                // Find the workspace file
+                IFile workspaceFile = null;
+                workspaceFile = ResourcesPlugin.getWorkspace().getRoot().getFile(new Path(filePath));
+                if (!workspaceFile.exists()) {
+                    IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
+                    for (IProject project : projects) {
+                        if (project.isOpen()) {
+                            IFile file = project.getFile(filePath);
+                            if (file.exists()) {
+                                workspaceFile = file;
+                                break;
+                            }
+                            if (filePath.startsWith("src/")) {
+                                String relativePath = filePath.substring(4);
+                                file = project.getFile(relativePath);
+                                if (file.exists()) {
+                                    workspaceFile = file;
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                }
+
+                if (workspaceFile == null || !workspaceFile.exists()) {
+                    LOG.warn("File not found for clearing highlights: " + filePath);
+                    return;
+                }
+
+                // Get the editor for this file
+                IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+                if (window == null) {
+                    LOG.warn("No active workbench window");
+                    return;
+                }
+
+                IWorkbenchPage page = window.getActivePage();
+                if (page == null) {
+                    LOG.warn("No active page");
+                    return;
+                }
+
+                // Try to find existing editor first
+                IEditorPart editor = page.findEditor(new FileEditorInput(workspaceFile));
+                if (editor == null) {
+                    // Editor not open, try to open it
+                    editor = IDE.openEditor(page, workspaceFile);
+                }
+
+                if (editor instanceof ITextEditor) {
+                    clearDiffHighlights((ITextEditor) editor);
+                } else {
+                    LOG.debug("Editor is not a text editor, cannot clear highlights");
+                }
+            } catch (Exception e) {
+                LOG.error("Error clearing diff highlights by file path: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Clears all diff highlights from the editor
+     * Called when user denies changes and file is restored
+     */
+    private void clearDiffHighlights(ITextEditor textEditor) {
+        try {
+            Display display = PlatformUI.getWorkbench().getDisplay();
+            display.timerExec(100, () -> removeDiffHighlights(textEditor));
+        } catch (Exception e) {
+            LOG.error("Error setting up clear diff highlights: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes the diff highlights of an editor now (UI thread)
+     */
+    private void removeDiffHighlights(ITextEditor textEditor) {
+        HunkHighlightState hunks = hunkEditors.remove(textEditor);
+        if (hunks != null) {
+            hunks.dispose();
+            if (!activeDiffEditors.containsKey(textEditor)) {
+                LOG.debug("Removed hunk highlights from editor");
+                return; // The text was never restyled
+            }
+        }
+        try {
+            // Get the StyledText widget from the editor's source viewer
+            StyledText styledText = null;
+
+            // Try to get via ISourceViewer (most reliable for text editors)
+            ISourceViewer sourceViewer = textEditor.getAdapter(ISourceViewer.class);
+            if (sourceViewer != null) {
+                styledText = sourceViewer.getTextWidget();
+            }
+
+            // Fallback: try getting control directly
+            if (styledText == null) {
+                org.eclipse.swt.widgets.Control control = textEditor.getAdapter(org.eclipse.swt.widgets.Control.class);
+                if (control instanceof StyledText) {
+                    styledText = (StyledText) control;
+                } else if (control instanceof org.eclipse.swt.widgets.Composite) {
+                    styledText = findStyledText((org.eclipse.swt.widgets.Composite) control);
+                }
+            }
+
+            if (styledText != null && !styledText.isDisposed()) {
+                // Remove PaintListener if it exists
+                DiffHighlightState state = activeDiffEditors.remove(textEditor);
+                if (state != null && state.paintListener != null) {
+                    styledText.removePaintListener(state.paintListener);
+                    LOG.debug("Removed PaintListener from editor");
+                    state.dispose();
+                }
+
+                // FIXED: Restore original syntax highlighting instead of clearing everything
+                if (state != null && state.originalSyntaxHighlighting != null && state.originalSyntaxHighlighting.length > 0) {
+                    styledText.setStyleRanges(state.originalSyntaxHighlighting);
+                    LOG.debug(() -> "Restored " + state.originalSyntaxHighlighting.length + " original syntax highlighting StyleRanges");
+                } else {
+                    // Fallback: Clear and trigger Eclipse to re-apply syntax highlighting
+                    // This happens if we somehow didn't capture original styles
+                    LOG.debug("No original syntax highlighting captured, triggering refresh");
+                    styledText.setStyleRanges(new StyleRange[0]);
+
+                    // Trigger Eclipse's syntax highlighter to re-run by updating the document
+                    try {
+                        IDocument doc = textEditor.getDocumentProvider().getDocument(textEditor.getEditorInput());
+                        if (doc != null) {
+                            String content = doc.get();
+                            doc.set(content); // This triggers presentation reconciler
+                            LOG.debug("Triggered syntax highlighting refresh");
+                        }
+                    } catch (Exception ex) {
+                        LOG.error("Failed to trigger syntax highlighting: " + ex.getMessage());
+                    }
+                }
+            } else {
+                // Still clean up state even if we can't get the widget
+                DiffHighlightState state = activeDiffEditors.remove(textEditor);
+                if (state != null) {
+                    state.dispose();
+                }
+                LOG.debug("Could not get StyledText widget to clear highlights");
+            }
+        } catch (Exception e) {
+            LOG.error("Error clearing diff highlights: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recursively finds StyledText widget in a composite
+     */
+    private StyledText findStyledText(org.eclipse.swt.widgets.Composite composite) {
+        for (org.eclipse.swt.widgets.Control control : composite.getChildren()) {
+            if (control instanceof StyledText) {
+                return (StyledText) control;
+            } else if (control instanceof org.eclipse.swt.widgets.Composite) {
+                StyledText result = findStyledText((org.eclipse.swt.widgets.Composite) control);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies syntax highlighting to the editor based on combined lines.
+     * Uses line number offsets - NO content matching, NO infinite loops.
+     *
+     * @param textEditor the text editor to apply highlights to
+     * @param combined the combined lines with highlight information
+     * @param document the current document text, indexed when the diff was computed
+     */
+    private void applyHighlightsFromCombined(ITextEditor textEditor, List<CombinedLine> combined, LineIndex document) {
+        long highlightStart = System.nanoTime();
+        HighlightEvent event = new HighlightEvent();
+        event.begin();
+        event.editor = textEditor.getTitle();
+        event.lines = combined.size();
+        try {
+            // Get StyledText widget from editor's source viewer
+            StyledText styledText = null;
+
+            // Try to get via ISourceViewer (most reliable for text editors)
+            ISourceViewer sourceViewer = textEditor.getAdapter(ISourceViewer.class);
+            if (sourceViewer != null) {
+                styledText = sourceViewer.getTextWidget();
+            }
+
+            // Fallback: try getting control directly
+            if (styledText == null) {
+                org.eclipse.swt.widgets.Control control = textEditor.getAdapter(org.eclipse.swt.widgets.Control.class);
+                if (control instanceof StyledText) {
+                    styledText = (StyledText) control;
+                } else if (control instanceof org.eclipse.swt.widgets.Composite) {
+                    styledText = findStyledText((org.eclipse.swt.widgets.Composite) control);
+                }
+            }
+
+            if (styledText == null || styledText.isDisposed()) {
+                LOG.error("Could not get StyledText widget");
+                return;
+            }
+
+            final StyledText finalStyledText = styledText;
+            final Display display = styledText.getDisplay();
+
+            // Create colors
+            Color greenBg = new Color(display, 50, 150, 50); // Darker green for better contrast
+            Color greenFg = new Color(display, 200, 255, 200); // Light green text
+            Color redBg = new Color(display, 150, 50, 50); // Darker red for better contrast
+            Color redFg = new Color(display, 255, 200, 200); // Light red text
+            Color greenWordBg = new Color(display, 30, 100, 30); // Changed words: deeper than the line
+            Color redWordBg = new Color(display, 110, 25, 25);
+
+            // Capture existing syntax highlighting BEFORE we overwrite it with diff highlights
+            // This allows us to restore syntax highlighting when clearing diff highlights
+            StyleRange[] originalSyntaxHighlighting = finalStyledText.getStyleRanges();
+            LOG.debug(() -> "Captured " + originalSyntaxHighlighting.length + " original syntax highlighting StyleRanges");
+
+            // Store state for this editor (including colors and style ranges for re-application)
+            DiffHighlightState state = new DiffHighlightState(combined, document.text(), originalSyntaxHighlighting,
+                    greenBg, greenFg, redBg, redFg, greenWordBg, redWordBg);
+
+            // Apply highlights based on line numbers; the changed words follow from the word diff
+            StyleRange[] styleRangeArray = buildStyleRanges(state, document, null);
+            state.styleRanges = styleRangeArray;
+            event.ranges = styleRangeArray.length;
+
+            if (styleRangeArray.length > 0) {
+                finalStyledText.setStyleRanges(styleRangeArray);
+                LOG.info("Successfully applied " + styleRangeArray.length + " highlight styles");
+            } else {
+                LOG.debug("No highlights to apply");
+            }
+
+            // Remove any existing PaintListener for this editor
+            DiffHighlightState existingState = activeDiffEditors.get(textEditor);
+            if (existingState != null && existingState.paintListener != null) {
+                finalStyledText.removePaintListener(existingState.paintListener);
+                existingState.dispose();
+            }
+
+            // Create PaintListener that re-applies highlights after every paint
+            PaintListener paintListener = new PaintListener() {
+                @Override
+                public void paintControl(PaintEvent e) {
+                    // Re-apply highlights to ensure they persist after syntax highlighting
+                    // Use flag to prevent infinite recursion
+                    if (!finalStyledText.isDisposed() && !state.isReapplying && state.styleRanges.length > 0) {
+                        state.isReapplying = true;
+                        try {
+                            // Re-apply the style ranges asynchronously to avoid recursion
+                            display.asyncExec(() -> {
+                                StyleRange[] ranges = state.styleRanges;
+                                if (!finalStyledText.isDisposed() && ranges.length > 0) {
+                                    finalStyledText.setStyleRanges(ranges);
+                                }
+                                state.isReapplying = false;
+                            });
+                        } catch (Exception ex) {
+                            state.isReapplying = false;
+                        }
+                    }
+                }
+            };
+            
+            // Add PaintListener to re-apply highlights when widget is painted
+            finalStyledText.addPaintListener(paintListener);
+            state.paintListener = paintListener;
+            activeDiffEditors.put(textEditor, state);
+            LOG.debug("Added PaintListener to re-apply diff highlights");
+
+            // Dispose colors when widget is disposed
+            finalStyledText.addDisposeListener(e -> {
+                // Clean up state when widget is disposed
+                DiffHighlightState disposedState = activeDiffEditors.remove(textEditor);
+                if (disposedState != null && disposedState.paintListener != null) {
+                    finalStyledText.removePaintListener(disposedState.paintListener);
+                }
+                state.dispose();
+            });
+
+            if (styleRangeArray.length > 0) {
+                refineHighlights(textEditor, finalStyledText, state, document);
+            }
+
+        } catch (Exception e) {
+            LOG.error("Error applying highlights: " + e.getMessage(), e);
+        } finally {
+            HIGHLIGHT_TIME.recordSince(highlightStart);
+            event.commit();
+        }
+    }
+
+    /**
+     * Builds the style ranges for the highlighted lines of the combined content. With word ranges,
+     * each changed line is split into segments and the changed words get the deeper background.
+     *
+     * @param words changed word ranges sorted by line (see WordDiff), or null for whole-line highlights
+     */
+    private static StyleRange[] buildStyleRanges(DiffHighlightState state, LineIndex document, List<WordDiff.Range> words) {
+        List<StyleRange> styleRanges = new ArrayList<>();
+        int nextWord = 0;
+        for (int lineNum = 0; lineNum < state.combined.size(); lineNum++) {
+            CombinedLine line = state.combined.get(lineNum);
+
+            if (line.highlight == CombinedLine.HighlightType.NONE) {
+                continue; // Skip unchanged lines
+            }
+
+            // Calculate character position for this line
+            if (lineNum >= document.lineCount()) {
+                LOG.error("Line number out of bounds: " + lineNum);
+                continue;
+            }
+
+            int lineStart = document.lineStart(lineNum);
+            int lineEnd = document.lineEndWithNewline(lineNum); // Next line's start position, or the end
+            if (lineEnd <= lineStart) continue;
+
+            boolean added = line.highlight == CombinedLine.HighlightType.ADDED;
+            Color background = added ? state.greenBg : state.redBg;
+            Color foreground = added ? state.greenFg : state.redFg;
+            Color wordBackground = added ? state.greenWordBg : state.redWordBg;
+
+            int position = lineStart;
+            while (words != null && nextWord < words.size() && words.get(nextWord).line <= lineNum) {
+                WordDiff.Range word = words.get(nextWord++);
+                if (word.line < lineNum) {
+                    continue;
+                }
+                int wordStart = Math.min(lineStart + word.start, lineEnd);
+                int wordEnd = Math.min(lineStart + word.end, lineEnd);
+                addStyleRange(styleRanges, position, wordStart, background, foreground);
+                addStyleRange(styleRanges, wordStart, wordEnd, wordBackground, foreground);
+                position = Math.max(position, wordEnd);
+            }
+            addStyleRange(styleRanges, position, lineEnd, background, foreground);
+        }
+        return styleRanges.toArray(new StyleRange[0]);
+    }
+
+    private static void addStyleRange(List<StyleRange> styleRanges, int start, int end, Color background, Color foreground) {
+        if (end <= start) {
+            return;
+        }
+        StyleRange range = new StyleRange();
+        range.start = start;
+        range.length = end - start;
+        range.background = background;
+        range.foreground = foreground;
+        styleRanges.add(range);
+    }
+
+    /**
+     * Computes the changed words of the highlighted lines on the diff executor and swaps the refined
+     * style ranges in on the UI thread - unless the highlights were cleared or replaced meanwhile.
+     */
+    private void refineHighlights(ITextEditor textEditor, StyledText styledText, DiffHighlightState state, LineIndex document) {
+        Display display = styledText.getDisplay();
+        diffScope.submit(() -> {
+            long start = System.nanoTime();
+            List<WordDiff.Range> words = WordDiff.compute(state.combined, () -> state.disposed);
+            WORD_DIFF_TIME.recordSince(start);
+            return words.isEmpty() || state.disposed ? null : buildStyleRanges(state, document, words);
+        }).whenComplete((refined, error) -> {
+            if (error != null) {
+                LOG.debug(() -> "No word highlights: " + error.getMessage());
+                return;
+            }
+            if (refined == null || display.isDisposed()) {
+                return;
+            }
+            display.asyncExec(() -> {
+                if (state.disposed || styledText.isDisposed() || activeDiffEditors.get(textEditor) != state) {
+                    return;
+                }
+                state.styleRanges = refined;
+                styledText.setStyleRanges(refined);
+                LOG.debug(() -> "Refined diff highlights to " + refined.length + " styles");
+            });
+        });
+    }
+
+}
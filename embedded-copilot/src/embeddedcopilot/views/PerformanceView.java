@@ -0,0 +1,171 @@
+package embeddedcopilot.views;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.ui.part.ViewPart;
+
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.metrics.Histogram;
+import embeddedcopilot.metrics.Metrics;
+import embeddedcopilot.metrics.MetricsSnapshot;
+
+/**
+ * "Copilot Performance" view - live percentiles of the plugin's latency histograms plus
+ * counters and gauges, refreshed every second. Snapshots can be exported as text or JSON.
+ */
+public class PerformanceView extends ViewPart {
+
+    private static final Logger LOG = Log.get(PerformanceView.class);
+    public static final String ID = "embeddedcopilot.views.PerformanceView";
+
+    private static final int REFRESH_INTERVAL_MS = 1000;
+    private static final String[] COLUMNS = { "Metric", "Count / Value", "p50", "p90", "p99", "Max", "Mean" };
+    private static final int[] COLUMN_WIDTHS = { 220, 100, 80, 80, 80, 80, 80 };
+
+    private Display display;
+    private Table table;
+    private boolean paused = false;
+    private final Runnable refreshTask = this::refreshAndReschedule;
+
+    @Override
+    public void createPartControl(Composite parent) {
+        display = parent.getDisplay();
+        parent.setLayout(new FillLayout());
+
+        table = new Table(parent, SWT.BORDER | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+        table.setHeaderVisible(true);
+        table.setLinesVisible(true);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            TableColumn column = new TableColumn(table, i == 0 ? SWT.LEFT : SWT.RIGHT);
+            column.setText(COLUMNS[i]);
+            column.setWidth(COLUMN_WIDTHS[i]);
+        }
+
+        createActions();
+        refreshAndReschedule();
+    }
+
+    private void createActions() {
+        IToolBarManager toolBar = getViewSite().getActionBars().getToolBarManager();
+
+        Action pauseAction = new Action("Pause", Action.AS_CHECK_BOX) {
+            @Override
+            public void run() {
+                paused = isChecked();
+            }
+        };
+        pauseAction.setToolTipText("Pause live refresh");
+
+        Action resetAction = new Action("Reset") {
+            @Override
+            public void run() {
+                Metrics.reset();
+                refresh();
+            }
+        };
+        resetAction.setToolTipText("Clear counters and histograms");
+
+        Action exportAction = new Action("Export...") {
+            @Override
+            public void run() {
+                exportSnapshot();
+            }
+        };
+        exportAction.setToolTipText("Save a snapshot as text or JSON (*.json)");
+
+        toolBar.add(pauseAction);
+        toolBar.add(resetAction);
+        toolBar.add(exportAction);
+    }
+
+    private void refreshAndReschedule() {
+        if (table == null || table.isDisposed()) {
+            return;
+        }
+        if (!paused) {
+            refresh();
+        }
+        display.timerExec(REFRESH_INTERVAL_MS, refreshTask);
+    }
+
+    /**
+     * Rebuilds the table from a fresh snapshot (histograms first, then counters and gauges)
+     */
+    private void refresh() {
+        MetricsSnapshot snapshot = Metrics.snapshot();
+        int row = 0;
+        for (Histogram.Snapshot h : snapshot.getHistograms().values()) {
+            Histogram.Unit unit = h.getUnit();
+            setRow(row++, h.getName(), String.valueOf(h.getCount()),
+                unit.format(h.getP50()), unit.format(h.getP90()), unit.format(h.getP99()),
+                unit.format(h.getMax()), unit.format(h.getMean()));
+        }
+        for (Map.Entry<String, Long> counter : snapshot.getCounters().entrySet()) {
+            setRow(row++, counter.getKey(), String.valueOf(counter.getValue()), "", "", "", "", "");
+        }
+        for (Map.Entry<String, Long> gauge : snapshot.getGauges().entrySet()) {
+            setRow(row++, gauge.getKey(), String.valueOf(gauge.getValue()), "", "", "", "", "");
+        }
+        if (table.getItemCount() > row) {
+            table.remove(row, table.getItemCount() - 1);
+        }
+    }
+
+    /**
+     * Updates a row in place (creating it if needed) so the selection and scroll position survive refreshes
+     */
+    private void setRow(int index, String... values) {
+        TableItem item = index < table.getItemCount() ? table.getItem(index) : new TableItem(table, SWT.NONE);
+        item.setText(values);
+    }
+
+    private void exportSnapshot() {
+        FileDialog dialog = new FileDialog(table.getShell(), SWT.SAVE);
+        dialog.setText("Export Metrics Snapshot");
+        dialog.setFilterExtensions(new String[] { "*.json", "*.txt" });
+        dialog.setFileName("copilot-metrics-" + System.currentTimeMillis() + ".json");
+        dialog.setOverwrite(true);
+        String path = dialog.open();
+        if (path == null) {
+            return;
+        }
+
+        MetricsSnapshot snapshot = Metrics.snapshot();
+        String content = path.endsWith(".json") ? snapshot.toJson() : snapshot.toText();
+        try {
+            Files.write(Paths.get(path), content.getBytes(StandardCharsets.UTF_8));
+            LOG.info("Exported metrics snapshot to " + path);
+        } catch (Exception e) {
+            LOG.error("Failed to export metrics snapshot: " + e.getMessage(), e);
+            MessageDialog.openError(table.getShell(), "Export Failed", e.getMessage());
+        }
+    }
+
+    @Override
+    public void setFocus() {
+        table.setFocus();
+    }
+
+    @Override
+    public void dispose() {
+        if (display != null && !display.isDisposed()) {
+            display.timerExec(-1, refreshTask);
+        }
+        super.dispose();
+    }
+}
@@ -1,5 +1,11 @@
 package embeddedcopilot.views;
 
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.dialogs.InputDialog;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.window.Window;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.CTabFolder;
 import org.eclipse.swt.custom.CTabItem;
@@ -16,28 +22,52 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.swt.widgets.Widget;
+import org.eclipse.ui.dialogs.ListDialog;
 import org.eclipse.ui.part.ViewPart;
 
+import embeddedcopilot.Activator;
+import embeddedcopilot.backup.BackupStore.Backup;
+import embeddedcopilot.backup.WorkspaceSnapshots;
+import embeddedcopilot.diff.HunkSummary;
+import embeddedcopilot.logging.Log;
+import embeddedcopilot.logging.Logger;
+import embeddedcopilot.concurrent.ExecutionScope;
+import embeddedcopilot.concurrent.PluginExecutors;
+import embeddedcopilot.concurrent.WorkCategory;
+import embeddedcopilot.config.PollingConfig;
 import embeddedcopilot.model.ChatHistory;
 import embeddedcopilot.model.ChatMessage;
+import embeddedcopilot.service.Changeset;
 import embeddedcopilot.service.ClineService;
-import embeddedcopilot.service.ProjectService;
+import embeddedcopilot.ui.ProjectService;
+import embeddedcopilot.ui.ProjectService.DiffViewCallback;
 import embeddedcopilot.service.TaskPollingService;
+import embeddedcopilot.service.TaskSession;
+import embeddedcopilot.service.TaskViewRecording;
+import embeddedcopilot.service.TaskViewReplayer;
+import embeddedcopilot.service.TurnAnalytics;
 import embeddedcopilot.service.MessageProcessor;
 import embeddedcopilot.service.MessageProcessor.Message;
 import embeddedcopilot.ui.ChatUIManager;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
-import java.io.File;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
@@ -45,6 +75,8 @@ import java.util.function.Function;
  * Provides a chat interface for interacting with Cline AI assistant.
  */
 public class SampleView extends ViewPart {
+
+    private static final Logger LOG = Log.get(SampleView.class);
     public static final String ID = "embeddedcopilot.views.SampleView";
 
     private Display display;
@@ -57,26 +89,21 @@ public class SampleView extends ViewPart {
 
     private ProjectService projectService;
     private ClineService clineService;
-    private TaskPollingService pollingService;
     private ChatUIManager chatUIManager;
+    private final ExecutionScope diskScope = PluginExecutors.newScope("SampleViewDiskIO", WorkCategory.DISK_IO);
+
+    private static final String SESSION_KEY = "taskSession"; // CTabItem data key for the tab's TaskSession
+    private static final String REPLAY_KEY = "replay"; // CTabItem data key marking read-only replay tabs
 
     private List<ChatHistory> chatHistories = new ArrayList<>();
     private int chatCounter = 0;
-    private org.eclipse.ui.IEditorPart currentDiffEditor = null; // Track diff editor (real workspace file)
-    private String currentDiffFilePath = null; // Track the file path being edited
-    private java.io.File currentOriginalBackup = null; // Original file backup (for DENY - restore to pre-edit state)
-    private java.io.File currentCleanEditedBackup = null; // Clean edited backup (for APPROVE - Cline's actual edits)
-    private volatile boolean hasPendingApproval = false; // Track if there's ANY pending approval (file diff or command)
-    private volatile boolean alreadyAutoApproved = false; // Track if we already auto-approved (to prevent double approval)
-    private Set<String> displayedMessageIds = new HashSet<>(); // Track displayed messages to prevent duplicates
 
     @Override
     public void createPartControl(Composite parent) {
         display = parent.getDisplay();
 
         projectService = new ProjectService();
-        clineService = new ClineService(projectService);
-        pollingService = new TaskPollingService(clineService);
+        clineService = new ClineService(projectService::getProjectRootDirectory, Activator::getBundleEntry);
         chatUIManager = new ChatUIManager(display);
 
         mainContainer = new Composite(parent, SWT.NONE);
@@ -93,8 +120,12 @@ public class SampleView extends ViewPart {
         tabFolder.addCTabFolder2Listener(new CTabFolder2Adapter() {
             @Override
             public void close(CTabFolderEvent event) {
+                // Only the closed tab's session stops - other tabs keep running
+                TaskSession session = sessionFor((CTabItem) event.item);
+                if (session != null) {
+                    session.close();
+                }
                 if (tabFolder.getItemCount() == 1) {
-                    pollingService.stopPolling();
                     showHistoryView();
                 }
             }
@@ -104,6 +135,8 @@ public class SampleView extends ViewPart {
 
         createInputField();
 
+        createActions();
+
         loadTaskHistoryFromCline();
     }
 
@@ -181,38 +214,253 @@ public class SampleView extends ViewPart {
     }
 
     /**
-     * Loads task history from Cline CLI
+     * Adds the view menu actions
      */
-    private void loadTaskHistoryFromCline() {
-        chatHistories.clear();
-        addPlaceholder("Loading task history...");
-        refreshHistoryView();
+    private void createActions() {
+        Action replayAction = new Action("Replay Recording...") {
+            @Override
+            public void run() {
+                replayRecording();
+            }
+        };
+        replayAction.setToolTipText("Play a recorded task view session in a new tab");
+        getViewSite().getActionBars().getMenuManager().add(replayAction);
 
-        new Thread(() -> {
-            try {
-                List<ChatHistory> parsed = clineService.listTasks();
-                System.out.println("[loadTaskHistoryFromCline] Loaded " + parsed.size() + " tasks");
+        Action rollbackAction = new Action("Roll Back Files...") {
+            @Override
+            public void run() {
+                rollBackFiles();
+            }
+        };
+        rollbackAction.setToolTipText("Restore the project files of the current chat to a snapshot");
+        getViewSite().getActionBars().getMenuManager().add(rollbackAction);
+    }
+
+    /**
+     * Asks for a snapshot of the current chat's task and puts the project files back into its state
+     */
+    private void rollBackFiles() {
+        CTabItem activeTab = tabFolder.getSelection();
+        TaskSession session = activeTab != null ? sessionFor(activeTab) : null;
+        WorkspaceSnapshots snapshots = session != null ? session.getSnapshots() : null;
+        List<WorkspaceSnapshots.Snapshot> available = snapshots != null ? snapshots.getSnapshots() : List.of();
+        if (available.isEmpty()) {
+            MessageDialog.openInformation(mainContainer.getShell(), "Roll Back Files",
+                "The current chat has no snapshots of the project files.");
+            return;
+        }
+        Collections.reverse(available); // Newest first
+
+        SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss");
+        ListDialog dialog = new ListDialog(mainContainer.getShell());
+        dialog.setTitle("Roll Back Files");
+        dialog.setMessage("Restore the files of " + snapshots.getRoot() + " to:");
+        dialog.setContentProvider(ArrayContentProvider.getInstance());
+        dialog.setLabelProvider(new LabelProvider() {
+            @Override
+            public String getText(Object element) {
+                WorkspaceSnapshots.Snapshot snapshot = (WorkspaceSnapshots.Snapshot) element;
+                return time.format(new Date(snapshot.createdAt)) + "  " + snapshot.label +
+                    " (" + snapshot.getFileCount() + " files)";
+            }
+        });
+        dialog.setInput(available);
+        dialog.setInitialSelections(new Object[] { available.get(0) });
+        if (dialog.open() != Window.OK || dialog.getResult() == null || dialog.getResult().length == 0) {
+            return;
+        }
+        WorkspaceSnapshots.Snapshot snapshot = (WorkspaceSnapshots.Snapshot) dialog.getResult()[0];
+        if (!MessageDialog.openConfirm(mainContainer.getShell(), "Roll Back Files",
+                "Files changed since \"" + snapshot.label + "\" will be overwritten, and files created since deleted.")) {
+            return;
+        }
+
+        Composite chatComposite = (Composite) activeTab.getControl();
+        diskScope.submit(() -> {
+            List<String> changed = snapshots.rollback(snapshot);
+            projectService.refreshFiles(snapshots.getRoot(), changed);
+            return changed;
+        }).whenComplete((changed, error) -> display.asyncExec(() -> {
+            if (chatComposite.isDisposed()) {
+                return;
+            }
+            if (error != null) {
+                Throwable ex = ClineService.unwrap(error);
+                LOG.warn("[rollBackFiles] Rollback failed: " + ex.getMessage(), ex);
+                chatUIManager.addMessage(chatComposite, "Failed to roll back files: " + ex.getMessage(), false);
+                return;
+            }
+            // The turn's diffs no longer match the files
+            Changeset endedChangeset = session.getChangeset();
+            session.discardPendingDiff();
+            showChangeset(session, chatComposite, endedChangeset);
+            chatUIManager.addMessage(chatComposite, "↺ Rolled back " + changed.size() + " file(s) to \"" + snapshot.label + "\"", false);
+        }));
+    }
+
+    /**
+     * Starts snapshotting the project the task works on (the selected project)
+     */
+    private void startSnapshots(TaskSession session) {
+        String projectRoot = projectService.getProjectRootDirectory();
+        if (projectRoot != null) {
+            session.setSnapshots(WorkspaceSnapshots.forProject(Paths.get(projectRoot)));
+        }
+    }
+
+    /**
+     * Snapshots the session's project on the disk executor
+     *
+     * @param cleanContents from pinCleanContents, released once the snapshot is taken
+     * @return future completing with the snapshot, or null if there is none (it never fails)
+     */
+    private CompletableFuture<WorkspaceSnapshots.Snapshot> takeSnapshot(TaskSession session, String label,
+            Map<String, Backup> cleanContents) {
+        WorkspaceSnapshots snapshots = session.getSnapshots();
+        if (snapshots == null) {
+            cleanContents.values().forEach(Backup::release);
+            return CompletableFuture.completedFuture(null);
+        }
+        return diskScope.submit(() -> snapshots.take(label, cleanContents)).exceptionally(error -> {
+            LOG.warn("Failed to snapshot " + snapshots.getRoot() + ": " + ClineService.unwrap(error).getMessage());
+            return null;
+        }).whenComplete((snapshot, error) -> cleanContents.values().forEach(Backup::release));
+    }
+
+    /**
+     * Pins the clean version of the files whose diff is shown: until the diff is resolved, the file holds
+     * the diff view's combined text, which a snapshot must not record
+     *
+     * @return backups by file location, for takeSnapshot
+     */
+    private Map<String, Backup> pinCleanContents(Changeset changeset) {
+        Map<String, Backup> contents = new LinkedHashMap<>();
+        changeset.pinCleanEditedBackups().forEach((filePath, backup) -> {
+            java.nio.file.Path location = projectService.getFileLocation(filePath);
+            if (location != null) {
+                contents.put(location.toString(), backup);
+            } else {
+                backup.release();
+            }
+        });
+        return contents;
+    }
+
+    /**
+     * Asks for a recording (see PollingConfig.setRecordingDirectory) and a speed, then replays it
+     */
+    private void replayRecording() {
+        FileDialog dialog = new FileDialog(mainContainer.getShell(), SWT.OPEN);
+        dialog.setText("Replay Task View Recording");
+        dialog.setFilterExtensions(new String[] { "*" + TaskViewRecording.FILE_EXTENSION, "*" });
+        if (PollingConfig.getRecordingDirectory() != null) {
+            dialog.setFilterPath(PollingConfig.getRecordingDirectory());
+        }
+        String path = dialog.open();
+        if (path == null) {
+            return;
+        }
+
+        InputDialog speedDialog = new InputDialog(mainContainer.getShell(), "Replay Speed",
+            "Speed factor (1 = original timing, 10 = ten times faster, 0 = no delays):", "1", value -> {
+                try {
+                    return Double.parseDouble(value) >= 0 ? null : "The speed cannot be negative";
+                } catch (NumberFormatException e) {
+                    return "Not a number";
+                }
+            });
+        if (speedDialog.open() != Window.OK) {
+            return;
+        }
+        double speed = Double.parseDouble(speedDialog.getValue());
 
+        diskScope.submit(() -> TaskViewRecording.read(Paths.get(path))).whenComplete((recording, error) ->
+            display.asyncExec(() -> {
+                if (error != null) {
+                    Throwable ex = ClineService.unwrap(error);
+                    LOG.warn("[replayRecording] Failed to read " + path + ": " + ex.getMessage(), ex);
+                    MessageDialog.openError(mainContainer.getShell(), "Replay Failed", ex.getMessage());
+                    return;
+                }
+                openReplayTab(recording, speed);
+            }));
+    }
+
+    /**
+     * Opens a read-only tab that renders a recording through the same path as live polling
+     */
+    private void openReplayTab(TaskViewRecording recording, double speed) {
+        historyView.setVisible(false);
+        ((GridData) historyView.getLayoutData()).exclude = true;
+        tabFolder.setVisible(true);
+        ((GridData) tabFolder.getLayoutData()).exclude = false;
+
+        CTabItem item = new CTabItem(tabFolder, SWT.CLOSE);
+        item.setText("Replay: " + recording.getFile().getFileName());
+
+        // Never starts an instance; it only holds the displayed ids and cancels the replay when the tab closes
+        TaskSession session = new TaskSession(clineService);
+        item.setData(SESSION_KEY, session);
+        item.setData(REPLAY_KEY, Boolean.TRUE);
+
+        Composite chatComposite = chatUIManager.createChatComposite(tabFolder);
+        item.setControl(chatComposite);
+        tabFolder.setSelection(item);
+        mainContainer.layout(true, true);
+
+        TaskViewReplayer replayer = new TaskViewReplayer(recording, speed,
+            prompt -> display.asyncExec(() -> {
+                if (!chatComposite.isDisposed()) {
+                    chatUIManager.addMessage(chatComposite, prompt, true);
+                }
+            }),
+            msg -> display.asyncExec(() -> {
+                if (!chatComposite.isDisposed()) {
+                    displayPolledMessage(session, chatComposite, msg, false);
+                }
+            }));
+        session.track(replayer.start()).whenComplete((count, error) -> {
+            if (error == null) {
                 display.asyncExec(() -> {
-                    chatHistories.clear();
-                    if (parsed.isEmpty()) {
-                        addPlaceholder("No tasks found.");
-                    } else {
-                        chatHistories.addAll(parsed);
+                    if (!chatComposite.isDisposed()) {
+                        chatUIManager.addTurnSummary(chatComposite, "Replay finished: " + count + " messages");
                     }
-                    refreshHistoryView();
                 });
+            }
+        });
+    }
+
+    /**
+     * Loads task history from Cline CLI
+     */
+    private void loadTaskHistoryFromCline() {
+        chatHistories.clear();
+        addPlaceholder("Loading task history...");
+        refreshHistoryView();
 
-            } catch (Exception ex) {
-                System.out.println("[loadTaskHistoryFromCline] Error: " + ex.getMessage());
-                ex.printStackTrace();
+        clineService.listTasksAsync().whenComplete((parsed, error) -> {
+            if (error != null) {
+                Throwable ex = ClineService.unwrap(error);
+                LOG.warn("[loadTaskHistoryFromCline] Error: " + ex.getMessage(), ex);
                 display.asyncExec(() -> {
                     chatHistories.clear();
                     addPlaceholder("Failed to load history: " + ex.getMessage());
                     refreshHistoryView();
                 });
+                return;
             }
-        }, "ClineTaskListThread").start();
+            LOG.debug(() -> "[loadTaskHistoryFromCline] Loaded " + parsed.size() + " tasks");
+
+            display.asyncExec(() -> {
+                chatHistories.clear();
+                if (parsed.isEmpty()) {
+                    addPlaceholder("No tasks found.");
+                } else {
+                    chatHistories.addAll(parsed);
+                }
+                refreshHistoryView();
+            });
+        });
     }
 
     /**
@@ -277,16 +525,14 @@ public class SampleView extends ViewPart {
         previewLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
 
         item.addListener(SWT.MouseDown, e -> {
-            System.out.println("[createHistoryItem] MouseDown on item -> openChatFromHistory()");
+            LOG.debug("[createHistoryItem] MouseDown on item -> openChatFromHistory()");
             openChatFromHistory(history);
         });
 
         final boolean[] hovering = { false };
 
-        Listener childEnter = e -> System.out
-                .println("[createHistoryItem] MouseEnter child: " + widgetName.apply(e.widget));
-        Listener childExit = e -> System.out
-                .println("[createHistoryItem] MouseExit child: " + widgetName.apply(e.widget));
+        Listener childEnter = e -> LOG.trace(() -> "[createHistoryItem] MouseEnter child: " + widgetName.apply(e.widget));
+        Listener childExit = e -> LOG.trace(() -> "[createHistoryItem] MouseExit child: " + widgetName.apply(e.widget));
 
         titleLabel.addListener(SWT.MouseEnter, childEnter);
         titleLabel.addListener(SWT.MouseExit, childExit);
@@ -302,7 +548,7 @@ public class SampleView extends ViewPart {
 
                 boolean inside = bounds.contains(rel);
                 if (!inside && hovering[0]) {
-                    System.out.println("[createHistoryItem] MouseMove outside item -> FORCE normalBg (bounds="
+                    LOG.debug(() -> "[createHistoryItem] MouseMove outside item -> FORCE normalBg (bounds="
                             + bounds + ", rel=" + rel + ")");
                     hovering[0] = false;
                     if (!item.isDisposed())
@@ -313,7 +559,7 @@ public class SampleView extends ViewPart {
         display.addFilter(SWT.MouseMove, moveFilter);
 
         item.addDisposeListener(e -> {
-            System.out.println("[createHistoryItem] Dispose item -> remove moveFilter & dispose colors");
+            LOG.debug("[createHistoryItem] Dispose item -> remove moveFilter & dispose colors");
             try {
                 display.removeFilter(SWT.MouseMove, moveFilter);
             } catch (Exception ignored) {
@@ -333,7 +579,7 @@ public class SampleView extends ViewPart {
      * Opens a chat from history
      */
     private void openChatFromHistory(ChatHistory history) {
-        System.out.println("[openChatFromHistory] Opening chat: " + history.getTitle());
+        LOG.debug(() -> "[openChatFromHistory] Opening chat: " + history.getTitle());
 
         historyView.setVisible(false);
         ((GridData) historyView.getLayoutData()).exclude = true;
@@ -343,6 +589,12 @@ public class SampleView extends ViewPart {
         CTabItem item = new CTabItem(tabFolder, SWT.CLOSE);
         item.setText(history.getTitle());
 
+        TaskSession session = new TaskSession(clineService);
+        String taskId = findTaskId(history);
+        session.setTaskId(taskId);
+        item.setData(SESSION_KEY, session);
+        startSnapshots(session);
+
         Composite chatComposite = chatUIManager.createChatComposite(tabFolder);
         item.setControl(chatComposite);
 
@@ -350,6 +602,23 @@ public class SampleView extends ViewPart {
             chatUIManager.addMessage(chatComposite, msg.getText(), msg.isUser());
         }
 
+        // Each history tab continues its task on its own instance, so two of them can't talk to the same task
+        if (taskId == null) {
+            LOG.warn("[openChatFromHistory] No task ID in history entry: " + history.getTitle());
+            chatUIManager.addMessage(chatComposite, "Cannot continue this chat: its task ID is unknown", false);
+        } else {
+            session.enqueue("open task", () -> session.startInstance()
+                .thenCompose(address -> session.track(clineService.openTaskAsync(address, taskId))))
+                .whenComplete((output, error) -> {
+                    if (error != null && !session.isClosed()) {
+                        Throwable ex = ClineService.unwrap(error);
+                        LOG.warn("[openChatFromHistory] Failed to open task " + taskId + ": " + ex.getMessage(), ex);
+                        display.asyncExec(() -> chatUIManager.addMessage(chatComposite,
+                            "Failed to continue the task: " + ex.getMessage(), false));
+                    }
+                });
+        }
+
         tabFolder.setSelection(item);
         mainContainer.layout(true, true);
         inputField.setFocus();
@@ -359,16 +628,16 @@ public class SampleView extends ViewPart {
      * Creates a new chat and starts a Cline task
      */
     private void createNewChat() {
-        System.out.println("[createNewChat] Starting createNewChat");
+        LOG.debug("[createNewChat] Starting createNewChat");
         String initialMessage = inputField.getText().trim();
-        System.out.println("[createNewChat] Initial message: " + initialMessage);
+        LOG.debug(() -> "[createNewChat] Initial message: " + initialMessage);
 
         if (initialMessage.isEmpty()) {
-            System.out.println("[createNewChat] Message is empty, returning");
+            LOG.debug("[createNewChat] Message is empty, returning");
             return;
         }
 
-        System.out.println("[createNewChat] Setting up UI...");
+        LOG.debug("[createNewChat] Setting up UI...");
 
         historyView.setVisible(false);
         ((GridData) historyView.getLayoutData()).exclude = true;
@@ -376,10 +645,14 @@ public class SampleView extends ViewPart {
         ((GridData) tabFolder.getLayoutData()).exclude = false;
 
         chatCounter++;
-        System.out.println("[createNewChat] Chat counter: " + chatCounter);
+        LOG.debug(() -> "[createNewChat] Chat counter: " + chatCounter);
         CTabItem item = new CTabItem(tabFolder, SWT.CLOSE);
         item.setText("Creating chat...");
 
+        TaskSession session = new TaskSession(clineService);
+        item.setData(SESSION_KEY, session);
+        startSnapshots(session);
+
         Composite chatComposite = chatUIManager.createChatComposite(tabFolder);
         item.setControl(chatComposite);
 
@@ -388,56 +661,71 @@ public class SampleView extends ViewPart {
 
         String messageCopy = initialMessage;
         inputField.setText("");
+        session.getTurnAnalytics().startTurn(System.currentTimeMillis());
+
+        LOG.debug("[createNewChat] Starting session instance...");
+
+        // The project is snapshotted before Cline can change it
+        session.enqueue("snapshot", () -> takeSnapshot(session, "Task start", Map.of()));
+
+        // Queued so that messages typed while the task is being created are sent after it exists
+        session.enqueue("create task", () -> session.startInstance()
+            .thenCompose(address -> {
+                LOG.debug("[createNewChat] Creating Cline task...");
+                return session.track(clineService.createTaskAsync(address, messageCopy));
+            }))
+            .whenComplete((taskId, error) -> {
+                if (session.isClosed()) {
+                    LOG.debug("[createNewChat] Tab closed before task was created");
+                    return;
+                }
+                if (error != null) {
+                    Throwable ex = ClineService.unwrap(error);
+                    LOG.warn("[createNewChat] Exception occurred: " + ex.getMessage(), ex);
+                    display.asyncExec(() -> {
+                        item.setText("Error");
+                        chatUIManager.addMessage(chatComposite, "Failed to create chat: " + ex.getMessage(), false);
+                    });
+                    return;
+                }
 
-        System.out.println("[createNewChat] Starting background thread...");
-
-        new Thread(() -> {
-            try {
-                System.out.println("[createNewChat Thread] Thread started");
-                System.out.println("[createNewChat Thread] Creating Cline task...");
-
-                clineService.createTask(messageCopy);
-                System.out.println("[createNewChat Thread] Task created");
+                session.setTaskId(taskId);
+                LOG.debug(() -> "[createNewChat] Task created: " + taskId);
 
                 display.asyncExec(() -> {
-                    System.out.println("[createNewChat Thread asyncExec] Updating UI with task info");
+                    LOG.debug("[createNewChat asyncExec] Updating UI with task info");
                     String shortTitle = messageCopy.length() > 30 ? messageCopy.substring(0, 30) + "..."
                             : messageCopy;
                     item.setText(shortTitle);
 
                     chatUIManager.addMessage(chatComposite, messageCopy, true);
 
-                    System.out.println("[createNewChat Thread asyncExec] UI updated");
+                    LOG.debug("[createNewChat asyncExec] UI updated");
                 });
 
-                System.out.println("[createNewChat Thread] About to start polling...");
-
-                startPolling(chatComposite, messageCopy, true); // true = new chat
-                
-                System.out.println("[createNewChat Thread] Polling started");
-
-            } catch (Exception ex) {
-                System.out.println("[createNewChat Thread] Exception occurred: " + ex.getMessage());
-                ex.printStackTrace();
-                display.asyncExec(() -> {
-                    item.setText("Error");
-                    chatUIManager.addMessage(chatComposite, "Failed to create chat: " + ex.getMessage(), false);
-                });
-            }
-        }, "CreateClineTaskThread").start();
+                startPolling(session, chatComposite, messageCopy, true); // true = new chat
+                LOG.debug("[createNewChat] Polling started");
+            });
 
-        System.out.println("[createNewChat] Method completed, thread running in background");
+        LOG.info("[createNewChat] Method completed, task creation running in background");
     }
 
     /**
-     * Starts polling for task updates using TaskPollingService
+     * Starts polling for task updates using the session's TaskPollingService
      * 
+     * @param session the tab's task session
      * @param chatComposite the chat composite to display messages in
      * @param skipFirstEchoText the first message text (for new chats) or null (for existing chats)
      * @param isNewChat true if this is a new chat (clears history), false if continuing existing chat (preserves history)
      */
-	private void startPolling(Composite chatComposite, String skipFirstEchoText, boolean isNewChat) {
-		System.out.println("[startPolling] Starting polling with TaskPollingService, isNewChat=" + isNewChat);
+	private void startPolling(TaskSession session, Composite chatComposite, String skipFirstEchoText, boolean isNewChat) {
+		LOG.debug(() -> "[startPolling] Starting polling with TaskPollingService, isNewChat=" + isNewChat);
+
+		if (session.isClosed()) {
+			return;
+		}
+		TaskPollingService pollingService = session.getPollingService();
+		Set<String> displayedMessageIds = session.getDisplayedMessageIds();
 
 		if (skipFirstEchoText != null && !skipFirstEchoText.isEmpty()) {
 			if (isNewChat) {
@@ -455,111 +743,12 @@ public class SampleView extends ViewPart {
 		}
 
 		pollingService.startPolling(
-			(msg) -> display.asyncExec(() -> {
-				// Skip USER type messages - they're already displayed when the user sent them
-				// These are just echoes from Cline confirming receipt
-				if (msg.type == Message.Type.USER) {
-					return;
-				}
-
-				// Check if this message has already been displayed (deduplication)
-				String messageId = createMessageId(msg);
-				if (displayedMessageIds.contains(messageId)) {
-					System.out.println("[startPolling] Skipping duplicate message: " + messageId);
-					return;
-				}
-
-				// Use the new filtering logic for all other messages
-				if (msg.rawJson != null) {
-					String jsonLine = msg.rawJson.toString();
-
-					// Check if this is a file edit or creation tool request and show diff
-					if (msg.askType != null && msg.askType.equals("tool") && msg.text != null) {
-						try {
-							JsonObject toolJson = JsonParser.parseString(msg.text).getAsJsonObject();
-							String toolType = toolJson.has("tool") ? toolJson.get("tool").getAsString() : null;
-							
-							// Handle both editedExistingFile and newFileCreated
-							if (toolType != null && (toolType.equals("editedExistingFile") || toolType.equals("newFileCreated"))) {
-								String filePath = toolJson.has("path") ? toolJson.get("path").getAsString() : null;
-								if (filePath != null) {
-									// Clean up previous diff state
-									cleanupPreviousDiff();
-
-									// Store the file path for later use
-									currentDiffFilePath = filePath;
-
-									// Auto-approve in background, save backup, wait for Cline to apply, then show diff
-									new Thread(() -> {
-										try {
-											// Save original backup first
-											File originalBackup = projectService.saveBackup(filePath);
-											if (originalBackup != null) {
-												System.out.println("[SampleView] Saved original backup before auto-approving: " + filePath);
-											}
-
-											// Auto-approve (Cline will apply changes)
-											clineService.sendAskResponse(true, "");
-											alreadyAutoApproved = true; // Mark that we already approved
-											System.out.println("[SampleView] Auto-approved tool request, waiting for Cline to apply changes...");
-
-											// Wait a bit for Cline to apply changes
-											Thread.sleep(1000);
-
-											// Now show diff view (file should be modified by Cline now)
-											display.asyncExec(() -> {
-												projectService.showDiffViewFromBackup(filePath, originalBackup,
-													(editor, origBackup, cleanBackup) -> {
-														// Track the opened editor and BOTH backups
-														currentDiffEditor = editor;
-														currentOriginalBackup = origBackup;
-														currentCleanEditedBackup = cleanBackup;
-														System.out.println("[SampleView] Tracking backups - Original: " +
-															(origBackup != null ? origBackup.getName() : "null") +
-															", Clean: " + (cleanBackup != null ? cleanBackup.getName() : "null"));
-													});
-											});
-										} catch (Exception e) {
-											System.err.println("[SampleView] Error auto-approving and showing diff: " + e.getMessage());
-											e.printStackTrace();
-										}
-									}, "AutoApproveAndShowDiffThread").start();
-								}
-							}
-						} catch (Exception e) {
-							System.out.println("[SampleView] Error parsing tool JSON for diff: " + e.getMessage());
-						}
-					}
-
-					// Check if this message will show approval buttons
-					// These are the ask types that require approval (from ChatUIManager.filterAskMessage)
-					if (msg.askType != null &&
-					    (msg.askType.equals("tool") ||
-					     msg.askType.equals("command") ||
-					     msg.askType.equals("api_req_failed") ||
-					     msg.askType.equals("resume_task") ||
-					     msg.askType.equals("resume_completed_task"))) {
-						hasPendingApproval = true;
-						System.out.println("[SampleView] Pending approval detected: " + msg.askType);
-					}
-
-					chatUIManager.processClineMessage(
-						chatComposite,
-						jsonLine,
-						(askContainer) -> handleApprove(chatComposite, askContainer),
-						(askContainer) -> handleDeny(chatComposite, askContainer)
-					);
-					
-					// Mark this message as displayed
-					displayedMessageIds.add(messageId);
-					System.out.println("[startPolling] Added message to displayedMessageIds: " + messageId + " (total: " + displayedMessageIds.size() + ")");
-				}
-			}),
-			() -> System.out.println("[startPolling] Polling completed"),
+			(msg) -> display.asyncExec(() -> displayPolledMessage(session, chatComposite, msg, true)),
+			() -> LOG.info("[startPolling] Polling completed"),
 			(askJsonText) -> {
 				// This callback is now handled by processClineMessage filtering
 				// Keep it for backward compatibility but it's no longer needed
-				System.out.println("[startPolling] Ask message detected (handled by filtering): " + askJsonText);
+				LOG.debug(() -> "[startPolling] Ask message detected (handled by filtering): " + askJsonText);
 			},
 			() -> display.asyncExec(() -> {
 				// Refresh package explorer when tool is used
@@ -568,6 +757,298 @@ public class SampleView extends ViewPart {
 		);
 	}
 
+    /**
+     * Displays one message from the poller (or a replayed recording) in its chat. Runs on the UI thread.
+     *
+     * @param live false for replayed messages: they are rendered the same way, but nothing is sent to
+     *             Cline, no diffs are opened and approve/deny only hide the buttons
+     */
+	private void displayPolledMessage(TaskSession session, Composite chatComposite, Message msg, boolean live) {
+		Set<String> displayedMessageIds = session.getDisplayedMessageIds();
+
+		// Skip USER type messages - they're already displayed when the user sent them
+		// These are just echoes from Cline confirming receipt
+		if (msg.type == Message.Type.USER) {
+			return;
+		}
+
+		// Check if this message has already been displayed (deduplication)
+		String messageId = createMessageId(msg);
+		if (displayedMessageIds.contains(messageId)) {
+			LOG.debug(() -> "[displayPolledMessage] Skipping duplicate message: " + messageId);
+			return;
+		}
+
+		if (live && "checkpoint_created".equals(msg.sayType)) {
+			takeSnapshot(session, "Checkpoint", pinCleanContents(session.getChangeset()));
+		}
+
+		// Replayed messages have recorded timestamps, so they don't feed the turn timeline
+		TurnAnalytics.Breakdown finishedTurn = live ? session.getTurnAnalytics().onMessage(msg, System.currentTimeMillis()) : null;
+
+		// Use the new filtering logic for all other messages
+		if (msg.rawJson != null) {
+			String jsonLine = msg.rawJson.toString();
+
+			// Check if this is a file edit or creation tool request and show diff
+			String editedFile = null;
+			if (live && msg.askType != null && msg.askType.equals("tool") && msg.text != null) {
+				try {
+					JsonObject toolJson = JsonParser.parseString(msg.text).getAsJsonObject();
+					String toolType = toolJson.has("tool") ? toolJson.get("tool").getAsString() : null;
+					
+					// Handle both editedExistingFile and newFileCreated
+					if (toolType != null && (toolType.equals("editedExistingFile") || toolType.equals("newFileCreated"))) {
+						String filePath = toolJson.has("path") ? toolJson.get("path").getAsString() : null;
+						if (filePath != null) {
+							editedFile = filePath;
+							// Proposed content (SEARCH/REPLACE blocks or the whole file), previewed before Cline writes it
+							String payloadContent = toolJson.has("content") && toolJson.get("content").isJsonPrimitive()
+								? toolJson.get("content").getAsString() : null;
+							trackFileEdit(session, chatComposite, filePath, payloadContent);
+						}
+					}
+				} catch (Exception e) {
+					LOG.debug(() -> "Error parsing tool JSON for diff: " + e.getMessage());
+				}
+			}
+
+			// Check if this message will show approval buttons
+			// These are the ask types that require approval (from ChatUIManager.filterAskMessage)
+			if (live && msg.askType != null &&
+			    (msg.askType.equals("tool") ||
+			     msg.askType.equals("command") ||
+			     msg.askType.equals("api_req_failed") ||
+			     msg.askType.equals("resume_task") ||
+			     msg.askType.equals("resume_completed_task"))) {
+				session.setPendingApproval(true);
+				LOG.debug(() -> "Pending approval detected: " + msg.askType);
+			}
+
+			String askFile = editedFile;
+			chatUIManager.processClineMessage(
+				chatComposite,
+				jsonLine,
+				(askContainer) -> {
+					if (live) {
+						handleApprove(session, chatComposite, askContainer, reviewableChange(session, askFile));
+					} else {
+						chatUIManager.hideAskButtons(askContainer);
+					}
+				},
+				(askContainer) -> {
+					if (live) {
+						handleDeny(session, chatComposite, askContainer, reviewableChange(session, askFile));
+					} else {
+						chatUIManager.hideAskButtons(askContainer);
+					}
+				});
+			if (finishedTurn != null) {
+				chatUIManager.addTurnSummary(chatComposite, finishedTurn.format());
+			}
+
+			// Mark this message as displayed
+			displayedMessageIds.add(messageId);
+			LOG.trace(() -> "[displayPolledMessage] Added message to displayedMessageIds: " + messageId + " (total: " + displayedMessageIds.size() + ")");
+		}
+	}
+
+	/**
+	 * Adds a file edit Cline asks to make to the session's changeset: saves the original backup,
+	 * auto-approves the edit (Cline applies it), then shows its diff and the changeset review panel.
+	 * The diffs of a turn's edits are computed concurrently on the diff executor.
+	 *
+	 * @param payloadContent the ask's proposed content, or null
+	 */
+	private void trackFileEdit(TaskSession session, Composite chatComposite, String filePath, String payloadContent) {
+		Changeset changeset = session.getChangeset();
+
+		// Auto-approve in background, save backup, wait for Cline to apply, then show diff
+		session.track(backupBeforeEdit(changeset, filePath)).thenCompose(backups -> {
+			Changeset.FileChange change = changeset.add(filePath, backups.original);
+			DiffViewCallback trackDiff = trackDiff(session, chatComposite, changeset, change, change.getEdit());
+			showChangeset(session, chatComposite, changeset);
+
+			// Start the preview before approving, so it sees the file as it was before Cline's write
+			CompletableFuture<String> approval = new CompletableFuture<>();
+			if (payloadContent != null) {
+				projectService.showProposedDiffView(filePath, change.getOriginalBackup(), backups.current, payloadContent,
+					approval, trackDiff);
+			} else if (backups.current != null) {
+				backups.current.release();
+			}
+			// Auto-approve (Cline will apply changes)
+			session.getTurnAnalytics().approvalResolved(System.currentTimeMillis());
+			return session.enqueueAskResponse(true, "")
+				.whenComplete((output, error) -> {
+					if (error != null) {
+						approval.completeExceptionally(error);
+					} else {
+						approval.complete(output);
+					}
+				})
+				.thenApply(output -> trackDiff);
+		}).whenComplete((trackDiff, error) -> {
+			if (error != null) {
+				LOG.error("Error auto-approving and showing diff: " + ClineService.unwrap(error).getMessage());
+				return;
+			}
+			session.setAlreadyAutoApproved(true); // Mark that we already approved
+			LOG.debug("Auto-approved tool request, waiting for Cline to apply changes...");
+			if (payloadContent != null) {
+				return; // The preview opens the diff as soon as Cline's write lands
+			}
+
+			// Give Cline a moment to apply changes, then show diff view (file should be modified by Cline now)
+			PluginExecutors.timer().schedule(() -> {
+				if (session.isClosed()) {
+					return;
+				}
+				Changeset.FileChange change = changeset.get(filePath);
+				projectService.showDiffViewFromBackup(filePath, change != null ? change.getOriginalBackup() : null, trackDiff);
+			}, 1000, TimeUnit.MILLISECONDS);
+		});
+	}
+
+	/**
+	 * The backups a new edit of a file is previewed with
+	 */
+	private static class EditBackups {
+		final Backup original; // The file before the turn, which the diff compares against
+		final Backup current;  // The file as Cline edits it if the turn already edited it (a pin to release), else null
+
+		EditBackups(Backup original, Backup current) {
+			this.original = original;
+			this.current = current;
+		}
+	}
+
+	/**
+	 * @return future completing with the backups of a new edit of the file: the original of the turn and
+	 *         Cline's previous version if the file was already edited in it (that version is put back without
+	 *         the diff lines first), otherwise a fresh backup of the file
+	 */
+	private CompletableFuture<EditBackups> backupBeforeEdit(Changeset changeset, String filePath) {
+		Changeset.FileChange previous = changeset.get(filePath);
+		Backup cleanBackup = previous != null && previous.getStatus() == Changeset.Status.READY
+			? previous.getCleanEditedBackup() : null;
+		if (cleanBackup != null) {
+			Backup originalBackup = previous.getOriginalBackup();
+			Backup current = cleanBackup.pin(); // The restore releases cleanBackup
+			Map<String, Backup> restore = new LinkedHashMap<>();
+			restore.put(filePath, cleanBackup);
+			return projectService.restoreFromBackups(restore)
+				.whenComplete((restored, error) -> {
+					if (error != null) {
+						current.release();
+					}
+				})
+				.thenApply(restored -> new EditBackups(originalBackup, current));
+		}
+		return diskScope.submit(() -> {
+			// Save original backup first
+			Backup originalBackup = projectService.saveBackup(filePath);
+			if (originalBackup != null) {
+				LOG.debug(() -> "Saved original backup before auto-approving: " + filePath);
+			}
+			return new EditBackups(originalBackup, null);
+		});
+	}
+
+	/**
+	 * @return diff view callback marking one edit of a change as ready for review
+	 */
+	private DiffViewCallback trackDiff(TaskSession session, Composite chatComposite, Changeset changeset,
+	                                   Changeset.FileChange change, int edit) {
+		return (editor, origBackup, cleanBackup) -> {
+			if (changeset.ready(change, edit, editor, cleanBackup)) {
+				LOG.debug(() -> "Tracking backups of " + change.filePath + " - Original: " +
+					(origBackup != null ? origBackup.hash : "null") +
+					", Clean: " + (cleanBackup != null ? cleanBackup.hash : "null"));
+				HunkSummary hunks = projectService.getHunkSummary(editor);
+				if (hunks != null) {
+					chatUIManager.addHunkSummary(chatComposite, change.filePath, hunks,
+						index -> projectService.revealHunk(editor, index));
+				}
+			} else if (cleanBackup != null && change.getStatus() == Changeset.Status.DISCARDED) {
+				// The turn ended before the diff was shown: keep Cline's version, without the diff lines
+				projectService.restoreFromBackup(change.filePath, cleanBackup);
+			} else if (cleanBackup != null) {
+				cleanBackup.release(); // A newer edit of the file will be shown instead
+			}
+			showChangeset(session, chatComposite, changeset);
+		};
+	}
+
+	/**
+	 * Shows or updates the review panel of a changeset in the chat
+	 */
+	private void showChangeset(TaskSession session, Composite chatComposite, Changeset changeset) {
+		chatUIManager.showChangesetReview(chatComposite, changeset,
+			changes -> reviewFromPanel(session, chatComposite, changeset, changes, true),
+			changes -> reviewFromPanel(session, chatComposite, changeset, changes, false),
+			projectService::showFile);
+	}
+
+	/**
+	 * Approves or denies changes from the review panel. Only the files are affected: the ask Cline is
+	 * waiting on (if any) is still answered with its own buttons.
+	 */
+	private void reviewFromPanel(TaskSession session, Composite chatComposite, Changeset changeset,
+	                             List<Changeset.FileChange> changes, boolean approve) {
+		List<Changeset.FileChange> reviewed = reviewChanges(session, chatComposite, changeset, changes, approve);
+		if (reviewed.isEmpty()) {
+			return;
+		}
+		StringBuilder files = new StringBuilder();
+		for (Changeset.FileChange change : reviewed) {
+			files.append(files.length() > 0 ? ", " : "").append(change.filePath);
+		}
+		chatUIManager.addMessage(chatComposite, (approve ? "✓ Approved changes to " : "✗ Denied changes to ") + files, false);
+	}
+
+	/**
+	 * Resolves the READY changes among the given ones and restores the files in one workspace operation:
+	 * Cline's clean version for approved changes, the original for denied ones
+	 *
+	 * @return the changes that were resolved
+	 */
+	private List<Changeset.FileChange> reviewChanges(TaskSession session, Composite chatComposite, Changeset changeset,
+	                                                 List<Changeset.FileChange> changes, boolean approve) {
+		List<Changeset.FileChange> reviewed = new ArrayList<>();
+		Map<String, Backup> restores = new LinkedHashMap<>();
+		for (Changeset.FileChange change : changes) {
+			if (!changeset.resolve(change, approve)) {
+				continue;
+			}
+			reviewed.add(change);
+			Backup backup = approve ? change.getCleanEditedBackup() : change.getOriginalBackup();
+			if (backup != null) {
+				restores.put(change.filePath, backup);
+			}
+		}
+		if (!restores.isEmpty()) {
+			projectService.restoreFromBackups(restores).whenComplete((restored, error) -> {
+				if (error != null) {
+					chatUIManager.addMessage(chatComposite, "Failed to restore files: " + error.getMessage(), false);
+				}
+			});
+			LOG.debug(() -> (approve ? "Restoring clean edited versions of " : "Restoring originals of ") + restores.keySet());
+		}
+		if (!reviewed.isEmpty()) {
+			showChangeset(session, chatComposite, changeset);
+		}
+		return reviewed;
+	}
+
+	/**
+	 * @return the file's change if it is waiting for a review, for the approve/deny buttons of its ask
+	 */
+	private List<Changeset.FileChange> reviewableChange(TaskSession session, String filePath) {
+		Changeset.FileChange change = filePath != null ? session.getChangeset().get(filePath) : null;
+		return change != null && change.getStatus() == Changeset.Status.READY ? List.of(change) : List.of();
+	}
+
     /**
      * Creates a unique message ID for deduplication purposes
      * Uses timestamp, type, sayType, and askType to create a unique identifier
@@ -588,6 +1069,30 @@ public class SampleView extends ViewPart {
         return ts + "_" + type + "_" + say + "_" + ask;
     }
 
+    /**
+     * Returns the task session attached to a chat tab
+     */
+    private TaskSession sessionFor(CTabItem item) {
+        if (item == null) {
+            return null;
+        }
+        Object session = item.getData(SESSION_KEY);
+        return (session instanceof TaskSession) ? (TaskSession) session : null;
+    }
+
+    /**
+     * Extracts the task ID stored in a history entry ("Task ID: ..." message)
+     */
+    private String findTaskId(ChatHistory history) {
+        for (ChatMessage msg : history.getMessages()) {
+            String text = msg.getText();
+            if (text != null && text.startsWith("Task ID:")) {
+                return text.substring("Task ID:".length()).trim();
+            }
+        }
+        return null;
+    }
+
     /**
      * Shows the history view and hides the tab folder
      */
@@ -602,59 +1107,34 @@ public class SampleView extends ViewPart {
     /**
      * Handles an ask message that requires approval
      * 
+     * @param session the tab's task session
      * @param chatComposite the chat composite
      * @param askJsonText the JSON text from the ask message
      */
-    private void handleAskRequiresApproval(Composite chatComposite, String askJsonText) {
-        System.out.println("[handleAskRequiresApproval] Ask requires approval: " + askJsonText);
+    private void handleAskRequiresApproval(TaskSession session, Composite chatComposite, String askJsonText) {
+        LOG.debug(() -> "[handleAskRequiresApproval] Ask requires approval: " + askJsonText);
         
         // Display the ask message with approve/deny buttons
         chatUIManager.addAskMessage(
             chatComposite,
             askJsonText,
-            (askContainer) -> handleApprove(chatComposite, askContainer),
-            (askContainer) -> handleDeny(chatComposite, askContainer)
+            (askContainer) -> handleApprove(session, chatComposite, askContainer, List.of()),
+            (askContainer) -> handleDeny(session, chatComposite, askContainer, List.of())
         );
     }
 
-    /**
-     * Cleans up previous diff state (backup file, editor, etc.)
-     */
-    private void cleanupPreviousDiff() {
-        // If there's a pending diff, clean it up
-        if (currentOriginalBackup != null) {
-            // Delete original backup file since user didn't approve or deny
-            if (currentOriginalBackup.exists()) {
-                currentOriginalBackup.delete();
-                System.out.println("[SampleView] Deleted abandoned original backup file");
-            }
-            currentOriginalBackup = null;
-        }
-        if (currentCleanEditedBackup != null) {
-            // Delete clean edited backup file since user didn't approve or deny
-            if (currentCleanEditedBackup.exists()) {
-                currentCleanEditedBackup.delete();
-                System.out.println("[SampleView] Deleted abandoned clean edited backup file");
-            }
-            currentCleanEditedBackup = null;
-        }
-        currentDiffEditor = null;
-        currentDiffFilePath = null;
-        alreadyAutoApproved = false; // Reset auto-approval flag
-        
-        // Note: We don't clear hasPendingApproval here because it's handled separately in sendMessage
-        // This allows command approvals (which don't have backup files) to be properly tracked
-    }
-
     /**
      * Handles approve button click
+     *
+     * @param changes the file change of the ask, if it is waiting for a review (kept: Cline's version is restored)
      */
-    private void handleApprove(Composite chatComposite, Composite askContainer) {
-        System.out.println("[handleApprove] User approved");
+    private void handleApprove(TaskSession session, Composite chatComposite, Composite askContainer,
+                               List<Changeset.FileChange> changes) {
+        LOG.debug("[handleApprove] User approved");
 
         // Check if this is a stale button click (user already sent a new message)
-        if (!hasPendingApproval) {
-            System.out.println("[handleApprove] No active approval to process (stale button click)");
+        if (!session.hasPendingApproval()) {
+            LOG.debug("[handleApprove] No active approval to process (stale button click)");
             if (askContainer != null) {
                 chatUIManager.hideAskButtons(askContainer);
             }
@@ -668,111 +1148,77 @@ public class SampleView extends ViewPart {
         String feedback = inputField.getText().trim();
 
         // Clear the pending approval flag
-        hasPendingApproval = false;
+        session.setPendingApproval(false);
+        session.getTurnAnalytics().approvalResolved(System.currentTimeMillis());
 
         // Hide buttons immediately
         if (askContainer != null) {
             chatUIManager.hideAskButtons(askContainer);
         }
 
-        // Save file path and backup files before clearing them (needed for restore)
-        final String filePath = currentDiffFilePath;
-        final java.io.File cleanEditedBackup = currentCleanEditedBackup;
-        final java.io.File originalBackup = currentOriginalBackup;
-        
-        // Clear state immediately (restore will happen in thread)
-        currentOriginalBackup = null;
-        currentCleanEditedBackup = null;
-        currentDiffEditor = null;
-        currentDiffFilePath = null;
-
         // Clear input field since we're using the text as feedback
         if (!feedback.isEmpty()) {
             inputField.setText("");
         }
 
-        new Thread(() -> {
-            try {
-                // Restore the clean edited version (Cline's actual edits without removed lines for highlighting)
-                if (filePath != null && cleanEditedBackup != null) {
-                    projectService.restoreFromBackup(filePath, cleanEditedBackup);
-                    System.out.println("[SampleView] Restored clean edited version after approve");
-
-                    // Give the restore operation time to complete before clearing highlights
-                    // This ensures the document is updated first
-                    try {
-                        Thread.sleep(200);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                }
-
-                // Clear diff highlights from the editor (will restore syntax highlighting)
-                if (filePath != null) {
-                    projectService.clearDiffHighlights(filePath);
-                    System.out.println("[SampleView] Cleared diff highlights after approve");
-                }
-                
-                // Clean up both backup files since changes are approved
-                if (cleanEditedBackup != null && cleanEditedBackup.exists()) {
-                    cleanEditedBackup.delete();
-                    System.out.println("[SampleView] Deleted clean edited backup file (changes approved)");
-                }
-                if (originalBackup != null && originalBackup.exists()) {
-                    originalBackup.delete();
-                    System.out.println("[SampleView] Deleted original backup file (changes approved)");
-                }
-                
-                // If we already auto-approved, don't send another approve (would be double approval)
-                // Just send feedback as a regular message if provided
-                if (alreadyAutoApproved) {
-                    System.out.println("[handleApprove] Already auto-approved, skipping duplicate approve signal");
-                    if (!feedback.isEmpty()) {
-                        // Send feedback as a regular message
-                        clineService.sendMessage(feedback);
-                        System.out.println("[handleApprove] Sent feedback as regular message: " + feedback);
-                    }
-                } else {
-                    // Normal approve flow (for non-file-diff approvals like commands)
-                    String output = clineService.sendAskResponse(true, feedback);
-                    System.out.println("[handleApprove] Output: " + output);
-                }
-                
-                // Reset the flag
-                alreadyAutoApproved = false;
-
-                // Refresh package explorer after tool approval
-                projectService.refreshPackageExplorer();
-
-                final String feedbackCopy = feedback;
-                display.asyncExec(() -> {
-                    String approveMsg = feedbackCopy.isEmpty()
-                        ? "✓ Approved"
-                        : "✓ Approved with feedback: " + feedbackCopy;
-                    chatUIManager.addMessage(chatComposite, approveMsg, false);
+        // Keep Cline's edits: restore the clean edited version (without the removed lines shown for highlighting)
+        reviewChanges(session, chatComposite, session.getChangeset(), changes, true);
+
+        // If we already auto-approved, don't send another approve (would be double approval)
+        // Just send feedback as a regular message if provided
+        CompletableFuture<String> response;
+        if (session.isAlreadyAutoApproved()) {
+            LOG.debug("[handleApprove] Already auto-approved, skipping duplicate approve signal");
+            response = feedback.isEmpty()
+                ? CompletableFuture.completedFuture(null)
+                : session.enqueueMessage(feedback);
+        } else {
+            // Normal approve flow (for non-file-diff approvals like commands)
+            response = session.enqueueAskResponse(true, feedback);
+        }
 
-                    // Restart polling since we stopped it when we received the tool request
-                    startPolling(chatComposite, null, false); // false = existing chat
-                });
-            } catch (Exception ex) {
-                System.out.println("[handleApprove] Exception: " + ex.getMessage());
-                ex.printStackTrace();
+        response.whenComplete((output, error) -> {
+            if (error != null) {
+                Throwable ex = ClineService.unwrap(error);
+                LOG.warn("[handleApprove] Exception: " + ex.getMessage(), ex);
                 display.asyncExec(() -> {
                     chatUIManager.addMessage(chatComposite, "Failed to approve: " + ex.getMessage(), false);
                 });
+                return;
             }
-        }, "ApproveThread").start();
+            LOG.debug(() -> "[handleApprove] Output: " + output);
+
+            // Reset the flag
+            session.setAlreadyAutoApproved(false);
+
+            // Refresh package explorer after tool approval
+            projectService.refreshPackageExplorer();
+
+            final String feedbackCopy = feedback;
+            display.asyncExec(() -> {
+                String approveMsg = feedbackCopy.isEmpty()
+                    ? "✓ Approved"
+                    : "✓ Approved with feedback: " + feedbackCopy;
+                chatUIManager.addMessage(chatComposite, approveMsg, false);
+
+                // Restart polling since we stopped it when we received the tool request
+                startPolling(session, chatComposite, null, false); // false = existing chat
+            });
+        });
     }
 
     /**
      * Handles deny button click
+     *
+     * @param changes the file change of the ask, if it is waiting for a review (restored to the original)
      */
-    private void handleDeny(Composite chatComposite, Composite askContainer) {
-        System.out.println("[handleDeny] User denied");
+    private void handleDeny(TaskSession session, Composite chatComposite, Composite askContainer,
+                            List<Changeset.FileChange> changes) {
+        LOG.debug("[handleDeny] User denied");
 
         // Check if this is a stale button click (user already sent a new message)
-        if (!hasPendingApproval) {
-            System.out.println("[handleDeny] No active approval to process (stale button click)");
+        if (!session.hasPendingApproval()) {
+            LOG.debug("[handleDeny] No active approval to process (stale button click)");
             if (askContainer != null) {
                 chatUIManager.hideAskButtons(askContainer);
             }
@@ -786,49 +1232,33 @@ public class SampleView extends ViewPart {
         String feedback = inputField.getText().trim();
 
         // Clear the pending approval flag
-        hasPendingApproval = false;
+        session.setPendingApproval(false);
+        session.getTurnAnalytics().approvalResolved(System.currentTimeMillis());
 
         // Hide buttons immediately
         if (askContainer != null) {
             chatUIManager.hideAskButtons(askContainer);
         }
 
-        // Restore file from original backup since changes are denied (if this was a file diff)
-        final String filePath = currentDiffFilePath;
-        final java.io.File originalBackup = currentOriginalBackup;
-        final java.io.File cleanEditedBackup = currentCleanEditedBackup;
-
-        // Clear state immediately (restore will happen synchronously)
-        currentOriginalBackup = null;
-        currentCleanEditedBackup = null;
-        currentDiffEditor = null;
-        currentDiffFilePath = null;
-
-        // Restore the original version (pre-edit state)
-        if (filePath != null && originalBackup != null) {
-            projectService.restoreFromBackup(filePath, originalBackup);
-            System.out.println("[SampleView] Restoring file from original backup (changes denied)");
-        }
+        // Restore the original version (pre-edit state) if this was a file diff
+        reviewChanges(session, chatComposite, session.getChangeset(), changes, false);
 
         // Clear input field since we're using the text as feedback
         if (!feedback.isEmpty()) {
             inputField.setText("");
         }
 
-        new Thread(() -> {
-            try {
-                // Clean up both backup files since changes are denied
-                if (originalBackup != null && originalBackup.exists()) {
-                    originalBackup.delete();
-                    System.out.println("[SampleView] Deleted original backup file (changes denied)");
+        session.enqueueAskResponse(false, feedback)
+            .whenComplete((output, error) -> {
+                if (error != null) {
+                    Throwable ex = ClineService.unwrap(error);
+                    LOG.warn("[handleDeny] Exception: " + ex.getMessage(), ex);
+                    display.asyncExec(() -> {
+                        chatUIManager.addMessage(chatComposite, "Failed to deny: " + ex.getMessage(), false);
+                    });
+                    return;
                 }
-                if (cleanEditedBackup != null && cleanEditedBackup.exists()) {
-                    cleanEditedBackup.delete();
-                    System.out.println("[SampleView] Deleted clean edited backup file (changes denied)");
-                }
-                
-                String output = clineService.sendAskResponse(false, feedback);
-                System.out.println("[handleDeny] Output: " + output);
+                LOG.debug(() -> "[handleDeny] Output: " + output);
 
                 final String feedbackCopy = feedback;
                 display.asyncExec(() -> {
@@ -837,16 +1267,9 @@ public class SampleView extends ViewPart {
                         : "✗ Denied with feedback: " + feedbackCopy;
                     chatUIManager.addMessage(chatComposite, denyMsg, false);
                     // Restart polling since we stopped it when we received the tool request
-                    startPolling(chatComposite, null, false); // false = existing chat
-                });
-            } catch (Exception ex) {
-                System.out.println("[handleDeny] Exception: " + ex.getMessage());
-                ex.printStackTrace();
-                display.asyncExec(() -> {
-                    chatUIManager.addMessage(chatComposite, "Failed to deny: " + ex.getMessage(), false);
+                    startPolling(session, chatComposite, null, false); // false = existing chat
                 });
-            }
-        }, "DenyThread").start();
+            });
     }
 
     /**
@@ -867,38 +1290,41 @@ public class SampleView extends ViewPart {
 		if (activeTab == null) return;
 
 		Composite chatComposite = (Composite) activeTab.getControl();
+		TaskSession session = sessionFor(activeTab);
+		if (session == null || activeTab.getData(REPLAY_KEY) != null) return;
 
 		// Check if there's a pending approval workflow - if so, auto-deny it
-		if (hasPendingApproval) {
-			System.out.println("[sendMessage] Pending approval detected - auto-denying before sending new message");
-			hasPendingApproval = false;
+		if (session.hasPendingApproval()) {
+			LOG.debug("[sendMessage] Pending approval detected - auto-denying before sending new message");
+			session.setPendingApproval(false);
 
 			// Auto-deny the pending approval (no feedback for auto-deny)
-			new Thread(() -> {
-				try {
-					clineService.sendAskResponse(false, "");
-					System.out.println("[sendMessage] Auto-denied pending approval");
+			// Queued ahead of the new message, so Cline sees the deny first
+			session.enqueueAskResponse(false, "")
+				.whenComplete((output, error) -> {
+					if (error != null) {
+						LOG.debug(() -> "[sendMessage] Failed to auto-deny: " + ClineService.unwrap(error).getMessage());
+						return;
+					}
+					LOG.debug("[sendMessage] Auto-denied pending approval");
 
 					display.asyncExec(() -> {
 						chatUIManager.addMessage(chatComposite, "⚠ Previous approval request was automatically denied (you sent a new message)", false);
 					});
-				} catch (Exception ex) {
-					System.out.println("[sendMessage] Failed to auto-deny: " + ex.getMessage());
-				}
-			}, "AutoDenyThread").start();
-
-			// Give the auto-deny a moment to process before continuing
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
-			}
+				});
 		}
 
-		// Clean up any pending diff state (backup file will be deleted)
+		// End the turn's changeset (unreviewed backups are deleted)
 		// This invalidates any pending approve/deny buttons
-		cleanupPreviousDiff();
-
+		Changeset endedChangeset = session.getChangeset();
+		Map<String, Backup> cleanContents = pinCleanContents(endedChangeset); // For the snapshot below
+		session.discardPendingDiff();
+		showChangeset(session, chatComposite, endedChangeset);
+
+		TurnAnalytics.Breakdown interruptedTurn = session.getTurnAnalytics().startTurn(System.currentTimeMillis());
+		if (interruptedTurn != null) {
+			chatUIManager.addTurnSummary(chatComposite, interruptedTurn.format());
+		}
 		chatUIManager.addMessage(chatComposite, message, true);
 
 		if (activeTab.getText().startsWith("Chat ") || activeTab.getText().equals("Creating chat...")) {
@@ -909,30 +1335,33 @@ public class SampleView extends ViewPart {
 		final String messageCopy = message;
 		inputField.setText("");
 
-		new Thread(() -> {
-			try {
-				System.out.println("[sendMessage] Sending message to cline task send: " + messageCopy);
-
-				String output = clineService.sendMessage(messageCopy);
-				System.out.println("[sendMessage] Output from cline task send: " + output);
+		String snapshotLabel = "Before \"" + (message.length() > 30 ? message.substring(0, 30) + "..." : message) + "\"";
+		session.enqueue("snapshot", () -> takeSnapshot(session, snapshotLabel, cleanContents))
+			.whenComplete((snapshot, error) -> cleanContents.values().forEach(Backup::release)); // Also if it never ran
+
+		LOG.debug(() -> "[sendMessage] Sending message to cline task send: " + messageCopy);
+		session.enqueueMessage(messageCopy)
+			.whenComplete((output, error) -> {
+				if (error != null) {
+					Throwable ex = ClineService.unwrap(error);
+					LOG.warn("[sendMessage] Exception sending message: " + ex.getMessage(), ex);
+					display.asyncExec(() -> chatUIManager.addMessage(chatComposite, "Failed to send message: " + ex.getMessage(), false));
+					return;
+				}
+				LOG.debug(() -> "[sendMessage] Output from cline task send: " + output);
 
 				if (output.contains("Message sent successfully")) {
-					System.out.println("[sendMessage] Message sent successfully");
-					System.out.println("[sendMessage] Diagnostic: messageCopy='" + messageCopy + "', displayedMessageIds.size()=" + displayedMessageIds.size());
-					pollingService.updatePrompt(messageCopy);
+					LOG.info("[sendMessage] Message sent successfully");
+					LOG.debug(() -> "[sendMessage] Diagnostic: messageCopy='" + messageCopy + "', task=" + session.getTaskId());
+					session.getPollingService().updatePrompt(messageCopy);
 					display.asyncExec(() -> {
-						startPolling(chatComposite, messageCopy, false); // false = existing chat
+						startPolling(session, chatComposite, messageCopy, false); // false = existing chat
 					});
 				} else if (output.contains("Error:") || output.contains("failed")) {
-					System.out.println("[sendMessage] Error sending message: " + output);
+					LOG.debug(() -> "[sendMessage] Error sending message: " + output);
 					display.asyncExec(() -> chatUIManager.addMessage(chatComposite, "Error sending message: " + output, false));
 				}
-			} catch (Exception ex) {
-				System.out.println("[sendMessage] Exception sending message: " + ex.getMessage());
-				ex.printStackTrace();
-				display.asyncExec(() -> chatUIManager.addMessage(chatComposite, "Failed to send message: " + ex.getMessage(), false));
-			}
-		}, "SendMessageThread").start();
+			});
 	}
 
     @Override
@@ -942,8 +1371,19 @@ public class SampleView extends ViewPart {
 
     @Override
     public void dispose() {
-        System.out.println("[SampleView] Disposing view, stopping polling");
-        pollingService.stopPolling();
+        LOG.debug("Disposing view, closing task sessions");
+        if (tabFolder != null && !tabFolder.isDisposed()) {
+            for (CTabItem item : tabFolder.getItems()) {
+                TaskSession session = sessionFor(item);
+                if (session != null) {
+                    session.close();
+                }
+            }
+        }
+        diskScope.close();
+        if (projectService != null) {
+            projectService.dispose();
+        }
         super.dispose();
     }
 }
\ No newline at end of file